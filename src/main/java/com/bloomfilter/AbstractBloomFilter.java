@@ -1,6 +1,10 @@
 package com.bloomfilter;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Skeletal implementation of the {@link MembershipFilter} contract providing
@@ -8,16 +12,43 @@ import java.util.Arrays;
  * for Bloom filter variants. Concrete subclasses must implement storage and
  * hashing-specific details via the abstract methods.
  *
+ * <p>Outside verbose mode, {@link #add(Object)} and {@link #mightContain(Object)} run an
+ * allocation-free path: the element is hashed into thread-local scratch space by
+ * {@link #hash(Object, long[])} and bits are probed inline by {@link #addHashed(long, long)}
+ * and {@link #containsHashed(long, long)}, so no index array is materialized per operation.
+ *
+ * <p>{@link #addAll(Iterable)} collects elements into batches, hashes each batch in parallel
+ * on the common fork-join pool and then inserts the hashes in input order through
+ * {@link #addHashedBatch(long[], long[], int)}, so the result is identical to sequential
+ * {@code add} calls even for filters whose state depends on insertion order; as their
+ * contracts require, key encoders and hash strategies are called from several threads.
+ * {@link #mightContainAll(List)} likewise
+ * hashes a whole batch before probing it through
+ * {@link #containsHashedBatch(long[], long[], int, boolean[])}, which filters override to
+ * order their memory accesses so that cache misses overlap.
+ *
  * @param <T> element type handled by the filter
  */
 public abstract class AbstractBloomFilter<T> implements MembershipFilter<T> {
 
-    /** Size of the bit array (m). */
-    protected final int bitArraySize;
+    /** Elements collected per batch by {@link #addAll(Iterable)}. */
+    static final int ADD_BATCH = 1 << 14;
+
+    /** Elements hashed per fork-join task. */
+    static final long HASH_GRAIN = 1 << 10;
+
+    /** Size of the bit array (m); may exceed {@code Integer.MAX_VALUE}. */
+    protected final long bitArraySize;
 
     /** Number of hash functions (k). */
     protected final int hashCount;
 
+    /** Turns elements into the bytes that are hashed. */
+    protected final KeyEncoder<? super T> keyEncoder;
+
+    /** Hash function and probe derivation. */
+    protected final HashStrategy hashStrategy;
+
     /** Estimated number of inserted elements. */
     protected long itemCount;
 
@@ -28,11 +59,24 @@ public abstract class AbstractBloomFilter<T> implements MembershipFilter<T> {
     // Constructors and configuration
     // ------------------------------------------------------------
 
-    protected AbstractBloomFilter(int bitArraySize, int hashCount) {
+    protected AbstractBloomFilter(long bitArraySize, int hashCount) {
+        this(bitArraySize, hashCount, KeyEncoders.defaultEncoder());
+    }
+
+    protected AbstractBloomFilter(long bitArraySize, int hashCount, KeyEncoder<? super T> keyEncoder) {
+        this(bitArraySize, hashCount, keyEncoder, StandardHashStrategy.MURMUR3_LEGACY);
+    }
+
+    protected AbstractBloomFilter(long bitArraySize, int hashCount, KeyEncoder<? super T> keyEncoder,
+                                  HashStrategy hashStrategy) {
         if (bitArraySize <= 0) throw new IllegalArgumentException("bitArraySize must be positive");
         if (hashCount <= 0) throw new IllegalArgumentException("hashCount must be positive");
+        if (keyEncoder == null) throw new NullPointerException("keyEncoder");
+        if (hashStrategy == null) throw new NullPointerException("hashStrategy");
         this.bitArraySize = bitArraySize;
         this.hashCount = hashCount;
+        this.keyEncoder = keyEncoder;
+        this.hashStrategy = hashStrategy;
         this.itemCount = 0;
     }
 
@@ -46,39 +90,142 @@ public abstract class AbstractBloomFilter<T> implements MembershipFilter<T> {
 
     @Override
     public void add(T element) {
-        int[] indices = getHashIndices(element);
+        if (!verbose) {
+            long[] hash = HashUtils.scratchHash();
+            hash(element, hash);
+            addHashed(hash[0], hash[1]);
+            countAdded();
+            return;
+        }
+        long[] indices = getHashIndices(element);
+        System.out.printf("Adding element: %s%n", element);
+        System.out.printf(" → hash indices: %s%n", Arrays.toString(indices));
+        for (long index : indices) setBit(index);
+        countAdded();
+        System.out.printf(" → itemCount now: %d%n", getEstimatedCount());
+    }
+
+    @Override
+    public void addAll(Iterable<? extends T> elements) {
+        if (elements == null) throw new NullPointerException("elements");
+        addAll(elements.iterator());
+    }
+
+    @Override
+    public void addAll(Stream<? extends T> elements) {
+        if (elements == null) throw new NullPointerException("elements");
+        addAll(elements.sequential().iterator());
+    }
+
+    private void addAll(Iterator<? extends T> elements) {
         if (verbose) {
-            System.out.printf("Adding element: %s%n", element);
-            System.out.printf(" → hash indices: %s%n", Arrays.toString(indices));
+            while (elements.hasNext()) add(elements.next());
+            return;
+        }
+        Object[] batch = new Object[ADD_BATCH];
+        long[] hash1 = new long[ADD_BATCH];
+        long[] hash2 = new long[ADD_BATCH];
+        int size = 0;
+        while (elements.hasNext()) {
+            T element = elements.next();
+            if (element == null) {
+                if (size > 0) addBatch(batch, size, hash1, hash2);
+                throw new NullPointerException("element");
+            }
+            batch[size++] = element;
+            if (size == ADD_BATCH) {
+                addBatch(batch, size, hash1, hash2);
+                size = 0;
+            }
+        }
+        if (size > 0) addBatch(batch, size, hash1, hash2);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addBatch(Object[] batch, int size, long[] hash1, long[] hash2) {
+        ParallelRanges.forEach(size, HASH_GRAIN, (from, to) -> {
+            long[] hash = HashUtils.scratchHash();
+            for (int i = (int) from; i < to; i++) {
+                hash((T) batch[i], hash);
+                hash1[i] = hash[0];
+                hash2[i] = hash[1];
+            }
+        });
+        addHashedBatch(hash1, hash2, size);
+    }
+
+    /**
+     * Inserts the first {@code size} precomputed hashes in order, exactly as the matching
+     * sequence of {@link #add(Object)} calls would. Thread-safe filters override this to
+     * insert in parallel.
+     */
+    protected void addHashedBatch(long[] hash1, long[] hash2, int size) {
+        for (int i = 0; i < size; i++) {
+            addHashed(hash1[i], hash2[i]);
+            countAdded();
         }
-        for (int index : indices) setBit(index);
-        itemCount++;
-        if (verbose) System.out.printf(" → itemCount now: %d%n", itemCount);
     }
 
     @Override
     public boolean mightContain(T element) {
-        int[] indices = getHashIndices(element);
-        if (verbose) {
-            System.out.printf("Checking membership for: %s%n", element);
-            System.out.printf(" → hash indices: %s%n", Arrays.toString(indices));
+        if (!verbose) {
+            long[] hash = HashUtils.scratchHash();
+            hash(element, hash);
+            return containsHashed(hash[0], hash[1]);
         }
-        for (int index : indices) {
+        long[] indices = getHashIndices(element);
+        System.out.printf("Checking membership for: %s%n", element);
+        System.out.printf(" → hash indices: %s%n", Arrays.toString(indices));
+        for (long index : indices) {
             boolean bit = getBit(index);
-            if (verbose) System.out.printf("   bit[%d] = %s%n", index, bit);
+            System.out.printf("   bit[%d] = %s%n", index, bit);
             if (!bit) {
-                if (verbose) System.out.println(" → Definitely NOT in the set.\n");
+                System.out.println(" → Definitely NOT in the set.\n");
                 return false;
             }
         }
-        if (verbose) System.out.println(" → Possibly in the set (mightContain = true)\n");
+        System.out.println(" → Possibly in the set (mightContain = true)\n");
         return true;
     }
 
+    /**
+     * Checks a batch of elements in two phases: every element is hashed first, then the
+     * hashes are probed together by {@link #containsHashedBatch(long[], long[], int, boolean[])}.
+     */
+    @Override
+    public boolean[] mightContainAll(List<? extends T> elements) {
+        if (elements == null) throw new NullPointerException("elements");
+        int size = elements.size();
+        boolean[] results = new boolean[size];
+        int i = 0;
+        if (verbose) {
+            for (T element : elements) results[i++] = mightContain(element);
+            return results;
+        }
+        long[] hash1 = new long[size];
+        long[] hash2 = new long[size];
+        long[] hash = HashUtils.scratchHash();
+        for (T element : elements) {
+            hash(element, hash);
+            hash1[i] = hash[0];
+            hash2[i++] = hash[1];
+        }
+        containsHashedBatch(hash1, hash2, size, results);
+        return results;
+    }
+
+    /**
+     * Probes the first {@code size} precomputed hashes, storing the answers in {@code results}.
+     * The default probes one element after another.
+     */
+    protected void containsHashedBatch(long[] hash1, long[] hash2, int size, boolean[] results) {
+        for (int i = 0; i < size; i++) results[i] = containsHashed(hash1[i], hash2[i]);
+    }
+
     @Override
     public void clear() {
         if (verbose) System.out.println("Clearing all bits...");
-        for (int i = 0; i < bitArraySize; i++) clearBit(i);
+        for (long i = 0; i < bitArraySize; i++) clearBit(i);
         itemCount = 0;
         if (verbose) System.out.println(" → Filter cleared.");
     }
@@ -88,24 +235,109 @@ public abstract class AbstractBloomFilter<T> implements MembershipFilter<T> {
         return itemCount;
     }
 
+    /**
+     * Returns the number of set bits. The default tests every position through
+     * {@link #getBit(long)}; filters override it with a count maintained on insert or a
+     * word-level popcount.
+     */
+    public long getSetBitCount() {
+        long count = 0;
+        for (long i = 0; i < bitArraySize; i++) if (getBit(i)) count++;
+        return count;
+    }
+
+    @Override
+    public double getFillRatio() {
+        return (double) getSetBitCount() / getBitArraySize();
+    }
+
+    /**
+     * Estimates the distinct elements from the fill ratio {@code X/m} as
+     * {@code -(m/k) ln(1 - X/m)} (Swamidass and Baldi), which is unaffected by duplicate
+     * inserts. A saturated filter yields {@link Double#POSITIVE_INFINITY}.
+     */
+    @Override
+    public double estimateDistinctCount() {
+        double fill = getFillRatio();
+        return fill >= 1 ? Double.POSITIVE_INFINITY : -getBitArraySize() / (double) hashCount * Math.log1p(-fill);
+    }
+
+    /**
+     * Estimates the false-positive rate from the actual density: an absent element is
+     * accepted when all k of its probes hit set bits, i.e. {@code (X/m)^k}. Unlike an estimate
+     * from the number of inserts, this does not drift when elements are added more than once.
+     */
     @Override
     public double estimateFalsePositiveRate() {
-        double m = bitArraySize;
-        double k = hashCount;
-        double n = itemCount;
-        double fpr = Math.pow(1 - Math.exp(-k * n / m), k);
-        if (verbose) System.out.printf("Estimating FPR (m=%f, k=%f, n=%f) = %f%n", m, k, n, fpr);
+        double fill = getFillRatio();
+        double fpr = Math.pow(fill, hashCount);
+        if (verbose) System.out.printf("Estimating FPR (m=%d, k=%d, fill=%f) = %f%n",
+                bitArraySize, hashCount, fill, fpr);
         return fpr;
     }
 
+    // ------------------------------------------------------------
+    // Hashing hooks
+    // ------------------------------------------------------------
+
+    /**
+     * Hashes an element into {@code out}: the {@link KeyEncoder} writes the element into the
+     * thread-local key buffer, which is then hashed in place by the {@link HashStrategy}.
+     *
+     * @param element element to hash
+     * @param out two-element array receiving the 128-bit hash
+     */
+    protected void hash(T element, long[] out) {
+        if (element == null) throw new NullPointerException("element");
+        KeyBuffer buffer = KeyBuffer.local().reset();
+        keyEncoder.encode(element, buffer);
+        hashStrategy.hash128(buffer.array(), 0, buffer.size(), out);
+    }
+
+    /**
+     * Returns the k bit indices for an element. Used for verbose tracing and introspection;
+     * the hot path derives the same indices inline from {@link #hash(Object, long[])}.
+     */
+    protected long[] getHashIndices(T element) {
+        long[] hash = new long[2];
+        hash(element, hash);
+        long[] indices = new long[hashCount];
+        for (int i = 0; i < hashCount; i++) {
+            indices[i] = hashStrategy.index(hash[0], hash[1], i, bitArraySize);
+        }
+        return indices;
+    }
+
+    /**
+     * Records one insertion in {@link #itemCount}. Thread-safe filters override this with a
+     * contention-free counter and report it through {@link #getEstimatedCount()}.
+     */
+    protected void countAdded() {
+        itemCount++;
+    }
+
+    /** Sets the k bits derived from a precomputed 128-bit hash. */
+    protected void addHashed(long hash1, long hash2) {
+        for (int i = 0; i < hashCount; i++) {
+            setBit(hashStrategy.index(hash1, hash2, i, bitArraySize));
+        }
+    }
+
+    /** Tests the k bits derived from a precomputed 128-bit hash, stopping at the first miss. */
+    protected boolean containsHashed(long hash1, long hash2) {
+        for (int i = 0; i < hashCount; i++) {
+            if (!getBit(hashStrategy.index(hash1, hash2, i, bitArraySize))) return false;
+        }
+        return true;
+    }
+
     // ------------------------------------------------------------
     // Abstract hooks for concrete filters
     // ------------------------------------------------------------
 
-    protected abstract int[] getHashIndices(T element);
-    protected abstract void setBit(int index);
-    protected abstract boolean getBit(int index);
-    protected abstract void clearBit(int index);
+    protected abstract void setBit(long index);
+    protected abstract boolean getBit(long index);
+    protected abstract void clearBit(long index);
 
     // ------------------------------------------------------------
     // Serialization stubs
@@ -131,7 +363,34 @@ public abstract class AbstractBloomFilter<T> implements MembershipFilter<T> {
     }
 
     /** Returns the size of the bit array (m). */
-    public int getBitArraySize() {
+    public long getBitArraySize() {
         return this.bitArraySize;
     }
+
+    /** Returns the encoder used to turn elements into hashed bytes. */
+    public KeyEncoder<? super T> getKeyEncoder() {
+        return this.keyEncoder;
+    }
+
+    /** Returns the hash strategy used to hash elements and derive probe positions. */
+    public HashStrategy getHashStrategy() {
+        return this.hashStrategy;
+    }
+
+    // ------------------------------------------------------------
+    // Serialization helpers
+    // ------------------------------------------------------------
+
+    /**
+     * Reads the hash strategy id that trails serialized data and checks it matches this
+     * filter. Data written before strategies were recorded has no trailer and implies
+     * {@link StandardHashStrategy#MURMUR3_LEGACY}.
+     */
+    protected void checkHashStrategy(ByteBuffer buffer) {
+        int savedStrategy = buffer.remaining() >= 4 ? buffer.getInt() : StandardHashStrategy.MURMUR3_LEGACY.id();
+        if (savedStrategy != hashStrategy.id()) {
+            throw new IllegalArgumentException("Serialized data uses hash strategy " + savedStrategy
+                    + " but filter is configured with " + hashStrategy.id());
+        }
+    }
 }
@@ -0,0 +1,74 @@
+package com.bloomfilter;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Thread-safe {@link BitStorage} over a heap {@code long[]} accessed through a
+ * {@link VarHandle}. Bits are set with an atomic fetch-or on their word, so concurrent
+ * writers never lose each other's bits, and reads are single acquire loads, so they are
+ * wait-free. A bit that is already set is detected with a plain read first, which keeps
+ * saturated words from bouncing between cores on repeated inserts.
+ */
+final class AtomicBitStorage implements BitStorage {
+
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long bitSize;
+    private final long[] words;
+
+    AtomicBitStorage(long bitSize) {
+        if (bitSize <= 0) throw new IllegalArgumentException("bitSize must be positive");
+        long wordCount = (bitSize + 63) >>> 6;
+        if (wordCount > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("bitSize too large for heap storage: " + bitSize);
+        }
+        this.bitSize = bitSize;
+        this.words = new long[(int) wordCount];
+    }
+
+    @Override
+    public long bitSize() {
+        return bitSize;
+    }
+
+    @Override
+    public long wordCount() {
+        return words.length;
+    }
+
+    @Override
+    public long getWord(long wordIndex) {
+        return (long) WORDS.getAcquire(words, (int) wordIndex);
+    }
+
+    @Override
+    public void setWord(long wordIndex, long value) {
+        WORDS.setRelease(words, (int) wordIndex, value);
+    }
+
+    @Override
+    public boolean get(long index) {
+        return ((long) WORDS.getAcquire(words, (int) (index >>> 6)) & (1L << index)) != 0;
+    }
+
+    @Override
+    public boolean set(long index) {
+        int w = (int) (index >>> 6);
+        long mask = 1L << index;
+        if (((long) WORDS.getAcquire(words, w) & mask) != 0) return false;
+        return ((long) WORDS.getAndBitwiseOr(words, w, mask) & mask) == 0;
+    }
+
+    @Override
+    public void clear(long index) {
+        WORDS.getAndBitwiseAnd(words, (int) (index >>> 6), ~(1L << index));
+    }
+
+    @Override
+    public void clearAll() {
+        for (int w = 0; w < words.length; w++) {
+            WORDS.setRelease(words, w, 0L);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.bloomfilter;
+
+/**
+ * Fixed-size bit array addressed by 64-bit indices and organised as 64-bit words. Bit
+ * {@code i} lives in word {@code i >>> 6} at position {@code i & 63}. Implementations may
+ * keep the words on the heap ({@link #heap(long)}) or in native memory ({@link #offHeap(long)});
+ * storages holding native resources release them in {@link #close()}.
+ */
+public interface BitStorage extends AutoCloseable {
+
+    /**
+     * Creates a storage backed by a heap {@code long[]}.
+     *
+     * @param bits number of addressable bits
+     * @return a zeroed heap storage
+     */
+    static BitStorage heap(long bits) {
+        return new HeapBitStorage(bits);
+    }
+
+    /**
+     * Creates a storage backed by direct (off-heap) memory, which is released by {@link #close()}.
+     *
+     * @param bits number of addressable bits
+     * @return a zeroed off-heap storage
+     */
+    static BitStorage offHeap(long bits) {
+        return new OffHeapBitStorage(bits);
+    }
+
+    /** Returns the number of addressable bits. */
+    long bitSize();
+
+    /** Returns the number of 64-bit words backing the bits. */
+    default long wordCount() {
+        return (bitSize() + 63) >>> 6;
+    }
+
+    /** Returns the word at the given word index. */
+    long getWord(long wordIndex);
+
+    /** Replaces the word at the given word index. */
+    void setWord(long wordIndex, long value);
+
+    /** Returns the bit at the given index. */
+    default boolean get(long index) {
+        return (getWord(index >>> 6) & (1L << index)) != 0;
+    }
+
+    /**
+     * Sets the bit at the given index.
+     *
+     * @return {@code true} if the bit was previously clear
+     */
+    default boolean set(long index) {
+        long wordIndex = index >>> 6;
+        long word = getWord(wordIndex);
+        long mask = 1L << index;
+        if ((word & mask) != 0) return false;
+        setWord(wordIndex, word | mask);
+        return true;
+    }
+
+    /** Clears the bit at the given index. */
+    default void clear(long index) {
+        long wordIndex = index >>> 6;
+        setWord(wordIndex, getWord(wordIndex) & ~(1L << index));
+    }
+
+    /** Clears every bit. */
+    default void clearAll() {
+        for (long w = 0, n = wordCount(); w < n; w++) setWord(w, 0L);
+    }
+
+    /** Returns the number of set bits, counted a word at a time. */
+    default long cardinality() {
+        long count = 0;
+        for (long w = 0, n = wordCount(); w < n; w++) count += Long.bitCount(getWord(w));
+        return count;
+    }
+
+    /** Releases any resources held by the storage. Heap storages do nothing. */
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,234 @@
+package com.bloomfilter;
+
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Cache-line blocked Bloom filter. The bit array is divided into 512-bit blocks (eight
+ * {@code long} words, one 64-byte cache line); one hash word picks the block and the other
+ * derives all k bit positions inside it, so an insert or query touches a single block and
+ * costs at most one cache miss on large, out-of-cache filters, instead of k scattered ones.
+ * (Heap arrays are only 16-byte aligned, so a block may straddle two adjacent lines there.)
+ *
+ * <p>Confining the k bits of each element to one block makes the false-positive rate
+ * somewhat higher than a classic filter of the same size, because blocks fill unevenly;
+ * {@link #estimateFalsePositiveRate()} accounts for this. The bit array size is rounded up
+ * to a whole number of blocks. Storage and serialization are inherited from
+ * {@link ClassicBloomFilter}, but the bit positions differ, so files are only meaningful to
+ * another blocked filter with the same parameters.
+ *
+ * @param <T> the type of elements to be stored in the filter
+ */
+public class BlockedBloomFilter<T> extends ClassicBloomFilter<T> {
+
+    /** Bits per block: one 64-byte cache line. */
+    public static final int BLOCK_BITS = 512;
+
+    private static final int BLOCK_WORDS = BLOCK_BITS / 64;
+
+    private final long blockCount;
+
+    /**
+     * Creates a new BlockedBloomFilter with at least the given number of bits.
+     *
+     * @param bitArraySize minimum size of the bit array, rounded up to a multiple of 512
+     * @param numHashFunctions the number of bits set per element
+     */
+    public BlockedBloomFilter(long bitArraySize, int numHashFunctions) {
+        this(bitArraySize, numHashFunctions, KeyEncoders.defaultEncoder());
+    }
+
+    /**
+     * Creates a new BlockedBloomFilter that hashes elements with the given key encoder.
+     *
+     * @param bitArraySize minimum size of the bit array, rounded up to a multiple of 512
+     * @param numHashFunctions the number of bits set per element
+     * @param keyEncoder turns elements into the bytes that are hashed
+     */
+    public BlockedBloomFilter(long bitArraySize, int numHashFunctions, KeyEncoder<? super T> keyEncoder) {
+        this(bitArraySize, numHashFunctions, keyEncoder, StandardHashStrategy.MURMUR3_LEGACY);
+    }
+
+    /**
+     * Creates a new BlockedBloomFilter with an explicit key encoder and hash strategy. Only the
+     * strategy's hash function is used; probe positions are always derived within a block.
+     *
+     * @param bitArraySize minimum size of the bit array, rounded up to a multiple of 512
+     * @param numHashFunctions the number of bits set per element
+     * @param keyEncoder turns elements into the bytes that are hashed
+     * @param hashStrategy hash function
+     */
+    public BlockedBloomFilter(long bitArraySize, int numHashFunctions, KeyEncoder<? super T> keyEncoder,
+                              HashStrategy hashStrategy) {
+        this(BitStorage.heap(roundToBlocks(bitArraySize)), numHashFunctions, keyEncoder, hashStrategy);
+    }
+
+    /**
+     * Creates a new BlockedBloomFilter over the given storage, whose size must be a multiple of 512.
+     *
+     * @param storage bit storage; owned by the filter from now on
+     * @param numHashFunctions the number of bits set per element
+     * @param keyEncoder turns elements into the bytes that are hashed
+     * @param hashStrategy hash function
+     */
+    public BlockedBloomFilter(BitStorage storage, int numHashFunctions, KeyEncoder<? super T> keyEncoder,
+                              HashStrategy hashStrategy) {
+        super(storage, numHashFunctions, keyEncoder, hashStrategy);
+        if (bitArraySize % BLOCK_BITS != 0) {
+            throw new IllegalArgumentException("storage size must be a multiple of " + BLOCK_BITS);
+        }
+        this.blockCount = bitArraySize / BLOCK_BITS;
+    }
+
+    private static long roundToBlocks(long bits) {
+        if (bits <= 0) throw new IllegalArgumentException("bitArraySize must be positive");
+        return (bits + BLOCK_BITS - 1) / BLOCK_BITS * BLOCK_BITS;
+    }
+
+    /** Number of 512-bit blocks. */
+    public long getBlockCount() {
+        return blockCount;
+    }
+
+    @Override
+    protected ClassicBloomFilter<T> emptyCopy() {
+        return new BlockedBloomFilter<>(bitArraySize, hashCount, keyEncoder, hashStrategy);
+    }
+
+    // Block from the high bits of hash1; in-block positions from the top 9 bits of
+    // hash2 + i * step. The step is the low half of hash1 moved to the top, so it is
+    // independent of the block choice, and odd so successive positions differ.
+
+    @Override
+    protected void addHashed(long hash1, long hash2) {
+        BitStorage bits = getStorage();
+        long base = HashUtils.reduce(hash1, blockCount) * BLOCK_WORDS;
+        long step = Long.rotateLeft(hash1, 32) | 1;
+        long g = hash2;
+        for (int i = 0; i < hashCount; i++, g += step) {
+            int position = (int) (g >>> 55);
+            long word = base + (position >>> 6);
+            long mask = 1L << position;
+            long current = bits.getWord(word);
+            if ((current & mask) == 0) {
+                bits.setWord(word, current | mask);
+                countSetBit();
+            }
+        }
+    }
+
+    @Override
+    protected boolean containsHashed(long hash1, long hash2) {
+        BitStorage bits = getStorage();
+        long base = HashUtils.reduce(hash1, blockCount) * BLOCK_WORDS;
+        long step = Long.rotateLeft(hash1, 32) | 1;
+        long g = hash2;
+        for (int i = 0; i < hashCount; i++, g += step) {
+            int position = (int) (g >>> 55);
+            if ((bits.getWord(base + (position >>> 6)) & (1L << position)) == 0) return false;
+        }
+        return true;
+    }
+
+    /** Resolves the block of every element first, then sets each element's bits in its block. */
+    @Override
+    protected void addHashedBatch(long[] hash1, long[] hash2, int size) {
+        long[] bases = blockBases(hash1, size);
+        BitStorage bits = getStorage();
+        for (int j = 0; j < size; j++) {
+            long step = Long.rotateLeft(hash1[j], 32) | 1;
+            long g = hash2[j];
+            for (int i = 0; i < hashCount; i++, g += step) {
+                int position = (int) (g >>> 55);
+                long word = bases[j] + (position >>> 6);
+                long mask = 1L << position;
+                long current = bits.getWord(word);
+                if ((current & mask) == 0) {
+                    bits.setWord(word, current | mask);
+                    countSetBit();
+                }
+            }
+            countAdded();
+        }
+    }
+
+    /**
+     * Resolves the block of every element first; each element then costs one independent
+     * cache-line access, which the CPU overlaps with those of its neighbours.
+     */
+    @Override
+    protected void containsHashedBatch(long[] hash1, long[] hash2, int size, boolean[] results) {
+        long[] bases = blockBases(hash1, size);
+        BitStorage bits = getStorage();
+        for (int j = 0; j < size; j++) {
+            long step = Long.rotateLeft(hash1[j], 32) | 1;
+            long g = hash2[j];
+            boolean found = true;
+            for (int i = 0; i < hashCount && found; i++, g += step) {
+                int position = (int) (g >>> 55);
+                found = (bits.getWord(bases[j] + (position >>> 6)) & (1L << position)) != 0;
+            }
+            results[j] = found;
+        }
+    }
+
+    private long[] blockBases(long[] hash1, int size) {
+        long[] bases = new long[size];
+        for (int j = 0; j < size; j++) bases[j] = HashUtils.reduce(hash1[j], blockCount) * BLOCK_WORDS;
+        return bases;
+    }
+
+    @Override
+    protected long[] getHashIndices(T element) {
+        long[] hash = new long[2];
+        hash(element, hash);
+        long first = HashUtils.reduce(hash[0], blockCount) * BLOCK_BITS;
+        long step = Long.rotateLeft(hash[0], 32) | 1;
+        long g = hash[1];
+        long[] indices = new long[hashCount];
+        for (int i = 0; i < hashCount; i++, g += step) {
+            indices[i] = first + (g >>> 55);
+        }
+        return indices;
+    }
+
+    /**
+     * Estimates the false-positive rate of the blocked layout. Elements are spread over the
+     * blocks as a Poisson distribution with mean {@code n / blocks}; the rate is the classic
+     * formula for a single 512-bit block, averaged over that distribution. This is noticeably
+     * higher than the plain classic estimate once blocks fill up. {@code n} is the distinct
+     * count estimated from the fill ratio, so duplicate inserts do not inflate the rate.
+     */
+    @Override
+    public double estimateFalsePositiveRate() {
+        double n = estimateDistinctCount();
+        double k = hashCount;
+        double fpr = Double.isInfinite(n) ? 1 : averageOverBlocks(n / blockCount,
+                j -> Math.pow(1 - Math.exp(-k * j / BLOCK_BITS), k));
+        if (verbose) System.out.printf("Estimating blocked FPR (blocks=%d, k=%f, n=%f) = %f%n",
+                blockCount, k, n, fpr);
+        return fpr;
+    }
+
+    /**
+     * Averages a per-block false-positive rate over the Poisson distribution of the number of
+     * elements in a block.
+     *
+     * @param lambda mean number of elements per block
+     * @param blockFpr false-positive rate of a block holding {@code j} elements
+     * @return the expected false-positive rate
+     */
+    static double averageOverBlocks(double lambda, IntToDoubleFunction blockFpr) {
+        if (lambda <= 0) return 0;
+        // Sum the Poisson terms around the mean in log space to avoid overflow
+        int start = (int) Math.max(0, Math.floor(lambda - 12 * Math.sqrt(lambda) - 12));
+        int end = (int) Math.ceil(lambda + 12 * Math.sqrt(lambda) + 12);
+        double logFactorial = 0;
+        for (int i = 2; i <= start; i++) logFactorial += Math.log(i);
+        double fpr = 0;
+        for (int j = start; j <= end; j++) {
+            if (j > start) logFactorial += Math.log(j);
+            fpr += Math.exp(j * Math.log(lambda) - lambda - logFactorial) * blockFpr.applyAsDouble(j);
+        }
+        return fpr;
+    }
+}
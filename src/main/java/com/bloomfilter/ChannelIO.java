@@ -0,0 +1,219 @@
+package com.bloomfilter;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.CRC32C;
+
+/**
+ * Channel helpers for {@link MembershipFilter#writeTo} and {@link MembershipFilter#readFrom}:
+ * complete reads and writes over channels that may transfer fewer bytes than asked, gathering
+ * writes where the channel supports them, channels limited to a slice of another, and
+ * channels that checksum the bytes passing through them.
+ */
+final class ChannelIO {
+
+    /** Size of the direct staging buffer filters copy their words through: 1 MB. */
+    static final int TRANSFER_BUFFER = 1 << 20;
+
+    private ChannelIO() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Fills the buffer from the channel.
+     *
+     * @throws EOFException if the channel ends first
+     */
+    static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        if (readUpTo(channel, buffer) < 0) {
+            throw new EOFException("Channel ended " + buffer.remaining() + " bytes before the end of the filter");
+        }
+    }
+
+    /**
+     * Reads until the buffer is full or the channel ends.
+     *
+     * @return the number of bytes read, or -1 if the channel ended with the buffer not full
+     */
+    static int readUpTo(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer);
+            if (read < 0) return -1;
+            total += read;
+        }
+        return total;
+    }
+
+    /** Writes every remaining byte of the buffers in order, in one gathering write where possible. */
+    static void writeFully(WritableByteChannel channel, ByteBuffer... buffers) throws IOException {
+        if (channel instanceof GatheringByteChannel gathering) {
+            long remaining = 0;
+            for (ByteBuffer buffer : buffers) remaining += buffer.remaining();
+            while (remaining > 0) remaining -= gathering.write(buffers);
+            return;
+        }
+        for (ByteBuffer buffer : buffers) {
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+    }
+
+    /** Returns a channel that reads at most {@code length} bytes of {@code channel}. */
+    static Limited limit(ReadableByteChannel channel, long length) {
+        return new Limited(channel, length);
+    }
+
+    /** Read-only view of the next bytes of another channel; closing it leaves the other open. */
+    static final class Limited implements ReadableByteChannel {
+        private final ReadableByteChannel channel;
+        private long remaining;
+
+        Limited(ReadableByteChannel channel, long length) {
+            this.channel = channel;
+            this.remaining = length;
+        }
+
+        /** Returns the number of bytes of the slice not yet read. */
+        long remaining() {
+            return remaining;
+        }
+
+        @Override
+        public int read(ByteBuffer buffer) throws IOException {
+            if (remaining == 0) return -1;
+            int limit = buffer.limit();
+            if (buffer.remaining() > remaining) buffer.limit(buffer.position() + (int) remaining);
+            try {
+                int read = channel.read(buffer);
+                if (read > 0) remaining -= read;
+                return read;
+            } finally {
+                buffer.limit(limit);
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /** Returns a channel reading from {@code channel} that keeps a CRC32C of the bytes read. */
+    static ChecksumReader checksumReader(ReadableByteChannel channel) {
+        return new ChecksumReader(channel);
+    }
+
+    /** Returns a channel writing to {@code channel} that counts and keeps a CRC32C of the bytes written. */
+    static ChecksumWriter checksumWriter(WritableByteChannel channel) {
+        return new ChecksumWriter(channel);
+    }
+
+    /** Updates {@code crc} with the bytes of {@code buffer} between {@code from} and its position. */
+    private static void update(CRC32C crc, ByteBuffer buffer, int from) {
+        if (buffer.position() > from) crc.update(buffer.duplicate().flip().position(from));
+    }
+
+    /** Read-only channel keeping a CRC32C of what it reads; closing it leaves the other open. */
+    static final class ChecksumReader implements ReadableByteChannel {
+        private final ReadableByteChannel channel;
+        private final CRC32C crc = new CRC32C();
+
+        ChecksumReader(ReadableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        /** Returns the CRC32C of the bytes read so far. */
+        int checksum() {
+            return (int) crc.getValue();
+        }
+
+        @Override
+        public int read(ByteBuffer buffer) throws IOException {
+            int from = buffer.position();
+            int read = channel.read(buffer);
+            update(crc, buffer, from);
+            return read;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Write-only channel keeping a CRC32C and a count of what it writes; closing it leaves the
+     * other open. Gathering writes are passed on when the other channel supports them.
+     */
+    static final class ChecksumWriter implements GatheringByteChannel {
+        private final WritableByteChannel channel;
+        private final CRC32C crc = new CRC32C();
+        private long written;
+
+        ChecksumWriter(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        /** Returns the CRC32C of the bytes written so far. */
+        int checksum() {
+            return (int) crc.getValue();
+        }
+
+        /** Returns the number of bytes written so far. */
+        long written() {
+            return written;
+        }
+
+        @Override
+        public int write(ByteBuffer buffer) throws IOException {
+            int from = buffer.position();
+            int count = channel.write(buffer);
+            update(crc, buffer, from);
+            written += count;
+            return count;
+        }
+
+        @Override
+        public long write(ByteBuffer[] buffers, int offset, int length) throws IOException {
+            if (!(channel instanceof GatheringByteChannel gathering)) {
+                long count = 0;
+                for (int i = offset; i < offset + length; i++) {
+                    while (buffers[i].hasRemaining()) count += write(buffers[i]);
+                }
+                return count;
+            }
+            int[] from = new int[length];
+            for (int i = 0; i < length; i++) from[i] = buffers[offset + i].position();
+            long count = gathering.write(buffers, offset, length);
+            for (int i = 0; i < length; i++) update(crc, buffers[offset + i], from[i]);
+            written += count;
+            return count;
+        }
+
+        @Override
+        public long write(ByteBuffer[] buffers) throws IOException {
+            return write(buffers, 0, buffers.length);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -1,17 +1,46 @@
 package com.bloomfilter;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.BitSet;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 
 /**
- * Classic Bloom filter implementation using a single bit set.
+ * Classic Bloom filter implementation using a single bit array.
+ *
+ * <p>Bits live in a {@link BitStorage}, on the heap by default or off-heap when constructed
+ * with {@link BitStorage#offHeap(long)}; {@link #close()} releases off-heap memory. The
+ * serialized form is the same for every storage. Bit positions are 64-bit, so a filter may
+ * exceed {@code Integer.MAX_VALUE} bits; the heap storage holds up to about 2^37 bits and the
+ * off-heap storage has no practical limit.
+ *
+ * <p>Filters with the same class, size, hash count and hash strategy (and the same key
+ * encoder, which cannot be checked) can be combined without re-adding their elements:
+ * {@link #unionWith} and {@link #intersectWith} merge another filter's bits in place, and
+ * {@link #union} and {@link #intersect} return the result as a new filter. The size of the
+ * union, intersection and the Jaccard similarity can be estimated without combining. All of
+ * these run over whole 64-bit words, split across the common fork-join pool for large filters.
+ *
+ * <p>Batches of hashes from {@link #addAll(Iterable)} and {@link #mightContainAll(java.util.List)}
+ * are processed probe by probe: probe {@code i} of every element is issued before probe
+ * {@code i + 1} of any, so the cache misses of different elements are independent and overlap,
+ * and elements are dropped from later rounds as soon as one of their bits is clear.
  *
  * @param <T> the type of elements to be stored in the filter
  */
 public class ClassicBloomFilter<T> extends AbstractBloomFilter<T> {
 
-    private BitSet bitSet;
+    /** Marks {@link #setBits} as unknown until the storage is next counted. */
+    private static final long UNCOUNTED = -1;
+
+    private final BitStorage storage;
+
+    /**
+     * Set bits, maintained as inserts set new bits. Supplied storages may already hold bits,
+     * so the count starts out {@link #UNCOUNTED} and is taken with one popcount when first needed.
+     */
+    private long setBits = UNCOUNTED;
 
     /**
      * Creates a new ClassicBloomFilter with the specified bit array size and number of hash functions.
@@ -19,44 +48,336 @@ public class ClassicBloomFilter<T> extends AbstractBloomFilter<T> {
      * @param bitArraySize the size of the underlying bit array
      * @param numHashFunctions the number of hash functions to use
      */
-    public ClassicBloomFilter(int bitArraySize, int numHashFunctions) {
-        super(bitArraySize, numHashFunctions);
-        this.bitSet = new BitSet(bitArraySize);
+    public ClassicBloomFilter(long bitArraySize, int numHashFunctions) {
+        this(bitArraySize, numHashFunctions, KeyEncoders.defaultEncoder());
+    }
+
+    /**
+     * Creates a new ClassicBloomFilter that hashes elements with the given key encoder.
+     *
+     * @param bitArraySize the size of the underlying bit array
+     * @param numHashFunctions the number of hash functions to use
+     * @param keyEncoder turns elements into the bytes that are hashed
+     */
+    public ClassicBloomFilter(long bitArraySize, int numHashFunctions, KeyEncoder<? super T> keyEncoder) {
+        this(bitArraySize, numHashFunctions, keyEncoder, StandardHashStrategy.MURMUR3_LEGACY);
+    }
+
+    /**
+     * Creates a new ClassicBloomFilter with an explicit key encoder and hash strategy.
+     *
+     * @param bitArraySize the size of the underlying bit array
+     * @param numHashFunctions the number of hash functions to use
+     * @param keyEncoder turns elements into the bytes that are hashed
+     * @param hashStrategy hash function and probe derivation
+     */
+    public ClassicBloomFilter(long bitArraySize, int numHashFunctions, KeyEncoder<? super T> keyEncoder,
+                              HashStrategy hashStrategy) {
+        this(BitStorage.heap(bitArraySize), numHashFunctions, keyEncoder, hashStrategy);
+    }
+
+    /**
+     * Creates a new ClassicBloomFilter over the given storage, whose size is the bit array size.
+     *
+     * @param storage bit storage, e.g. {@link BitStorage#offHeap(long)}; owned by the filter from now on
+     * @param numHashFunctions the number of hash functions to use
+     */
+    public ClassicBloomFilter(BitStorage storage, int numHashFunctions) {
+        this(storage, numHashFunctions, KeyEncoders.defaultEncoder(), StandardHashStrategy.MURMUR3_LEGACY);
+    }
+
+    /**
+     * Creates a new ClassicBloomFilter over the given storage with an explicit key encoder and
+     * hash strategy.
+     *
+     * @param storage bit storage; owned by the filter from now on
+     * @param numHashFunctions the number of hash functions to use
+     * @param keyEncoder turns elements into the bytes that are hashed
+     * @param hashStrategy hash function and probe derivation
+     */
+    public ClassicBloomFilter(BitStorage storage, int numHashFunctions, KeyEncoder<? super T> keyEncoder,
+                              HashStrategy hashStrategy) {
+        super(sizeOf(storage), numHashFunctions, keyEncoder, hashStrategy);
+        this.storage = storage;
+    }
+
+    private static long sizeOf(BitStorage storage) {
+        if (storage == null) throw new NullPointerException("storage");
+        return storage.bitSize();
     }
 
     @Override
-    protected int[] getHashIndices(T element) {
-        if (element == null) {
-            throw new NullPointerException("element");
+    protected void setBit(long index) {
+        if (storage.set(index)) countSetBit();
+    }
+
+    /** Records one bit that went from clear to set. */
+    protected void countSetBit() {
+        if (setBits != UNCOUNTED) setBits++;
+    }
+
+    /** Replaces the element count, e.g. after the bits were combined with another filter. */
+    void setEstimatedCount(long count) {
+        itemCount = count;
+    }
+
+    /** Drops the maintained set-bit count after the storage was changed directly. */
+    void recountSetBits() {
+        setBits = UNCOUNTED;
+    }
+
+    /** Returns the number of set bits, maintained on insert rather than recounted. */
+    @Override
+    public long getSetBitCount() {
+        if (setBits == UNCOUNTED) setBits = storage.cardinality();
+        return setBits;
+    }
+
+    @Override
+    protected boolean getBit(long index) {
+        return storage.get(index);
+    }
+
+    @Override
+    protected void addHashedBatch(long[] hash1, long[] hash2, int size) {
+        for (int i = 0; i < hashCount; i++) {
+            for (int j = 0; j < size; j++) {
+                if (storage.set(hashStrategy.index(hash1[j], hash2[j], i, bitArraySize))) countSetBit();
+            }
         }
-        long[] hash = HashUtils.hash128(element.toString());
-        return HashUtils.generateIndices(hash, hashCount, bitArraySize);
+        for (int j = 0; j < size; j++) countAdded();
     }
 
     @Override
-    protected void setBit(int index) {
-        bitSet.set(index);
+    protected void containsHashedBatch(long[] hash1, long[] hash2, int size, boolean[] results) {
+        // Indices of the elements still possibly present, compacted after every round
+        int[] live = new int[size];
+        for (int j = 0; j < size; j++) live[j] = j;
+        int liveCount = size;
+        for (int i = 0; i < hashCount && liveCount > 0; i++) {
+            int kept = 0;
+            for (int n = 0; n < liveCount; n++) {
+                int j = live[n];
+                long index = hashStrategy.index(hash1[j], hash2[j], i, bitArraySize);
+                if ((storage.getWord(index >>> 6) & (1L << index)) != 0) live[kept++] = j;
+            }
+            liveCount = kept;
+        }
+        for (int n = 0; n < liveCount; n++) results[live[n]] = true;
     }
 
     @Override
-    protected boolean getBit(int index) {
-        return bitSet.get(index);
+    protected void clearBit(long index) {
+        if (storage.get(index)) {
+            storage.clear(index);
+            if (setBits != UNCOUNTED) setBits--;
+        }
     }
 
     @Override
-    protected void clearBit(int index) {
-        bitSet.clear(index);
+    public void clear() {
+        if (verbose) System.out.println("Clearing all bits...");
+        storage.clearAll();
+        itemCount = 0;
+        setBits = 0;
+        if (verbose) System.out.println(" → Filter cleared.");
+    }
+
+    /** Releases the bit storage; required to free off-heap memory promptly. */
+    @Override
+    public void close() {
+        storage.close();
+    }
+
+    /** Returns the live bit storage backing this filter. */
+    public BitStorage getStorage() {
+        return storage;
+    }
+
+    // ------------------------------------------------------------
+    // Set algebra
+    // ------------------------------------------------------------
+
+    /**
+     * Returns an empty heap filter of the same class and configuration. Subclasses with other
+     * constructors override this so that {@link #copy()} preserves their type.
+     *
+     * @throws UnsupportedOperationException if a subclass does not override it
+     */
+    protected ClassicBloomFilter<T> emptyCopy() {
+        if (getClass() != ClassicBloomFilter.class) {
+            throw new UnsupportedOperationException(getClass().getName() + " does not support copying");
+        }
+        return new ClassicBloomFilter<>(bitArraySize, hashCount, keyEncoder, hashStrategy);
+    }
+
+    /** Returns an independent heap copy of this filter, with the same bits and count. */
+    public ClassicBloomFilter<T> copy() {
+        ClassicBloomFilter<T> copy = emptyCopy();
+        BitStorage target = copy.storage;
+        ParallelRanges.forEach(storage.wordCount(), (from, to) -> {
+            for (long w = from; w < to; w++) target.setWord(w, storage.getWord(w));
+        });
+        copy.itemCount = getEstimatedCount();
+        copy.recountSetBits();
+        return copy;
+    }
+
+    /**
+     * Adds every element of another filter to this one by OR-ing its bits in. The element
+     * count becomes the sum of both counts, which overstates the union when the filters share
+     * elements; {@link #estimateDistinctCount()} does not.
+     *
+     * @param other a compatible filter
+     * @throws IllegalArgumentException if the filters are not compatible
+     */
+    public void unionWith(ClassicBloomFilter<T> other) {
+        BitStorage source = checkCompatible(other).storage;
+        long count = other.getEstimatedCount();
+        ParallelRanges.forEach(storage.wordCount(), (from, to) -> {
+            for (long w = from; w < to; w++) storage.setWord(w, storage.getWord(w) | source.getWord(w));
+        });
+        itemCount += count;
+        recountSetBits();
+    }
+
+    /**
+     * Keeps only the bits also set in another filter. The result answers {@code true} for
+     * every element of both filters, and may still match elements of only one of them where
+     * their bits overlap. The element count becomes the smaller of both counts.
+     *
+     * @param other a compatible filter
+     * @throws IllegalArgumentException if the filters are not compatible
+     */
+    public void intersectWith(ClassicBloomFilter<T> other) {
+        BitStorage source = checkCompatible(other).storage;
+        long count = Math.min(getEstimatedCount(), other.getEstimatedCount());
+        ParallelRanges.forEach(storage.wordCount(), (from, to) -> {
+            for (long w = from; w < to; w++) storage.setWord(w, storage.getWord(w) & source.getWord(w));
+        });
+        setEstimatedCount(count);
+        recountSetBits();
+    }
+
+    /**
+     * Returns the union of this filter and another as a new heap filter; neither is modified.
+     *
+     * @see #unionWith(ClassicBloomFilter)
+     */
+    public ClassicBloomFilter<T> union(ClassicBloomFilter<T> other) {
+        checkCompatible(other);
+        ClassicBloomFilter<T> result = copy();
+        result.unionWith(other);
+        return result;
+    }
+
+    /**
+     * Returns the intersection of this filter and another as a new heap filter; neither is
+     * modified.
+     *
+     * @see #intersectWith(ClassicBloomFilter)
+     */
+    public ClassicBloomFilter<T> intersect(ClassicBloomFilter<T> other) {
+        checkCompatible(other);
+        ClassicBloomFilter<T> result = copy();
+        result.intersectWith(other);
+        return result;
+    }
+
+    /**
+     * Estimates the number of distinct elements in the union of both filters from the
+     * popcount of their OR, without materializing it.
+     *
+     * @param other a compatible filter
+     * @return the estimated union size; {@link Double#POSITIVE_INFINITY} if the OR is saturated
+     */
+    public double estimateUnionSize(ClassicBloomFilter<T> other) {
+        BitStorage source = checkCompatible(other).storage;
+        long setBits = ParallelRanges.sum(storage.wordCount(), (from, to) -> {
+            long count = 0;
+            for (long w = from; w < to; w++) count += Long.bitCount(storage.getWord(w) | source.getWord(w));
+            return count;
+        });
+        double fill = (double) setBits / bitArraySize;
+        return fill >= 1 ? Double.POSITIVE_INFINITY : -bitArraySize / (double) hashCount * Math.log1p(-fill);
+    }
+
+    /**
+     * Estimates the number of distinct elements in both filters by inclusion-exclusion,
+     * {@code |A| + |B| - |A ∪ B|}, with each term estimated from a fill ratio. This is more
+     * accurate than the fill of the AND, which also counts overlapping bits of disjoint elements.
+     *
+     * @param other a compatible filter
+     * @return the estimated intersection size, or {@link Double#NaN} if either filter is saturated
+     */
+    public double estimateIntersectionSize(ClassicBloomFilter<T> other) {
+        double union = estimateUnionSize(other);
+        double a = estimateDistinctCount();
+        double b = other.estimateDistinctCount();
+        if (Double.isInfinite(union)) return Double.NaN;
+        return Math.max(0, Math.min(a + b - union, Math.min(a, b)));
+    }
+
+    /**
+     * Estimates the Jaccard similarity {@code |A ∩ B| / |A ∪ B|} of the two element sets. Two
+     * empty filters are identical and have similarity 1.
+     *
+     * @param other a compatible filter
+     * @return the estimated similarity in {@code [0, 1]}, or {@link Double#NaN} if either filter is saturated
+     */
+    public double estimateJaccardSimilarity(ClassicBloomFilter<T> other) {
+        double union = estimateUnionSize(other);
+        if (union == 0) return 1;
+        return estimateIntersectionSize(other) / union;
+    }
+
+    private ClassicBloomFilter<T> checkCompatible(ClassicBloomFilter<T> other) {
+        if (other == null) throw new NullPointerException("other");
+        if (other.getClass() != getClass() || other.bitArraySize != bitArraySize
+                || other.hashCount != hashCount || other.hashStrategy.id() != hashStrategy.id()) {
+            throw new IllegalArgumentException("Filters are not compatible: " + describe() + " vs " + other.describe());
+        }
+        return other;
+    }
+
+    private String describe() {
+        return getClass().getSimpleName() + "(m=" + bitArraySize + ", k=" + hashCount
+                + ", strategy=" + hashStrategy.id() + ")";
+    }
+
+    /**
+     * Number of payload bytes in the serialized form: the bit array in little-endian byte
+     * order, truncated after the last non-zero byte (the layout of {@code BitSet.toByteArray()}).
+     */
+    private long payloadLength() {
+        for (long w = storage.wordCount() - 1; w >= 0; w--) {
+            long word = storage.getWord(w);
+            if (word != 0) {
+                return w * 8 + 8 - Long.numberOfLeadingZeros(word) / 8;
+            }
+        }
+        return 0;
     }
 
     @Override
     public byte[] toBytes() {
-        byte[] bitData = bitSet.toByteArray();
-        ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 8 + 4 + bitData.length).order(ByteOrder.BIG_ENDIAN);
-        buffer.putInt(bitArraySize);
-        buffer.putInt(hashCount);
-        buffer.putLong(itemCount);
-        buffer.putInt(bitData.length);
-        buffer.put(bitData);
+        Header header = new Header(bitArraySize, hashCount, getEstimatedCount(), payloadLength());
+        long total = header.length() + header.payloadLength + 4;
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Filter too large to serialize into a byte array: " + total + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) total).order(ByteOrder.BIG_ENDIAN);
+        header.write(buffer);
+        int bytesLen = (int) header.payloadLength;
+        int fullWords = bytesLen >>> 3;
+        for (int w = 0; w < fullWords; w++) {
+            buffer.putLong(Long.reverseBytes(storage.getWord(w)));
+        }
+        long tail = fullWords < storage.wordCount() ? storage.getWord(fullWords) : 0L;
+        for (int i = fullWords * 8; i < bytesLen; i++, tail >>>= 8) {
+            buffer.put((byte) tail);
+        }
+        buffer.putInt(hashStrategy.id());
         return buffer.array();
     }
 
@@ -66,16 +387,206 @@ public class ClassicBloomFilter<T> extends AbstractBloomFilter<T> {
             throw new NullPointerException("data");
         }
         ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.BIG_ENDIAN);
-        int savedSize = buffer.getInt();
-        int savedNumHash = buffer.getInt();
-        long savedCount = buffer.getLong();
-        int bytesLen = buffer.getInt();
-        byte[] bitBytes = new byte[bytesLen];
-        buffer.get(bitBytes);
-        if (savedSize != this.bitArraySize || savedNumHash != this.hashCount) {
+        Header header = Header.read(buffer);
+        if (header.bitArraySize != this.bitArraySize || header.hashCount != this.hashCount) {
             throw new IllegalArgumentException("Serialized data does not match filter configuration");
         }
-        this.itemCount = savedCount;
-        this.bitSet = BitSet.valueOf(bitBytes);
+        if (header.payloadLength > storage.wordCount() * 8 || header.payloadLength > buffer.remaining()) {
+            throw new IllegalArgumentException("Serialized bit array length is invalid: " + header.payloadLength);
+        }
+        int bytesLen = (int) header.payloadLength;
+        int bitsStart = buffer.position();
+        buffer.position(bitsStart + bytesLen);
+        checkHashStrategy(buffer);
+        storage.clearAll();
+        buffer.position(bitsStart);
+        int fullWords = bytesLen >>> 3;
+        for (int w = 0; w < fullWords; w++) {
+            storage.setWord(w, Long.reverseBytes(buffer.getLong()));
+        }
+        long tail = 0;
+        for (int i = fullWords * 8, shift = 0; i < bytesLen; i++, shift += 8) {
+            tail |= (buffer.get() & 0xFFL) << shift;
+        }
+        if (tail != 0) storage.setWord(fullWords, tail);
+        this.itemCount = header.itemCount;
+        this.setBits = UNCOUNTED;
+    }
+
+    /** Number of bytes {@link #toBytes()} and {@link #writeTo(WritableByteChannel)} produce. */
+    long serializedLength() {
+        long payload = payloadLength();
+        return new Header(bitArraySize, hashCount, 0, payload).length() + payload + 4;
+    }
+
+    /**
+     * Writes the bytes of {@link #toBytes()} without building them on the heap: the words are
+     * copied in little-endian order through a direct staging buffer of at most
+     * {@value ChannelIO#TRANSFER_BUFFER} bytes, which goes out in one gathering write with the
+     * header (first chunk) or the hash strategy trailer (last chunk).
+     */
+    @Override
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        if (channel == null) throw new NullPointerException("channel");
+        Header header = new Header(bitArraySize, hashCount, getEstimatedCount(), payloadLength());
+        ByteBuffer head = ByteBuffer.allocate(header.length());
+        header.write(head);
+        head.flip();
+        ByteBuffer trailer = ByteBuffer.allocate(4).putInt(hashStrategy.id()).flip();
+        ByteBuffer chunk = stagingBuffer(header.payloadLength);
+        try {
+            long remaining = header.payloadLength;
+            long word = 0;
+            do {
+                chunk.clear();
+                for (; remaining >= 8 && chunk.hasRemaining(); remaining -= 8) chunk.putLong(storage.getWord(word++));
+                if (remaining > 0 && remaining < 8 && chunk.hasRemaining()) {
+                    for (long tail = storage.getWord(word); remaining > 0; remaining--) {
+                        chunk.put((byte) tail);
+                        tail >>>= 8;
+                    }
+                }
+                chunk.flip();
+                if (remaining == 0) ChannelIO.writeFully(channel, head, chunk, trailer);
+                else ChannelIO.writeFully(channel, head, chunk);
+            } while (remaining > 0);
+        } finally {
+            DirectBuffers.free(chunk);
+        }
+    }
+
+    /**
+     * Reads exactly the bytes of one serialized filter, streaming the bit array through a
+     * direct staging buffer straight into the storage. The header is checked before any bit
+     * changes; as the hash strategy only follows the bits, a strategy mismatch or a truncated
+     * channel leaves the filter cleared rather than unchanged. A missing strategy trailer at
+     * the end of the channel means the legacy strategy, as in {@link #fromBytes(byte[])}.
+     */
+    @Override
+    public void readFrom(ReadableByteChannel channel) throws IOException {
+        if (channel == null) throw new NullPointerException("channel");
+        ByteBuffer head = ByteBuffer.allocate(Header.WIDE_LENGTH).limit(Header.LENGTH);
+        ChannelIO.readFully(channel, head);
+        if (head.getInt(0) == Header.WIDE_MARKER) ChannelIO.readFully(channel, head.limit(Header.WIDE_LENGTH));
+        Header header = Header.read(head.flip());
+        if (header.bitArraySize != this.bitArraySize || header.hashCount != this.hashCount) {
+            throw new IllegalArgumentException("Serialized data does not match filter configuration");
+        }
+        if (header.payloadLength > storage.wordCount() * 8) {
+            throw new IllegalArgumentException("Serialized bit array length is invalid: " + header.payloadLength);
+        }
+        storage.clearAll();
+        ByteBuffer chunk = stagingBuffer(header.payloadLength);
+        try {
+            long word = 0;
+            for (long remaining = header.payloadLength; remaining > 0; remaining -= chunk.limit()) {
+                chunk.clear();
+                if (remaining < chunk.capacity()) chunk.limit((int) remaining);
+                ChannelIO.readFully(channel, chunk);
+                chunk.flip();
+                while (chunk.remaining() >= 8) storage.setWord(word++, chunk.getLong());
+                long tail = 0;
+                for (int shift = 0; chunk.hasRemaining(); shift += 8) tail |= (chunk.get() & 0xFFL) << shift;
+                if (tail != 0) storage.setWord(word, tail);
+            }
+            ByteBuffer trailer = ByteBuffer.allocate(4);
+            ChannelIO.readUpTo(channel, trailer);
+            checkHashStrategy(trailer.flip());
+        } catch (IOException | RuntimeException e) {
+            clear();
+            throw e;
+        } finally {
+            DirectBuffers.free(chunk);
+        }
+        setEstimatedCount(header.itemCount);
+        recountSetBits();
+    }
+
+    /** Little-endian direct buffer for up to {@value ChannelIO#TRANSFER_BUFFER} payload bytes, a whole number of words. */
+    private static ByteBuffer stagingBuffer(long payloadLength) {
+        int capacity = (int) Math.min(ChannelIO.TRANSFER_BUFFER, Math.max(8, (payloadLength + 7) & ~7L));
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Serialized header of a classic filter. Filters of up to {@code Integer.MAX_VALUE} bits use
+     * the original layout {@code [int m][int k][long n][int payloadLength]}, so files written by
+     * earlier versions load unchanged. Larger filters use the wide layout
+     * {@code [int -1][long m][int k][long n][long payloadLength]}; the marker can never be a valid
+     * size in the original layout.
+     */
+    static final class Header {
+
+        /** First int of the wide layout. */
+        static final int WIDE_MARKER = -1;
+
+        /** Length of the original layout. */
+        static final int LENGTH = 4 + 4 + 8 + 4;
+
+        /** Length of the wide layout. */
+        static final int WIDE_LENGTH = 4 + 8 + 4 + 8 + 8;
+
+        final long bitArraySize;
+        final int hashCount;
+        final long itemCount;
+        final long payloadLength;
+
+        Header(long bitArraySize, int hashCount, long itemCount, long payloadLength) {
+            this.bitArraySize = bitArraySize;
+            this.hashCount = hashCount;
+            this.itemCount = itemCount;
+            this.payloadLength = payloadLength;
+        }
+
+        boolean isWide() {
+            return bitArraySize > Integer.MAX_VALUE;
+        }
+
+        /** Number of bytes {@link #write(ByteBuffer)} produces. */
+        int length() {
+            return isWide() ? WIDE_LENGTH : LENGTH;
+        }
+
+        void write(ByteBuffer buffer) {
+            if (isWide()) {
+                buffer.putInt(WIDE_MARKER);
+                buffer.putLong(bitArraySize);
+                buffer.putInt(hashCount);
+                buffer.putLong(itemCount);
+                buffer.putLong(payloadLength);
+            } else {
+                buffer.putInt((int) bitArraySize);
+                buffer.putInt(hashCount);
+                buffer.putLong(itemCount);
+                buffer.putInt((int) payloadLength);
+            }
+        }
+
+        /**
+         * Reads a header in either layout from a big-endian buffer, leaving the buffer at the
+         * start of the payload.
+         *
+         * @throws IllegalArgumentException if the header is truncated or malformed
+         */
+        static Header read(ByteBuffer buffer) {
+            if (buffer.remaining() < LENGTH) {
+                throw new IllegalArgumentException("Serialized data too short for a filter header");
+            }
+            int first = buffer.getInt();
+            Header header;
+            if (first == WIDE_MARKER) {
+                if (buffer.remaining() < WIDE_LENGTH - 4) {
+                    throw new IllegalArgumentException("Serialized data too short for a filter header");
+                }
+                header = new Header(buffer.getLong(), buffer.getInt(), buffer.getLong(), buffer.getLong());
+            } else {
+                header = new Header(first, buffer.getInt(), buffer.getLong(), buffer.getInt());
+            }
+            if (header.bitArraySize <= 0 || header.hashCount <= 0 || header.payloadLength < 0
+                    || header.payloadLength > ((header.bitArraySize + 63) >>> 6) * 8) {
+                throw new IllegalArgumentException("Serialized filter header is invalid");
+            }
+            return header;
+        }
     }
 }
@@ -0,0 +1,229 @@
+package com.bloomfilter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Counting Bloom filter with 4-bit counters packed sixteen to a {@code long} word, using an
+ * eighth of the memory of {@link CountingBloomFilter}. With the usual parameters a counter
+ * reaches 15 only with negligible probability.
+ *
+ * <p>A counter that would exceed 15 stays at 15. If the overflow table is enabled (the
+ * default), the excess is recorded in a small sorted side map so the counter remains exact and
+ * {@link #remove(Object)} stays precise. Without the table, a counter at 15 is saturated and
+ * never decremented again, which trades a slightly higher false-positive rate for never
+ * producing a false negative. Counters never go below zero.
+ *
+ * @param <T> the type of elements to be stored in the filter
+ */
+public class CompactCountingBloomFilter<T> extends AbstractBloomFilter<T> {
+
+    /** Largest value a packed counter can hold. */
+    public static final int MAX_NIBBLE = 15;
+
+    private final long[] words;
+    private final Map<Integer, Integer> overflow;
+
+    /** Number of counters above zero, maintained on every 0↔1 transition of a nibble. */
+    private long nonZero;
+
+    public CompactCountingBloomFilter(int bitArraySize, int numHashFunctions) {
+        this(bitArraySize, numHashFunctions, KeyEncoders.defaultEncoder());
+    }
+
+    public CompactCountingBloomFilter(int bitArraySize, int numHashFunctions, KeyEncoder<? super T> keyEncoder) {
+        this(bitArraySize, numHashFunctions, keyEncoder, StandardHashStrategy.MURMUR3_LEGACY);
+    }
+
+    public CompactCountingBloomFilter(int bitArraySize, int numHashFunctions, KeyEncoder<? super T> keyEncoder,
+                                      HashStrategy hashStrategy) {
+        this(bitArraySize, numHashFunctions, keyEncoder, hashStrategy, true);
+    }
+
+    /**
+     * Creates a compact counting filter.
+     *
+     * @param bitArraySize the number of counters
+     * @param numHashFunctions the number of hash functions to use
+     * @param keyEncoder turns elements into the bytes that are hashed
+     * @param hashStrategy hash function and probe derivation
+     * @param overflowTable whether counts above 15 are kept exactly in a side table
+     */
+    public CompactCountingBloomFilter(int bitArraySize, int numHashFunctions, KeyEncoder<? super T> keyEncoder,
+                                      HashStrategy hashStrategy, boolean overflowTable) {
+        super(bitArraySize, numHashFunctions, keyEncoder, hashStrategy);
+        this.words = new long[(bitArraySize + 15) >>> 4];
+        this.overflow = overflowTable ? new TreeMap<>() : null;
+    }
+
+    private int nibble(int index) {
+        return (int) (words[index >>> 4] >>> ((index & 15) << 2)) & MAX_NIBBLE;
+    }
+
+    /** Returns the current value of one counter, including any overflow. */
+    public int getCounter(long index) {
+        int i = (int) index;
+        int value = nibble(i);
+        if (value == MAX_NIBBLE && overflow != null) value += overflow.getOrDefault(i, 0);
+        return value;
+    }
+
+    /** Returns the number of counters that currently exceed 15. */
+    public int getOverflowCount() {
+        return overflow == null ? 0 : overflow.size();
+    }
+
+    @Override
+    protected void setBit(long index) {
+        int i = (int) index;
+        int shift = (i & 15) << 2;
+        long word = words[i >>> 4];
+        long value = (word >>> shift) & MAX_NIBBLE;
+        if (value == 0) nonZero++;
+        if (value < MAX_NIBBLE) {
+            words[i >>> 4] = word + (1L << shift);
+        } else if (overflow != null) {
+            overflow.merge(i, 1, (a, b) -> a < Integer.MAX_VALUE - MAX_NIBBLE ? a + b : a);
+        }
+        if (verbose) System.out.printf("   increment counter[%d] = %d%n", index, getCounter(i));
+    }
+
+    @Override
+    protected boolean getBit(long index) {
+        int i = (int) index;
+        return (words[i >>> 4] & (0xFL << ((i & 15) << 2))) != 0;
+    }
+
+    @Override
+    protected void clearBit(long index) {
+        int i = (int) index;
+        if (nibble(i) != 0) nonZero--;
+        words[i >>> 4] &= ~(0xFL << ((i & 15) << 2));
+        if (overflow != null) overflow.remove(i);
+    }
+
+    /** Decrements one counter, taking from the overflow table first and never going below zero. */
+    private void decrement(int index) {
+        int value = nibble(index);
+        if (value == 0) return;
+        if (value == MAX_NIBBLE) {
+            if (overflow == null) return; // saturated: true count unknown
+            Integer extra = overflow.get(index);
+            if (extra != null) {
+                if (extra == 1) overflow.remove(index);
+                else overflow.put(index, extra - 1);
+                return;
+            }
+        }
+        if (value == 1) nonZero--;
+        words[index >>> 4] -= 1L << ((index & 15) << 2);
+    }
+
+    /** Returns the number of counters above zero. */
+    @Override
+    public long getSetBitCount() {
+        return nonZero;
+    }
+
+    /** Number of non-zero nibbles in a word: each nibble's bits are folded into its lowest bit. */
+    private static int nonZeroNibbles(long word) {
+        long folded = word | (word >>> 1);
+        folded |= folded >>> 2;
+        return Long.bitCount(folded & 0x1111111111111111L);
+    }
+
+    @Override
+    public void remove(T element) {
+        if (element == null) throw new NullPointerException("element");
+        if (!verbose) {
+            long[] hash = HashUtils.scratchHash();
+            hash(element, hash);
+            long hash1 = hash[0];
+            long hash2 = hash[1];
+            for (int i = 0; i < hashCount; i++) {
+                decrement((int) hashStrategy.index(hash1, hash2, i, bitArraySize));
+            }
+            if (itemCount > 0) itemCount--;
+            return;
+        }
+        long[] indices = getHashIndices(element);
+        System.out.printf("Removing element '%s'%n", element);
+        for (long index : indices) {
+            decrement((int) index);
+            System.out.printf("   decrement counter[%d] = %d%n", index, getCounter(index));
+        }
+        if (itemCount > 0) itemCount--;
+    }
+
+    @Override
+    public void clear() {
+        if (verbose) System.out.println("Clearing all counters...");
+        Arrays.fill(words, 0L);
+        if (overflow != null) overflow.clear();
+        itemCount = 0;
+        nonZero = 0;
+        if (verbose) System.out.println(" → Filter cleared.");
+    }
+
+    /**
+     * Layout: {@code [int m][int k][long n][int wordCount][wordCount longs][int overflowEntries]
+     * [overflowEntries x (int index, int extra)][int strategyId]}, big-endian.
+     */
+    @Override
+    public byte[] toBytes() {
+        if (verbose)
+            System.out.printf("Serializing CompactCountingBloomFilter (size=%d, hashes=%d, count=%d)%n",
+                    bitArraySize, hashCount, itemCount);
+        int entries = getOverflowCount();
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 8 + 4 + words.length * 8 + 4 + entries * 8 + 4)
+                .order(ByteOrder.BIG_ENDIAN);
+        buffer.putInt((int) bitArraySize);
+        buffer.putInt(hashCount);
+        buffer.putLong(itemCount);
+        buffer.putInt(words.length);
+        for (long word : words) buffer.putLong(word);
+        buffer.putInt(entries);
+        if (overflow != null) {
+            for (Map.Entry<Integer, Integer> entry : overflow.entrySet()) {
+                buffer.putInt(entry.getKey());
+                buffer.putInt(entry.getValue());
+            }
+        }
+        buffer.putInt(hashStrategy.id());
+        return buffer.array();
+    }
+
+    @Override
+    public void fromBytes(byte[] data) {
+        if (verbose) System.out.println("Deserializing CompactCountingBloomFilter...");
+        if (data == null) throw new NullPointerException("data");
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.BIG_ENDIAN);
+        int savedSize = buffer.getInt();
+        int savedNumHash = buffer.getInt();
+        long savedCount = buffer.getLong();
+        int length = buffer.getInt();
+        if (savedSize != this.bitArraySize || savedNumHash != this.hashCount || length != words.length)
+            throw new IllegalArgumentException("Serialized data does not match filter configuration");
+        long[] loaded = new long[length];
+        for (int i = 0; i < length; i++) loaded[i] = buffer.getLong();
+        int entries = buffer.getInt();
+        if (entries < 0 || (entries > 0 && overflow == null))
+            throw new IllegalArgumentException("Serialized overflow table is not supported by this filter");
+        Map<Integer, Integer> loadedOverflow = new TreeMap<>();
+        for (int i = 0; i < entries; i++) loadedOverflow.put(buffer.getInt(), buffer.getInt());
+        checkHashStrategy(buffer);
+        System.arraycopy(loaded, 0, words, 0, length);
+        long count = 0;
+        for (long word : loaded) count += nonZeroNibbles(word);
+        this.nonZero = count;
+        if (overflow != null) {
+            overflow.clear();
+            overflow.putAll(loadedOverflow);
+        }
+        this.itemCount = savedCount;
+        if (verbose) System.out.println(" → Deserialization complete.");
+    }
+}
@@ -0,0 +1,121 @@
+package com.bloomfilter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe classic Bloom filter that many writer and reader threads can share without
+ * locking. Bits live in an atomic long-word array: {@link #add(Object)} sets each bit with an
+ * atomic fetch-or on its word and {@link #mightContain(Object)} is a sequence of acquire
+ * loads, so reads are wait-free. Hashing uses per-thread scratch space, and the insertion
+ * and set-bit counts are kept in {@link LongAdder}s so writers do not contend on a shared
+ * counter.
+ *
+ * <p>An element whose {@code add} has returned is seen by every later {@code mightContain},
+ * on any thread. {@link #clear()} and {@link #fromBytes(byte[])} are not atomic with respect
+ * to concurrent writers and should be called while the filter is quiescent. The serialized
+ * form is identical to {@link ClassicBloomFilter}, so files are interchangeable.
+ *
+ * @param <T> the type of elements to be stored in the filter
+ */
+public class ConcurrentBloomFilter<T> extends ClassicBloomFilter<T> {
+
+    /** Insertions since the last clear or load, on top of {@link #itemCount}. */
+    private final LongAdder added = new LongAdder();
+
+    /** Set bits; each bit is counted once, by the writer whose fetch-or set it. */
+    private final LongAdder setBits = new LongAdder();
+
+    /**
+     * Creates a new ConcurrentBloomFilter with the specified bit array size and number of hash functions.
+     *
+     * @param bitArraySize the size of the underlying bit array
+     * @param numHashFunctions the number of hash functions to use
+     */
+    public ConcurrentBloomFilter(long bitArraySize, int numHashFunctions) {
+        this(bitArraySize, numHashFunctions, KeyEncoders.defaultEncoder());
+    }
+
+    /**
+     * Creates a new ConcurrentBloomFilter that hashes elements with the given key encoder.
+     *
+     * @param bitArraySize the size of the underlying bit array
+     * @param numHashFunctions the number of hash functions to use
+     * @param keyEncoder turns elements into the bytes that are hashed; must be thread-safe
+     */
+    public ConcurrentBloomFilter(long bitArraySize, int numHashFunctions, KeyEncoder<? super T> keyEncoder) {
+        this(bitArraySize, numHashFunctions, keyEncoder, StandardHashStrategy.MURMUR3_LEGACY);
+    }
+
+    /**
+     * Creates a new ConcurrentBloomFilter with an explicit key encoder and hash strategy.
+     *
+     * @param bitArraySize the size of the underlying bit array
+     * @param numHashFunctions the number of hash functions to use
+     * @param keyEncoder turns elements into the bytes that are hashed; must be thread-safe
+     * @param hashStrategy hash function and probe derivation
+     */
+    public ConcurrentBloomFilter(long bitArraySize, int numHashFunctions, KeyEncoder<? super T> keyEncoder,
+                                 HashStrategy hashStrategy) {
+        super(new AtomicBitStorage(bitArraySize), numHashFunctions, keyEncoder, hashStrategy);
+    }
+
+    @Override
+    protected void countAdded() {
+        added.increment();
+    }
+
+    @Override
+    public long getEstimatedCount() {
+        return itemCount + added.sum();
+    }
+
+    /** Sets the bits of a hashed batch from several threads; the result is order-independent. */
+    @Override
+    protected void addHashedBatch(long[] hash1, long[] hash2, int size) {
+        ParallelRanges.forEach(size, HASH_GRAIN, (from, to) -> {
+            for (int i = (int) from; i < to; i++) addHashed(hash1[i], hash2[i]);
+        });
+        added.add(size);
+    }
+
+    @Override
+    protected void countSetBit() {
+        setBits.increment();
+    }
+
+    @Override
+    public long getSetBitCount() {
+        return setBits.sum();
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        added.reset();
+        setBits.reset();
+    }
+
+    @Override
+    public void fromBytes(byte[] data) {
+        super.fromBytes(data);
+        added.reset();
+        recountSetBits();
+    }
+
+    @Override
+    void setEstimatedCount(long count) {
+        super.setEstimatedCount(count);
+        added.reset();
+    }
+
+    @Override
+    void recountSetBits() {
+        setBits.reset();
+        setBits.add(getStorage().cardinality());
+    }
+
+    @Override
+    protected ClassicBloomFilter<T> emptyCopy() {
+        return new ConcurrentBloomFilter<>(bitArraySize, hashCount, keyEncoder, hashStrategy);
+    }
+}
@@ -0,0 +1,202 @@
+package com.bloomfilter;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe counting Bloom filter. Counters are an {@code int[]} updated only through
+ * atomic compare-and-exchange on a {@link VarHandle}, so concurrent {@link #add(Object)} and
+ * {@link #remove(Object)} calls never lose an update, and {@link #mightContain(Object)} is a
+ * series of acquire loads.
+ *
+ * <p>Counters saturate at {@code Integer.MAX_VALUE} and a saturated counter is never
+ * decremented again: its true value is unknown, and decrementing it could drop a counter
+ * that other elements still rely on to zero, producing a false negative. Likewise counters
+ * never go below zero. As long as only previously added elements are removed, an element
+ * whose {@code add} has returned and that has not been removed is always reported present.
+ *
+ * <p>{@link #clear()} and {@link #fromBytes(byte[])} should be called while the filter is
+ * quiescent. The serialized form is identical to {@link CountingBloomFilter}.
+ *
+ * @param <T> the type of elements to be stored in the filter
+ */
+public class ConcurrentCountingBloomFilter<T> extends AbstractBloomFilter<T> {
+
+    private static final VarHandle COUNTERS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final int[] counters;
+
+    /** Net insertions since the last clear or load, on top of {@link #itemCount}. */
+    private final LongAdder added = new LongAdder();
+
+    /** Number of counters above zero, updated by the thread whose CAS moves a counter across zero. */
+    private final LongAdder nonZero = new LongAdder();
+
+    public ConcurrentCountingBloomFilter(int bitArraySize, int numHashFunctions) {
+        this(bitArraySize, numHashFunctions, KeyEncoders.defaultEncoder());
+    }
+
+    public ConcurrentCountingBloomFilter(int bitArraySize, int numHashFunctions, KeyEncoder<? super T> keyEncoder) {
+        this(bitArraySize, numHashFunctions, keyEncoder, StandardHashStrategy.MURMUR3_LEGACY);
+    }
+
+    public ConcurrentCountingBloomFilter(int bitArraySize, int numHashFunctions, KeyEncoder<? super T> keyEncoder,
+                                         HashStrategy hashStrategy) {
+        super(bitArraySize, numHashFunctions, keyEncoder, hashStrategy);
+        this.counters = new int[bitArraySize];
+    }
+
+    @Override
+    protected void setBit(long index) {
+        int updated = increment((int) index);
+        if (verbose) System.out.printf("   increment counter[%d] = %d%n", index, updated);
+    }
+
+    @Override
+    protected boolean getBit(long index) {
+        return (int) COUNTERS.getAcquire(counters, (int) index) > 0;
+    }
+
+    @Override
+    protected void clearBit(long index) {
+        if ((int) COUNTERS.getAndSet(counters, (int) index, 0) != 0) nonZero.decrement();
+    }
+
+    /** Atomically increments a counter unless it is saturated; returns the new value. */
+    private int increment(int index) {
+        int current = (int) COUNTERS.getVolatile(counters, index);
+        while (current < Integer.MAX_VALUE) {
+            int witness = (int) COUNTERS.compareAndExchange(counters, index, current, current + 1);
+            if (witness == current) {
+                if (current == 0) nonZero.increment();
+                return current + 1;
+            }
+            current = witness;
+        }
+        return current;
+    }
+
+    /** Atomically decrements a counter unless it is zero or saturated; returns the new value. */
+    private int decrement(int index) {
+        int current = (int) COUNTERS.getVolatile(counters, index);
+        while (current > 0 && current < Integer.MAX_VALUE) {
+            int witness = (int) COUNTERS.compareAndExchange(counters, index, current, current - 1);
+            if (witness == current) {
+                if (current == 1) nonZero.decrement();
+                return current - 1;
+            }
+            current = witness;
+        }
+        return current;
+    }
+
+    @Override
+    public void remove(T element) {
+        if (element == null) throw new NullPointerException("element");
+        if (!verbose) {
+            long[] hash = HashUtils.scratchHash();
+            hash(element, hash);
+            long hash1 = hash[0];
+            long hash2 = hash[1];
+            for (int i = 0; i < hashCount; i++) {
+                decrement((int) hashStrategy.index(hash1, hash2, i, bitArraySize));
+            }
+            added.decrement();
+            return;
+        }
+        long[] indices = getHashIndices(element);
+        System.out.printf("Removing element '%s'%n", element);
+        System.out.printf(" → hash indices: %s%n", Arrays.toString(indices));
+        for (long index : indices) {
+            int updated = decrement((int) index);
+            System.out.printf("   decrement counter[%d] = %d%n", index, updated);
+        }
+        added.decrement();
+    }
+
+    @Override
+    protected void countAdded() {
+        added.increment();
+    }
+
+    /** Increments the counters of a hashed batch from several threads; increments commute. */
+    @Override
+    protected void addHashedBatch(long[] hash1, long[] hash2, int size) {
+        ParallelRanges.forEach(size, HASH_GRAIN, (from, to) -> {
+            for (int i = (int) from; i < to; i++) addHashed(hash1[i], hash2[i]);
+        });
+        added.add(size);
+    }
+
+    /** Returns the number of counters above zero. */
+    @Override
+    public long getSetBitCount() {
+        return nonZero.sum();
+    }
+
+    @Override
+    public long getEstimatedCount() {
+        return Math.max(0, itemCount + added.sum());
+    }
+
+    @Override
+    public void clear() {
+        if (verbose) System.out.println("Clearing all counters...");
+        for (int i = 0; i < counters.length; i++) COUNTERS.setRelease(counters, i, 0);
+        itemCount = 0;
+        added.reset();
+        nonZero.reset();
+        if (verbose) System.out.println(" → Filter cleared.");
+    }
+
+    /** Returns the current value of one counter. */
+    public int getCounter(long index) {
+        return (int) COUNTERS.getAcquire(counters, (int) index);
+    }
+
+    @Override
+    public byte[] toBytes() {
+        if (verbose)
+            System.out.printf("Serializing ConcurrentCountingBloomFilter (size=%d, hashes=%d, count=%d)%n",
+                    bitArraySize, hashCount, getEstimatedCount());
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 8 + 4 + counters.length * 4 + 4)
+                .order(ByteOrder.BIG_ENDIAN);
+        buffer.putInt(counters.length);
+        buffer.putInt(hashCount);
+        buffer.putLong(getEstimatedCount());
+        buffer.putInt(counters.length);
+        for (int i = 0; i < counters.length; i++) buffer.putInt((int) COUNTERS.getAcquire(counters, i));
+        buffer.putInt(hashStrategy.id());
+        return buffer.array();
+    }
+
+    @Override
+    public void fromBytes(byte[] data) {
+        if (verbose) System.out.println("Deserializing ConcurrentCountingBloomFilter...");
+        if (data == null) throw new NullPointerException("data");
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.BIG_ENDIAN);
+        int savedSize = buffer.getInt();
+        int savedNumHash = buffer.getInt();
+        long savedCount = buffer.getLong();
+        int length = buffer.getInt();
+        if (savedSize != counters.length || savedNumHash != this.hashCount || length != counters.length)
+            throw new IllegalArgumentException("Serialized data does not match filter configuration");
+        int[] loaded = new int[length];
+        for (int i = 0; i < length; i++) loaded[i] = buffer.getInt();
+        checkHashStrategy(buffer);
+        long count = 0;
+        for (int i = 0; i < length; i++) {
+            COUNTERS.setRelease(counters, i, loaded[i]);
+            if (loaded[i] != 0) count++;
+        }
+        this.itemCount = savedCount;
+        added.reset();
+        nonZero.reset();
+        nonZero.add(count);
+        if (verbose) System.out.println(" → Deserialization complete.");
+    }
+}
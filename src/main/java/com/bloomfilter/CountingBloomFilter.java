@@ -2,52 +2,278 @@ package com.bloomfilter;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
 
+/**
+ * Counting Bloom filter with one {@code int} counter per position, allowing removal.
+ * Counters live in a single {@code int[]}, so the size is limited to {@code Integer.MAX_VALUE}.
+ *
+ * <p>The counters double as a count-min sketch: {@link #estimateCount(Object)} returns the
+ * smallest of an element's k counters, which never underestimates how often it was added
+ * (as long as it was not removed more often). With conservative update enabled, an insert
+ * only raises the counters that hold that minimum, which keeps estimates much tighter for
+ * frequency and heavy-hitter queries, at the price of {@link #remove(Object)}: decrementing
+ * counters that an insert skipped could create false negatives, so removal is refused.
+ * The update mode is not part of the serialized form.
+ *
+ * <p>Filters of the same size, hash count and hash strategy merge by adding their counters
+ * ({@link #unionWith}), which is exactly the filter of both input streams; frequency
+ * estimates of the merge remain upper bounds.
+ *
+ * @param <T> the type of elements to be stored in the filter
+ */
 public class CountingBloomFilter<T> extends AbstractBloomFilter<T> {
 
+    /** Estimated frequency of one element, as returned by {@link #topK(Iterable, int)}. */
+    public record Frequency<E>(E element, int count) {
+    }
+
     private int[] counters;
+    private final boolean conservativeUpdate;
+
+    /** Counters above zero, maintained as counters rise from and fall back to zero. */
+    private long nonZero;
 
     public CountingBloomFilter(int bitArraySize, int numHashFunctions) {
-        super(bitArraySize, numHashFunctions);
+        this(bitArraySize, numHashFunctions, KeyEncoders.defaultEncoder());
+    }
+
+    public CountingBloomFilter(int bitArraySize, int numHashFunctions, KeyEncoder<? super T> keyEncoder) {
+        this(bitArraySize, numHashFunctions, keyEncoder, StandardHashStrategy.MURMUR3_LEGACY);
+    }
+
+    public CountingBloomFilter(int bitArraySize, int numHashFunctions, KeyEncoder<? super T> keyEncoder,
+                               HashStrategy hashStrategy) {
+        this(bitArraySize, numHashFunctions, keyEncoder, hashStrategy, false);
+    }
+
+    /**
+     * Creates a counting filter, optionally with conservative update for frequency estimation.
+     *
+     * @param bitArraySize number of counters
+     * @param numHashFunctions the number of counters per element
+     * @param keyEncoder turns elements into the bytes that are hashed
+     * @param hashStrategy hash function and probe derivation
+     * @param conservativeUpdate only raise the minimum counters on insert; disables removal
+     */
+    public CountingBloomFilter(int bitArraySize, int numHashFunctions, KeyEncoder<? super T> keyEncoder,
+                               HashStrategy hashStrategy, boolean conservativeUpdate) {
+        super(bitArraySize, numHashFunctions, keyEncoder, hashStrategy);
         this.counters = new int[bitArraySize];
+        this.conservativeUpdate = conservativeUpdate;
+    }
+
+    /** Returns whether inserts use conservative update. */
+    public boolean isConservativeUpdate() {
+        return conservativeUpdate;
     }
 
     @Override
-    protected int[] getHashIndices(T element) {
-        if (element == null) throw new NullPointerException("element");
-        long[] hash = HashUtils.hash128(element.toString());
-        int[] indices = HashUtils.generateIndices(hash, hashCount, bitArraySize);
+    public void add(T element) {
+        if (!conservativeUpdate || !verbose) {
+            super.add(element);
+            return;
+        }
+        long[] indices = getHashIndices(element);
+        System.out.printf("Adding element (conservative): %s%n", element);
+        int min = Integer.MAX_VALUE;
+        for (long index : indices) min = Math.min(min, counters[(int) index]);
+        for (long index : indices) {
+            if (counters[(int) index] == min) setBit(index);
+        }
+        countAdded();
+        System.out.printf(" → itemCount now: %d%n", getEstimatedCount());
+    }
+
+    @Override
+    protected void addHashed(long hash1, long hash2) {
+        if (!conservativeUpdate) {
+            super.addHashed(hash1, hash2);
+            return;
+        }
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < hashCount; i++) {
+            min = Math.min(min, counters[(int) hashStrategy.index(hash1, hash2, i, bitArraySize)]);
+        }
+        if (min == Integer.MAX_VALUE) return;
+        for (int i = 0; i < hashCount; i++) {
+            int index = (int) hashStrategy.index(hash1, hash2, i, bitArraySize);
+            if (counters[index] == min) {
+                if (min == 0) nonZero++;
+                counters[index]++;
+            }
+        }
+    }
+
+    /**
+     * Estimates how many times an element was added: the minimum of its k counters. The
+     * estimate never falls below the true count and is 0 for most elements never added.
+     *
+     * @param element element to look up
+     * @return the estimated number of insertions
+     */
+    public int estimateCount(T element) {
+        if (!verbose) {
+            long[] hash = HashUtils.scratchHash();
+            hash(element, hash);
+            int min = Integer.MAX_VALUE;
+            for (int i = 0; i < hashCount && min > 0; i++) {
+                min = Math.min(min, counters[(int) hashStrategy.index(hash[0], hash[1], i, bitArraySize)]);
+            }
+            return min;
+        }
+        long[] indices = getHashIndices(element);
+        int min = Integer.MAX_VALUE;
+        for (long index : indices) {
+            System.out.printf("   counter[%d] = %d%n", index, counters[(int) index]);
+            min = Math.min(min, counters[(int) index]);
+        }
+        System.out.printf(" → estimated count of '%s' = %d%n", element, min);
+        return min;
+    }
+
+    /**
+     * Returns the {@code k} candidates with the highest estimated counts, highest first. A
+     * filter cannot list its elements, so the candidates to rank must be supplied, e.g. the
+     * distinct keys of the current batch; candidates with an estimate of 0 are skipped.
+     *
+     * @param candidates elements to rank; duplicates are ranked once
+     * @param k maximum number of results
+     * @return up to {@code k} frequencies in descending order of count
+     */
+    public List<Frequency<T>> topK(Iterable<? extends T> candidates, int k) {
+        if (candidates == null) throw new NullPointerException("candidates");
+        if (k < 0) throw new IllegalArgumentException("k must not be negative");
+        PriorityQueue<Frequency<T>> heap = new PriorityQueue<>(Comparator.comparingInt(Frequency<T>::count));
+        Set<T> seen = new HashSet<>();
+        for (T candidate : candidates) {
+            if (k == 0 || !seen.add(candidate)) continue;
+            int count = estimateCount(candidate);
+            if (count == 0) continue;
+            if (heap.size() < k) {
+                heap.add(new Frequency<>(candidate, count));
+            } else if (count > heap.peek().count()) {
+                heap.poll();
+                heap.add(new Frequency<>(candidate, count));
+            }
+        }
+        List<Frequency<T>> result = new ArrayList<>(heap);
+        result.sort(Comparator.comparingInt(Frequency<T>::count).reversed());
+        return result;
+    }
+
+    @Override
+    protected long[] getHashIndices(T element) {
+        long[] indices = super.getHashIndices(element);
         if (verbose)
             System.out.printf("Hashing '%s' → %s%n", element, Arrays.toString(indices));
         return indices;
     }
 
     @Override
-    protected void setBit(int index) {
-        if (counters[index] < Integer.MAX_VALUE) counters[index]++;
-        if (verbose) System.out.printf("   increment counter[%d] = %d%n", index, counters[index]);
+    protected void setBit(long index) {
+        int i = (int) index;
+        if (counters[i] == 0) nonZero++;
+        if (counters[i] < Integer.MAX_VALUE) counters[i]++;
+        if (verbose) System.out.printf("   increment counter[%d] = %d%n", index, counters[i]);
     }
 
     @Override
-    protected boolean getBit(int index) {
-        return counters[index] > 0;
+    protected boolean getBit(long index) {
+        return counters[(int) index] > 0;
     }
 
     @Override
-    protected void clearBit(int index) {
-        counters[index] = 0;
+    protected void clearBit(long index) {
+        if (counters[(int) index] != 0) nonZero--;
+        counters[(int) index] = 0;
     }
 
+    /** Returns the number of counters above zero. */
+    @Override
+    public long getSetBitCount() {
+        return nonZero;
+    }
+
+    /**
+     * Merges another counting filter into this one by adding its counters, saturating at
+     * {@code Integer.MAX_VALUE}. The element counts are added too.
+     *
+     * @param other a filter with the same size, hash count and hash strategy
+     * @throws IllegalArgumentException if the filters are not compatible
+     */
+    public void unionWith(CountingBloomFilter<T> other) {
+        if (other == null) throw new NullPointerException("other");
+        if (other.bitArraySize != bitArraySize || other.hashCount != hashCount
+                || other.hashStrategy.id() != hashStrategy.id()) {
+            throw new IllegalArgumentException("Filters are not compatible: m=" + bitArraySize + ", k=" + hashCount
+                    + " vs m=" + other.bitArraySize + ", k=" + other.hashCount);
+        }
+        int[] target = counters;
+        int[] source = other.counters;
+        if (verbose) System.out.printf("Merging %d counters...%n", target.length);
+        ParallelRanges.forEach(target.length, (from, to) -> {
+            for (int i = (int) from; i < to; i++) {
+                target[i] = (int) Math.min(Integer.MAX_VALUE, (long) target[i] + source[i]);
+            }
+        });
+        nonZero = ParallelRanges.sum(target.length, (from, to) -> {
+            long count = 0;
+            for (int i = (int) from; i < to; i++) if (target[i] != 0) count++;
+            return count;
+        });
+        itemCount += other.itemCount;
+    }
+
+    /**
+     * Returns the merge of this filter and another as a new filter with this filter's update
+     * mode; neither input is modified.
+     *
+     * @see #unionWith(CountingBloomFilter)
+     */
+    public CountingBloomFilter<T> union(CountingBloomFilter<T> other) {
+        CountingBloomFilter<T> result = new CountingBloomFilter<>(counters.length, hashCount, keyEncoder,
+                hashStrategy, conservativeUpdate);
+        result.unionWith(this);
+        result.unionWith(other);
+        return result;
+    }
+
+    /**
+     * Removes one insertion of an element.
+     *
+     * @throws UnsupportedOperationException if conservative update is enabled
+     */
     @Override
     public void remove(T element) {
         if (element == null) throw new NullPointerException("element");
-        int[] indices = getHashIndices(element);
-        if (verbose)
-            System.out.printf("Removing element '%s'%n", element);
-        for (int index : indices) {
-            if (counters[index] > 0) counters[index]--;
-            if (verbose) System.out.printf("   decrement counter[%d] = %d%n", index, counters[index]);
+        if (conservativeUpdate) {
+            throw new UnsupportedOperationException("remove is not supported with conservative update");
+        }
+        if (!verbose) {
+            long[] hash = HashUtils.scratchHash();
+            hash(element, hash);
+            long hash1 = hash[0];
+            long hash2 = hash[1];
+            for (int i = 0; i < hashCount; i++) {
+                int index = (int) hashStrategy.index(hash1, hash2, i, bitArraySize);
+                if (counters[index] > 0 && --counters[index] == 0) nonZero--;
+            }
+            if (itemCount > 0) itemCount--;
+            return;
+        }
+        long[] indices = getHashIndices(element);
+        System.out.printf("Removing element '%s'%n", element);
+        for (long index : indices) {
+            int i = (int) index;
+            if (counters[i] > 0 && --counters[i] == 0) nonZero--;
+            System.out.printf("   decrement counter[%d] = %d%n", index, counters[i]);
         }
         if (itemCount > 0) itemCount--;
     }
@@ -57,13 +283,14 @@ public class CountingBloomFilter<T> extends AbstractBloomFilter<T> {
         if (verbose)
             System.out.printf("Serializing CountingBloomFilter (size=%d, hashes=%d, count=%d)%n",
                     bitArraySize, hashCount, itemCount);
-        ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 8 + 4 + counters.length * 4)
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 8 + 4 + counters.length * 4 + 4)
                 .order(ByteOrder.BIG_ENDIAN);
-        buffer.putInt(bitArraySize);
+        buffer.putInt(counters.length);
         buffer.putInt(hashCount);
         buffer.putLong(itemCount);
         buffer.putInt(counters.length);
         for (int value : counters) buffer.putInt(value);
+        buffer.putInt(hashStrategy.id());
         return buffer.array();
     }
 
@@ -76,12 +303,16 @@ public class CountingBloomFilter<T> extends AbstractBloomFilter<T> {
         int savedNumHash = buffer.getInt();
         long savedCount = buffer.getLong();
         int length = buffer.getInt();
-        if (savedSize != this.bitArraySize || savedNumHash != this.hashCount)
+        if (savedSize != counters.length || savedNumHash != this.hashCount)
             throw new IllegalArgumentException("Serialized data does not match filter configuration");
         int[] newCounters = new int[length];
         for (int i = 0; i < length; i++) newCounters[i] = buffer.getInt();
+        checkHashStrategy(buffer);
         this.itemCount = savedCount;
         this.counters = newCounters;
+        long count = 0;
+        for (int value : newCounters) if (value != 0) count++;
+        this.nonZero = count;
         if (verbose) System.out.println(" → Deserialization complete.");
     }
 }
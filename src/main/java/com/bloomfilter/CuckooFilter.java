@@ -0,0 +1,470 @@
+package com.bloomfilter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Cuckoo filter (Fan et al.): stores a short fingerprint of each element in one of two
+ * candidate buckets of four slots, and supports {@link #remove(Object)} at a fraction of the
+ * memory of a {@link CountingBloomFilter}. A lookup reads at most two buckets.
+ *
+ * <p>The first bucket comes from {@code hash1}, the fingerprint from the top bits of
+ * {@code hash2}, and the alternate bucket is the first one XORed with a hash of the
+ * fingerprint (partial-key cuckoo hashing), so a fingerprint can move between its two buckets
+ * without the original element. When both buckets are full, resident fingerprints are kicked
+ * to their alternate buckets up to {@value #MAX_KICKS} times; if that fails, the last evicted
+ * fingerprint is kept in a one-entry victim slot, so no element is ever lost. The filter is
+ * then full: {@link #tryAdd(Object)} returns {@code false} and {@link #add(Object)} throws
+ * {@link IllegalStateException} until a removal frees space.
+ *
+ * <p>Buckets of {@code 4 * f} bits are packed back to back in a {@code long[]}. Removing an
+ * element that was never added may delete the fingerprint of another element that shares it,
+ * as with any cuckoo filter.
+ *
+ * @param <T> the type of elements to be stored in the filter
+ */
+public class CuckooFilter<T> extends AbstractBloomFilter<T> {
+
+    /** Fingerprint slots per bucket. */
+    public static final int BUCKET_SIZE = 4;
+
+    /** Default fingerprint width; gives a false-positive rate of about 0.2% when full. */
+    public static final int DEFAULT_FINGERPRINT_BITS = 12;
+
+    /** Maximum number of evictions attempted by one insertion. */
+    public static final int MAX_KICKS = 500;
+
+    private static final double MAX_LOAD = 0.95;
+    private static final long KICK_SEED = 0x2545F4914F6CDD1DL;
+
+    private final long[] table;
+    private final int bucketCount;
+    private final int fingerprintBits;
+    private final int bucketBits;
+    private final long fingerprintMask;
+
+    // Fingerprint that could not be placed (0 = none) and the bucket it belongs to
+    private int victimFingerprint;
+    private int victimBucket;
+
+    private long kickState = KICK_SEED;
+
+    /**
+     * Creates a new CuckooFilter with the default fingerprint width.
+     *
+     * @param capacity number of elements the filter must hold
+     */
+    public CuckooFilter(long capacity) {
+        this(capacity, DEFAULT_FINGERPRINT_BITS);
+    }
+
+    /**
+     * Creates a new CuckooFilter.
+     *
+     * @param capacity number of elements the filter must hold
+     * @param fingerprintBits fingerprint width in bits, from 4 to 16
+     */
+    public CuckooFilter(long capacity, int fingerprintBits) {
+        this(capacity, fingerprintBits, KeyEncoders.defaultEncoder());
+    }
+
+    /**
+     * Creates a new CuckooFilter that hashes elements with the given key encoder.
+     *
+     * @param capacity number of elements the filter must hold
+     * @param fingerprintBits fingerprint width in bits, from 4 to 16
+     * @param keyEncoder turns elements into the bytes that are hashed
+     */
+    public CuckooFilter(long capacity, int fingerprintBits, KeyEncoder<? super T> keyEncoder) {
+        this(capacity, fingerprintBits, keyEncoder, StandardHashStrategy.MURMUR3_LEGACY);
+    }
+
+    /**
+     * Creates a new CuckooFilter with an explicit key encoder and hash strategy. The bucket
+     * count is the smallest power of two that keeps {@code capacity} elements under 95% load.
+     *
+     * @param capacity number of elements the filter must hold
+     * @param fingerprintBits fingerprint width in bits, from 4 to 16
+     * @param keyEncoder turns elements into the bytes that are hashed
+     * @param hashStrategy hash function; only its 128-bit hash is used
+     */
+    public CuckooFilter(long capacity, int fingerprintBits, KeyEncoder<? super T> keyEncoder,
+                        HashStrategy hashStrategy) {
+        super((long) bucketsFor(capacity) * BUCKET_SIZE * checkFingerprintBits(fingerprintBits), 2,
+                keyEncoder, hashStrategy);
+        this.bucketCount = bucketsFor(capacity);
+        this.fingerprintBits = fingerprintBits;
+        this.bucketBits = BUCKET_SIZE * fingerprintBits;
+        this.fingerprintMask = (1L << fingerprintBits) - 1;
+        this.table = new long[(int) ((bitArraySize + 63) >>> 6)];
+    }
+
+    private static int bucketsFor(long capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+        long buckets = Math.max(1, (long) Math.ceil(capacity / (BUCKET_SIZE * MAX_LOAD)));
+        if (buckets > 1 << 30) throw new IllegalArgumentException("capacity too large: " + capacity);
+        return buckets == 1 ? 1 : Integer.highestOneBit((int) buckets - 1) << 1;
+    }
+
+    private static int checkFingerprintBits(int bits) {
+        if (bits < 4 || bits > 16) throw new IllegalArgumentException("fingerprintBits must be between 4 and 16");
+        return bits;
+    }
+
+    // ------------------------------------------------------------
+    // Bucket access
+    // ------------------------------------------------------------
+
+    private long readBucket(int bucket) {
+        long bit = (long) bucket * bucketBits;
+        int word = (int) (bit >>> 6);
+        int shift = (int) (bit & 63);
+        long value = table[word] >>> shift;
+        if (shift + bucketBits > 64) value |= table[word + 1] << (64 - shift);
+        return bucketBits == 64 ? value : value & ((1L << bucketBits) - 1);
+    }
+
+    private void writeBucket(int bucket, long value) {
+        long bit = (long) bucket * bucketBits;
+        int word = (int) (bit >>> 6);
+        int shift = (int) (bit & 63);
+        long mask = bucketBits == 64 ? -1L : (1L << bucketBits) - 1;
+        table[word] = (table[word] & ~(mask << shift)) | (value << shift);
+        if (shift + bucketBits > 64) {
+            int spill = 64 - shift;
+            table[word + 1] = (table[word + 1] & ~(mask >>> spill)) | (value >>> spill);
+        }
+    }
+
+    private boolean bucketContains(int bucket, int fingerprint) {
+        long value = readBucket(bucket);
+        for (int j = 0; j < BUCKET_SIZE; j++, value >>>= fingerprintBits) {
+            if ((value & fingerprintMask) == fingerprint) return true;
+        }
+        return false;
+    }
+
+    private boolean bucketInsert(int bucket, int fingerprint) {
+        long value = readBucket(bucket);
+        for (int j = 0; j < BUCKET_SIZE; j++) {
+            int shift = j * fingerprintBits;
+            if (((value >>> shift) & fingerprintMask) == 0) {
+                writeBucket(bucket, value | ((long) fingerprint << shift));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean bucketDelete(int bucket, int fingerprint) {
+        long value = readBucket(bucket);
+        for (int j = 0; j < BUCKET_SIZE; j++) {
+            int shift = j * fingerprintBits;
+            if (((value >>> shift) & fingerprintMask) == fingerprint) {
+                writeBucket(bucket, value & ~(fingerprintMask << shift));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ------------------------------------------------------------
+    // Hash derivation
+    // ------------------------------------------------------------
+
+    private int bucketIndex(long hash1) {
+        return (int) hash1 & (bucketCount - 1);
+    }
+
+    private int fingerprint(long hash2) {
+        int fingerprint = (int) (hash2 >>> (64 - fingerprintBits));
+        return fingerprint == 0 ? 1 : fingerprint; // 0 marks an empty slot
+    }
+
+    private int alternate(int bucket, int fingerprint) {
+        return (bucket ^ (int) ((fingerprint * 0x9E3779B97F4A7C15L) >>> 32)) & (bucketCount - 1);
+    }
+
+    // ------------------------------------------------------------
+    // Core operations
+    // ------------------------------------------------------------
+
+    /**
+     * Adds an element.
+     *
+     * @throws IllegalStateException if the filter is full
+     */
+    @Override
+    public void add(T element) {
+        if (!tryAdd(element)) {
+            throw new IllegalStateException("Cuckoo filter is full (" + getEstimatedCount() + " elements)");
+        }
+    }
+
+    /**
+     * Adds an element unless the filter is full.
+     *
+     * @param element element to add
+     * @return {@code false} if the filter is full and nothing was added
+     */
+    public boolean tryAdd(T element) {
+        long[] hash = verbose ? new long[2] : HashUtils.scratchHash();
+        hash(element, hash);
+        boolean added = insertHashed(hash[0], hash[1]);
+        if (added) countAdded();
+        if (verbose) {
+            System.out.printf("Adding element: %s → buckets %d/%d, fingerprint %d%n", element,
+                    bucketIndex(hash[0]), alternate(bucketIndex(hash[0]), fingerprint(hash[1])), fingerprint(hash[1]));
+            System.out.printf(added ? " → itemCount now: %d%n" : " → Filter is full (itemCount %d)%n",
+                    getEstimatedCount());
+        }
+        return added;
+    }
+
+    @Override
+    public boolean mightContain(T element) {
+        if (!verbose) return super.mightContain(element);
+        long[] hash = new long[2];
+        hash(element, hash);
+        int fingerprint = fingerprint(hash[1]);
+        int i1 = bucketIndex(hash[0]);
+        int i2 = alternate(i1, fingerprint);
+        boolean result = containsHashed(hash[0], hash[1]);
+        System.out.printf("Checking membership for: %s → buckets %d/%d, fingerprint %d%n", element, i1, i2,
+                fingerprint);
+        System.out.println(result ? " → Possibly in the set (mightContain = true)\n" : " → Definitely NOT in the set.\n");
+        return result;
+    }
+
+    /**
+     * Removes one copy of an element's fingerprint. Only remove elements that were added;
+     * otherwise another element sharing the fingerprint may be removed instead.
+     */
+    @Override
+    public void remove(T element) {
+        long[] hash = verbose ? new long[2] : HashUtils.scratchHash();
+        hash(element, hash);
+        boolean removed = removeHashed(hash[0], hash[1]);
+        if (removed && itemCount > 0) itemCount--;
+        if (verbose) System.out.printf("Removing element '%s' → %s%n", element, removed ? "removed" : "not found");
+    }
+
+    @Override
+    protected void addHashed(long hash1, long hash2) {
+        if (!insertHashed(hash1, hash2)) throw new IllegalStateException("Cuckoo filter is full");
+    }
+
+    @Override
+    protected boolean containsHashed(long hash1, long hash2) {
+        int fingerprint = fingerprint(hash2);
+        int i1 = bucketIndex(hash1);
+        int i2 = alternate(i1, fingerprint);
+        if (bucketContains(i1, fingerprint) || bucketContains(i2, fingerprint)) return true;
+        return victimFingerprint == fingerprint && (victimBucket == i1 || victimBucket == i2);
+    }
+
+    private boolean insertHashed(long hash1, long hash2) {
+        if (victimFingerprint != 0) return false;
+        int fingerprint = fingerprint(hash2);
+        int i1 = bucketIndex(hash1);
+        if (bucketInsert(i1, fingerprint)) return true;
+        int i2 = alternate(i1, fingerprint);
+        if (bucketInsert(i2, fingerprint)) return true;
+        relocate((nextRandom() & 1) == 0 ? i1 : i2, fingerprint);
+        return true;
+    }
+
+    /** Kicks fingerprints along their alternate buckets until one lands in a free slot. */
+    private void relocate(int bucket, int fingerprint) {
+        for (int kick = 0; kick < MAX_KICKS; kick++) {
+            int shift = (int) ((nextRandom() >>> 62) * fingerprintBits);
+            long value = readBucket(bucket);
+            int evicted = (int) ((value >>> shift) & fingerprintMask);
+            writeBucket(bucket, (value & ~(fingerprintMask << shift)) | ((long) fingerprint << shift));
+            fingerprint = evicted;
+            bucket = alternate(bucket, fingerprint);
+            if (bucketInsert(bucket, fingerprint)) return;
+        }
+        victimFingerprint = fingerprint;
+        victimBucket = bucket;
+        if (verbose) System.out.printf(" → No free slot after %d kicks; filter is now full%n", MAX_KICKS);
+    }
+
+    private boolean removeHashed(long hash1, long hash2) {
+        int fingerprint = fingerprint(hash2);
+        int i1 = bucketIndex(hash1);
+        int i2 = alternate(i1, fingerprint);
+        if (bucketDelete(i1, fingerprint) || bucketDelete(i2, fingerprint)) {
+            if (victimFingerprint != 0) {
+                // A slot was freed: give the victim another chance
+                int victim = victimFingerprint;
+                int bucket = victimBucket;
+                victimFingerprint = 0;
+                if (!bucketInsert(bucket, victim) && !bucketInsert(alternate(bucket, victim), victim)) {
+                    relocate(bucket, victim);
+                }
+            }
+            return true;
+        }
+        if (victimFingerprint == fingerprint && (victimBucket == i1 || victimBucket == i2)) {
+            victimFingerprint = 0;
+            return true;
+        }
+        return false;
+    }
+
+    private long nextRandom() {
+        long x = kickState;
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        return kickState = x;
+    }
+
+    /** Returns the bit offsets of the two candidate buckets of an element. */
+    @Override
+    protected long[] getHashIndices(T element) {
+        long[] hash = new long[2];
+        hash(element, hash);
+        int i1 = bucketIndex(hash[0]);
+        int i2 = alternate(i1, fingerprint(hash[1]));
+        return new long[]{(long) i1 * bucketBits, (long) i2 * bucketBits};
+    }
+
+    @Override
+    protected void setBit(long index) {
+        table[(int) (index >>> 6)] |= 1L << index;
+    }
+
+    @Override
+    protected boolean getBit(long index) {
+        return (table[(int) (index >>> 6)] & (1L << index)) != 0;
+    }
+
+    @Override
+    protected void clearBit(long index) {
+        table[(int) (index >>> 6)] &= ~(1L << index);
+    }
+
+    @Override
+    public void clear() {
+        if (verbose) System.out.println("Clearing all buckets...");
+        Arrays.fill(table, 0);
+        victimFingerprint = 0;
+        victimBucket = 0;
+        kickState = KICK_SEED;
+        itemCount = 0;
+        if (verbose) System.out.println(" → Filter cleared.");
+    }
+
+    /**
+     * Estimates the false-positive rate: a query compares its fingerprint against the
+     * {@code 2n / buckets} fingerprints expected in its two buckets, each matching with
+     * probability {@code 1 / (2^f - 1)}.
+     */
+    @Override
+    public double estimateFalsePositiveRate() {
+        double occupied = 2.0 * getEstimatedCount() / bucketCount;
+        double fpr = -Math.expm1(occupied * Math.log1p(-1.0 / fingerprintMask));
+        if (verbose) System.out.printf("Estimating cuckoo FPR (buckets=%d, f=%d, n=%d) = %f%n",
+                bucketCount, fingerprintBits, getEstimatedCount(), fpr);
+        return fpr;
+    }
+
+    // ------------------------------------------------------------
+    // Accessors for metadata / introspection
+    // ------------------------------------------------------------
+
+    /** Number of buckets (a power of two). */
+    public int getBucketCount() {
+        return bucketCount;
+    }
+
+    /** Fingerprint width in bits. */
+    public int getFingerprintBits() {
+        return fingerprintBits;
+    }
+
+    /** Fraction of slots in use. */
+    public double getLoadFactor() {
+        return (double) getEstimatedCount() / ((long) bucketCount * BUCKET_SIZE);
+    }
+
+    /** Returns the {@link #getLoadFactor() load factor}: the fraction of slots in use. */
+    @Override
+    public double getFillRatio() {
+        return getLoadFactor();
+    }
+
+    /**
+     * Not available: a repeated element occupies another slot, so the table cannot tell
+     * duplicates from distinct elements.
+     *
+     * @return {@link Double#NaN}
+     */
+    @Override
+    public double estimateDistinctCount() {
+        return Double.NaN;
+    }
+
+    /** Returns whether the last insertion ran out of kicks, so further insertions fail. */
+    public boolean isFull() {
+        return victimFingerprint != 0;
+    }
+
+    // ------------------------------------------------------------
+    // Serialization
+    // ------------------------------------------------------------
+
+    /**
+     * Layout: {@code [int buckets][int fingerprintBits][long n][int victimBucket]
+     * [int victimFingerprint][int words][long...]}, then the hash strategy id.
+     */
+    @Override
+    public byte[] toBytes() {
+        if (verbose) System.out.printf("Serializing CuckooFilter (buckets=%d, f=%d, count=%d)%n",
+                bucketCount, fingerprintBits, itemCount);
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 8 + 4 + 4 + 4 + table.length * 8 + 4)
+                .order(ByteOrder.BIG_ENDIAN);
+        buffer.putInt(bucketCount);
+        buffer.putInt(fingerprintBits);
+        buffer.putLong(itemCount);
+        buffer.putInt(victimBucket);
+        buffer.putInt(victimFingerprint);
+        buffer.putInt(table.length);
+        for (long word : table) buffer.putLong(word);
+        buffer.putInt(hashStrategy.id());
+        return buffer.array();
+    }
+
+    @Override
+    public void fromBytes(byte[] data) {
+        if (verbose) System.out.println("Deserializing CuckooFilter...");
+        if (data == null) throw new NullPointerException("data");
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.BIG_ENDIAN);
+        if (buffer.remaining() < 28) throw new IllegalArgumentException("Serialized data is too short");
+        int savedBuckets = buffer.getInt();
+        int savedBits = buffer.getInt();
+        long savedCount = buffer.getLong();
+        int savedVictimBucket = buffer.getInt();
+        int savedVictim = buffer.getInt();
+        int length = buffer.getInt();
+        if (savedBuckets != bucketCount || savedBits != fingerprintBits || length != table.length) {
+            throw new IllegalArgumentException("Serialized data does not match filter configuration");
+        }
+        if (savedVictim < 0 || savedVictim > fingerprintMask || savedVictimBucket < 0 || savedVictimBucket >= bucketCount) {
+            throw new IllegalArgumentException("Serialized victim entry is invalid");
+        }
+        if (buffer.remaining() < length * 8L) throw new IllegalArgumentException("Serialized data is truncated");
+        long[] words = new long[length];
+        buffer.asLongBuffer().get(words);
+        buffer.position(buffer.position() + length * 8);
+        checkHashStrategy(buffer);
+        System.arraycopy(words, 0, table, 0, length);
+        this.victimBucket = savedVictimBucket;
+        this.victimFingerprint = savedVictim;
+        this.itemCount = savedCount;
+        if (verbose) System.out.println(" → Deserialization complete.");
+    }
+}
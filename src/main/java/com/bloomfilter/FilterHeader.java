@@ -0,0 +1,197 @@
+package com.bloomfilter;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+/**
+ * Self-describing header written by {@link FilterIO} in front of a filter's serialized form.
+ * The header has a fixed length of {@value #LENGTH} bytes, so a file can be identified and
+ * inspected without reading its payload:
+ *
+ * <pre>
+ * [int magic "BLMF"][short version][short algorithm][int hash strategy]
+ * [long m][int k][long n][long payload length][int payload CRC32C][int header CRC32C]
+ * </pre>
+ *
+ * <p>The payload is exactly what {@link MembershipFilter#writeTo} produces, so it keeps each
+ * filter's own layout. Files written before the header existed start directly with that
+ * payload; none of those layouts starts with the magic number unless a classic filter has
+ * exactly {@code 0x424C4D46} bits. {@link #readIfPresent(ByteBuffer)} only accepts a header
+ * whose checksum also checks out, so such a file is still read as unversioned, while a valid
+ * header of a newer version is rejected rather than mistaken for one.
+ *
+ * @param version format version, {@value #VERSION} for files written by this class
+ * @param algorithm concrete filter type of the payload
+ * @param hashStrategy id of the filter's {@link HashStrategy}
+ * @param bitArraySize number of bits (m) as reported by the filter
+ * @param hashCount number of hash functions (k)
+ * @param itemCount number of added elements (n) when the filter was written
+ * @param payloadLength number of payload bytes following the header
+ * @param checksum CRC32C of the payload
+ */
+public record FilterHeader(int version, Algorithm algorithm, int hashStrategy, long bitArraySize, int hashCount,
+                           long itemCount, long payloadLength, int checksum) {
+
+    /** First four bytes of every versioned file: {@code "BLMF"}. */
+    public static final int MAGIC = 0x424C4D46;
+
+    /** Format version written by this class. */
+    public static final int VERSION = 1;
+
+    /** Length of the header in bytes. */
+    public static final int LENGTH = 4 + 2 + 2 + 4 + 8 + 4 + 8 + 8 + 4 + 4;
+
+    /**
+     * Filter types recorded in the header. Ids are part of the file format and must never be
+     * reused; subclasses that are not listed are recorded as {@link #OTHER}.
+     */
+    public enum Algorithm {
+        OTHER(0),
+        CLASSIC(1),
+        BLOCKED(2),
+        CONCURRENT(3),
+        INT(4),
+        LONG(5),
+        PARTITIONED_ROUTED(6),
+        PARTITIONED_SLICED(7),
+        COUNTING(8),
+        CONCURRENT_COUNTING(9),
+        COMPACT_COUNTING(10),
+        SPLIT_BLOCK(11),
+        SCALABLE(12),
+        SLIDING_WINDOW(13),
+        CUCKOO(14),
+        BINARY_FUSE(15);
+
+        private final int id;
+
+        Algorithm(int id) {
+            this.id = id;
+        }
+
+        /** Returns the id stored in the header. */
+        public int id() {
+            return id;
+        }
+
+        /**
+         * Returns the algorithm with the given id.
+         *
+         * @throws IllegalArgumentException if no algorithm has that id
+         */
+        public static Algorithm forId(int id) {
+            for (Algorithm algorithm : values()) {
+                if (algorithm.id == id) return algorithm;
+            }
+            throw new IllegalArgumentException("Unknown filter algorithm id: " + id);
+        }
+
+        /** Returns the algorithm of a filter's exact class. */
+        public static Algorithm of(MembershipFilter<?> filter) {
+            Class<?> type = filter.getClass();
+            if (type == ClassicBloomFilter.class) return CLASSIC;
+            if (type == BlockedBloomFilter.class) return BLOCKED;
+            if (type == ConcurrentBloomFilter.class) return CONCURRENT;
+            if (type == IntBloomFilter.class) return INT;
+            if (type == LongBloomFilter.class) return LONG;
+            if (type == PartitionedBloomFilter.class) {
+                return ((PartitionedBloomFilter<?>) filter).getLayout() == PartitionedBloomFilter.Layout.SLICED
+                        ? PARTITIONED_SLICED : PARTITIONED_ROUTED;
+            }
+            if (type == CountingBloomFilter.class) return COUNTING;
+            if (type == ConcurrentCountingBloomFilter.class) return CONCURRENT_COUNTING;
+            if (type == CompactCountingBloomFilter.class) return COMPACT_COUNTING;
+            if (type == SplitBlockBloomFilter.class) return SPLIT_BLOCK;
+            if (type == ScalableBloomFilter.class) return SCALABLE;
+            if (type == SlidingWindowBloomFilter.class) return SLIDING_WINDOW;
+            if (type == CuckooFilter.class) return CUCKOO;
+            if (type == BinaryFuseFilter.class) return BINARY_FUSE;
+            return OTHER;
+        }
+    }
+
+    /** Describes {@code filter} with the given payload length and payload checksum. */
+    static FilterHeader of(AbstractBloomFilter<?> filter, long payloadLength, int checksum) {
+        return new FilterHeader(VERSION, Algorithm.of(filter), filter.getHashStrategy().id(),
+                filter.getBitArraySize(), filter.getHashCount(), filter.getEstimatedCount(), payloadLength, checksum);
+    }
+
+    /**
+     * Returns {@code true} if the buffer, read from the start of a file, begins with the
+     * magic number. The buffer's position is not changed.
+     */
+    public static boolean isVersioned(ByteBuffer buffer) {
+        return buffer.remaining() >= 4 && buffer.getInt(buffer.position()) == MAGIC;
+    }
+
+    /**
+     * Reads the header at the buffer's position, or returns {@code null} for data written
+     * before headers existed: data that does not start with the magic number, or that does
+     * but is too short for a header or fails its checksum, as a legacy classic filter of
+     * exactly {@code MAGIC} bits does. The buffer is left just after the header, or unchanged
+     * when {@code null} is returned.
+     *
+     * @throws IllegalArgumentException if the header is intact but of a newer version or
+     *         names an unknown algorithm
+     */
+    public static FilterHeader readIfPresent(ByteBuffer buffer) {
+        if (!isVersioned(buffer) || buffer.remaining() < LENGTH || !checksumMatches(buffer)) return null;
+        return read(buffer);
+    }
+
+    /** Writes the {@value #LENGTH} header bytes, big-endian, ending with their checksum. */
+    void write(ByteBuffer buffer) {
+        int start = buffer.position();
+        buffer.putInt(MAGIC);
+        buffer.putShort((short) version);
+        buffer.putShort((short) algorithm.id());
+        buffer.putInt(hashStrategy);
+        buffer.putLong(bitArraySize);
+        buffer.putInt(hashCount);
+        buffer.putLong(itemCount);
+        buffer.putLong(payloadLength);
+        buffer.putInt(checksum);
+        buffer.putInt(headerChecksum(buffer, start));
+    }
+
+    /**
+     * Reads a header from a big-endian buffer positioned at the magic number, leaving it just
+     * after the header.
+     *
+     * @throws IllegalArgumentException if the header is truncated, corrupt or of a newer version
+     */
+    public static FilterHeader read(ByteBuffer buffer) {
+        if (buffer.remaining() < LENGTH) {
+            throw new IllegalArgumentException("Data too short for a filter header");
+        }
+        if (!isVersioned(buffer)) throw new IllegalArgumentException("Not a versioned filter file");
+        if (!checksumMatches(buffer)) throw new IllegalArgumentException("Filter header checksum mismatch");
+        buffer.getInt();
+        int version = buffer.getShort() & 0xFFFF;
+        if (version < 1 || version > VERSION) {
+            throw new IllegalArgumentException("Unsupported filter format version: " + version);
+        }
+        int algorithm = buffer.getShort() & 0xFFFF;
+        FilterHeader header = new FilterHeader(version, Algorithm.forId(algorithm), buffer.getInt(),
+                buffer.getLong(), buffer.getInt(), buffer.getLong(), buffer.getLong(), buffer.getInt());
+        buffer.getInt();
+        if (header.payloadLength < 0) {
+            throw new IllegalArgumentException("Filter header payload length is invalid: " + header.payloadLength);
+        }
+        return header;
+    }
+
+    /** Returns {@code true} if the {@value #LENGTH} bytes at the buffer's position end with their checksum. */
+    private static boolean checksumMatches(ByteBuffer buffer) {
+        int start = buffer.position();
+        int end = start + LENGTH - 4;
+        return buffer.getInt(end) == headerChecksum(buffer.duplicate().position(end), start);
+    }
+
+    /** CRC32C of the header bytes from {@code start} up to the buffer's position. */
+    private static int headerChecksum(ByteBuffer buffer, int start) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().position(start).limit(buffer.position()));
+        return (int) crc.getValue();
+    }
+}
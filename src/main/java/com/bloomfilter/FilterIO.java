@@ -1,14 +1,54 @@
 package com.bloomfilter;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32C;
 
 public class FilterIO {
 
-    /** Save any filter using standardized binary serialization (ByteBuffer format). */
+    /** Bytes read from a word list per chunk; a chunk's words are parsed and inserted together. */
+    static final int INGEST_CHUNK = 1 << 23;
+
+    /** Approximate bytes of a chunk parsed by one task, cut at the next line boundary. */
+    static final int PARSE_GRAIN = 1 << 20;
+
+    /**
+     * Throughput of a streamed word list ingestion.
+     *
+     * @param bytes bytes read from the file
+     * @param lines lines read, including blank and comment lines
+     * @param words words passed on, after trimming and skipping blank and comment lines
+     * @param nanos wall-clock time spent
+     */
+    public record IngestStats(long bytes, long lines, long words, long nanos) {
+
+        public double megabytesPerSecond() {
+            return nanos == 0 ? 0 : bytes / 1048576.0 / (nanos / 1e9);
+        }
+
+        public double wordsPerSecond() {
+            return nanos == 0 ? 0 : words / (nanos / 1e9);
+        }
+    }
+
+    /**
+     * Save any filter using standardized binary serialization: a {@link FilterHeader} followed
+     * by the filter's own layout, streamed to the file with {@link MembershipFilter#writeTo}
+     * rather than built in memory first.
+     */
     public static void saveToFile(MembershipFilter<?> filter, String filename) throws IOException {
         Path path = Paths.get(filename);
         Files.createDirectories(path.getParent());
@@ -17,64 +57,468 @@ public class FilterIO {
             throw new IOException("Unsupported filter type for standardized save.");
         }
 
-        byte[] data = af.toBytes();
-        Files.write(path, data);
+        long size = write(af, path);
         System.out.printf("[Saved standardized filter] %s (%d bytes)%n",
-                path.toAbsolutePath(), data.length);
+                path.toAbsolutePath(), size);
     }
 
-    /** Load any standardized binary filter back into the given filter instance. */
+    /**
+     * Load any standardized binary filter back into the given filter instance, streamed with
+     * {@link MembershipFilter#readFrom}. Versioned files are checked against the filter's
+     * algorithm and hash strategy before anything is read, and their payload checksum is
+     * verified in the same pass; if it does not match, the filter is cleared. Files written
+     * before the header existed are read as they are.
+     */
     public static void loadFromFile(MembershipFilter<?> filter, String filename) throws IOException {
         Path path = Paths.get(filename);
         if (!Files.exists(path)) throw new IOException("File not found: " + filename);
 
-        byte[] data = Files.readAllBytes(path);
         if (!(filter instanceof AbstractBloomFilter<?> af)) {
             throw new IOException("Unsupported filter type for standardized load.");
         }
 
-        try {
-            af.fromBytes(data);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            FilterHeader header = readHeader(channel);
+            if (header == null) {
+                af.readFrom(channel);
+            } else {
+                checkHeader(header, af, channel.size());
+                readVerified(af, channel.position(FilterHeader.LENGTH), header);
+            }
             System.out.println("Standardized filter loaded successfully.");
-        } catch (Exception e) {
+        } catch (IOException | RuntimeException e) {
             throw new IOException("Error loading standardized filter: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Returns the header of a versioned filter file, reading only its first
+     * {@value FilterHeader#LENGTH} bytes, or an empty optional for a file written before the
+     * header existed. A file starting with the magic number but no valid header counts as
+     * unversioned, see {@link FilterHeader#readIfPresent(ByteBuffer)}.
+     *
+     * @throws IOException if the file is missing or cannot be read, or its header is of an
+     *         unsupported version or algorithm
+     */
+    public static Optional<FilterHeader> readHeader(String filename) throws IOException {
+        Path path = Paths.get(filename);
+        if (!Files.exists(path)) throw new IOException("File not found: " + filename);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return Optional.ofNullable(readHeader(channel));
+        }
+    }
+
+    /**
+     * Checks the payload of a versioned filter file against its checksum in one streaming
+     * pass, without loading the filter.
+     *
+     * @return the verified header
+     * @throws IOException if the file is unversioned, truncated or its checksum does not match
+     */
+    public static FilterHeader verify(String filename) throws IOException {
+        Path path = Paths.get(filename);
+        if (!Files.exists(path)) throw new IOException("File not found: " + filename);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            FilterHeader header = readHeader(channel);
+            if (header == null) throw new IOException("Unversioned filter file has no checksum: " + filename);
+            if (header.payloadLength() > channel.size() - FilterHeader.LENGTH) {
+                throw new IOException("Filter file is truncated: " + filename);
+            }
+            ByteBuffer buffer = ByteBuffer.allocateDirect(ChannelIO.TRANSFER_BUFFER);
+            try {
+                ChannelIO.ChecksumReader payload = ChannelIO.checksumReader(
+                        ChannelIO.limit(channel.position(FilterHeader.LENGTH), header.payloadLength()));
+                while (payload.read(buffer.clear()) >= 0) {
+                    // The checksum is taken as the bytes pass through
+                }
+                if (payload.checksum() != header.checksum()) throw new IOException("Payload checksum mismatch: " + filename);
+            } finally {
+                DirectBuffers.free(buffer);
+            }
+            return header;
+        }
+    }
+
+    /**
+     * Writes a {@link FilterHeader} and the filter to {@code path}, replacing any existing
+     * file, and returns the file size. The payload is written first, after room for the
+     * header, so its length and checksum are known when the header is filled in.
+     */
+    private static long write(AbstractBloomFilter<?> filter, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ChannelIO.ChecksumWriter payload = ChannelIO.checksumWriter(channel.position(FilterHeader.LENGTH));
+            filter.writeTo(payload);
+            ByteBuffer header = ByteBuffer.allocate(FilterHeader.LENGTH);
+            FilterHeader.of(filter, payload.written(), payload.checksum()).write(header);
+            header.flip();
+            while (header.hasRemaining()) channel.write(header, header.position());
+            return channel.size();
+        }
+    }
+
+    /**
+     * Reads the header at the start of the file, or returns {@code null} for an unversioned file.
+     *
+     * @throws IOException if the header is intact but of an unsupported version or algorithm
+     */
+    private static FilterHeader readHeader(FileChannel channel) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(FilterHeader.LENGTH);
+        readFully(channel, head, 0);
+        return readHeader(head.flip());
+    }
+
+    /** {@link FilterHeader#readIfPresent(ByteBuffer)}, reporting an unsupported header as an {@link IOException}. */
+    private static FilterHeader readHeader(ByteBuffer buffer) throws IOException {
+        try {
+            return FilterHeader.readIfPresent(buffer);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /** Rejects a versioned file holding another kind of filter before any of it is read. */
+    private static void checkHeader(FilterHeader header, AbstractBloomFilter<?> filter, long fileSize)
+            throws IOException {
+        FilterHeader.Algorithm algorithm = FilterHeader.Algorithm.of(filter);
+        if (header.algorithm() != algorithm) {
+            throw new IOException("File holds a " + header.algorithm() + " filter but the filter is " + algorithm);
+        }
+        if (header.hashStrategy() != filter.getHashStrategy().id()) {
+            throw new IOException("File uses hash strategy " + header.hashStrategy()
+                    + " but filter is configured with " + filter.getHashStrategy().id());
+        }
+        if (header.payloadLength() > fileSize - FilterHeader.LENGTH) {
+            throw new IOException("Filter file is truncated: " + header.payloadLength() + " payload bytes expected");
+        }
+    }
+
+    /**
+     * Reads the payload into the filter while checksumming it, clearing the filter if the
+     * payload is not consumed exactly or its checksum does not match.
+     */
+    private static void readVerified(AbstractBloomFilter<?> filter, FileChannel channel, FilterHeader header)
+            throws IOException {
+        ChannelIO.Limited limited = ChannelIO.limit(channel, header.payloadLength());
+        ChannelIO.ChecksumReader payload = ChannelIO.checksumReader(limited);
+        try {
+            filter.readFrom(payload);
+            if (limited.remaining() != 0) {
+                throw new IOException("Filter ended " + limited.remaining() + " bytes before its payload");
+            }
+            if (payload.checksum() != header.checksum()) throw new IOException("Payload checksum mismatch");
+        } catch (IOException | RuntimeException e) {
+            try {
+                filter.clear();
+            } catch (UnsupportedOperationException immutable) {
+                e.addSuppressed(immutable);
+            }
+            throw e;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Memory-mapped, read-only filters
+    // ------------------------------------------------------------------------
+
+    /** Maps a saved {@link ClassicBloomFilter} of strings for read-only querying. */
+    public static ClassicBloomFilter<String> mapFromFile(String filename) throws IOException {
+        return mapFromFile(filename, KeyEncoders.defaultEncoder());
+    }
+
+    /**
+     * Maps a saved {@link ClassicBloomFilter} file with {@link FileChannel#map} and returns a
+     * read-only filter that answers {@code mightContain} directly against the mapped pages,
+     * without reading or copying the bit array. Only the headers and trailer are read eagerly;
+     * the hash strategy is taken from the trailer. Versioned files must hold a classic,
+     * concurrent, int or long filter; their checksum is not verified, as that would read
+     * every page (see {@link #verify(String)}). Both the original and the wide (64-bit)
+     * classic header layouts are accepted. Adding to or clearing the returned filter throws
+     * {@link UnsupportedOperationException}; {@link ClassicBloomFilter#close()} unmaps the file.
+     *
+     * @param filename file written by {@link #saveToFile} for a classic filter
+     * @param keyEncoder the encoder the filter was built with
+     */
+    public static <T> ClassicBloomFilter<T> mapFromFile(String filename, KeyEncoder<? super T> keyEncoder)
+            throws IOException {
+        Path path = Paths.get(filename);
+        if (!Files.exists(path)) throw new IOException("File not found: " + filename);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            FilterHeader fileHeader = readHeader(channel);
+            long base = 0;
+            long end = channel.size();
+            if (fileHeader != null) {
+                switch (fileHeader.algorithm()) {
+                    case CLASSIC, CONCURRENT, INT, LONG -> { }
+                    default -> throw new IOException("Not a classic filter file: " + filename
+                            + " holds a " + fileHeader.algorithm() + " filter");
+                }
+                base = FilterHeader.LENGTH;
+                end = Math.min(end, base + fileHeader.payloadLength());
+            }
+            ByteBuffer head = ByteBuffer.allocate(ClassicBloomFilter.Header.WIDE_LENGTH);
+            readFully(channel, head, base);
+            ClassicBloomFilter.Header header;
+            try {
+                header = ClassicBloomFilter.Header.read(head.flip());
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Not a classic filter file: " + filename, e);
+            }
+            long payloadOffset = base + head.position();
+            long payloadEnd = payloadOffset + header.payloadLength;
+            if (payloadEnd > end) {
+                throw new IOException("Serialized bit array length is invalid: " + header.payloadLength);
+            }
+
+            HashStrategy strategy = StandardHashStrategy.MURMUR3_LEGACY;
+            if (end - payloadEnd >= 4) {
+                ByteBuffer trailer = ByteBuffer.allocate(4);
+                readFully(channel, trailer, payloadEnd);
+                try {
+                    strategy = HashStrategy.forId(trailer.flip().getInt());
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Error mapping filter: " + e.getMessage(), e);
+                }
+            }
+
+            BitStorage storage = new MappedBitStorage(channel, payloadOffset, header.payloadLength,
+                    header.bitArraySize);
+            ClassicBloomFilter<T> filter = new ClassicBloomFilter<>(storage, header.hashCount, keyEncoder, strategy);
+            filter.itemCount = header.itemCount;
+            return filter;
+        }
+    }
+
+    /** Loads a saved {@link BinaryFuseFilter} of strings. */
+    public static BinaryFuseFilter<String> loadFuseFilter(String filename) throws IOException {
+        return loadFuseFilter(filename, KeyEncoders.defaultEncoder());
+    }
+
+    /**
+     * Loads a saved {@link BinaryFuseFilter}. Its size, seed and hash strategy all come from
+     * the file, so no filter needs to be configured beforehand; the result is read-only like
+     * every binary fuse filter.
+     *
+     * @param filename file written by {@link #ingestListToFuseBinary} or {@link #saveToFile}
+     * @param keyEncoder the encoder the filter was built with
+     */
+    public static <T> BinaryFuseFilter<T> loadFuseFilter(String filename, KeyEncoder<? super T> keyEncoder)
+            throws IOException {
+        Path path = Paths.get(filename);
+        if (!Files.exists(path)) throw new IOException("File not found: " + filename);
+        byte[] data = Files.readAllBytes(path);
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        try {
+            FilterHeader header = readHeader(buffer);
+            if (header != null) {
+                if (header.algorithm() != FilterHeader.Algorithm.BINARY_FUSE) {
+                    throw new IOException("Not a binary fuse filter file: " + filename + " holds a "
+                            + header.algorithm() + " filter");
+                }
+                if (header.payloadLength() != buffer.remaining()) {
+                    throw new IOException("Filter file is truncated: " + filename);
+                }
+                CRC32C crc = new CRC32C();
+                crc.update(buffer.duplicate());
+                if ((int) crc.getValue() != header.checksum()) throw new IOException("Payload checksum mismatch: " + filename);
+                data = Arrays.copyOfRange(data, FilterHeader.LENGTH, data.length);
+            }
+            return BinaryFuseFilter.fromSaved(data, keyEncoder);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Error loading binary fuse filter: " + e.getMessage(), e);
+        }
+    }
+
+    /** Reads from {@code position} until the buffer is full or the file ends. */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) break;
+            position += read;
+        }
+    }
+
     // ------------------------------------------------------------------------
     // Word list ingestion utilities
     // ------------------------------------------------------------------------
 
-    /** Loads a text file into a list of strings (trimmed, non-empty lines). */
+    /**
+     * Loads a text file into a list of strings (trimmed, non-empty lines, skipping lines
+     * starting with {@code #}). The whole list is kept in memory; use
+     * {@link #ingestWordList(MembershipFilter, String)} to add a large list to a filter.
+     */
     public static List<String> loadWordList(String filename) throws IOException {
-        return Files.readAllLines(Paths.get(filename))
-                .stream()
-                .map(String::trim)
-                .filter(s -> !s.isEmpty() && !s.startsWith("#"))
-                .toList();
+        List<String> words = new ArrayList<>();
+        streamWordList(Paths.get(filename), INGEST_CHUNK, words::addAll, null);
+        return words;
+    }
+
+    /**
+     * Streams a text file into {@code filter} with the trimming and comment rules of
+     * {@link #loadWordList}, holding only one chunk of {@value #INGEST_CHUNK} bytes and its
+     * words in memory at a time. Each chunk is cut at its last line break, parsed in parallel
+     * segments on the common fork-join pool and handed to {@link MembershipFilter#addAll},
+     * which hashes it in parallel; words are inserted in file order, so the filter ends up
+     * exactly as with one {@code add} per word. Progress is printed every 10% of the file.
+     *
+     * @return bytes, lines and words read, and the time taken
+     */
+    public static IngestStats ingestWordList(MembershipFilter<String> filter, String filename) throws IOException {
+        if (filter == null) throw new NullPointerException("filter");
+        Path path = Paths.get(filename);
+        if (!Files.exists(path)) throw new IOException("File not found: " + filename);
+        long size = Files.size(path);
+        long[] nextReport = {size / 10};
+        IngestStats stats = streamWordList(path, INGEST_CHUNK, filter::addAll, read -> {
+            if (read < nextReport[0] || read == size) return;
+            System.out.printf("  ... %,d of %,d bytes (%d%%)%n", read, size, read * 100 / size);
+            nextReport[0] = read + size / 10;
+        });
+        System.out.printf("Ingested %,d words from %,d lines in %.2f s (%.1f MB/s, %,.0f words/s)%n",
+                stats.words(), stats.lines(), stats.nanos() / 1e9, stats.megabytesPerSecond(), stats.wordsPerSecond());
+        return stats;
     }
 
     /** Ingest a text list and produce a standardized binary filter in the given output folder. */
     public static void ingestListToBinary(MembershipFilter<String> filter, String input, String outputDir) throws IOException {
-        List<String> words = loadWordList(input);
-        System.out.printf("Ingesting %d words from %s...%n", words.size(), input);
+        System.out.printf("Ingesting words from %s...%n", input);
+        ingestWordList(filter, input);
+
+        writeStandardized(filter, input, outputDir);
+    }
+
+    /**
+     * Reads {@code path} chunk by chunk and passes the words of each chunk to {@code sink}.
+     * A line longer than the buffer grows it to fit.
+     *
+     * @param progress told the number of bytes consumed after every chunk, or {@code null}
+     */
+    static IngestStats streamWordList(Path path, int chunkBytes, Consumer<List<String>> sink,
+                                      LongConsumer progress) throws IOException {
+        if (!Files.exists(path)) throw new IOException("File not found: " + path);
+        long start = System.nanoTime();
+        long bytes = 0;
+        long lines = 0;
+        long words = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(chunkBytes);
+            boolean eof = false;
+            while (!eof) {
+                while (buffer.hasRemaining() && !eof) eof = channel.read(buffer) < 0;
+                byte[] data = buffer.array();
+                int limit = buffer.position();
+                int end = eof ? limit : lastLineEnd(data, limit);
+                if (end < 0) {
+                    // A single line fills the whole buffer
+                    buffer = ByteBuffer.allocate(data.length * 2).put(data, 0, limit);
+                    continue;
+                }
+
+                List<List<String>> parts = parseChunk(data, end);
+                List<String> chunk = new ArrayList<>();
+                for (List<String> part : parts) chunk.addAll(part);
+                lines += countLines(data, end, eof);
+                words += chunk.size();
+                bytes += end;
+                if (!chunk.isEmpty()) sink.accept(chunk);
+                if (progress != null) progress.accept(bytes);
+
+                buffer.limit(limit).position(end);
+                buffer.compact();
+            }
+        }
+        return new IngestStats(bytes, lines, words, System.nanoTime() - start);
+    }
+
+    /** Index just past the last {@code '\n'} before {@code limit}, or -1 if there is none. */
+    private static int lastLineEnd(byte[] data, int limit) {
+        for (int i = limit - 1; i >= 0; i--) if (data[i] == '\n') return i + 1;
+        return -1;
+    }
+
+    /** Number of lines in {@code [0, end)}; a final line without a break counts at end of file. */
+    private static long countLines(byte[] data, int end, boolean eof) {
+        long lines = 0;
+        for (int i = 0; i < end; i++) if (data[i] == '\n') lines++;
+        if (eof && end > 0 && data[end - 1] != '\n') lines++;
+        return lines;
+    }
+
+    /** Splits {@code [0, end)} at line breaks into segments of about {@link #PARSE_GRAIN} bytes and parses them in parallel. */
+    private static List<List<String>> parseChunk(byte[] data, int end) {
+        int[] bounds = new int[end / PARSE_GRAIN + 2];
+        int segments = 0;
+        for (int from = 0; from < end; segments++) {
+            bounds[segments] = from;
+            int to = Math.min(from + PARSE_GRAIN, end);
+            while (to < end && data[to - 1] != '\n') to++;
+            from = to;
+        }
+        bounds[segments] = end;
+        List<List<String>> parts = new ArrayList<>(Collections.nCopies(segments, null));
+        ParallelRanges.forEach(segments, 1, (from, to) -> {
+            for (int s = (int) from; s < to; s++) parts.set(s, parseLines(data, bounds[s], bounds[s + 1]));
+        });
+        return parts;
+    }
 
-        for (String w : words) {
-            filter.add(w);
+    /**
+     * Decodes the lines of {@code [from, to)} as UTF-8, trimmed like {@link String#trim()},
+     * dropping blank lines and lines starting with {@code #}. Trimming works on the bytes: no
+     * byte of a multi-byte UTF-8 sequence is at or below a space.
+     */
+    private static List<String> parseLines(byte[] data, int from, int to) {
+        List<String> words = new ArrayList<>();
+        int lineStart = from;
+        while (lineStart < to) {
+            int lineEnd = lineStart;
+            while (lineEnd < to && data[lineEnd] != '\n') lineEnd++;
+            int first = lineStart;
+            int last = lineEnd;
+            while (first < last && (data[first] & 0xFF) <= ' ') first++;
+            while (last > first && (data[last - 1] & 0xFF) <= ' ') last--;
+            if (first < last && data[first] != '#') {
+                words.add(new String(data, first, last - first, StandardCharsets.UTF_8));
+            }
+            lineStart = lineEnd + 1;
         }
+        return words;
+    }
 
+    /**
+     * Ingest a text list into an immutable {@link BinaryFuseFilter}, which needs about 9 bits
+     * per word instead of the ~10+ of a Bloom filter, and save it in the given output folder.
+     * The file is read back with {@link #loadFuseFilter(String)}.
+     *
+     * @return the built filter
+     */
+    public static BinaryFuseFilter<String> ingestListToFuseBinary(String input, String outputDir) throws IOException {
+        List<String> words = loadWordList(input);
+        System.out.printf("Ingesting %d words from %s into a binary fuse filter...%n", words.size(), input);
+
+        BinaryFuseFilter<String> filter = new BinaryFuseFilter<>(words);
+        System.out.printf("Built %d slots for %d distinct words (%.2f bits/word)%n",
+                filter.getFingerprintCount(), filter.getEstimatedCount(), filter.getBitsPerKey());
+        writeStandardized(filter, input, outputDir);
+        return filter;
+    }
+
+    private static void writeStandardized(MembershipFilter<String> filter, String input, String outputDir)
+            throws IOException {
         String listName = Paths.get(input).getFileName().toString().replaceFirst("\\.txt$", "");
         String algo = filter.getClass().getSimpleName();
         String sizeInfo = "";
 
         if (filter instanceof AbstractBloomFilter<?> af) {
-            int m = af.getBitArraySize();
+            long m = af.getBitArraySize();
             int k = af.getHashCount();
             sizeInfo = "_m" + m + "_k" + k;
         }
 
         if (filter instanceof PartitionedBloomFilter<?> pbf) {
-            sizeInfo = String.format("_p%dx%d_k%d", pbf.getPartitionCount(),
+            String prefix = pbf.getLayout() == PartitionedBloomFilter.Layout.SLICED ? "s" : "p";
+            sizeInfo = String.format("_%s%dx%d_k%d", prefix, pbf.getPartitionCount(),
                     pbf.getPartitionSize(), pbf.getHashCount());
         }
 
@@ -85,8 +529,7 @@ public class FilterIO {
         Files.createDirectories(outPath.getParent());
 
         assert filter instanceof AbstractBloomFilter<?>;
-        byte[] data = filter.toBytes();
-        Files.write(outPath, data);
+        write((AbstractBloomFilter<?>) filter, outPath);
 
         System.out.printf("[Standardized binary created] %s%n", outPath.toAbsolutePath());
         System.out.printf("Algorithm=%s | Bits=%d | Hashes=%d | Source=%s | Created=%s%n",
@@ -103,24 +546,46 @@ public class FilterIO {
 
     /**
      * Reads standardized filter metadata without loading the full filter.
-     * Works for any filter created with the standardized binary format.
+     * Works for any filter created with the standardized binary format; only the header
+     * bytes are read. Versioned files print their exact {@link FilterHeader}; for older files
+     * the first fields are decoded as a classic header (original or wide layout), which is
+     * only approximate for other filter types.
      */
     public static void metadata(String filename) throws IOException {
         Path path = Paths.get(filename);
         if (!Files.exists(path)) throw new IOException("File not found: " + filename);
 
-        byte[] header = Files.readAllBytes(path);
-        if (header.length < 16) throw new IOException("File too short to contain metadata");
+        ByteBuffer header = ByteBuffer.allocate(FilterHeader.LENGTH);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            readFully(channel, header, 0);
+        }
+        header.flip();
+        FilterHeader h = readHeader(header);
+        if (h != null) {
+            System.out.printf("Metadata (v%d): algorithm=%s | strategy=%d | m=%d | k=%d | n=%d | payload=%d bytes"
+                            + " | crc32c=%08x%n", h.version(), h.algorithm(), h.hashStrategy(), h.bitArraySize(),
+                    h.hashCount(), h.itemCount(), h.payloadLength(), h.checksum());
+            return;
+        }
+        if (header.remaining() < 16) throw new IOException("File too short to contain metadata");
 
         // These are the first fields written in AbstractBloomFilter / PartitionedBloomFilter
-        int first = ((header[0] & 0xFF) << 24) | ((header[1] & 0xFF) << 16)
-                | ((header[2] & 0xFF) << 8) | (header[3] & 0xFF);
-        int second = ((header[4] & 0xFF) << 24) | ((header[5] & 0xFF) << 16)
-                | ((header[6] & 0xFF) << 8) | (header[7] & 0xFF);
-        int third = ((header[8] & 0xFF) << 24) | ((header[9] & 0xFF) << 16)
-                | ((header[10] & 0xFF) << 8) | (header[11] & 0xFF);
-
-        System.out.printf("Metadata (approx): m=%d | k=%d | n≈%d%n", first, second, third);
+        long m;
+        int k;
+        long n;
+        int first = header.getInt();
+        if (first == ClassicBloomFilter.Header.WIDE_MARKER) {
+            if (header.remaining() < 20) throw new IOException("File too short to contain metadata");
+            m = header.getLong();
+            k = header.getInt();
+            n = header.getLong();
+        } else {
+            m = first;
+            k = header.getInt();
+            n = header.getLong();
+        }
+
+        System.out.printf("Metadata (approx): m=%d | k=%d | n≈%d%n", m, k, n);
     }
 
 }
@@ -9,12 +9,12 @@ import java.time.format.DateTimeFormatter;
  */
 public class FilterMetadata implements Serializable {
     private final String algorithm;
-    private final int bitArraySize;
+    private final long bitArraySize;
     private final int hashCount;
     private final String sourceFile;
     private final String createdAt;
 
-    public FilterMetadata(String algorithm, int bitArraySize, int hashCount, String sourceFile) {
+    public FilterMetadata(String algorithm, long bitArraySize, int hashCount, String sourceFile) {
         this.algorithm = algorithm;
         this.bitArraySize = bitArraySize;
         this.hashCount = hashCount;
@@ -0,0 +1,85 @@
+package com.bloomfilter;
+
+/**
+ * Pluggable hash function and index derivation used by a filter. A strategy turns the bytes
+ * written by a {@link KeyEncoder} into a 128-bit hash (two 64-bit words) and maps that hash
+ * to the k probe positions. Its {@link #id()} is recorded in serialized filters so data is
+ * never read back with a different strategy. Built-in strategies are listed in
+ * {@link StandardHashStrategy}.
+ *
+ * <p>Strategies must be safe to call from several threads at once, even when the filter using
+ * them is not thread-safe: {@link MembershipFilter#addAll(Iterable)} may hash the elements of a
+ * batch in parallel.
+ */
+public interface HashStrategy {
+
+    /**
+     * Stable identifier written into serialized filters.
+     *
+     * @return strategy id
+     */
+    int id();
+
+    /**
+     * Hashes a slice of a byte array.
+     *
+     * @param data the input data to hash
+     * @param offset the starting offset in the data
+     * @param length the number of bytes to hash
+     * @param out a two-element array receiving the hash words
+     */
+    void hash128(byte[] data, int offset, int length, long[] out);
+
+    /**
+     * Hashes a 64-bit key as its eight little-endian bytes.
+     *
+     * @param key the key to hash
+     * @param out a two-element array receiving the hash words
+     */
+    default void hash128(long key, long[] out) {
+        KeyBuffer buffer = KeyBuffer.local().reset();
+        buffer.putLong(key);
+        hash128(buffer.array(), 0, buffer.size(), out);
+    }
+
+    /**
+     * Hashes a 32-bit key as its four little-endian bytes.
+     *
+     * @param key the key to hash
+     * @param out a two-element array receiving the hash words
+     */
+    default void hash128(int key, long[] out) {
+        KeyBuffer buffer = KeyBuffer.local().reset();
+        buffer.putInt(key);
+        hash128(buffer.array(), 0, buffer.size(), out);
+    }
+
+    /**
+     * Derives the {@code i}-th probe position. The default uses enhanced double hashing with
+     * multiply-shift range reduction ({@link HashUtils#enhancedIndex(long, long, int, long)}).
+     * Bit arrays may exceed {@code Integer.MAX_VALUE} bits, so positions are 64-bit.
+     *
+     * @param hash1 first hash word
+     * @param hash2 second hash word
+     * @param i the hash function number
+     * @param bitArraySize the size of the bit array
+     * @return an index into the bit array
+     */
+    default long index(long hash1, long hash2, int i, long bitArraySize) {
+        return HashUtils.enhancedIndex(hash1, hash2, i, bitArraySize);
+    }
+
+    /**
+     * Resolves a serialized strategy id.
+     *
+     * @param id identifier previously returned by {@link #id()}
+     * @return the matching built-in strategy
+     * @throws IllegalArgumentException if the id is unknown
+     */
+    static HashStrategy forId(int id) {
+        for (StandardHashStrategy strategy : StandardHashStrategy.values()) {
+            if (strategy.id() == id) return strategy;
+        }
+        throw new IllegalArgumentException("Unknown hash strategy id: " + id);
+    }
+}
@@ -1,6 +1,7 @@
 package com.bloomfilter;
 
-import java.nio.ByteBuffer;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 
@@ -8,8 +9,48 @@ import java.nio.charset.StandardCharsets;
  * Utility class for hashing and index generation used by Bloom filter implementations.
  * Implements the MurmurHash3 128-bit algorithm and provides a double-hashing strategy
  * for generating multiple hash indices.
+ *
+ * <p>Besides the array-returning convenience methods, an allocation-free path is offered:
+ * {@link #hash128(CharSequence, long[])} encodes characters into a thread-local key
+ * buffer and writes the result into a caller-owned array, and {@link #index(long, long, int, int)}
+ * derives a single probe position so callers never need to materialize an index array.
  */
 public final class HashUtils {
+
+    /** Little-endian long view over byte arrays, used to read 16-byte MurmurHash3 blocks. */
+    private static final VarHandle LONG_LE =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /** XXH3 default 192-byte secret, stored as little-endian 64-bit words. */
+    private static final long[] XXH3_SECRET = {
+            0xBE4BA423396CFEB8L, 0x1CAD21F72C81017CL, 0xDB979083E96DD4DEL, 0x1F67B3B7A4A44072L,
+            0x78E5C0CC4EE679CBL, 0x2172FFCC7DD05A82L, 0x8E2443F7744608B8L, 0x4C263A81E69035E0L,
+            0xCB00C391BB52283CL, 0xA32E531B8B65D088L, 0x4EF90DA297486471L, 0xD8ACDEA946EF1938L,
+            0x3F349CE33F76FAA8L, 0x1D4F0BC7C7BBDCF9L, 0x3159B4CD4BE0518AL, 0x647378D9C97E9FC8L,
+            0xC3EBD33483ACC5EAL, 0xEB6313FAFFA081C5L, 0x49DAF0B751DD0D17L, 0x9E68D429265516D3L,
+            0xFCA1477D58BE162BL, 0xCE31D07AD1B8F88FL, 0x280416958F3ACB45L, 0x7E404BBBCAFBD7AFL
+    };
+    private static final byte[] XXH3_SECRET_BYTES = new byte[192];
+
+    static {
+        for (int i = 0; i < XXH3_SECRET.length; i++) LONG_LE.set(XXH3_SECRET_BYTES, i * 8, XXH3_SECRET[i]);
+    }
+
+    private static final long PRIME32_1 = 0x9E3779B1L;
+    private static final long PRIME32_2 = 0x85EBCA77L;
+    private static final long PRIME32_3 = 0xC2B2AE3DL;
+    private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME64_3 = 0x165667B19E3779F9L;
+    private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+    private static final long WYP0 = 0xa0761d6478bd642fL;
+    private static final long WYP1 = 0xe7037ed1a0b428dbL;
+    private static final long WYP2 = 0x8ebc6af09c88c6e3L;
+    private static final long WYP3 = 0x589965cc75374cc3L;
+    private static final long WYP4 = 0x1d8e4e27c47d124fL;
+
     private HashUtils() {
         // Prevent instantiation
     }
@@ -41,6 +82,92 @@ public final class HashUtils {
         return murmurhash3_x64_128(data, 0, data.length, 0);
     }
 
+    /**
+     * Computes a 128-bit MurmurHash3 hash of the UTF-8 encoding of the given characters without
+     * allocating. The result is identical to {@link #hash128(String)} for the same text.
+     *
+     * @param input the characters to hash
+     * @param out a two-element array receiving the 128-bit hash
+     */
+    public static void hash128(CharSequence input, long[] out) {
+        if (input == null) {
+            throw new NullPointerException("input");
+        }
+        KeyBuffer buffer = KeyBuffer.local().reset();
+        buffer.putChars(input);
+        murmurhash3_x64_128(buffer.array(), 0, buffer.size(), 0, out);
+    }
+
+    /**
+     * Computes a 128-bit MurmurHash3 hash for a slice of a byte array without allocating.
+     *
+     * @param data the input data to hash
+     * @param offset the starting offset in the data
+     * @param length the number of bytes to hash
+     * @param out a two-element array receiving the 128-bit hash
+     */
+    public static void hash128(byte[] data, int offset, int length, long[] out) {
+        if (data == null) {
+            throw new NullPointerException("data");
+        }
+        murmurhash3_x64_128(data, offset, length, 0, out);
+    }
+
+    /**
+     * Computes the 128-bit MurmurHash3 hash of a 64-bit key, identical to hashing its eight
+     * little-endian bytes but without touching memory: a single tail block and finalization.
+     *
+     * @param key the key to hash
+     * @param out a two-element array receiving the 128-bit hash
+     */
+    public static void hash128(long key, long[] out) {
+        mixTail(key, 8, out);
+    }
+
+    /**
+     * Computes the 128-bit MurmurHash3 hash of a 32-bit key, identical to hashing its four
+     * little-endian bytes.
+     *
+     * @param key the key to hash
+     * @param out a two-element array receiving the 128-bit hash
+     */
+    public static void hash128(int key, long[] out) {
+        mixTail(key & 0xffffffffL, 4, out);
+    }
+
+    /** MurmurHash3 x64_128 (seed 0) of an input of at most 8 bytes packed into {@code k1}. */
+    private static void mixTail(long k1, int len, long[] out) {
+        k1 *= 0x87c37b91114253d5L;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= 0x4cf5ad432745937fL;
+
+        long h1 = k1 ^ len;
+        long h2 = len;
+
+        h1 += h2;
+        h2 += h1;
+
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+
+        h1 += h2;
+        h2 += h1;
+
+        out[0] = h1;
+        out[1] = h2;
+    }
+
+    /**
+     * Returns a two-element array owned by the calling thread, suitable as the {@code out}
+     * argument of the allocation-free hashing methods. The contents are overwritten by the
+     * next call on the same thread, so values should be copied into locals right away.
+     *
+     * @return the calling thread's hash scratch array
+     */
+    public static long[] scratchHash() {
+        return KeyBuffer.local().hash;
+    }
+
     /**
      * Generates an array of hash indices using the double hashing technique.
      *
@@ -61,13 +188,61 @@ public final class HashUtils {
         long hash1 = hash[0];
         long hash2 = hash[1];
         for (int i = 0; i < numHashFunctions; i++) {
-            long combined = hash1 + (long) i * hash2;
-            int idx = (int) Math.floorMod(combined, bitArraySize);
-            indices[i] = idx;
+            indices[i] = index(hash1, hash2, i, bitArraySize);
+        }
+        return indices;
+    }
+
+    /**
+     * Generates double-hashing indices for bit arrays of any size, including those larger
+     * than {@code Integer.MAX_VALUE} bits. For sizes that fit in an {@code int} the values
+     * equal those of {@link #generateIndices(long[], int, int)}.
+     *
+     * @param hash the two-element long array containing the base hash values
+     * @param numHashFunctions the number of hash indices to generate
+     * @param bitArraySize the size of the bit array
+     * @return an array of indices into the bit array
+     */
+    public static long[] generateIndices(long[] hash, int numHashFunctions, long bitArraySize) {
+        if (hash == null || hash.length < 2) {
+            throw new IllegalArgumentException("hash must contain at least two longs");
+        }
+        long[] indices = new long[numHashFunctions];
+        for (int i = 0; i < numHashFunctions; i++) {
+            indices[i] = index(hash[0], hash[1], i, bitArraySize);
         }
         return indices;
     }
 
+    /**
+     * Computes the {@code i}-th double-hashing index, {@code (hash1 + i * hash2) mod m}, without
+     * materializing the whole index array. Matches element {@code i} of
+     * {@link #generateIndices(long[], int, int)}.
+     *
+     * @param hash1 first half of the 128-bit hash
+     * @param hash2 second half of the 128-bit hash
+     * @param i the hash function number
+     * @param bitArraySize the size of the bit array
+     * @return an index into the bit array
+     */
+    public static int index(long hash1, long hash2, int i, int bitArraySize) {
+        return (int) index(hash1, hash2, i, (long) bitArraySize);
+    }
+
+    /**
+     * 64-bit variant of {@link #index(long, long, int, int)} for bit arrays larger than
+     * {@code Integer.MAX_VALUE} bits; identical for smaller sizes.
+     *
+     * @param hash1 first half of the 128-bit hash
+     * @param hash2 second half of the 128-bit hash
+     * @param i the hash function number
+     * @param bitArraySize the size of the bit array
+     * @return an index into the bit array
+     */
+    public static long index(long hash1, long hash2, int i, long bitArraySize) {
+        return Math.floorMod(hash1 + (long) i * hash2, bitArraySize);
+    }
+
     /**
      * Core implementation of the MurmurHash3 x64 128-bit hashing algorithm.
      *
@@ -78,6 +253,22 @@ public final class HashUtils {
      * @return a two-element array containing the 128-bit hash split into two longs
      */
     private static long[] murmurhash3_x64_128(byte[] key, int offset, int len, long seed) {
+        long[] out = new long[2];
+        murmurhash3_x64_128(key, offset, len, seed, out);
+        return out;
+    }
+
+    /**
+     * Core implementation of the MurmurHash3 x64 128-bit hashing algorithm, writing the
+     * result into {@code out} instead of allocating.
+     *
+     * @param key the data to hash
+     * @param offset the starting offset in the data
+     * @param len the number of bytes to hash
+     * @param seed the seed to initialize the hash state
+     * @param out a two-element array receiving the 128-bit hash
+     */
+    private static void murmurhash3_x64_128(byte[] key, int offset, int len, long seed, long[] out) {
         final int nblocks = len >> 4; // process blocks of 16 bytes
 
         long h1 = seed;
@@ -87,13 +278,10 @@ public final class HashUtils {
         final long c2 = 0x4cf5ad432745937fL;
 
         // body
-        ByteBuffer buffer = ByteBuffer.wrap(key);
-        buffer.order(ByteOrder.LITTLE_ENDIAN);
-
         for (int i = 0; i < nblocks; i++) {
             int i16 = offset + i * 16;
-            long k1 = buffer.getLong(i16);
-            long k2 = buffer.getLong(i16 + 8);
+            long k1 = (long) LONG_LE.get(key, i16);
+            long k2 = (long) LONG_LE.get(key, i16 + 8);
 
             k1 *= c1;
             k1 = Long.rotateLeft(k1, 31);
@@ -174,7 +362,293 @@ public final class HashUtils {
         h1 += h2;
         h2 += h1;
 
-        return new long[]{h1, h2};
+        out[0] = h1;
+        out[1] = h2;
+    }
+
+    /**
+     * Computes the 64-bit XXH3 hash (zero seed, default secret) of a slice of a byte array.
+     *
+     * @param data the input data to hash
+     * @param offset the starting offset in the data
+     * @param len the number of bytes to hash
+     * @return the 64-bit hash
+     */
+    public static long xxh3_64(byte[] data, int offset, int len) {
+        if (len <= 16) {
+            if (len > 8) {
+                long bitflip1 = secret(24) ^ secret(32);
+                long bitflip2 = secret(40) ^ secret(48);
+                long lo = u64(data, offset) ^ bitflip1;
+                long hi = u64(data, offset + len - 8) ^ bitflip2;
+                long acc = len + Long.reverseBytes(lo) + hi + mulFold(lo, hi);
+                return xxh3Avalanche(acc);
+            }
+            if (len >= 4) {
+                long in1 = u32(data, offset);
+                long in2 = u32(data, offset + len - 4);
+                long bitflip = secret(8) ^ secret(16);
+                long keyed = (in2 + (in1 << 32)) ^ bitflip;
+                return rrmxmx(keyed, len);
+            }
+            if (len > 0) {
+                int c1 = data[offset] & 0xFF;
+                int c2 = data[offset + (len >> 1)] & 0xFF;
+                int c3 = data[offset + len - 1] & 0xFF;
+                long combined = ((c1 << 16) | (c2 << 24) | c3 | (len << 8)) & 0xFFFFFFFFL;
+                long bitflip = (secret(0) ^ (secret(0) >>> 32)) & 0xFFFFFFFFL;
+                return xxh64Avalanche(combined ^ bitflip);
+            }
+            return xxh64Avalanche(secret(56) ^ secret(64));
+        }
+        if (len <= 128) {
+            long acc = len * PRIME64_1;
+            if (len > 32) {
+                if (len > 64) {
+                    if (len > 96) {
+                        acc += mix16(data, offset + 48, 96);
+                        acc += mix16(data, offset + len - 64, 112);
+                    }
+                    acc += mix16(data, offset + 32, 64);
+                    acc += mix16(data, offset + len - 48, 80);
+                }
+                acc += mix16(data, offset + 16, 32);
+                acc += mix16(data, offset + len - 32, 48);
+            }
+            acc += mix16(data, offset, 0);
+            acc += mix16(data, offset + len - 16, 16);
+            return xxh3Avalanche(acc);
+        }
+        if (len <= 240) {
+            long acc = len * PRIME64_1;
+            int rounds = len / 16;
+            for (int i = 0; i < 8; i++) acc += mix16(data, offset + 16 * i, 16 * i);
+            acc = xxh3Avalanche(acc);
+            for (int i = 8; i < rounds; i++) acc += mix16(data, offset + 16 * i, 16 * (i - 8) + 3);
+            acc += mix16(data, offset + len - 16, 136 - 17);
+            return xxh3Avalanche(acc);
+        }
+        return xxh3Long(data, offset, len);
+    }
+
+    /** XXH3 inputs longer than 240 bytes: striped accumulation over the default secret. */
+    private static long xxh3Long(byte[] data, int offset, int len) {
+        long a0 = PRIME32_3, a1 = PRIME64_1, a2 = PRIME64_2, a3 = PRIME64_3;
+        long a4 = PRIME64_4, a5 = PRIME32_2, a6 = PRIME64_5, a7 = PRIME32_1;
+        final int stripesPerBlock = (192 - 64) / 8;
+        final int blockLen = 64 * stripesPerBlock;
+        int blocks = (len - 1) / blockLen;
+        int lastStripes = ((len - 1) - blockLen * blocks) / 64;
+        int block = 0;
+        int stripe = 0;
+        while (true) {
+            // the final stripe always covers the last 64 input bytes, with a shifted secret
+            boolean last = block == blocks && stripe == lastStripes;
+            int p = last ? offset + len - 64 : offset + block * blockLen + stripe * 64;
+            int sec = last ? 192 - 64 - 7 : stripe * 8;
+            long d0 = u64(data, p), d1 = u64(data, p + 8), d2 = u64(data, p + 16), d3 = u64(data, p + 24);
+            long d4 = u64(data, p + 32), d5 = u64(data, p + 40), d6 = u64(data, p + 48), d7 = u64(data, p + 56);
+            long k0 = d0 ^ secret(sec), k1 = d1 ^ secret(sec + 8), k2 = d2 ^ secret(sec + 16), k3 = d3 ^ secret(sec + 24);
+            long k4 = d4 ^ secret(sec + 32), k5 = d5 ^ secret(sec + 40), k6 = d6 ^ secret(sec + 48), k7 = d7 ^ secret(sec + 56);
+            a0 += d1 + (k0 & 0xFFFFFFFFL) * (k0 >>> 32);
+            a1 += d0 + (k1 & 0xFFFFFFFFL) * (k1 >>> 32);
+            a2 += d3 + (k2 & 0xFFFFFFFFL) * (k2 >>> 32);
+            a3 += d2 + (k3 & 0xFFFFFFFFL) * (k3 >>> 32);
+            a4 += d5 + (k4 & 0xFFFFFFFFL) * (k4 >>> 32);
+            a5 += d4 + (k5 & 0xFFFFFFFFL) * (k5 >>> 32);
+            a6 += d7 + (k6 & 0xFFFFFFFFL) * (k6 >>> 32);
+            a7 += d6 + (k7 & 0xFFFFFFFFL) * (k7 >>> 32);
+            if (last) break;
+            if (++stripe == stripesPerBlock) {
+                int s = 192 - 64;
+                a0 = (a0 ^ (a0 >>> 47) ^ secret(s)) * PRIME32_1;
+                a1 = (a1 ^ (a1 >>> 47) ^ secret(s + 8)) * PRIME32_1;
+                a2 = (a2 ^ (a2 >>> 47) ^ secret(s + 16)) * PRIME32_1;
+                a3 = (a3 ^ (a3 >>> 47) ^ secret(s + 24)) * PRIME32_1;
+                a4 = (a4 ^ (a4 >>> 47) ^ secret(s + 32)) * PRIME32_1;
+                a5 = (a5 ^ (a5 >>> 47) ^ secret(s + 40)) * PRIME32_1;
+                a6 = (a6 ^ (a6 >>> 47) ^ secret(s + 48)) * PRIME32_1;
+                a7 = (a7 ^ (a7 >>> 47) ^ secret(s + 56)) * PRIME32_1;
+                block++;
+                stripe = 0;
+            }
+        }
+        long result = len * PRIME64_1
+                + mulFold(a0 ^ secret(11), a1 ^ secret(19))
+                + mulFold(a2 ^ secret(27), a3 ^ secret(35))
+                + mulFold(a4 ^ secret(43), a5 ^ secret(51))
+                + mulFold(a6 ^ secret(59), a7 ^ secret(67));
+        return xxh3Avalanche(result);
+    }
+
+    private static long mix16(byte[] data, int p, int sec) {
+        return mulFold(u64(data, p) ^ secret(sec), u64(data, p + 8) ^ secret(sec + 8));
+    }
+
+    private static long secret(int offset) {
+        return (long) LONG_LE.get(XXH3_SECRET_BYTES, offset);
+    }
+
+    private static long xxh64Avalanche(long h) {
+        h ^= h >>> 33;
+        h *= PRIME64_2;
+        h ^= h >>> 29;
+        h *= PRIME64_3;
+        return h ^ (h >>> 32);
+    }
+
+    private static long xxh3Avalanche(long h) {
+        h ^= h >>> 37;
+        h *= 0x165667919E3779F9L;
+        return h ^ (h >>> 32);
+    }
+
+    private static long rrmxmx(long h, int len) {
+        h ^= Long.rotateLeft(h, 49) ^ Long.rotateLeft(h, 24);
+        h *= 0x9FB21C651E98DF25L;
+        h ^= (h >>> 35) + len;
+        h *= 0x9FB21C651E98DF25L;
+        return h ^ (h >>> 28);
+    }
+
+    /**
+     * Computes a wyhash (version 3) 64-bit hash of a slice of a byte array.
+     *
+     * @param data the input data to hash
+     * @param offset the starting offset in the data
+     * @param len the number of bytes to hash
+     * @param seed the seed
+     * @return the 64-bit hash
+     */
+    public static long wyhash(byte[] data, int offset, int len, long seed) {
+        if (len <= 0) return 0;
+        if (len < 4) {
+            return mulFold(mulFold(wyr3(data, offset, len) ^ seed ^ WYP0, seed ^ WYP1) ^ seed, len ^ WYP4);
+        }
+        if (len <= 8) {
+            return mulFold(mulFold(u32(data, offset) ^ seed ^ WYP0, u32(data, offset + len - 4) ^ seed ^ WYP1)
+                    ^ seed, len ^ WYP4);
+        }
+        if (len <= 16) {
+            return mulFold(mulFold(wyr8(data, offset) ^ seed ^ WYP0, wyr8(data, offset + len - 8) ^ seed ^ WYP1)
+                    ^ seed, len ^ WYP4);
+        }
+        if (len <= 24) {
+            return mulFold(mulFold(wyr8(data, offset) ^ seed ^ WYP0, wyr8(data, offset + 8) ^ seed ^ WYP1)
+                    ^ mulFold(wyr8(data, offset + len - 8) ^ seed ^ WYP2, seed ^ WYP3), len ^ WYP4);
+        }
+        if (len <= 32) {
+            return mulFold(mulFold(wyr8(data, offset) ^ seed ^ WYP0, wyr8(data, offset + 8) ^ seed ^ WYP1)
+                    ^ mulFold(wyr8(data, offset + 16) ^ seed ^ WYP2, wyr8(data, offset + len - 8) ^ seed ^ WYP3),
+                    len ^ WYP4);
+        }
+        long see1 = seed;
+        int i = len;
+        int p = offset;
+        for (; i > 256; i -= 256, p += 256) {
+            for (int q = p; q < p + 256; q += 64) {
+                seed = mulFold(u64(data, q) ^ seed ^ WYP0, u64(data, q + 8) ^ seed ^ WYP1)
+                        ^ mulFold(u64(data, q + 16) ^ seed ^ WYP2, u64(data, q + 24) ^ seed ^ WYP3);
+                see1 = mulFold(u64(data, q + 32) ^ see1 ^ WYP1, u64(data, q + 40) ^ see1 ^ WYP2)
+                        ^ mulFold(u64(data, q + 48) ^ see1 ^ WYP3, u64(data, q + 56) ^ see1 ^ WYP0);
+            }
+        }
+        for (; i > 32; i -= 32, p += 32) {
+            seed = mulFold(u64(data, p) ^ seed ^ WYP0, u64(data, p + 8) ^ seed ^ WYP1);
+            see1 = mulFold(u64(data, p + 16) ^ see1 ^ WYP2, u64(data, p + 24) ^ see1 ^ WYP3);
+        }
+        if (i < 4) {
+            seed = mulFold(wyr3(data, p, i) ^ seed ^ WYP0, seed ^ WYP1);
+        } else if (i <= 8) {
+            seed = mulFold(u32(data, p) ^ seed ^ WYP0, u32(data, p + i - 4) ^ seed ^ WYP1);
+        } else if (i <= 16) {
+            seed = mulFold(wyr8(data, p) ^ seed ^ WYP0, wyr8(data, p + i - 8) ^ seed ^ WYP1);
+        } else if (i <= 24) {
+            seed = mulFold(wyr8(data, p) ^ seed ^ WYP0, wyr8(data, p + 8) ^ seed ^ WYP1);
+            see1 = mulFold(wyr8(data, p + i - 8) ^ see1 ^ WYP2, see1 ^ WYP3);
+        } else {
+            seed = mulFold(wyr8(data, p) ^ seed ^ WYP0, wyr8(data, p + 8) ^ seed ^ WYP1);
+            see1 = mulFold(wyr8(data, p + 16) ^ see1 ^ WYP2, wyr8(data, p + i - 8) ^ see1 ^ WYP3);
+        }
+        return mulFold(seed ^ see1, len ^ WYP4);
+    }
+
+    private static long wyr3(byte[] data, int p, int k) {
+        return ((data[p] & 0xFFL) << 16) | ((data[p + (k >>> 1)] & 0xFFL) << 8) | (data[p + k - 1] & 0xFFL);
+    }
+
+    /** Two little-endian 32-bit halves with the first one in the high word, as wyhash v3 reads them. */
+    private static long wyr8(byte[] data, int p) {
+        return (u32(data, p) << 32) | u32(data, p + 4);
+    }
+
+    private static long u64(byte[] data, int p) {
+        return (long) LONG_LE.get(data, p);
+    }
+
+    private static long u32(byte[] data, int p) {
+        return (data[p] & 0xFFL) | (data[p + 1] & 0xFFL) << 8 | (data[p + 2] & 0xFFL) << 16 | (data[p + 3] & 0xFFL) << 24;
+    }
+
+    /** Full 64x64→128-bit unsigned multiply, folded by xoring the high and low halves. */
+    private static long mulFold(long a, long b) {
+        long high = Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+        return (a * b) ^ high;
+    }
+
+    /**
+     * Maps a 64-bit hash uniformly onto {@code [0, n)} with a multiply-shift (the high word of
+     * the unsigned 128-bit product) instead of a division.
+     *
+     * @param hash a well-mixed 64-bit hash
+     * @param n range size, must be positive
+     * @return a value in {@code [0, n)}
+     */
+    public static int reduce(long hash, int n) {
+        return (int) reduce(hash, (long) n);
+    }
+
+    /**
+     * 64-bit variant of {@link #reduce(long, int)} for ranges larger than {@code Integer.MAX_VALUE}.
+     *
+     * @param hash a well-mixed 64-bit hash
+     * @param n range size, must be positive
+     * @return a value in {@code [0, n)}
+     */
+    public static long reduce(long hash, long n) {
+        return Math.multiplyHigh(hash, n) + ((hash >> 63) & n);
+    }
+
+    /**
+     * Computes the {@code i}-th index with enhanced double hashing,
+     * {@code hash1 + i * hash2 + ((i^3 - i) / 6) * phi}, reduced with {@link #reduce(long, int)}.
+     * The cubic term keeps the probe sequence from collapsing when {@code hash2} is small; it
+     * is scaled by the 64-bit golden ratio {@code phi} because multiply-shift reduction only
+     * looks at the high bits.
+     *
+     * @param hash1 first hash word
+     * @param hash2 second hash word
+     * @param i the hash function number
+     * @param bitArraySize the size of the bit array
+     * @return an index into the bit array
+     */
+    public static int enhancedIndex(long hash1, long hash2, int i, int bitArraySize) {
+        return (int) enhancedIndex(hash1, hash2, i, (long) bitArraySize);
+    }
+
+    /**
+     * 64-bit variant of {@link #enhancedIndex(long, long, int, int)} for bit arrays larger than
+     * {@code Integer.MAX_VALUE} bits; identical for smaller sizes.
+     *
+     * @param hash1 first hash word
+     * @param hash2 second hash word
+     * @param i the hash function number
+     * @param bitArraySize the size of the bit array
+     * @return an index into the bit array
+     */
+    public static long enhancedIndex(long hash1, long hash2, int i, long bitArraySize) {
+        long x = hash1 + i * hash2 + ((long) i * i * i - i) / 6 * 0x9E3779B97F4A7C15L;
+        return reduce(x, bitArraySize);
     }
 
     /**
@@ -183,7 +657,7 @@ public final class HashUtils {
      * @param k the input value
      * @return the mixed value
      */
-    private static long fmix64(long k) {
+    static long fmix64(long k) {
         k ^= k >>> 33;
         k *= 0xff51afd7ed558ccdL;
         k ^= k >>> 33;
@@ -0,0 +1,66 @@
+package com.bloomfilter;
+
+import java.util.Arrays;
+
+/**
+ * {@link BitStorage} backed by a heap {@code long[]}.
+ */
+final class HeapBitStorage implements BitStorage {
+
+    private final long bitSize;
+    private final long[] words;
+
+    HeapBitStorage(long bitSize) {
+        if (bitSize <= 0) throw new IllegalArgumentException("bitSize must be positive");
+        long wordCount = (bitSize + 63) >>> 6;
+        if (wordCount > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("bitSize too large for heap storage: " + bitSize);
+        }
+        this.bitSize = bitSize;
+        this.words = new long[(int) wordCount];
+    }
+
+    @Override
+    public long bitSize() {
+        return bitSize;
+    }
+
+    @Override
+    public long wordCount() {
+        return words.length;
+    }
+
+    @Override
+    public long getWord(long wordIndex) {
+        return words[(int) wordIndex];
+    }
+
+    @Override
+    public void setWord(long wordIndex, long value) {
+        words[(int) wordIndex] = value;
+    }
+
+    @Override
+    public boolean get(long index) {
+        return (words[(int) (index >>> 6)] & (1L << index)) != 0;
+    }
+
+    @Override
+    public boolean set(long index) {
+        int w = (int) (index >>> 6);
+        long word = words[w];
+        long updated = word | (1L << index);
+        words[w] = updated;
+        return updated != word;
+    }
+
+    @Override
+    public void clear(long index) {
+        words[(int) (index >>> 6)] &= ~(1L << index);
+    }
+
+    @Override
+    public void clearAll() {
+        Arrays.fill(words, 0L);
+    }
+}
@@ -0,0 +1,128 @@
+package com.bloomfilter;
+
+/**
+ * Classic Bloom filter specialized for 32-bit keys. Primitive {@code int} keys are hashed
+ * directly through {@link HashStrategy#hash128(int, long[])}; for the MurmurHash3 strategies
+ * that is the register-only fast path in {@link HashUtils#hash128(int, long[])}, so no
+ * boxing, String conversion or byte buffer is involved.
+ *
+ * <p>Storage and serialization are inherited from {@link ClassicBloomFilter}; the hash of a
+ * key equals the hash of its four little-endian bytes, so files are interchangeable with a
+ * {@code ClassicBloomFilter<Integer>} built with {@link KeyEncoders#integers()}.
+ */
+public class IntBloomFilter extends ClassicBloomFilter<Integer> {
+
+    /**
+     * Creates a new IntBloomFilter with the specified bit array size and number of hash functions.
+     *
+     * @param bitArraySize the size of the underlying bit array
+     * @param numHashFunctions the number of hash functions to use
+     */
+    public IntBloomFilter(long bitArraySize, int numHashFunctions) {
+        this(bitArraySize, numHashFunctions, StandardHashStrategy.MURMUR3_LEGACY);
+    }
+
+    /**
+     * Creates a new IntBloomFilter with an explicit hash strategy.
+     *
+     * @param bitArraySize the size of the underlying bit array
+     * @param numHashFunctions the number of hash functions to use
+     * @param hashStrategy hash function and probe derivation
+     */
+    public IntBloomFilter(long bitArraySize, int numHashFunctions, HashStrategy hashStrategy) {
+        super(bitArraySize, numHashFunctions, KeyEncoders.integers(), hashStrategy);
+    }
+
+    /**
+     * Creates a new IntBloomFilter over the given storage, e.g. {@link BitStorage#offHeap(long)}.
+     *
+     * @param storage bit storage; owned by the filter from now on
+     * @param numHashFunctions the number of hash functions to use
+     * @param hashStrategy hash function and probe derivation
+     */
+    public IntBloomFilter(BitStorage storage, int numHashFunctions, HashStrategy hashStrategy) {
+        super(storage, numHashFunctions, KeyEncoders.integers(), hashStrategy);
+    }
+
+    /** Adds a primitive key. */
+    public void add(int key) {
+        if (verbose) {
+            add(Integer.valueOf(key));
+            return;
+        }
+        long[] hash = HashUtils.scratchHash();
+        hashStrategy.hash128(key, hash);
+        addHashed(hash[0], hash[1]);
+        countAdded();
+    }
+
+    /** Checks whether a primitive key might be contained in the filter. */
+    public boolean mightContain(int key) {
+        if (verbose) return mightContain(Integer.valueOf(key));
+        long[] hash = HashUtils.scratchHash();
+        hashStrategy.hash128(key, hash);
+        return containsHashed(hash[0], hash[1]);
+    }
+
+    /**
+     * Adds every key of the array, in order. Keys are hashed a batch at a time and each batch
+     * is inserted through {@link #addHashedBatch(long[], long[], int)}.
+     */
+    public void addAll(int... keys) {
+        if (keys == null) throw new NullPointerException("keys");
+        if (verbose) {
+            for (int key : keys) add(key);
+            return;
+        }
+        int batch = Math.min(keys.length, ADD_BATCH);
+        long[] hash1 = new long[batch];
+        long[] hash2 = new long[batch];
+        for (int from = 0; from < keys.length; from += batch) {
+            int size = Math.min(batch, keys.length - from);
+            hashAll(keys, from, size, hash1, hash2);
+            addHashedBatch(hash1, hash2, size);
+        }
+    }
+
+    /**
+     * Checks a batch of keys: every key is hashed first, then the hashes are probed together
+     * by {@link #containsHashedBatch(long[], long[], int, boolean[])}.
+     *
+     * @param keys keys to check
+     * @return {@code result[i]} is the {@link #mightContain(int)} answer for {@code keys[i]}
+     */
+    public boolean[] mightContainAll(int... keys) {
+        if (keys == null) throw new NullPointerException("keys");
+        boolean[] result = new boolean[keys.length];
+        if (verbose) {
+            for (int i = 0; i < keys.length; i++) result[i] = mightContain(keys[i]);
+            return result;
+        }
+        long[] hash1 = new long[keys.length];
+        long[] hash2 = new long[keys.length];
+        hashAll(keys, 0, keys.length, hash1, hash2);
+        containsHashedBatch(hash1, hash2, keys.length, result);
+        return result;
+    }
+
+    /** Hashes {@code size} keys starting at {@code from} into the first {@code size} slots of the hash arrays. */
+    private void hashAll(int[] keys, int from, int size, long[] hash1, long[] hash2) {
+        long[] hash = HashUtils.scratchHash();
+        for (int i = 0; i < size; i++) {
+            hashStrategy.hash128(keys[from + i], hash);
+            hash1[i] = hash[0];
+            hash2[i] = hash[1];
+        }
+    }
+
+    @Override
+    protected ClassicBloomFilter<Integer> emptyCopy() {
+        return new IntBloomFilter(bitArraySize, hashCount, hashStrategy);
+    }
+
+    @Override
+    protected void hash(Integer element, long[] out) {
+        if (element == null) throw new NullPointerException("element");
+        hashStrategy.hash128(element.intValue(), out);
+    }
+}
@@ -0,0 +1,149 @@
+package com.bloomfilter;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Growable, per-thread {@link KeySink} used by the allocation-free hashing path. Each thread
+ * owns one buffer; it is reset before every key and only grows when a key is larger than
+ * anything encoded before on that thread.
+ */
+final class KeyBuffer implements KeySink {
+
+    private static final VarHandle SHORT_LE =
+            MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_LE =
+            MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG_LE =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final ThreadLocal<KeyBuffer> LOCAL = ThreadLocal.withInitial(KeyBuffer::new);
+
+    /** Hash output scratch owned by the same thread as this buffer. */
+    final long[] hash = new long[2];
+
+    private byte[] bytes = new byte[256];
+    private int size;
+
+    private KeyBuffer() {
+    }
+
+    /** Returns the calling thread's buffer. */
+    static KeyBuffer local() {
+        return LOCAL.get();
+    }
+
+    /** Discards any previously written bytes. */
+    KeyBuffer reset() {
+        size = 0;
+        return this;
+    }
+
+    /** Backing array; only the first {@link #size()} bytes are meaningful. */
+    byte[] array() {
+        return bytes;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void ensure(int extra) {
+        int needed = size + extra;
+        if (needed > bytes.length) {
+            byte[] grown = new byte[Math.max(needed, bytes.length * 2)];
+            System.arraycopy(bytes, 0, grown, 0, size);
+            bytes = grown;
+        }
+    }
+
+    @Override
+    public KeySink putByte(byte value) {
+        ensure(1);
+        bytes[size++] = value;
+        return this;
+    }
+
+    @Override
+    public KeySink putBytes(byte[] src, int offset, int length) {
+        ensure(length);
+        System.arraycopy(src, offset, bytes, size, length);
+        size += length;
+        return this;
+    }
+
+    @Override
+    public KeySink putBytes(ByteBuffer buffer) {
+        int length = buffer.remaining();
+        ensure(length);
+        buffer.get(buffer.position(), bytes, size, length);
+        size += length;
+        return this;
+    }
+
+    @Override
+    public KeySink putShort(short value) {
+        ensure(2);
+        SHORT_LE.set(bytes, size, value);
+        size += 2;
+        return this;
+    }
+
+    @Override
+    public KeySink putInt(int value) {
+        ensure(4);
+        INT_LE.set(bytes, size, value);
+        size += 4;
+        return this;
+    }
+
+    @Override
+    public KeySink putLong(long value) {
+        ensure(8);
+        LONG_LE.set(bytes, size, value);
+        size += 8;
+        return this;
+    }
+
+    /**
+     * Appends the UTF-8 encoding of {@code input}, mirroring {@code String.getBytes(UTF_8)}
+     * including the '?' replacement of unpaired surrogates.
+     */
+    @Override
+    public KeySink putChars(CharSequence input) {
+        int n = input.length();
+        ensure(n * 3);
+        byte[] b = bytes;
+        int pos = size;
+        for (int i = 0; i < n; i++) {
+            char c = input.charAt(i);
+            if (c < 0x80) {
+                b[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                b[pos++] = (byte) (0xC0 | (c >> 6));
+                b[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                char low = i + 1 < n ? input.charAt(i + 1) : 0;
+                if (Character.isHighSurrogate(c) && Character.isLowSurrogate(low)) {
+                    int cp = Character.toCodePoint(c, low);
+                    b[pos++] = (byte) (0xF0 | (cp >> 18));
+                    b[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    b[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    b[pos++] = (byte) (0x80 | (cp & 0x3F));
+                    i++;
+                } else {
+                    b[pos++] = (byte) '?';
+                }
+            } else {
+                b[pos++] = (byte) (0xE0 | (c >> 12));
+                b[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                b[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        size = pos;
+        return this;
+    }
+}
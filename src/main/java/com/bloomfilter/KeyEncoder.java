@@ -0,0 +1,27 @@
+package com.bloomfilter;
+
+/**
+ * Strategy for turning a key into the bytes a filter hashes. Encoders write straight into a
+ * reusable {@link KeySink}, so keys such as numbers, UUIDs or byte slices are hashed without
+ * building a temporary String. Built-in encoders are available from {@link KeyEncoders}.
+ *
+ * <p>Two keys that are considered equal must be encoded to the same bytes; otherwise the
+ * filter may report false negatives.
+ *
+ * <p>Encoders must be safe to call from several threads at once, even when the filter using
+ * them is not thread-safe: {@link MembershipFilter#addAll(Iterable)} may encode the elements
+ * of a batch in parallel. An encoder that keeps mutable state must confine it per thread.
+ *
+ * @param <T> key type handled by the encoder
+ */
+@FunctionalInterface
+public interface KeyEncoder<T> {
+
+    /**
+     * Writes the identifying bytes of {@code key} into {@code sink}.
+     *
+     * @param key key to encode, never {@code null}
+     * @param sink destination for the encoded bytes
+     */
+    void encode(T key, KeySink sink);
+}
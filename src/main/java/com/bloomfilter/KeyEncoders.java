@@ -0,0 +1,121 @@
+package com.bloomfilter;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Built-in {@link KeyEncoder}s. Fixed-width values are written in little-endian order and
+ * character data as UTF-8, so none of the encoders needs an intermediate object per key.
+ */
+public final class KeyEncoders {
+
+    private static final KeyEncoder<Object> DEFAULT = (key, sink) -> {
+        if (key instanceof CharSequence cs) {
+            sink.putChars(cs);
+        } else if (key instanceof byte[] bytes) {
+            sink.putBytes(bytes);
+        } else {
+            sink.putChars(key.toString());
+        }
+    };
+
+    private KeyEncoders() {
+        // Prevent instantiation
+    }
+
+    /**
+     * Encoder used when none is supplied. Character sequences are written as UTF-8 (so
+     * existing String-keyed filters keep their bit positions), byte arrays by content, and
+     * everything else through its {@code toString()} form.
+     *
+     * @param <T> key type
+     * @return the default encoder
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> KeyEncoder<T> defaultEncoder() {
+        return (KeyEncoder<T>) DEFAULT;
+    }
+
+    /** Encodes character sequences as UTF-8. */
+    public static KeyEncoder<CharSequence> charSequence() {
+        return (key, sink) -> sink.putChars(key);
+    }
+
+    /** Encodes byte arrays by content. */
+    public static KeyEncoder<byte[]> bytes() {
+        return (key, sink) -> sink.putBytes(key);
+    }
+
+    /** Encodes the remaining bytes of a buffer (position to limit) without consuming them. */
+    public static KeyEncoder<ByteBuffer> byteBuffer() {
+        return (key, sink) -> sink.putBytes(key);
+    }
+
+    /** Encodes a 32-bit integer as four bytes. */
+    public static KeyEncoder<Integer> integers() {
+        return (key, sink) -> sink.putInt(key);
+    }
+
+    /** Encodes a 64-bit integer as eight bytes. */
+    public static KeyEncoder<Long> longs() {
+        return (key, sink) -> sink.putLong(key);
+    }
+
+    /** Encodes a double by its IEEE 754 bit pattern, consistent with {@link Double#equals}. */
+    public static KeyEncoder<Double> doubles() {
+        return (key, sink) -> sink.putLong(Double.doubleToLongBits(key));
+    }
+
+    /** Encodes a UUID as its 16 raw bytes (most significant half first). */
+    public static KeyEncoder<UUID> uuids() {
+        return (key, sink) -> sink.putLong(key.getMostSignificantBits()).putLong(key.getLeastSignificantBits());
+    }
+
+    /**
+     * Encodes one field of a composite key, for use with {@link #tuple(KeyEncoder[])}.
+     *
+     * @param getter extracts the field from the key
+     * @param encoder encodes the field value
+     * @param <T> composite key type
+     * @param <F> field type
+     * @return encoder writing the selected field
+     */
+    public static <T, F> KeyEncoder<T> field(Function<? super T, ? extends F> getter,
+                                             KeyEncoder<? super F> encoder) {
+        return (key, sink) -> encoder.encode(getter.apply(key), sink);
+    }
+
+    /** Encodes a 32-bit field of a composite key without boxing. */
+    public static <T> KeyEncoder<T> intField(ToIntFunction<? super T> getter) {
+        return (key, sink) -> sink.putInt(getter.applyAsInt(key));
+    }
+
+    /** Encodes a 64-bit field of a composite key without boxing. */
+    public static <T> KeyEncoder<T> longField(ToLongFunction<? super T> getter) {
+        return (key, sink) -> sink.putLong(getter.applyAsLong(key));
+    }
+
+    /**
+     * Combines field encoders into an encoder for a composite key. Each field is followed by
+     * its encoded length, so adjacent variable-length fields cannot run into each other
+     * (("ab", "c") and ("a", "bc") encode differently).
+     *
+     * @param fields encoders for the individual fields, in order
+     * @param <T> composite key type
+     * @return encoder for the whole tuple
+     */
+    @SafeVarargs
+    public static <T> KeyEncoder<T> tuple(KeyEncoder<? super T>... fields) {
+        KeyEncoder<? super T>[] parts = fields.clone();
+        return (key, sink) -> {
+            for (KeyEncoder<? super T> part : parts) {
+                int start = sink.size();
+                part.encode(key, sink);
+                sink.putInt(sink.size() - start);
+            }
+        };
+    }
+}
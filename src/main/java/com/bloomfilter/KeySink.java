@@ -0,0 +1,46 @@
+package com.bloomfilter;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Destination for the bytes that identify a key. {@link KeyEncoder}s write the fields of a
+ * key into a sink, and the filter hashes whatever was written. Multi-byte values are written
+ * in little-endian order; character data is written as UTF-8.
+ */
+public interface KeySink {
+
+    /** Writes a single byte. */
+    KeySink putByte(byte value);
+
+    /** Writes a slice of a byte array. */
+    KeySink putBytes(byte[] bytes, int offset, int length);
+
+    /** Writes an entire byte array. */
+    default KeySink putBytes(byte[] bytes) {
+        return putBytes(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Writes the remaining bytes of a buffer without changing its position.
+     */
+    KeySink putBytes(ByteBuffer buffer);
+
+    /** Writes a 16-bit value. */
+    KeySink putShort(short value);
+
+    /** Writes a 32-bit value. */
+    KeySink putInt(int value);
+
+    /** Writes a 64-bit value. */
+    KeySink putLong(long value);
+
+    /** Writes the UTF-8 encoding of the given characters. */
+    KeySink putChars(CharSequence chars);
+
+    /**
+     * Returns the number of bytes written since the sink was handed to the encoder.
+     *
+     * @return bytes written so far
+     */
+    int size();
+}
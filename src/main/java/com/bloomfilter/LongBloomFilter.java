@@ -0,0 +1,128 @@
+package com.bloomfilter;
+
+/**
+ * Classic Bloom filter specialized for 64-bit keys. Primitive {@code long} keys are hashed
+ * directly through {@link HashStrategy#hash128(long, long[])}; for the MurmurHash3 strategies
+ * that is the register-only fast path in {@link HashUtils#hash128(long, long[])}, so no
+ * boxing, String conversion or byte buffer is involved.
+ *
+ * <p>Storage and serialization are inherited from {@link ClassicBloomFilter}; the hash of a
+ * key equals the hash of its eight little-endian bytes, so files are interchangeable with a
+ * {@code ClassicBloomFilter<Long>} built with {@link KeyEncoders#longs()}.
+ */
+public class LongBloomFilter extends ClassicBloomFilter<Long> {
+
+    /**
+     * Creates a new LongBloomFilter with the specified bit array size and number of hash functions.
+     *
+     * @param bitArraySize the size of the underlying bit array
+     * @param numHashFunctions the number of hash functions to use
+     */
+    public LongBloomFilter(long bitArraySize, int numHashFunctions) {
+        this(bitArraySize, numHashFunctions, StandardHashStrategy.MURMUR3_LEGACY);
+    }
+
+    /**
+     * Creates a new LongBloomFilter with an explicit hash strategy.
+     *
+     * @param bitArraySize the size of the underlying bit array
+     * @param numHashFunctions the number of hash functions to use
+     * @param hashStrategy hash function and probe derivation
+     */
+    public LongBloomFilter(long bitArraySize, int numHashFunctions, HashStrategy hashStrategy) {
+        super(bitArraySize, numHashFunctions, KeyEncoders.longs(), hashStrategy);
+    }
+
+    /**
+     * Creates a new LongBloomFilter over the given storage, e.g. {@link BitStorage#offHeap(long)}.
+     *
+     * @param storage bit storage; owned by the filter from now on
+     * @param numHashFunctions the number of hash functions to use
+     * @param hashStrategy hash function and probe derivation
+     */
+    public LongBloomFilter(BitStorage storage, int numHashFunctions, HashStrategy hashStrategy) {
+        super(storage, numHashFunctions, KeyEncoders.longs(), hashStrategy);
+    }
+
+    /** Adds a primitive key. */
+    public void add(long key) {
+        if (verbose) {
+            add(Long.valueOf(key));
+            return;
+        }
+        long[] hash = HashUtils.scratchHash();
+        hashStrategy.hash128(key, hash);
+        addHashed(hash[0], hash[1]);
+        countAdded();
+    }
+
+    /** Checks whether a primitive key might be contained in the filter. */
+    public boolean mightContain(long key) {
+        if (verbose) return mightContain(Long.valueOf(key));
+        long[] hash = HashUtils.scratchHash();
+        hashStrategy.hash128(key, hash);
+        return containsHashed(hash[0], hash[1]);
+    }
+
+    /**
+     * Adds every key of the array, in order. Keys are hashed a batch at a time and each batch
+     * is inserted through {@link #addHashedBatch(long[], long[], int)}.
+     */
+    public void addAll(long... keys) {
+        if (keys == null) throw new NullPointerException("keys");
+        if (verbose) {
+            for (long key : keys) add(key);
+            return;
+        }
+        int batch = Math.min(keys.length, ADD_BATCH);
+        long[] hash1 = new long[batch];
+        long[] hash2 = new long[batch];
+        for (int from = 0; from < keys.length; from += batch) {
+            int size = Math.min(batch, keys.length - from);
+            hashAll(keys, from, size, hash1, hash2);
+            addHashedBatch(hash1, hash2, size);
+        }
+    }
+
+    /**
+     * Checks a batch of keys: every key is hashed first, then the hashes are probed together
+     * by {@link #containsHashedBatch(long[], long[], int, boolean[])}.
+     *
+     * @param keys keys to check
+     * @return {@code result[i]} is the {@link #mightContain(long)} answer for {@code keys[i]}
+     */
+    public boolean[] mightContainAll(long... keys) {
+        if (keys == null) throw new NullPointerException("keys");
+        boolean[] result = new boolean[keys.length];
+        if (verbose) {
+            for (int i = 0; i < keys.length; i++) result[i] = mightContain(keys[i]);
+            return result;
+        }
+        long[] hash1 = new long[keys.length];
+        long[] hash2 = new long[keys.length];
+        hashAll(keys, 0, keys.length, hash1, hash2);
+        containsHashedBatch(hash1, hash2, keys.length, result);
+        return result;
+    }
+
+    /** Hashes {@code size} keys starting at {@code from} into the first {@code size} slots of the hash arrays. */
+    private void hashAll(long[] keys, int from, int size, long[] hash1, long[] hash2) {
+        long[] hash = HashUtils.scratchHash();
+        for (int i = 0; i < size; i++) {
+            hashStrategy.hash128(keys[from + i], hash);
+            hash1[i] = hash[0];
+            hash2[i] = hash[1];
+        }
+    }
+
+    @Override
+    protected ClassicBloomFilter<Long> emptyCopy() {
+        return new LongBloomFilter(bitArraySize, hashCount, hashStrategy);
+    }
+
+    @Override
+    protected void hash(Long element, long[] out) {
+        if (element == null) throw new NullPointerException("element");
+        hashStrategy.hash128(element.longValue(), out);
+    }
+}
@@ -0,0 +1,119 @@
+package com.bloomfilter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only {@link BitStorage} that answers queries directly from the bit payload of a
+ * memory-mapped filter file. The payload is in the serialized little-endian layout and may
+ * be truncated after its last non-zero byte; bits beyond it read as zero. Pages are faulted
+ * in only when touched and are shared with other processes through the page cache.
+ *
+ * <p>The payload is mapped in regions of at most 1 GiB, so files beyond 2 GiB are supported.
+ * Any write throws {@link UnsupportedOperationException}. {@link #close()} unmaps the file;
+ * any later access throws {@link IllegalStateException}.
+ */
+final class MappedBitStorage implements BitStorage {
+
+    /** Bytes per mapped region (2^30 bytes = 1 GiB); a multiple of 8 so words never straddle regions. */
+    private static final int REGION_SHIFT = 30;
+    private static final long REGION_MASK = (1L << REGION_SHIFT) - 1;
+
+    private final long bitSize;
+    private final long payloadLength;
+    private MappedByteBuffer[] regions;
+
+    /**
+     * Maps a payload read-only. The channel may be closed once this returns.
+     *
+     * @param channel channel of the filter file
+     * @param payloadOffset file offset of the bit payload
+     * @param payloadLength number of payload bytes
+     * @param bitSize number of addressable bits
+     */
+    MappedBitStorage(FileChannel channel, long payloadOffset, long payloadLength, long bitSize) throws IOException {
+        this.bitSize = bitSize;
+        this.payloadLength = payloadLength;
+        int regionCount = (int) ((payloadLength + REGION_MASK) >>> REGION_SHIFT);
+        MappedByteBuffer[] mapped = new MappedByteBuffer[regionCount];
+        try {
+            for (int r = 0; r < regionCount; r++) {
+                long start = (long) r << REGION_SHIFT;
+                long size = Math.min(1L << REGION_SHIFT, payloadLength - start);
+                mapped[r] = channel.map(FileChannel.MapMode.READ_ONLY, payloadOffset + start, size);
+                mapped[r].order(ByteOrder.LITTLE_ENDIAN);
+            }
+        } catch (IOException | RuntimeException e) {
+            for (MappedByteBuffer region : mapped) DirectBuffers.free(region);
+            throw e;
+        }
+        this.regions = mapped;
+    }
+
+    private MappedByteBuffer[] regions() {
+        MappedByteBuffer[] current = regions;
+        if (current == null) throw new IllegalStateException("storage has been closed");
+        return current;
+    }
+
+    @Override
+    public long bitSize() {
+        return bitSize;
+    }
+
+    @Override
+    public boolean get(long index) {
+        MappedByteBuffer[] current = regions();
+        long offset = index >>> 3;
+        if (offset >= payloadLength) return false;
+        ByteBuffer region = current[(int) (offset >>> REGION_SHIFT)];
+        return (region.get((int) (offset & REGION_MASK)) & (1 << (index & 7))) != 0;
+    }
+
+    @Override
+    public long getWord(long wordIndex) {
+        MappedByteBuffer[] current = regions();
+        long offset = wordIndex << 3;
+        if (offset >= payloadLength) return 0L;
+        ByteBuffer region = current[(int) (offset >>> REGION_SHIFT)];
+        int position = (int) (offset & REGION_MASK);
+        if (offset + Long.BYTES <= payloadLength) return region.getLong(position);
+        long word = 0;
+        for (int shift = 0; offset < payloadLength; offset++, position++, shift += 8) {
+            word |= (region.get(position) & 0xFFL) << shift;
+        }
+        return word;
+    }
+
+    @Override
+    public void setWord(long wordIndex, long value) {
+        throw new UnsupportedOperationException("mapped filter is read-only");
+    }
+
+    @Override
+    public boolean set(long index) {
+        throw new UnsupportedOperationException("mapped filter is read-only");
+    }
+
+    @Override
+    public void clear(long index) {
+        throw new UnsupportedOperationException("mapped filter is read-only");
+    }
+
+    @Override
+    public void clearAll() {
+        throw new UnsupportedOperationException("mapped filter is read-only");
+    }
+
+    @Override
+    public void close() {
+        MappedByteBuffer[] current = regions;
+        regions = null;
+        if (current != null) {
+            for (MappedByteBuffer region : current) DirectBuffers.free(region);
+        }
+    }
+}
@@ -1,12 +1,22 @@
 package com.bloomfilter;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.stream.Stream;
+
 /**
  * Central contract for probabilistic set filters. Provides operations to add elements,
  * query membership, manage state and support serialization.
  *
+ * <p>Filters are {@link AutoCloseable} so those holding off-heap or mapped memory can release
+ * it deterministically; for heap-only filters {@link #close()} does nothing.
+ *
  * @param <T> element type handled by the filter
  */
-public interface MembershipFilter<T> {
+public interface MembershipFilter<T> extends AutoCloseable {
     /**
      * Adds an element to the filter. Idempotent but not reversible in classic filters.
      *
@@ -14,6 +24,30 @@ public interface MembershipFilter<T> {
      */
     void add(T element);
 
+    /**
+     * Adds every element in iteration order. The result is the same as calling
+     * {@link #add(Object)} for each element; implementations may hash elements in parallel,
+     * so the filter's {@link KeyEncoder} and {@link HashStrategy} are called from several
+     * threads. Stops at the first {@code null} element, after adding the ones before it.
+     *
+     * @param elements elements to add
+     */
+    default void addAll(Iterable<? extends T> elements) {
+        if (elements == null) throw new NullPointerException("elements");
+        for (T element : elements) add(element);
+    }
+
+    /**
+     * Adds every element of a stream in encounter order, with the same result as
+     * {@link #addAll(Iterable)}. The stream is consumed sequentially.
+     *
+     * @param elements elements to add
+     */
+    default void addAll(Stream<? extends T> elements) {
+        if (elements == null) throw new NullPointerException("elements");
+        elements.sequential().forEachOrdered(this::add);
+    }
+
     /**
      * Checks if an element might be contained in the filter.
      *
@@ -22,6 +56,23 @@ public interface MembershipFilter<T> {
      */
     boolean mightContain(T element);
 
+    /**
+     * Checks a batch of elements. Implementations may hash the whole batch before probing it,
+     * so that the memory accesses of different elements overlap instead of waiting on each
+     * cache miss in turn; the answers are the same as one {@link #mightContain(Object)} per
+     * element.
+     *
+     * @param elements elements to check
+     * @return {@code result[i]} is the {@code mightContain} answer for element {@code i}
+     */
+    default boolean[] mightContainAll(List<? extends T> elements) {
+        if (elements == null) throw new NullPointerException("elements");
+        boolean[] results = new boolean[elements.size()];
+        int i = 0;
+        for (T element : elements) results[i++] = mightContain(element);
+        return results;
+    }
+
     /**
      * Removes an element from the filter. Only supported by filter implementations that
      * support deletions (e.g. counting Bloom filters). The default implementation
@@ -41,12 +92,33 @@ public interface MembershipFilter<T> {
     /**
      * Returns the number of elements added to the filter since the last clear. Note that for
      * probabilistic filters this is a simple counter and may not reflect the number of unique
-     * elements.
+     * elements; see {@link #estimateDistinctCount()}.
      *
      * @return estimated number of added elements
      */
     long getEstimatedCount();
 
+    /**
+     * Returns the fraction of the filter's bits (or slots) that are currently set, between 0
+     * and 1. Filters that do not track their occupancy return {@link Double#NaN}.
+     *
+     * @return fill ratio or {@code Double.NaN}
+     */
+    default double getFillRatio() {
+        return Double.NaN;
+    }
+
+    /**
+     * Estimates the number of distinct elements in the filter from its current state rather
+     * than from the number of {@link #add(Object)} calls, so repeated elements are not counted
+     * twice. Filters without such an estimator return {@link Double#NaN}.
+     *
+     * @return estimated number of distinct elements or {@code Double.NaN}
+     */
+    default double estimateDistinctCount() {
+        return Double.NaN;
+    }
+
     /**
      * Estimates the current false-positive rate based on the filter's parameters and
      * state. Filters without a statistical model may return {@link Double#NaN}.
@@ -72,4 +144,48 @@ public interface MembershipFilter<T> {
      * @param data serialized data produced by {@link #toBytes()}
      */
     void fromBytes(byte[] data);
+
+    /**
+     * Writes the {@link #toBytes()} representation of the filter to a channel. Filters with
+     * large bit arrays override this to stream their state through a small direct buffer
+     * instead of building the whole array on the heap first.
+     *
+     * @param channel channel to write to; it is left open
+     * @throws IOException if the channel fails
+     */
+    default void writeTo(WritableByteChannel channel) throws IOException {
+        if (channel == null) throw new NullPointerException("channel");
+        ChannelIO.writeFully(channel, ByteBuffer.wrap(toBytes()));
+    }
+
+    /**
+     * Restores the filter from a channel positioned at data written by
+     * {@link #writeTo(WritableByteChannel)} or {@link #toBytes()}. The default implementation
+     * reads the channel to its end and passes the bytes to {@link #fromBytes(byte[])}; filters
+     * that override it read exactly their own data and leave the channel after it.
+     *
+     * @param channel channel to read from; it is left open
+     * @throws IOException if the channel fails or ends before the filter does
+     * @throws IllegalArgumentException if the data is invalid or does not match the filter
+     */
+    default void readFrom(ReadableByteChannel channel) throws IOException {
+        if (channel == null) throw new NullPointerException("channel");
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        while (channel.read(buffer) >= 0) {
+            if (!buffer.hasRemaining()) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+            }
+        }
+        byte[] data = new byte[buffer.position()];
+        buffer.flip().get(data);
+        fromBytes(data);
+    }
+
+    /**
+     * Releases native resources held by the filter. The filter must not be used afterwards.
+     * The default implementation does nothing.
+     */
+    @Override
+    default void close() {
+    }
 }
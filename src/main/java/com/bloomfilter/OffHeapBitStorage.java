@@ -0,0 +1,79 @@
+package com.bloomfilter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * {@link BitStorage} backed by direct memory, so large filters add nothing to the heap the
+ * garbage collector has to scan or copy. Memory is split into direct buffers of at most
+ * 1 GiB each, allowing storages well beyond 2 GiB. {@link #close()} frees the memory
+ * immediately; any later access throws {@link IllegalStateException}.
+ */
+final class OffHeapBitStorage implements BitStorage {
+
+    /** Words per direct buffer (2^27 words = 1 GiB). */
+    private static final int CHUNK_SHIFT = 27;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private final long bitSize;
+    private final long wordCount;
+    private ByteBuffer[] chunks;
+
+    OffHeapBitStorage(long bitSize) {
+        if (bitSize <= 0) throw new IllegalArgumentException("bitSize must be positive");
+        this.bitSize = bitSize;
+        this.wordCount = (bitSize + 63) >>> 6;
+        int chunkCount = (int) ((wordCount + CHUNK_MASK) >>> CHUNK_SHIFT);
+        this.chunks = new ByteBuffer[chunkCount];
+        for (int c = 0; c < chunkCount; c++) {
+            long words = Math.min(1L << CHUNK_SHIFT, wordCount - ((long) c << CHUNK_SHIFT));
+            chunks[c] = ByteBuffer.allocateDirect((int) (words * Long.BYTES)).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    private ByteBuffer chunk(long wordIndex) {
+        ByteBuffer[] current = chunks;
+        if (current == null) throw new IllegalStateException("storage has been closed");
+        return current[(int) (wordIndex >>> CHUNK_SHIFT)];
+    }
+
+    @Override
+    public long bitSize() {
+        return bitSize;
+    }
+
+    @Override
+    public long wordCount() {
+        return wordCount;
+    }
+
+    @Override
+    public long getWord(long wordIndex) {
+        return chunk(wordIndex).getLong((int) (wordIndex & CHUNK_MASK) << 3);
+    }
+
+    @Override
+    public void setWord(long wordIndex, long value) {
+        chunk(wordIndex).putLong((int) (wordIndex & CHUNK_MASK) << 3, value);
+    }
+
+    @Override
+    public void clearAll() {
+        if (chunks == null) throw new IllegalStateException("storage has been closed");
+        byte[] zeros = new byte[8192];
+        for (ByteBuffer chunk : chunks) {
+            for (int pos = 0; pos < chunk.capacity(); pos += zeros.length) {
+                chunk.put(pos, zeros, 0, Math.min(zeros.length, chunk.capacity() - pos));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        ByteBuffer[] current = chunks;
+        chunks = null;
+        if (current != null) {
+            for (ByteBuffer chunk : current) DirectBuffers.free(chunk);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.bloomfilter;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs a loop over {@code [0, length)} in contiguous ranges on the common fork-join pool.
+ * Ranges are split in half until they hold at most a grain of elements, by default
+ * {@link #SEQUENTIAL_LENGTH}; shorter loops run on the calling thread without touching the
+ * pool. Used for the word-wise set operations of {@link ClassicBloomFilter} and
+ * {@link CountingBloomFilter} and the batch hashing of {@link AbstractBloomFilter#addAll},
+ * whose bodies only touch their own range.
+ */
+final class ParallelRanges {
+
+    /** Longest range processed sequentially: 64K words, i.e. 512 KB of bits. */
+    static final long SEQUENTIAL_LENGTH = 1 << 16;
+
+    /** Loop body over the half-open range {@code [from, to)}. */
+    @FunctionalInterface
+    interface RangeAction {
+        void apply(long from, long to);
+    }
+
+    /** Loop body over the half-open range {@code [from, to)} returning a partial sum. */
+    @FunctionalInterface
+    interface RangeSum {
+        long apply(long from, long to);
+    }
+
+    private ParallelRanges() {
+    }
+
+    /** Applies {@code action} to ranges covering {@code [0, length)}, in parallel for long loops. */
+    static void forEach(long length, RangeAction action) {
+        forEach(length, SEQUENTIAL_LENGTH, action);
+    }
+
+    /** Applies {@code action} to ranges of at most {@code grain} elements covering {@code [0, length)}. */
+    static void forEach(long length, long grain, RangeAction action) {
+        if (length <= grain) {
+            action.apply(0, length);
+            return;
+        }
+        ForkJoinPool.commonPool().invoke(new ActionTask(0, length, grain, action));
+    }
+
+    /** Sums {@code sum} over ranges covering {@code [0, length)}, in parallel for long loops. */
+    static long sum(long length, RangeSum sum) {
+        if (length <= SEQUENTIAL_LENGTH) return sum.apply(0, length);
+        return ForkJoinPool.commonPool().invoke(new SumTask(0, length, sum));
+    }
+
+    private static final class ActionTask extends RecursiveAction {
+        private final long from;
+        private final long to;
+        private final long grain;
+        private final RangeAction action;
+
+        ActionTask(long from, long to, long grain, RangeAction action) {
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                action.apply(from, to);
+                return;
+            }
+            long mid = (from + to) >>> 1;
+            invokeAll(new ActionTask(from, mid, grain, action), new ActionTask(mid, to, grain, action));
+        }
+    }
+
+    private static final class SumTask extends RecursiveTask<Long> {
+        private final long from;
+        private final long to;
+        private final RangeSum sum;
+
+        SumTask(long from, long to, RangeSum sum) {
+            this.from = from;
+            this.to = to;
+            this.sum = sum;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= SEQUENTIAL_LENGTH) return sum.apply(from, to);
+            long mid = (from + to) >>> 1;
+            SumTask left = new SumTask(from, mid, sum);
+            left.fork();
+            long right = new SumTask(mid, to, sum).compute();
+            return left.join() + right;
+        }
+    }
+}
@@ -1,70 +1,328 @@
 package com.bloomfilter;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.function.LongFunction;
 
+/**
+ * Bloom filter whose bit array is split into equally sized partitions, each a
+ * {@link ClassicBloomFilter}. Two layouts are supported:
+ *
+ * <ul>
+ *   <li>{@link Layout#ROUTED}: every element is routed to one partition, which receives all
+ *       k of its bits. This is the original layout, read and written unchanged.</li>
+ *   <li>{@link Layout#SLICED}: the textbook partitioned filter, with one slice per hash
+ *       function; probe {@code i} always lands in slice {@code i}. Bits of different probes
+ *       never collide, which keeps the false-positive rate slightly below the classic one and
+ *       lets the k slices be probed independently.</li>
+ * </ul>
+ *
+ * <p>Either way an element is hashed once per operation; the partitions are handed the
+ * precomputed hash instead of rehashing the element. The serialized form records the layout,
+ * so data of one layout is never loaded into a filter of the other.
+ *
+ * @param <T> the type of elements to be stored in the filter
+ */
 public class PartitionedBloomFilter<T> extends AbstractBloomFilter<T> {
 
+    /** How elements are spread over the partitions. */
+    public enum Layout {
+        /** Each element goes to one partition chosen from its hash; that partition gets all k bits. */
+        ROUTED,
+        /** One partition ("slice") per hash function; probe i sets one bit in slice i. */
+        SLICED
+    }
+
+    /** First int of serialized sliced data; routed data starts with its positive partition count. */
+    static final int SLICED_MARKER = -2;
+
     private final ClassicBloomFilter<T>[] partitions;
+    private final BitStorage[] storages;
     private final int numPartitions;
     private final int partitionSize;
+    private final Layout layout;
 
-    @SuppressWarnings("unchecked")
     public PartitionedBloomFilter(int numPartitions, int partitionSize, int numHashFunctions) {
-        super(numPartitions * partitionSize, numHashFunctions);
+        this(numPartitions, partitionSize, numHashFunctions, KeyEncoders.defaultEncoder());
+    }
+
+    public PartitionedBloomFilter(int numPartitions, int partitionSize, int numHashFunctions,
+                                  KeyEncoder<? super T> keyEncoder) {
+        this(numPartitions, partitionSize, numHashFunctions, keyEncoder, StandardHashStrategy.MURMUR3_LEGACY);
+    }
+
+    public PartitionedBloomFilter(int numPartitions, int partitionSize, int numHashFunctions,
+                                  KeyEncoder<? super T> keyEncoder, HashStrategy hashStrategy) {
+        this(numPartitions, partitionSize, numHashFunctions, keyEncoder, hashStrategy, BitStorage::heap);
+    }
+
+    /**
+     * Creates a routed partitioned filter whose partitions use storages from the given factory,
+     * e.g. {@code BitStorage::offHeap}. The factory is called once per partition with the
+     * partition size.
+     */
+    public PartitionedBloomFilter(int numPartitions, int partitionSize, int numHashFunctions,
+                                  KeyEncoder<? super T> keyEncoder, HashStrategy hashStrategy,
+                                  LongFunction<BitStorage> storageFactory) {
+        this(Layout.ROUTED, numPartitions, partitionSize, numHashFunctions, keyEncoder, hashStrategy,
+                storageFactory);
+    }
+
+    /**
+     * Creates a partitioned filter with an explicit layout. A {@link Layout#SLICED} filter
+     * needs exactly one partition per hash function.
+     *
+     * @param layout how elements are spread over the partitions
+     * @param numPartitions number of partitions; must equal {@code numHashFunctions} when sliced
+     * @param partitionSize bits per partition
+     * @param numHashFunctions the number of bits set per element
+     * @param keyEncoder turns elements into the bytes that are hashed
+     * @param hashStrategy hash function and probe derivation
+     * @param storageFactory creates the storage of each partition from its size
+     */
+    @SuppressWarnings("unchecked")
+    public PartitionedBloomFilter(Layout layout, int numPartitions, int partitionSize, int numHashFunctions,
+                                  KeyEncoder<? super T> keyEncoder, HashStrategy hashStrategy,
+                                  LongFunction<BitStorage> storageFactory) {
+        super((long) numPartitions * partitionSize, numHashFunctions, keyEncoder, hashStrategy);
+        if (layout == null) throw new NullPointerException("layout");
         if (numPartitions <= 0 || partitionSize <= 0)
             throw new IllegalArgumentException("numPartitions and partitionSize must be positive");
+        if (layout == Layout.SLICED && numPartitions != numHashFunctions)
+            throw new IllegalArgumentException("a sliced filter needs one partition per hash function");
+        this.layout = layout;
         this.numPartitions = numPartitions;
         this.partitionSize = partitionSize;
         this.partitions = (ClassicBloomFilter<T>[]) new ClassicBloomFilter<?>[numPartitions];
+        this.storages = new BitStorage[numPartitions];
+        int partitionHashes = layout == Layout.SLICED ? 1 : numHashFunctions;
         for (int i = 0; i < numPartitions; i++) {
-            partitions[i] = new ClassicBloomFilter<>(partitionSize, numHashFunctions);
-            partitions[i].setVerbose(verbose);
+            partitions[i] = new ClassicBloomFilter<>(storageFactory.apply(partitionSize), partitionHashes,
+                    keyEncoder, hashStrategy);
+            storages[i] = partitions[i].getStorage();
         }
     }
 
-    private int choosePartition(T element) {
-        long[] hash = HashUtils.hash128(element.toString());
-        int idx = (int) Math.floorMod(hash[0], numPartitions);
-        if (verbose)
-            System.out.printf("Partition chosen for '%s' → %d%n", element, idx);
-        return idx;
+    /**
+     * Creates a sliced partitioned filter: k slices of {@code sliceSize} bits each.
+     *
+     * @param sliceSize bits per slice
+     * @param numHashFunctions number of hash functions and slices
+     */
+    public static <T> PartitionedBloomFilter<T> sliced(int sliceSize, int numHashFunctions) {
+        return sliced(sliceSize, numHashFunctions, KeyEncoders.defaultEncoder(), StandardHashStrategy.MURMUR3_LEGACY);
+    }
+
+    /**
+     * Creates a sliced partitioned filter with an explicit key encoder and hash strategy.
+     *
+     * @param sliceSize bits per slice
+     * @param numHashFunctions number of hash functions and slices
+     * @param keyEncoder turns elements into the bytes that are hashed
+     * @param hashStrategy hash function and probe derivation
+     */
+    public static <T> PartitionedBloomFilter<T> sliced(int sliceSize, int numHashFunctions,
+                                                       KeyEncoder<? super T> keyEncoder, HashStrategy hashStrategy) {
+        return new PartitionedBloomFilter<>(Layout.SLICED, numHashFunctions, sliceSize, numHashFunctions,
+                keyEncoder, hashStrategy, BitStorage::heap);
+    }
+
+    private int choosePartition(long hash1, long hash2) {
+        // The legacy layout routes on hash1 mod p; newer strategies route on the high bits of
+        // hash2 so the partition choice stays independent of the in-partition probes.
+        return hashStrategy == StandardHashStrategy.MURMUR3_LEGACY
+                ? Math.floorMod(hash1, numPartitions)
+                : HashUtils.reduce(hash2, numPartitions);
     }
 
     @Override
-    public void add(T element) {
-        if (element == null) throw new NullPointerException("element");
-        int idx = choosePartition(element);
-        partitions[idx].setVerbose(verbose);
-        if (verbose) System.out.printf("Adding '%s' to partition %d%n", element, idx);
-        partitions[idx].add(element);
-        itemCount++;
+    protected void addHashed(long hash1, long hash2) {
+        if (layout == Layout.SLICED) {
+            for (int i = 0; i < numPartitions; i++) {
+                partitions[i].setBit(hashStrategy.index(hash1, hash2, i, partitionSize));
+            }
+            return;
+        }
+        ClassicBloomFilter<T> partition = partitions[choosePartition(hash1, hash2)];
+        partition.addHashed(hash1, hash2);
+        partition.countAdded();
+    }
+
+    @Override
+    protected boolean containsHashed(long hash1, long hash2) {
+        if (layout == Layout.SLICED) {
+            for (int i = 0; i < numPartitions; i++) {
+                if (!storages[i].get(hashStrategy.index(hash1, hash2, i, partitionSize))) return false;
+            }
+            return true;
+        }
+        return partitions[choosePartition(hash1, hash2)].containsHashed(hash1, hash2);
+    }
+
+    /**
+     * Sliced batches are inserted slice by slice, so consecutive writes stay within one slice.
+     * Routed batches are grouped by partition, keeping their order within each partition, and
+     * every group is inserted by its partition's own batch insert.
+     */
+    @Override
+    protected void addHashedBatch(long[] hash1, long[] hash2, int size) {
+        if (layout == Layout.ROUTED) {
+            int[] starts = new int[numPartitions + 1];
+            int[] order = groupByPartition(hash1, hash2, size, starts);
+            long[] group1 = new long[size];
+            long[] group2 = new long[size];
+            for (int p = 0; p < numPartitions; p++) {
+                int count = gather(order, starts[p], starts[p + 1], hash1, hash2, group1, group2);
+                if (count > 0) partitions[p].addHashedBatch(group1, group2, count);
+            }
+            for (int j = 0; j < size; j++) countAdded();
+            return;
+        }
+        for (int i = 0; i < numPartitions; i++) {
+            ClassicBloomFilter<T> slice = partitions[i];
+            for (int j = 0; j < size; j++) slice.setBit(hashStrategy.index(hash1[j], hash2[j], i, partitionSize));
+        }
+        for (int j = 0; j < size; j++) countAdded();
+    }
+
+    /**
+     * Sliced batches are probed slice by slice: slice {@code i} is probed for every element
+     * still possibly present before slice {@code i + 1}, so the misses of different elements
+     * overlap. Routed batches are grouped by partition and each group is probed by its
+     * partition's own batch probe.
+     */
+    @Override
+    protected void containsHashedBatch(long[] hash1, long[] hash2, int size, boolean[] results) {
+        if (layout == Layout.ROUTED) {
+            int[] starts = new int[numPartitions + 1];
+            int[] order = groupByPartition(hash1, hash2, size, starts);
+            long[] group1 = new long[size];
+            long[] group2 = new long[size];
+            boolean[] groupResults = new boolean[size];
+            for (int p = 0; p < numPartitions; p++) {
+                int count = gather(order, starts[p], starts[p + 1], hash1, hash2, group1, group2);
+                if (count == 0) continue;
+                // Batch probes only record hits, so the answers of the previous group are cleared
+                Arrays.fill(groupResults, 0, count, false);
+                partitions[p].containsHashedBatch(group1, group2, count, groupResults);
+                for (int n = 0; n < count; n++) results[order[starts[p] + n]] = groupResults[n];
+            }
+            return;
+        }
+        int[] live = new int[size];
+        for (int j = 0; j < size; j++) live[j] = j;
+        int liveCount = size;
+        for (int i = 0; i < numPartitions && liveCount > 0; i++) {
+            BitStorage slice = storages[i];
+            int kept = 0;
+            for (int n = 0; n < liveCount; n++) {
+                int j = live[n];
+                if (slice.get(hashStrategy.index(hash1[j], hash2[j], i, partitionSize))) live[kept++] = j;
+            }
+            liveCount = kept;
+        }
+        for (int n = 0; n < liveCount; n++) results[live[n]] = true;
+    }
+
+    /**
+     * Sorts the batch positions by routed partition with a counting sort that keeps input order
+     * within each partition. On return the positions of partition {@code p} are
+     * {@code order[starts[p]]} up to {@code order[starts[p + 1]]}.
+     */
+    private int[] groupByPartition(long[] hash1, long[] hash2, int size, int[] starts) {
+        int[] partitionOf = new int[size];
+        for (int j = 0; j < size; j++) {
+            partitionOf[j] = choosePartition(hash1[j], hash2[j]);
+            starts[partitionOf[j] + 1]++;
+        }
+        for (int p = 0; p < numPartitions; p++) starts[p + 1] += starts[p];
+        int[] next = Arrays.copyOf(starts, numPartitions);
+        int[] order = new int[size];
+        for (int j = 0; j < size; j++) order[next[partitionOf[j]]++] = j;
+        return order;
+    }
+
+    /** Copies the hashes at {@code order[from]} up to {@code order[to]} to the front of the group arrays. */
+    private static int gather(int[] order, int from, int to, long[] hash1, long[] hash2,
+                              long[] group1, long[] group2) {
+        for (int n = from; n < to; n++) {
+            group1[n - from] = hash1[order[n]];
+            group2[n - from] = hash2[order[n]];
+        }
+        return to - from;
     }
 
+    /**
+     * Returns the k global bit indices of an element: partition {@code p}, bit {@code j} is
+     * index {@code p * partitionSize + j}.
+     */
     @Override
-    public boolean mightContain(T element) {
-        if (element == null) throw new NullPointerException("element");
-        int idx = choosePartition(element);
-        partitions[idx].setVerbose(verbose);
-        if (verbose)
-            System.out.printf("Checking membership for '%s' in partition %d%n", element, idx);
-        boolean result = partitions[idx].mightContain(element);
-        if (verbose)
-            System.out.printf(" → Partition %d result = %s%n", idx, result);
-        return result;
+    protected long[] getHashIndices(T element) {
+        long[] hash = new long[2];
+        hash(element, hash);
+        if (verbose && layout == Layout.ROUTED) {
+            System.out.printf("Partition chosen for '%s' → %d%n", element, choosePartition(hash[0], hash[1]));
+        }
+        return indices(hash[0], hash[1]);
+    }
+
+    private long[] indices(long hash1, long hash2) {
+        long[] indices = new long[hashCount];
+        if (layout == Layout.SLICED) {
+            for (int i = 0; i < hashCount; i++) {
+                indices[i] = (long) i * partitionSize + hashStrategy.index(hash1, hash2, i, partitionSize);
+            }
+            return indices;
+        }
+        long base = (long) choosePartition(hash1, hash2) * partitionSize;
+        for (int i = 0; i < hashCount; i++) {
+            indices[i] = base + hashStrategy.index(hash1, hash2, i, partitionSize);
+        }
+        return indices;
     }
 
     @Override
-    public void remove(T element) {
-        if (element == null) throw new NullPointerException("element");
-        int idx = choosePartition(element);
-        if (verbose) System.out.printf("Removing '%s' from partition %d%n", element, idx);
-        try {
-            partitions[idx].remove(element);
-            if (itemCount > 0) itemCount--;
-        } catch (UnsupportedOperationException e) {
-            throw new UnsupportedOperationException("remove not supported by this partition");
+    public void add(T element) {
+        if (!verbose || layout == Layout.SLICED) {
+            super.add(element);
+            return;
         }
+        // Routed bits go through the chosen partition so that its count stays in step
+        long[] hash = new long[2];
+        hash(element, hash);
+        System.out.printf("Adding element: %s%n", element);
+        System.out.printf(" → partition %d, hash indices: %s%n", choosePartition(hash[0], hash[1]),
+                Arrays.toString(indices(hash[0], hash[1])));
+        addHashed(hash[0], hash[1]);
+        countAdded();
+        System.out.printf(" → itemCount now: %d%n", getEstimatedCount());
+    }
+
+    @Override
+    protected void setBit(long index) {
+        partitions[(int) (index / partitionSize)].setBit(index % partitionSize);
+    }
+
+    @Override
+    protected boolean getBit(long index) {
+        return storages[(int) (index / partitionSize)].get(index % partitionSize);
+    }
+
+    @Override
+    protected void clearBit(long index) {
+        partitions[(int) (index / partitionSize)].clearBit(index % partitionSize);
+    }
+
+    /** Returns the set bits of all partitions, each maintained by its partition on insert. */
+    @Override
+    public long getSetBitCount() {
+        long count = 0;
+        for (ClassicBloomFilter<T> partition : partitions) count += partition.getSetBitCount();
+        return count;
     }
 
     @Override
@@ -77,6 +335,14 @@ public class PartitionedBloomFilter<T> extends AbstractBloomFilter<T> {
         if (verbose) System.out.println(" → All partitions cleared.");
     }
 
+    /** Releases the storage of every partition. */
+    @Override
+    public void close() {
+        for (ClassicBloomFilter<T> partition : partitions) {
+            partition.close();
+        }
+    }
+
     // ------------------------------------------------------------
     // Accessors for metadata / introspection
     // ------------------------------------------------------------
@@ -86,34 +352,56 @@ public class PartitionedBloomFilter<T> extends AbstractBloomFilter<T> {
         return numPartitions;
     }
 
+    /** Layout of this filter. */
+    public Layout getLayout() {
+        return layout;
+    }
+
     /** Bit array size (m) per partition. */
     public int getPartitionSize() {
         return partitionSize;
     }
 
-    @Override
-    protected int[] getHashIndices(T element) {
-        throw new UnsupportedOperationException("Delegated to sub-filters");
+    /** Returns the live bit storage of one partition. */
+    public BitStorage getPartitionStorage(int partition) {
+        return partitions[partition].getStorage();
     }
 
-    @Override protected void setBit(int index) { throw new UnsupportedOperationException(); }
-    @Override protected boolean getBit(int index) { throw new UnsupportedOperationException(); }
-    @Override protected void clearBit(int index) { throw new UnsupportedOperationException(); }
+    /**
+     * Estimates the false-positive rate from the density of each partition. A sliced query
+     * probes one bit per slice, so the rate is the product of the slice fill ratios; a routed
+     * query probes k bits of one partition, chosen uniformly, so the rate is the average of
+     * the partitions' {@code fill^k}.
+     */
+    @Override
+    public double estimateFalsePositiveRate() {
+        double fpr = layout == Layout.SLICED ? 1 : 0;
+        for (ClassicBloomFilter<T> partition : partitions) {
+            double fill = partition.getFillRatio();
+            if (layout == Layout.SLICED) fpr *= fill;
+            else fpr += Math.pow(fill, hashCount) / numPartitions;
+        }
+        if (verbose) System.out.printf("Estimating %s FPR (partitions=%d, size=%d, fill=%f) = %f%n",
+                layout.name().toLowerCase(), numPartitions, partitionSize, getFillRatio(), fpr);
+        return fpr;
+    }
 
+    /**
+     * Layout: {@code [int p][int partitionSize][int k][long n]}, then per partition
+     * {@code [int length][bytes]}. Sliced filters put {@link #SLICED_MARKER} in front, so
+     * routed data, including files written before the sliced layout existed, is unchanged.
+     */
     @Override
     public byte[] toBytes() {
         if (verbose) System.out.println("Serializing PartitionedBloomFilter...");
         byte[][] partsBytes = new byte[numPartitions][];
-        int total = 4 + 4 + 4 + 8;
+        int total = headLength();
         for (int i = 0; i < numPartitions; i++) {
             partsBytes[i] = partitions[i].toBytes();
             total += 4 + partsBytes[i].length;
         }
         ByteBuffer buffer = ByteBuffer.allocate(total).order(ByteOrder.BIG_ENDIAN);
-        buffer.putInt(numPartitions);
-        buffer.putInt(partitionSize);
-        buffer.putInt(hashCount);
-        buffer.putLong(itemCount);
+        writeHead(buffer);
         for (int i = 0; i < numPartitions; i++) {
             buffer.putInt(partsBytes[i].length);
             buffer.put(partsBytes[i]);
@@ -126,15 +414,7 @@ public class PartitionedBloomFilter<T> extends AbstractBloomFilter<T> {
     public void fromBytes(byte[] data) {
         if (verbose) System.out.println("Deserializing PartitionedBloomFilter...");
         ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.BIG_ENDIAN);
-        int savedPartitions = buffer.getInt();
-        int savedPartitionSize = buffer.getInt();
-        int savedNumHash = buffer.getInt();
-        long savedCount = buffer.getLong();
-        if (savedPartitions != numPartitions ||
-                savedPartitionSize != partitionSize ||
-                savedNumHash != hashCount) {
-            throw new IllegalArgumentException("Serialized data does not match configuration");
-        }
+        long savedCount = readHead(buffer);
         for (int i = 0; i < numPartitions; i++) {
             int len = buffer.getInt();
             byte[] bytes = new byte[len];
@@ -144,4 +424,76 @@ public class PartitionedBloomFilter<T> extends AbstractBloomFilter<T> {
         this.itemCount = savedCount;
         if (verbose) System.out.println(" → Deserialization complete.");
     }
+
+    /**
+     * Writes the layout of {@link #toBytes()} partition by partition, each one streamed by
+     * {@link ClassicBloomFilter#writeTo(WritableByteChannel)}, so no partition is copied to
+     * the heap.
+     */
+    @Override
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        if (channel == null) throw new NullPointerException("channel");
+        if (verbose) System.out.println("Serializing PartitionedBloomFilter...");
+        ByteBuffer head = ByteBuffer.allocate(headLength());
+        writeHead(head);
+        ChannelIO.writeFully(channel, head.flip());
+        ByteBuffer length = ByteBuffer.allocate(4);
+        for (ClassicBloomFilter<T> partition : partitions) {
+            ChannelIO.writeFully(channel, length.clear().putInt((int) partition.serializedLength()).flip());
+            partition.writeTo(channel);
+        }
+        if (verbose) System.out.println(" → Serialization complete.");
+    }
+
+    /** Reads the layout of {@link #toBytes()}, streaming each partition into place. */
+    @Override
+    public void readFrom(ReadableByteChannel channel) throws IOException {
+        if (channel == null) throw new NullPointerException("channel");
+        if (verbose) System.out.println("Deserializing PartitionedBloomFilter...");
+        ByteBuffer head = ByteBuffer.allocate(headLength());
+        ChannelIO.readFully(channel, head);
+        long savedCount = readHead(head.flip());
+        ByteBuffer length = ByteBuffer.allocate(4);
+        for (int i = 0; i < numPartitions; i++) {
+            ChannelIO.readFully(channel, length.clear());
+            ChannelIO.Limited slice = ChannelIO.limit(channel, length.flip().getInt());
+            partitions[i].readFrom(slice);
+            if (slice.remaining() != 0) {
+                throw new IllegalArgumentException("Serialized partition " + i + " has " + slice.remaining()
+                        + " unexpected trailing bytes");
+            }
+        }
+        this.itemCount = savedCount;
+        if (verbose) System.out.println(" → Deserialization complete.");
+    }
+
+    /** Length of the fields in front of the partitions: the layout marker if sliced, p, size, k and n. */
+    private int headLength() {
+        return (layout == Layout.SLICED ? 4 : 0) + 4 + 4 + 4 + 8;
+    }
+
+    private void writeHead(ByteBuffer buffer) {
+        if (layout == Layout.SLICED) buffer.putInt(SLICED_MARKER);
+        buffer.putInt(numPartitions).putInt(partitionSize).putInt(hashCount).putLong(itemCount);
+    }
+
+    /**
+     * Checks the fields in front of the partitions against this filter and returns the saved
+     * element count.
+     *
+     * @throws IllegalArgumentException if the data holds the other layout or another shape
+     */
+    private long readHead(ByteBuffer buffer) {
+        int first = buffer.getInt();
+        Layout saved = first == SLICED_MARKER ? Layout.SLICED : Layout.ROUTED;
+        if (saved != layout) {
+            throw new IllegalArgumentException("Serialized data holds a " + saved + " filter but this filter is "
+                    + layout);
+        }
+        int savedPartitions = saved == Layout.SLICED ? buffer.getInt() : first;
+        if (savedPartitions != numPartitions || buffer.getInt() != partitionSize || buffer.getInt() != hashCount) {
+            throw new IllegalArgumentException("Serialized data does not match configuration");
+        }
+        return buffer.getLong();
+    }
 }
@@ -0,0 +1,436 @@
+package com.bloomfilter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Scalable Bloom filter (Almeida et al.): a chain of sliced {@link PartitionedBloomFilter}
+ * stages that grows as elements arrive, so the number of elements need not be known up front.
+ * When the newest stage reaches its capacity a new stage is appended with {@code growthFactor}
+ * times the capacity and a false-positive rate tightened by {@code tighteningRatio}. Stage
+ * {@code i} targets {@code P * (1 - r) * r^i}, so the compound rate stays below the target
+ * {@code P} however many stages are added.
+ *
+ * <p>Each element is hashed once per operation and the hash is shared by all stages. Queries
+ * check the newest stage first, as it is the largest and holds the most recent elements.
+ *
+ * <p>{@link #getBitArraySize()} reports the total size of all stages and
+ * {@link #getHashCount()} the hash count of the first stage; later stages use more.
+ *
+ * @param <T> the type of elements to be stored in the filter
+ */
+public class ScalableBloomFilter<T> extends AbstractBloomFilter<T> {
+
+    /** Default capacity multiplier between consecutive stages. */
+    public static final int DEFAULT_GROWTH_FACTOR = 2;
+
+    /** Default false-positive rate multiplier between consecutive stages. */
+    public static final double DEFAULT_TIGHTENING_RATIO = 0.85;
+
+    private static final double LN2_SQUARED = Math.log(2) * Math.log(2);
+
+    private final long initialCapacity;
+    private final double falsePositiveRate;
+    private final int growthFactor;
+    private final double tighteningRatio;
+
+    private final List<PartitionedBloomFilter<T>> stages = new ArrayList<>();
+    private final List<Long> capacities = new ArrayList<>();
+
+    /**
+     * Creates a new ScalableBloomFilter.
+     *
+     * @param initialCapacity number of elements the first stage is sized for
+     * @param falsePositiveRate target false-positive rate of the whole chain
+     */
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+        this(initialCapacity, falsePositiveRate, KeyEncoders.defaultEncoder());
+    }
+
+    /**
+     * Creates a new ScalableBloomFilter that hashes elements with the given key encoder.
+     *
+     * @param initialCapacity number of elements the first stage is sized for
+     * @param falsePositiveRate target false-positive rate of the whole chain
+     * @param keyEncoder turns elements into the bytes that are hashed
+     */
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveRate, KeyEncoder<? super T> keyEncoder) {
+        this(initialCapacity, falsePositiveRate, keyEncoder, StandardHashStrategy.MURMUR3_LEGACY);
+    }
+
+    /**
+     * Creates a new ScalableBloomFilter with an explicit key encoder and hash strategy.
+     *
+     * @param initialCapacity number of elements the first stage is sized for
+     * @param falsePositiveRate target false-positive rate of the whole chain
+     * @param keyEncoder turns elements into the bytes that are hashed
+     * @param hashStrategy hash function and probe derivation
+     */
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveRate, KeyEncoder<? super T> keyEncoder,
+                               HashStrategy hashStrategy) {
+        this(initialCapacity, falsePositiveRate, DEFAULT_GROWTH_FACTOR, DEFAULT_TIGHTENING_RATIO, keyEncoder,
+                hashStrategy);
+    }
+
+    /**
+     * Creates a new ScalableBloomFilter with explicit growth parameters.
+     *
+     * @param initialCapacity number of elements the first stage is sized for
+     * @param falsePositiveRate target false-positive rate of the whole chain, in (0, 1)
+     * @param growthFactor capacity multiplier between consecutive stages, at least 1
+     * @param tighteningRatio false-positive rate multiplier between consecutive stages, in (0, 1)
+     * @param keyEncoder turns elements into the bytes that are hashed
+     * @param hashStrategy hash function and probe derivation
+     */
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveRate, int growthFactor,
+                               double tighteningRatio, KeyEncoder<? super T> keyEncoder, HashStrategy hashStrategy) {
+        super(stageBits(initialCapacity, stageRate(falsePositiveRate, tighteningRatio, 0)),
+                stageHashes(stageRate(falsePositiveRate, tighteningRatio, 0)), keyEncoder, hashStrategy);
+        if (initialCapacity <= 0) throw new IllegalArgumentException("initialCapacity must be positive");
+        if (growthFactor < 1) throw new IllegalArgumentException("growthFactor must be at least 1");
+        this.initialCapacity = initialCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+        this.growthFactor = growthFactor;
+        this.tighteningRatio = tighteningRatio;
+        addStage();
+    }
+
+    // ------------------------------------------------------------
+    // Stage sizing
+    // ------------------------------------------------------------
+
+    private static double stageRate(double fpr, double ratio, int stage) {
+        if (!(fpr > 0 && fpr < 1)) throw new IllegalArgumentException("falsePositiveRate must be in (0, 1)");
+        if (!(ratio > 0 && ratio < 1)) throw new IllegalArgumentException("tighteningRatio must be in (0, 1)");
+        return fpr * (1 - ratio) * Math.pow(ratio, stage);
+    }
+
+    private static int stageHashes(double rate) {
+        return Math.max(1, (int) Math.ceil(-Math.log(rate) / Math.log(2)));
+    }
+
+    private static long stageBits(long capacity, double rate) {
+        if (capacity <= 0) throw new IllegalArgumentException("initialCapacity must be positive");
+        return Math.max(1, (long) Math.ceil(capacity * -Math.log(rate) / LN2_SQUARED));
+    }
+
+    /** Capacity, hash count and slice size of one stage. */
+    private record StageShape(long capacity, int hashCount, int sliceSize) {
+    }
+
+    /** Shape of stage {@code stage}, which follows a stage of {@code previousCapacity} elements. */
+    private StageShape stageShape(int stage, long previousCapacity) {
+        double rate = stageRate(falsePositiveRate, tighteningRatio, stage);
+        int k = stageHashes(rate);
+        long capacity = stage == 0 ? initialCapacity : Math.multiplyExact(previousCapacity, growthFactor);
+        long sliceSize = (stageBits(capacity, rate) + k - 1) / k;
+        if (sliceSize > Integer.MAX_VALUE - 64) {
+            // Slices are int-addressed; stop growing and size the capacity to the largest slice
+            sliceSize = Integer.MAX_VALUE - 64;
+            capacity = (long) (sliceSize * k * LN2_SQUARED / -Math.log(rate));
+        }
+        return new StageShape(capacity, k, (int) sliceSize);
+    }
+
+    private PartitionedBloomFilter<T> newStage(StageShape shape) {
+        return PartitionedBloomFilter.sliced(shape.sliceSize(), shape.hashCount(), keyEncoder, hashStrategy);
+    }
+
+    private void addStage() {
+        int stage = stages.size();
+        StageShape shape = stageShape(stage, stage == 0 ? 0 : capacities.get(stage - 1));
+        PartitionedBloomFilter<T> filter = newStage(shape);
+        stages.add(filter);
+        capacities.add(shape.capacity());
+        if (verbose) System.out.printf("Added stage %d: capacity=%d, fpr=%f, k=%d, bits=%d%n", stage,
+                shape.capacity(), stageRate(falsePositiveRate, tighteningRatio, stage), shape.hashCount(),
+                filter.getBitArraySize());
+    }
+
+    private PartitionedBloomFilter<T> currentStage() {
+        int last = stages.size() - 1;
+        PartitionedBloomFilter<T> stage = stages.get(last);
+        if (stage.getEstimatedCount() >= capacities.get(last)) {
+            addStage();
+            stage = stages.get(last + 1);
+        }
+        return stage;
+    }
+
+    // ------------------------------------------------------------
+    // Core operations
+    // ------------------------------------------------------------
+
+    @Override
+    public void add(T element) {
+        if (!verbose) {
+            super.add(element);
+            return;
+        }
+        // The bits must go through the stage chain so that it can grow
+        long[] hash = new long[2];
+        hash(element, hash);
+        System.out.printf("Adding element: %s%n", element);
+        addHashed(hash[0], hash[1]);
+        countAdded();
+        System.out.printf(" → itemCount now: %d%n", getEstimatedCount());
+    }
+
+    @Override
+    public boolean mightContain(T element) {
+        if (!verbose) return super.mightContain(element);
+        long[] hash = new long[2];
+        hash(element, hash);
+        System.out.printf("Checking membership for: %s%n", element);
+        for (int i = stages.size() - 1; i >= 0; i--) {
+            boolean result = stages.get(i).containsHashed(hash[0], hash[1]);
+            System.out.printf(" → stage %d: %s%n", i, result);
+            if (result) return true;
+        }
+        System.out.println(" → Definitely NOT in the set.\n");
+        return false;
+    }
+
+    @Override
+    protected void addHashed(long hash1, long hash2) {
+        PartitionedBloomFilter<T> stage = currentStage();
+        stage.addHashed(hash1, hash2);
+        stage.countAdded();
+        if (verbose) System.out.printf(" → stage %d now holds %d elements%n", stages.size() - 1,
+                stage.getEstimatedCount());
+    }
+
+    @Override
+    protected boolean containsHashed(long hash1, long hash2) {
+        for (int i = stages.size() - 1; i >= 0; i--) {
+            if (stages.get(i).containsHashed(hash1, hash2)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the indices an element would set in the newest stage, offset by the sizes of the
+     * stages before it.
+     */
+    @Override
+    protected long[] getHashIndices(T element) {
+        long offset = 0;
+        for (int i = 0; i < stages.size() - 1; i++) offset += stages.get(i).getBitArraySize();
+        long[] indices = stages.get(stages.size() - 1).getHashIndices(element);
+        for (int i = 0; i < indices.length; i++) indices[i] += offset;
+        return indices;
+    }
+
+    // Bit hooks address the stages laid out one after another
+
+    @Override
+    protected void setBit(long index) {
+        for (PartitionedBloomFilter<T> stage : stages) {
+            if (index < stage.getBitArraySize()) {
+                stage.setBit(index);
+                return;
+            }
+            index -= stage.getBitArraySize();
+        }
+        throw new IndexOutOfBoundsException("bit index out of range");
+    }
+
+    @Override
+    protected boolean getBit(long index) {
+        for (PartitionedBloomFilter<T> stage : stages) {
+            if (index < stage.getBitArraySize()) return stage.getBit(index);
+            index -= stage.getBitArraySize();
+        }
+        throw new IndexOutOfBoundsException("bit index out of range");
+    }
+
+    @Override
+    protected void clearBit(long index) {
+        for (PartitionedBloomFilter<T> stage : stages) {
+            if (index < stage.getBitArraySize()) {
+                stage.clearBit(index);
+                return;
+            }
+            index -= stage.getBitArraySize();
+        }
+        throw new IndexOutOfBoundsException("bit index out of range");
+    }
+
+    /** Drops every stage and starts over with a single empty one. */
+    @Override
+    public void clear() {
+        if (verbose) System.out.println("Clearing all stages...");
+        close();
+        stages.clear();
+        capacities.clear();
+        itemCount = 0;
+        addStage();
+        if (verbose) System.out.println(" → Filter cleared.");
+    }
+
+    @Override
+    public void close() {
+        for (PartitionedBloomFilter<T> stage : stages) stage.close();
+    }
+
+    /** Returns the set bits of all stages. */
+    @Override
+    public long getSetBitCount() {
+        long count = 0;
+        for (PartitionedBloomFilter<T> stage : stages) count += stage.getSetBitCount();
+        return count;
+    }
+
+    /** Sums the distinct-count estimates of the stages, each from its own fill ratio. */
+    @Override
+    public double estimateDistinctCount() {
+        double count = 0;
+        for (PartitionedBloomFilter<T> stage : stages) count += stage.estimateDistinctCount();
+        return count;
+    }
+
+    /**
+     * Combines the estimates of all stages: an absent element is a false positive unless every
+     * stage rejects it, so the rate is {@code 1 - Π(1 - fpr_i)}.
+     */
+    @Override
+    public double estimateFalsePositiveRate() {
+        double allReject = 1;
+        for (PartitionedBloomFilter<T> stage : stages) allReject *= 1 - stage.estimateFalsePositiveRate();
+        double fpr = 1 - allReject;
+        if (verbose) System.out.printf("Estimating scalable FPR (stages=%d, n=%d) = %f%n",
+                stages.size(), getEstimatedCount(), fpr);
+        return fpr;
+    }
+
+    // ------------------------------------------------------------
+    // Accessors for metadata / introspection
+    // ------------------------------------------------------------
+
+    /** Number of stages in the chain. */
+    public int getStageCount() {
+        return stages.size();
+    }
+
+    /** Number of elements stage {@code i} is sized for. */
+    public long getStageCapacity(int stage) {
+        return capacities.get(stage);
+    }
+
+    /** Target false-positive rate of the whole chain. */
+    public double getTargetFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    /** Total number of bits across all stages. */
+    @Override
+    public long getBitArraySize() {
+        long total = 0;
+        for (PartitionedBloomFilter<T> stage : stages) total += stage.getBitArraySize();
+        return total;
+    }
+
+    // ------------------------------------------------------------
+    // Serialization
+    // ------------------------------------------------------------
+
+    /**
+     * Layout: {@code [long initialCapacity][double fpr][int growthFactor][double ratio]
+     * [long n][int stages]}, then per stage {@code [long capacity][int length][bytes]}, then
+     * the hash strategy id.
+     */
+    @Override
+    public byte[] toBytes() {
+        if (verbose) System.out.println("Serializing ScalableBloomFilter...");
+        byte[][] stageBytes = new byte[stages.size()][];
+        long total = 8 + 8 + 4 + 8 + 8 + 4 + 4;
+        for (int i = 0; i < stageBytes.length; i++) {
+            stageBytes[i] = stages.get(i).toBytes();
+            total += 8 + 4 + stageBytes[i].length;
+        }
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Filter too large to serialize into a byte array: " + total + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) total).order(ByteOrder.BIG_ENDIAN);
+        buffer.putLong(initialCapacity);
+        buffer.putDouble(falsePositiveRate);
+        buffer.putInt(growthFactor);
+        buffer.putDouble(tighteningRatio);
+        buffer.putLong(itemCount);
+        buffer.putInt(stageBytes.length);
+        for (int i = 0; i < stageBytes.length; i++) {
+            buffer.putLong(capacities.get(i));
+            buffer.putInt(stageBytes[i].length);
+            buffer.put(stageBytes[i]);
+        }
+        buffer.putInt(hashStrategy.id());
+        if (verbose) System.out.printf(" → Serialized %d stages.%n", stageBytes.length);
+        return buffer.array();
+    }
+
+    /** Replaces the whole chain, including its number of stages, with the serialized one. */
+    @Override
+    public void fromBytes(byte[] data) {
+        if (data == null) throw new NullPointerException("data");
+        if (verbose) System.out.println("Deserializing ScalableBloomFilter...");
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.BIG_ENDIAN);
+        if (buffer.remaining() < 40) throw new IllegalArgumentException("Serialized data is too short");
+        if (buffer.getLong() != initialCapacity || buffer.getDouble() != falsePositiveRate
+                || buffer.getInt() != growthFactor || buffer.getDouble() != tighteningRatio) {
+            throw new IllegalArgumentException("Serialized data does not match filter configuration");
+        }
+        long savedCount = buffer.getLong();
+        int stageCount = buffer.getInt();
+        if (stageCount <= 0 || stageCount > buffer.remaining() / 12) {
+            throw new IllegalArgumentException("Invalid stage count: " + stageCount);
+        }
+        byte[][] stageBytes = new byte[stageCount][];
+        long[] savedCapacities = new long[stageCount];
+        for (int i = 0; i < stageCount; i++) {
+            if (buffer.remaining() < 12) throw new IllegalArgumentException("Serialized data is truncated");
+            savedCapacities[i] = buffer.getLong();
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new IllegalArgumentException("Invalid stage length: " + length);
+            }
+            stageBytes[i] = new byte[length];
+            buffer.get(stageBytes[i]);
+        }
+        checkHashStrategy(buffer);
+
+        // Validate everything and load into fresh stages, so a bad payload leaves this chain as it was
+        StageShape[] shapes = new StageShape[stageCount];
+        for (int i = 0; i < stageCount; i++) {
+            try {
+                shapes[i] = stageShape(i, i == 0 ? 0 : shapes[i - 1].capacity());
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("Stage " + i + " capacity overflows", e);
+            }
+            if (shapes[i].capacity() != savedCapacities[i]) {
+                throw new IllegalArgumentException("Stage " + i + " capacity does not match: " + savedCapacities[i]);
+            }
+        }
+        List<PartitionedBloomFilter<T>> loaded = new ArrayList<>(stageCount);
+        try {
+            for (int i = 0; i < stageCount; i++) {
+                PartitionedBloomFilter<T> stage = newStage(shapes[i]);
+                loaded.add(stage);
+                stage.fromBytes(stageBytes[i]);
+            }
+        } catch (RuntimeException e) {
+            for (PartitionedBloomFilter<T> stage : loaded) stage.close();
+            throw e;
+        }
+
+        close();
+        stages.clear();
+        capacities.clear();
+        stages.addAll(loaded);
+        for (long capacity : savedCapacities) capacities.add(capacity);
+        this.itemCount = savedCount;
+        if (verbose) System.out.printf(" → Restored %d stages: %s%n", stageCount, Arrays.toString(savedCapacities));
+    }
+}
@@ -0,0 +1,38 @@
+package com.bloomfilter;
+
+/**
+ * Portable {@link SplitBlockKernel}; the eight word updates are independent, which lets the
+ * JIT keep them in registers and overlap them.
+ */
+final class ScalarSplitBlockKernel implements SplitBlockKernel {
+
+    static final ScalarSplitBlockKernel INSTANCE = new ScalarSplitBlockKernel();
+
+    private ScalarSplitBlockKernel() {
+    }
+
+    @Override
+    public int insert(int[] words, int offset, int x) {
+        int added = 0;
+        for (int i = 0; i < 8; i++) {
+            int mask = 1 << ((x * SALT[i]) >>> 27);
+            int word = words[offset + i];
+            added += Integer.bitCount(mask & ~word);
+            words[offset + i] = word | mask;
+        }
+        return added;
+    }
+
+    @Override
+    public boolean contains(int[] words, int offset, int x) {
+        for (int i = 0; i < 8; i++) {
+            if ((words[offset + i] & (1 << ((x * SALT[i]) >>> 27))) == 0) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isVectorized() {
+        return false;
+    }
+}
@@ -0,0 +1,432 @@
+package com.bloomfilter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Age-partitioned Bloom filter for deduplicating a stream over a sliding window. Elements go
+ * into the current of {@code G} live generations, each a {@link ClassicBloomFilter}; queries
+ * check all live generations, newest first. A generation is retired after a count budget
+ * (elements per generation), a time budget, or both, and the oldest generation expires at the
+ * same moment, so an element is remembered for at least {@code G - 1} and at most {@code G}
+ * generations, with no blind spot after a reset.
+ *
+ * <p>Rotation is O(1): the ring holds one spare generation besides the live ones, and each
+ * insert clears a few words of it, so by the time the current generation is full the spare
+ * is already empty and simply becomes current, while the oldest generation becomes the new
+ * spare. With a time budget only, the spare is cleared one cache line per insert and whatever
+ * is left is finished at rotation. Each element is hashed once per operation.
+ *
+ * <p>Not thread-safe.
+ *
+ * @param <T> the type of elements to be stored in the filter
+ */
+public class SlidingWindowBloomFilter<T> extends AbstractBloomFilter<T> {
+
+    // Words of the spare cleared per insert when there is no count budget: one cache line
+    private static final int DEFAULT_CLEAR_WORDS = 8;
+
+    private final ClassicBloomFilter<T>[] ring;
+    private final long generationBits;
+    private final int generations;
+    private final long itemsPerGeneration;
+    private final long generationNanos;
+    private final LongSupplier nanoClock;
+    private final int clearWordsPerInsert;
+
+    private int current;
+    private long clearCursor;
+    private long generationStart;
+
+    /**
+     * Creates a window of generations that rotate after a fixed number of insertions.
+     *
+     * @param generationBits bits per generation
+     * @param numHashFunctions the number of bits set per element
+     * @param generations number of live generations
+     * @param itemsPerGeneration insertions after which the current generation is retired
+     */
+    public SlidingWindowBloomFilter(long generationBits, int numHashFunctions, int generations,
+                                    long itemsPerGeneration) {
+        this(generationBits, numHashFunctions, generations, itemsPerGeneration, Duration.ZERO,
+                KeyEncoders.defaultEncoder(), StandardHashStrategy.MURMUR3_LEGACY, System::nanoTime);
+    }
+
+    /**
+     * Creates a window of generations that rotate after a fixed time span, e.g. six
+     * generations of ten minutes for "the last hour".
+     *
+     * @param generationBits bits per generation
+     * @param numHashFunctions the number of bits set per element
+     * @param generations number of live generations
+     * @param generationSpan time after which the current generation is retired
+     */
+    public SlidingWindowBloomFilter(long generationBits, int numHashFunctions, int generations,
+                                    Duration generationSpan) {
+        this(generationBits, numHashFunctions, generations, 0, generationSpan,
+                KeyEncoders.defaultEncoder(), StandardHashStrategy.MURMUR3_LEGACY, System::nanoTime);
+    }
+
+    /**
+     * Creates a window with explicit budgets, key encoder, hash strategy and clock. A
+     * generation is retired when either budget is reached; a budget of zero is disabled, but
+     * at least one must be set.
+     *
+     * @param generationBits bits per generation
+     * @param numHashFunctions the number of bits set per element
+     * @param generations number of live generations
+     * @param itemsPerGeneration insertions per generation, or 0 for no count budget
+     * @param generationSpan time per generation, or {@link Duration#ZERO} for no time budget
+     * @param keyEncoder turns elements into the bytes that are hashed
+     * @param hashStrategy hash function and probe derivation
+     * @param nanoClock monotonic time source in nanoseconds, e.g. {@code System::nanoTime}
+     */
+    @SuppressWarnings("unchecked")
+    public SlidingWindowBloomFilter(long generationBits, int numHashFunctions, int generations,
+                                    long itemsPerGeneration, Duration generationSpan,
+                                    KeyEncoder<? super T> keyEncoder, HashStrategy hashStrategy,
+                                    LongSupplier nanoClock) {
+        super(generationBits * Math.max(1, generations), numHashFunctions, keyEncoder, hashStrategy);
+        if (generations <= 0) throw new IllegalArgumentException("generations must be positive");
+        if (generationSpan == null) throw new NullPointerException("generationSpan");
+        if (nanoClock == null) throw new NullPointerException("nanoClock");
+        if (itemsPerGeneration < 0 || generationSpan.isNegative())
+            throw new IllegalArgumentException("budgets must not be negative");
+        if (itemsPerGeneration == 0 && generationSpan.isZero())
+            throw new IllegalArgumentException("a count or time budget is required");
+        this.generationBits = generationBits;
+        this.generations = generations;
+        this.itemsPerGeneration = itemsPerGeneration;
+        this.generationNanos = generationSpan.toNanos();
+        this.nanoClock = nanoClock;
+        this.ring = (ClassicBloomFilter<T>[]) new ClassicBloomFilter<?>[generations + 1];
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = new ClassicBloomFilter<>(generationBits, numHashFunctions, keyEncoder, hashStrategy);
+        }
+        long words = ring[0].getStorage().wordCount();
+        this.clearWordsPerInsert = itemsPerGeneration > 0
+                ? (int) Math.min(words, (words + itemsPerGeneration - 1) / itemsPerGeneration)
+                : DEFAULT_CLEAR_WORDS;
+        this.current = 0;
+        this.clearCursor = words; // the spare starts out empty
+        this.generationStart = nanoClock.getAsLong();
+    }
+
+    // ------------------------------------------------------------
+    // Generation management
+    // ------------------------------------------------------------
+
+    private int spare() {
+        return current + 1 == ring.length ? 0 : current + 1;
+    }
+
+    /** Retires the current generation if a budget is exhausted, expiring the oldest one. */
+    private void advance() {
+        if (generationNanos > 0) {
+            long elapsed = nanoClock.getAsLong() - generationStart;
+            if (elapsed >= generationNanos) {
+                // After a long pause several generations are due; G rotations expire them all
+                long steps = elapsed / generationNanos;
+                for (long i = 0; i < Math.min(steps, generations); i++) rotate();
+                generationStart += steps * generationNanos;
+            }
+        }
+        if (itemsPerGeneration > 0 && ring[current].getEstimatedCount() >= itemsPerGeneration) {
+            rotate();
+            generationStart = nanoClock.getAsLong();
+        }
+    }
+
+    private void rotate() {
+        clearSpare(Long.MAX_VALUE);
+        current = spare();
+        ring[current].recountSetBits();
+        // The oldest live generation is now the spare; it no longer answers queries
+        clearCursor = 0;
+        ring[spare()].itemCount = 0;
+        if (verbose) System.out.printf("Rotated: generation slot %d is now current%n", current);
+    }
+
+    private void clearSpare(long maxWords) {
+        BitStorage storage = ring[spare()].getStorage();
+        long end = Math.min(storage.wordCount(), clearCursor + Math.min(maxWords, storage.wordCount()));
+        for (long word = clearCursor; word < end; word++) storage.setWord(word, 0);
+        clearCursor = end;
+    }
+
+    // ------------------------------------------------------------
+    // Core operations
+    // ------------------------------------------------------------
+
+    @Override
+    public void add(T element) {
+        if (!verbose) {
+            super.add(element);
+            return;
+        }
+        // The bits must go to the current generation, not through the global bit hooks
+        long[] hash = new long[2];
+        hash(element, hash);
+        System.out.printf("Adding element: %s%n", element);
+        addHashed(hash[0], hash[1]);
+        countAdded();
+        System.out.printf(" → generation slot %d now holds %d elements%n", current,
+                ring[current].getEstimatedCount());
+    }
+
+    @Override
+    public boolean mightContain(T element) {
+        if (!verbose) return super.mightContain(element);
+        long[] hash = new long[2];
+        hash(element, hash);
+        System.out.printf("Checking membership for: %s%n", element);
+        advance();
+        for (int age = 0; age < generations; age++) {
+            int slot = Math.floorMod(current - age, ring.length);
+            boolean result = ring[slot].containsHashed(hash[0], hash[1]);
+            System.out.printf(" → generation age %d (slot %d): %s%n", age, slot, result);
+            if (result) return true;
+        }
+        System.out.println(" → Definitely NOT in the window.\n");
+        return false;
+    }
+
+    @Override
+    protected void addHashed(long hash1, long hash2) {
+        advance();
+        ring[current].addHashed(hash1, hash2);
+        if (clearCursor < ring[0].getStorage().wordCount()) clearSpare(clearWordsPerInsert);
+    }
+
+    @Override
+    protected void countAdded() {
+        ring[current].countAdded();
+    }
+
+    @Override
+    protected boolean containsHashed(long hash1, long hash2) {
+        if (generationNanos > 0) advance();
+        int slot = current;
+        for (int age = 0; age < generations; age++) {
+            if (ring[slot].containsHashed(hash1, hash2)) return true;
+            slot = slot == 0 ? ring.length - 1 : slot - 1;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the indices of an element in the current generation, offset by the live
+     * generations that are older, so that index {@code g * generationBits + i} is bit
+     * {@code i} of the generation of age {@code generations - 1 - g}.
+     */
+    @Override
+    protected long[] getHashIndices(T element) {
+        long[] indices = ring[current].getHashIndices(element);
+        long offset = (generations - 1) * generationBits;
+        for (int i = 0; i < indices.length; i++) indices[i] += offset;
+        return indices;
+    }
+
+    private ClassicBloomFilter<T> generationAt(long index) {
+        int age = generations - 1 - (int) (index / generationBits);
+        return ring[Math.floorMod(current - age, ring.length)];
+    }
+
+    @Override
+    protected void setBit(long index) {
+        generationAt(index).setBit(index % generationBits);
+    }
+
+    @Override
+    protected boolean getBit(long index) {
+        return generationAt(index).getBit(index % generationBits);
+    }
+
+    @Override
+    protected void clearBit(long index) {
+        generationAt(index).clearBit(index % generationBits);
+    }
+
+    /** Number of elements inserted into the live generations. */
+    @Override
+    public long getEstimatedCount() {
+        long count = 0;
+        for (int age = 0; age < generations; age++) {
+            count += ring[Math.floorMod(current - age, ring.length)].getEstimatedCount();
+        }
+        return count;
+    }
+
+    /** Returns the set bits of the live generations. */
+    @Override
+    public long getSetBitCount() {
+        long count = 0;
+        for (int age = 0; age < generations; age++) {
+            count += ring[Math.floorMod(current - age, ring.length)].getSetBitCount();
+        }
+        return count;
+    }
+
+    /**
+     * Sums the distinct-count estimates of the live generations; an element inserted in
+     * several generations is counted once per generation.
+     */
+    @Override
+    public double estimateDistinctCount() {
+        double count = 0;
+        for (int age = 0; age < generations; age++) {
+            count += ring[Math.floorMod(current - age, ring.length)].estimateDistinctCount();
+        }
+        return count;
+    }
+
+    /** Empties every generation; unlike rotation this clears all bits at once. */
+    @Override
+    public void clear() {
+        if (verbose) System.out.println("Clearing all generations...");
+        for (ClassicBloomFilter<T> generation : ring) generation.clear();
+        current = 0;
+        clearCursor = ring[0].getStorage().wordCount();
+        generationStart = nanoClock.getAsLong();
+        itemCount = 0;
+        if (verbose) System.out.println(" → Filter cleared.");
+    }
+
+    @Override
+    public void close() {
+        for (ClassicBloomFilter<T> generation : ring) generation.close();
+    }
+
+    /**
+     * A query is a false positive unless every live generation rejects it, so the rate is
+     * {@code 1 - Π(1 - fpr_g)} over the per-generation classic estimates.
+     */
+    @Override
+    public double estimateFalsePositiveRate() {
+        double allReject = 1;
+        for (int age = 0; age < generations; age++) {
+            allReject *= 1 - ring[Math.floorMod(current - age, ring.length)].estimateFalsePositiveRate();
+        }
+        double fpr = 1 - allReject;
+        if (verbose) System.out.printf("Estimating sliding-window FPR (generations=%d, n=%d) = %f%n",
+                generations, getEstimatedCount(), fpr);
+        return fpr;
+    }
+
+    // ------------------------------------------------------------
+    // Accessors for metadata / introspection
+    // ------------------------------------------------------------
+
+    /** Number of live generations. */
+    public int getGenerationCount() {
+        return generations;
+    }
+
+    /** Bits per generation. */
+    public long getGenerationBits() {
+        return generationBits;
+    }
+
+    /** Elements in the live generation of the given age; 0 is the current generation. */
+    public long getGenerationSize(int age) {
+        if (age < 0 || age >= generations) throw new IndexOutOfBoundsException("age " + age);
+        return ring[Math.floorMod(current - age, ring.length)].getEstimatedCount();
+    }
+
+    // ------------------------------------------------------------
+    // Serialization
+    // ------------------------------------------------------------
+
+    /**
+     * Layout: {@code [long generationBits][int k][long n][int generations]
+     * [long itemsPerGeneration][long generationNanos]}, then each live generation from oldest
+     * to newest as {@code [int length][classic bytes]}, then the hash strategy id. The age of
+     * the current generation is not saved; its time budget restarts on load.
+     */
+    @Override
+    public byte[] toBytes() {
+        if (verbose) System.out.println("Serializing SlidingWindowBloomFilter...");
+        byte[][] generationBytes = new byte[generations][];
+        long total = 8 + 4 + 8 + 4 + 8 + 8 + 4;
+        for (int age = generations - 1; age >= 0; age--) {
+            byte[] bytes = ring[Math.floorMod(current - age, ring.length)].toBytes();
+            generationBytes[generations - 1 - age] = bytes;
+            total += 4 + bytes.length;
+        }
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Filter too large to serialize into a byte array: " + total + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) total).order(ByteOrder.BIG_ENDIAN);
+        buffer.putLong(generationBits);
+        buffer.putInt(hashCount);
+        buffer.putLong(getEstimatedCount());
+        buffer.putInt(generations);
+        buffer.putLong(itemsPerGeneration);
+        buffer.putLong(generationNanos);
+        for (byte[] bytes : generationBytes) {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+        buffer.putInt(hashStrategy.id());
+        return buffer.array();
+    }
+
+    /** Replaces every generation; nothing changes unless all of them load. */
+    @Override
+    public void fromBytes(byte[] data) {
+        if (verbose) System.out.println("Deserializing SlidingWindowBloomFilter...");
+        if (data == null) throw new NullPointerException("data");
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.BIG_ENDIAN);
+        if (buffer.remaining() < 40) throw new IllegalArgumentException("Serialized data is too short");
+        long savedBits = buffer.getLong();
+        int savedHashes = buffer.getInt();
+        buffer.getLong(); // total count, recomputed from the generations
+        int savedGenerations = buffer.getInt();
+        long savedItems = buffer.getLong();
+        long savedNanos = buffer.getLong();
+        if (savedBits != generationBits || savedHashes != hashCount || savedGenerations != generations
+                || savedItems != itemsPerGeneration || savedNanos != generationNanos) {
+            throw new IllegalArgumentException("Serialized data does not match filter configuration");
+        }
+        byte[][] generationBytes = new byte[generations][];
+        for (int i = 0; i < generations; i++) {
+            int length = buffer.remaining() >= 4 ? buffer.getInt() : -1;
+            if (length < 0 || length > buffer.remaining()) {
+                throw new IllegalArgumentException("Invalid generation length: " + length);
+            }
+            generationBytes[i] = new byte[length];
+            buffer.get(generationBytes[i]);
+        }
+        checkHashStrategy(buffer);
+        List<ClassicBloomFilter<T>> loaded = new ArrayList<>(generations);
+        try {
+            for (byte[] bytes : generationBytes) {
+                ClassicBloomFilter<T> generation = new ClassicBloomFilter<>(generationBits, hashCount, keyEncoder,
+                        hashStrategy);
+                loaded.add(generation);
+                generation.fromBytes(bytes);
+            }
+        } catch (RuntimeException e) {
+            for (ClassicBloomFilter<T> generation : loaded) generation.close();
+            throw e;
+        }
+
+        // Oldest generation in slot 0, current in slot generations - 1, spare last; the old
+        // spare is kept as the new one
+        ClassicBloomFilter<T> spare = ring[spare()];
+        for (ClassicBloomFilter<T> generation : ring) {
+            if (generation != spare) generation.close();
+        }
+        for (int i = 0; i < generations; i++) ring[i] = loaded.get(i);
+        ring[generations] = spare;
+        spare.clear();
+        current = generations - 1;
+        clearCursor = ring[generations].getStorage().wordCount();
+        generationStart = nanoClock.getAsLong();
+        if (verbose) System.out.println(" → Deserialization complete.");
+    }
+}
@@ -0,0 +1,234 @@
+package com.bloomfilter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Split-block Bloom filter as used by Parquet and Impala. The bit array is divided into
+ * 256-bit blocks of eight 32-bit words; one hash word picks the block and the other is a
+ * 32-bit pattern that sets exactly one bit in each of the eight words, so k is always 8 and
+ * every operation touches one half cache line.
+ *
+ * <p>Inserts and probes run on a {@link SplitBlockKernel}: a Vector API kernel that handles a
+ * whole block in a few SIMD instructions when the JVM is started with
+ * {@code --add-modules jdk.incubator.vector} on a CPU with 256-bit vectors, and an
+ * equivalent scalar kernel otherwise. Batches from {@link #mightContainAll(List)} and
+ * {@link #addAll(Iterable)} are hashed as a whole and their block offsets resolved before any
+ * block is touched.
+ *
+ * <p>Serialization uses the classic header followed by the words in little-endian order, so
+ * files go through {@link FilterIO} like any other filter. The kernels report how many bits
+ * each insert set, so the set-bit count is maintained without rescanning the words.
+ *
+ * @param <T> the type of elements to be stored in the filter
+ */
+public class SplitBlockBloomFilter<T> extends AbstractBloomFilter<T> {
+
+    /** Bits per block. */
+    public static final int BLOCK_BITS = 256;
+
+    /** Bits set per element (one per word of the block). */
+    public static final int HASH_COUNT = 8;
+
+    private static final int BLOCK_WORDS = BLOCK_BITS / 32;
+
+    private final int[] words;
+    private final long blockCount;
+    private final SplitBlockKernel kernel;
+    private long setBits;
+
+    /**
+     * Creates a new SplitBlockBloomFilter with at least the given number of bits.
+     *
+     * @param bitArraySize minimum size of the bit array, rounded up to a multiple of 256
+     */
+    public SplitBlockBloomFilter(long bitArraySize) {
+        this(bitArraySize, KeyEncoders.defaultEncoder());
+    }
+
+    /**
+     * Creates a new SplitBlockBloomFilter that hashes elements with the given key encoder.
+     *
+     * @param bitArraySize minimum size of the bit array, rounded up to a multiple of 256
+     * @param keyEncoder turns elements into the bytes that are hashed
+     */
+    public SplitBlockBloomFilter(long bitArraySize, KeyEncoder<? super T> keyEncoder) {
+        this(bitArraySize, keyEncoder, StandardHashStrategy.MURMUR3_LEGACY);
+    }
+
+    /**
+     * Creates a new SplitBlockBloomFilter with an explicit key encoder and hash strategy. Only
+     * the strategy's hash function is used; bit positions are fixed by the block layout.
+     *
+     * @param bitArraySize minimum size of the bit array, rounded up to a multiple of 256
+     * @param keyEncoder turns elements into the bytes that are hashed
+     * @param hashStrategy hash function
+     */
+    public SplitBlockBloomFilter(long bitArraySize, KeyEncoder<? super T> keyEncoder, HashStrategy hashStrategy) {
+        this(bitArraySize, keyEncoder, hashStrategy, SplitBlockKernel.best());
+    }
+
+    SplitBlockBloomFilter(long bitArraySize, KeyEncoder<? super T> keyEncoder, HashStrategy hashStrategy,
+                          SplitBlockKernel kernel) {
+        super(roundToBlocks(bitArraySize), HASH_COUNT, keyEncoder, hashStrategy);
+        long wordCount = this.bitArraySize / 32;
+        if (wordCount > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("bitArraySize too large: " + bitArraySize);
+        }
+        this.words = new int[(int) wordCount];
+        this.blockCount = this.bitArraySize / BLOCK_BITS;
+        this.kernel = kernel;
+    }
+
+    private static long roundToBlocks(long bits) {
+        if (bits <= 0) throw new IllegalArgumentException("bitArraySize must be positive");
+        return (bits + BLOCK_BITS - 1) / BLOCK_BITS * BLOCK_BITS;
+    }
+
+    /** Number of 256-bit blocks. */
+    public long getBlockCount() {
+        return blockCount;
+    }
+
+    /** Returns whether inserts and probes use the SIMD kernel. */
+    public boolean isVectorized() {
+        return kernel.isVectorized();
+    }
+
+    private int blockOffset(long hash1) {
+        return (int) (HashUtils.reduce(hash1, blockCount) * BLOCK_WORDS);
+    }
+
+    @Override
+    protected void addHashed(long hash1, long hash2) {
+        setBits += kernel.insert(words, blockOffset(hash1), (int) hash2);
+    }
+
+    @Override
+    protected boolean containsHashed(long hash1, long hash2) {
+        return kernel.contains(words, blockOffset(hash1), (int) hash2);
+    }
+
+    @Override
+    protected void addHashedBatch(long[] hash1, long[] hash2, int size) {
+        int[] offsets = blockOffsets(hash1, size);
+        for (int i = 0; i < size; i++) {
+            setBits += kernel.insert(words, offsets[i], (int) hash2[i]);
+            countAdded();
+        }
+    }
+
+    /** Resolves every block offset first, keeping the arithmetic and memory-bound phases apart. */
+    @Override
+    protected void containsHashedBatch(long[] hash1, long[] hash2, int size, boolean[] results) {
+        int[] offsets = blockOffsets(hash1, size);
+        for (int i = 0; i < size; i++) {
+            results[i] = kernel.contains(words, offsets[i], (int) hash2[i]);
+        }
+    }
+
+    private int[] blockOffsets(long[] hash1, int size) {
+        int[] offsets = new int[size];
+        for (int i = 0; i < size; i++) offsets[i] = blockOffset(hash1[i]);
+        return offsets;
+    }
+
+    @Override
+    protected long[] getHashIndices(T element) {
+        long[] hash = new long[2];
+        hash(element, hash);
+        int offset = blockOffset(hash[0]);
+        int x = (int) hash[1];
+        long[] indices = new long[HASH_COUNT];
+        for (int i = 0; i < HASH_COUNT; i++) {
+            indices[i] = (long) (offset + i) * 32 + ((x * SplitBlockKernel.SALT[i]) >>> 27);
+        }
+        return indices;
+    }
+
+    @Override
+    protected void setBit(long index) {
+        if (!getBit(index)) setBits++;
+        words[(int) (index >>> 5)] |= 1 << index;
+    }
+
+    @Override
+    protected boolean getBit(long index) {
+        return (words[(int) (index >>> 5)] & (1 << index)) != 0;
+    }
+
+    @Override
+    protected void clearBit(long index) {
+        if (getBit(index)) setBits--;
+        words[(int) (index >>> 5)] &= ~(1 << index);
+    }
+
+    @Override
+    public long getSetBitCount() {
+        return setBits;
+    }
+
+    @Override
+    public void clear() {
+        if (verbose) System.out.println("Clearing all blocks...");
+        Arrays.fill(words, 0);
+        itemCount = 0;
+        setBits = 0;
+        if (verbose) System.out.println(" → Filter cleared.");
+    }
+
+    /**
+     * Estimates the false-positive rate of the split-block layout: a block holding {@code j}
+     * elements answers a random query positively with probability
+     * {@code (1 - (31/32)^j)^8}, averaged over the Poisson distribution of elements per block,
+     * with the number of elements estimated from the fill ratio.
+     */
+    @Override
+    public double estimateFalsePositiveRate() {
+        double n = estimateDistinctCount();
+        double fpr = Double.isInfinite(n) ? 1 : BlockedBloomFilter.averageOverBlocks(n / blockCount,
+                j -> Math.pow(1 - Math.pow(31.0 / 32.0, j), HASH_COUNT));
+        if (verbose) System.out.printf("Estimating split-block FPR (blocks=%d, n=%f) = %f%n", blockCount, n, fpr);
+        return fpr;
+    }
+
+    @Override
+    public byte[] toBytes() {
+        ClassicBloomFilter.Header header = new ClassicBloomFilter.Header(bitArraySize, HASH_COUNT,
+                getEstimatedCount(), (long) words.length * 4);
+        long total = header.length() + header.payloadLength + 4;
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Filter too large to serialize into a byte array: " + total + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) total).order(ByteOrder.BIG_ENDIAN);
+        header.write(buffer);
+        buffer.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().put(words);
+        buffer.position(buffer.position() + words.length * 4);
+        buffer.order(ByteOrder.BIG_ENDIAN).putInt(hashStrategy.id());
+        return buffer.array();
+    }
+
+    @Override
+    public void fromBytes(byte[] data) {
+        if (data == null) throw new NullPointerException("data");
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.BIG_ENDIAN);
+        ClassicBloomFilter.Header header = ClassicBloomFilter.Header.read(buffer);
+        if (header.bitArraySize != bitArraySize || header.hashCount != HASH_COUNT) {
+            throw new IllegalArgumentException("Serialized data does not match filter configuration");
+        }
+        if (header.payloadLength != (long) words.length * 4 || header.payloadLength > buffer.remaining()) {
+            throw new IllegalArgumentException("Serialized bit array length is invalid: " + header.payloadLength);
+        }
+        int payloadStart = buffer.position();
+        buffer.position(payloadStart + words.length * 4);
+        checkHashStrategy(buffer);
+        buffer.position(payloadStart);
+        buffer.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(words);
+        this.itemCount = header.itemCount;
+        long count = 0;
+        for (int word : words) count += Integer.bitCount(word);
+        this.setBits = count;
+    }
+}
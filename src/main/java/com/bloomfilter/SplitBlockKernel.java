@@ -0,0 +1,43 @@
+package com.bloomfilter;
+
+/**
+ * Insert and probe kernels of {@link SplitBlockBloomFilter}. A block is eight consecutive
+ * 32-bit words; a key's 32-bit pattern {@code x} sets one bit in each word, at position
+ * {@code (x * SALT[i]) >>> 27} of word {@code i}. The vector kernel is used when the
+ * {@code jdk.incubator.vector} module is present and the CPU has 256-bit vectors; otherwise
+ * the scalar kernel is used. Both produce identical bits.
+ */
+interface SplitBlockKernel {
+
+    /** Salt constants from the Parquet/Impala split-block Bloom filter specification. */
+    int[] SALT = {
+            0x47b6137b, 0x44974d91, 0x8824ad5b, 0xa2b7289d,
+            0x705495c7, 0x2df1424b, 0x9efc4947, 0x5c6bfb31
+    };
+
+    /**
+     * Sets the eight bits of {@code x} in the block starting at {@code offset}.
+     *
+     * @return the number of those bits that were previously clear
+     */
+    int insert(int[] words, int offset, int x);
+
+    /** Returns whether all eight bits of {@code x} are set in the block starting at {@code offset}. */
+    boolean contains(int[] words, int offset, int x);
+
+    /** Returns whether this kernel uses SIMD instructions. */
+    boolean isVectorized();
+
+    /** Returns the vector kernel if it can run on this JVM and CPU, else the scalar kernel. */
+    static SplitBlockKernel best() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (SplitBlockKernel) Class.forName("com.bloomfilter.VectorSplitBlockKernel")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+                // fall back to scalar code
+            }
+        }
+        return ScalarSplitBlockKernel.INSTANCE;
+    }
+}
@@ -0,0 +1,82 @@
+package com.bloomfilter;
+
+/**
+ * Built-in {@link HashStrategy} implementations.
+ *
+ * <p>{@link #MURMUR3_LEGACY} is the default and reproduces the original bit positions
+ * (MurmurHash3 with {@code (hash1 + i * hash2) mod m}), so existing {@code .bin} files stay
+ * readable. The other strategies use enhanced double hashing and multiply-shift reduction;
+ * {@link #XXH3} and {@link #WYHASH} are 64-bit functions whose second word is derived by
+ * remixing the first.
+ */
+public enum StandardHashStrategy implements HashStrategy {
+
+    /** MurmurHash3 x64_128 with classic double hashing and modulo reduction. */
+    MURMUR3_LEGACY(0) {
+        @Override
+        public void hash128(long key, long[] out) {
+            HashUtils.hash128(key, out);
+        }
+
+        @Override
+        public void hash128(int key, long[] out) {
+            HashUtils.hash128(key, out);
+        }
+
+        @Override
+        public long index(long hash1, long hash2, int i, long bitArraySize) {
+            return HashUtils.index(hash1, hash2, i, bitArraySize);
+        }
+    },
+
+    /** MurmurHash3 x64_128 with enhanced double hashing and multiply-shift reduction. */
+    MURMUR3(1) {
+        @Override
+        public void hash128(long key, long[] out) {
+            HashUtils.hash128(key, out);
+        }
+
+        @Override
+        public void hash128(int key, long[] out) {
+            HashUtils.hash128(key, out);
+        }
+    },
+
+    /** XXH3 64-bit. */
+    XXH3(2) {
+        @Override
+        public void hash128(byte[] data, int offset, int length, long[] out) {
+            spread(HashUtils.xxh3_64(data, offset, length), out);
+        }
+    },
+
+    /** wyhash (version 3) 64-bit. */
+    WYHASH(3) {
+        @Override
+        public void hash128(byte[] data, int offset, int length, long[] out) {
+            spread(HashUtils.wyhash(data, offset, length, 0), out);
+        }
+    };
+
+    private final int id;
+
+    StandardHashStrategy(int id) {
+        this.id = id;
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
+    @Override
+    public void hash128(byte[] data, int offset, int length, long[] out) {
+        HashUtils.hash128(data, offset, length, out);
+    }
+
+    /** Expands a 64-bit hash into two words by remixing it for the second one. */
+    private static void spread(long hash, long[] out) {
+        out[0] = hash;
+        out[1] = HashUtils.fmix64(hash ^ 0x9E3779B97F4A7C15L);
+    }
+}
@@ -0,0 +1,49 @@
+package com.bloomfilter;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link SplitBlockKernel} using the incubating Vector API: the eight masks of a key are
+ * computed with one 256-bit multiply and shift, and a block is updated or tested with one
+ * load, one bitwise operation and (for inserts) one store. Only loaded reflectively by
+ * {@link SplitBlockKernel#best()}, so the rest of the library runs without the module.
+ */
+final class VectorSplitBlockKernel implements SplitBlockKernel {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_256;
+    private static final IntVector SALT_VECTOR = IntVector.fromArray(SPECIES, SALT, 0);
+    private static final IntVector ONES = IntVector.broadcast(SPECIES, 1);
+
+    VectorSplitBlockKernel() {
+        if (IntVector.SPECIES_PREFERRED.vectorBitSize() < SPECIES.vectorBitSize()) {
+            throw new UnsupportedOperationException("256-bit vectors are not supported on this CPU");
+        }
+    }
+
+    private static IntVector masks(int x) {
+        IntVector shifts = IntVector.broadcast(SPECIES, x).mul(SALT_VECTOR).lanewise(VectorOperators.LSHR, 27);
+        return ONES.lanewise(VectorOperators.LSHL, shifts);
+    }
+
+    @Override
+    public int insert(int[] words, int offset, int x) {
+        IntVector masks = masks(x);
+        IntVector block = IntVector.fromArray(SPECIES, words, offset);
+        int alreadySet = block.and(masks).compare(VectorOperators.EQ, masks).trueCount();
+        block.or(masks).intoArray(words, offset);
+        return 8 - alreadySet;
+    }
+
+    @Override
+    public boolean contains(int[] words, int offset, int x) {
+        IntVector masks = masks(x);
+        return IntVector.fromArray(SPECIES, words, offset).and(masks).compare(VectorOperators.EQ, masks).allTrue();
+    }
+
+    @Override
+    public boolean isVectorized() {
+        return true;
+    }
+}
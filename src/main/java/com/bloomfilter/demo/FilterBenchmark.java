@@ -0,0 +1,126 @@
+package com.bloomfilter.demo;
+
+import com.bloomfilter.BlockedBloomFilter;
+import com.bloomfilter.ClassicBloomFilter;
+import com.bloomfilter.KeyEncoders;
+import com.bloomfilter.MembershipFilter;
+import com.bloomfilter.PartitionedBloomFilter;
+import com.bloomfilter.SplitBlockBloomFilter;
+import com.bloomfilter.StandardHashStrategy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+
+/**
+ * Throughput and accuracy benchmark for the filter variants on bit arrays far larger than
+ * the CPU caches. Every filter gets the same number of bits and hash functions; it is filled
+ * with {@code n = bits / bitsPerKey} distinct keys and then probed with {@code n} keys that are present and {@code n}
+ * that are absent, reporting nanoseconds per operation and the measured false-positive rate
+ * next to the filter's own estimate. Absent keys are also probed through
+ * {@link MembershipFilter#mightContainAll(List)} in batches of {@code [batch]} keys, which
+ * hashes a whole batch before touching memory.
+ *
+ * <p>Usage: {@code FilterBenchmark [megabytes] [bitsPerKey] [hashes] [batch]}, defaulting to
+ * 1024 MB of bits (about 859 million keys at 10 bits per key), 7 hashes and batches of 1024.
+ * Filters smaller than the last-level cache, a few tens of MB on current CPUs, measure cache
+ * rather than memory latency. Filters are built one at a time, so run with a heap somewhat
+ * above the filter size, e.g. {@code -Xmx3g} for the default, and with
+ * {@code --add-modules jdk.incubator.vector} to enable the SIMD kernel of the split-block
+ * filter (listed as {@code SplitBlock+} when it is active).
+ */
+public class FilterBenchmark {
+
+    private static final long KEY_MIX = 0x9E3779B97F4A7C15L;
+
+    private record Candidate(String name, LongFunction<MembershipFilter<Long>> factory) {
+    }
+
+    public static void main(String[] args) {
+        long megabytes = args.length > 0 ? Long.parseLong(args[0]) : 1024;
+        int bitsPerKey = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int hashes = args.length > 2 ? Integer.parseInt(args[2]) : 7;
+        int batch = args.length > 3 ? Integer.parseInt(args[3]) : 1024;
+        if (megabytes <= 0 || bitsPerKey <= 0) throw new IllegalArgumentException("megabytes and bitsPerKey must be positive");
+        long keyCount = (megabytes << 23) / bitsPerKey;
+        if (keyCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many keys for " + megabytes + " MB at " + bitsPerKey + " bits per key");
+        }
+        int keys = (int) keyCount;
+        long bits = (long) keys * bitsPerKey;
+
+        List<Candidate> candidates = candidates(hashes);
+
+        System.out.println("\n=======================================");
+        System.out.println(" FILTER BENCHMARK ");
+        System.out.println("=======================================");
+        System.out.printf("keys=%,d | bits=%,d (%.1f MB) | k=%d | batch=%d%n", keys, bits, bits / 8.0 / (1 << 20),
+                hashes, batch);
+
+        System.out.println("\nWarming up...");
+        for (Candidate candidate : candidates) {
+            run(candidate, keys / 20 + 1, (long) (keys / 20 + 1) * bitsPerKey, batch, false);
+        }
+
+        System.out.printf("%n%-14s %12s %12s %12s %12s %12s %12s%n",
+                "Filter", "add ns/op", "hit ns/op", "miss ns/op", "batch ns/op", "FPR", "est. FPR");
+        for (Candidate candidate : candidates) run(candidate, keys, bits, batch, true);
+        System.out.println();
+    }
+
+    /** Filters under test. */
+    private static List<Candidate> candidates(int hashes) {
+        List<Candidate> candidates = new ArrayList<>();
+        candidates.add(new Candidate("Classic", m -> new ClassicBloomFilter<>(m, hashes, KeyEncoders.longs(),
+                StandardHashStrategy.MURMUR3)));
+        candidates.add(new Candidate("Partitioned", m -> new PartitionedBloomFilter<>(64, (int) ((m + 63) / 64),
+                hashes, KeyEncoders.longs(), StandardHashStrategy.MURMUR3)));
+        candidates.add(new Candidate("Sliced", m -> PartitionedBloomFilter.sliced((int) ((m + hashes - 1) / hashes),
+                hashes, KeyEncoders.longs(), StandardHashStrategy.MURMUR3)));
+        candidates.add(new Candidate("Blocked", m -> new BlockedBloomFilter<>(m, hashes, KeyEncoders.longs(),
+                StandardHashStrategy.MURMUR3)));
+        // k is fixed at 8 for the split-block layout
+        boolean simd = new SplitBlockBloomFilter<Long>(SplitBlockBloomFilter.BLOCK_BITS).isVectorized();
+        candidates.add(new Candidate(simd ? "SplitBlock+" : "SplitBlock",
+                m -> new SplitBlockBloomFilter<>(m, KeyEncoders.longs(), StandardHashStrategy.MURMUR3)));
+        return candidates;
+    }
+
+    private static void run(Candidate candidate, int keys, long bits, int batch, boolean print) {
+        try (MembershipFilter<Long> filter = candidate.factory().apply(bits)) {
+            long start = System.nanoTime();
+            for (long i = 0; i < keys; i++) filter.add(i * KEY_MIX);
+            long addNanos = System.nanoTime() - start;
+
+            long hits = 0;
+            start = System.nanoTime();
+            for (long i = 0; i < keys; i++) if (filter.mightContain(i * KEY_MIX)) hits++;
+            long hitNanos = System.nanoTime() - start;
+
+            long falsePositives = 0;
+            start = System.nanoTime();
+            for (long i = keys; i < 2L * keys; i++) if (filter.mightContain(i * KEY_MIX)) falsePositives++;
+            long missNanos = System.nanoTime() - start;
+
+            // Boxing the chunk is part of the timing, as it is for the single-key probes
+            List<Long> chunk = new ArrayList<>(batch);
+            long batchPositives = 0;
+            start = System.nanoTime();
+            for (long i = keys; i < 2L * keys; i += batch) {
+                chunk.clear();
+                for (long j = i; j < Math.min(i + batch, 2L * keys); j++) chunk.add(j * KEY_MIX);
+                for (boolean result : filter.mightContainAll(chunk)) if (result) batchPositives++;
+            }
+            long batchNanos = System.nanoTime() - start;
+            if (batchPositives != falsePositives) throw new IllegalStateException(candidate.name() + " batch probe disagrees");
+
+            if (hits != keys) throw new IllegalStateException(candidate.name() + " produced false negatives");
+            if (print) {
+                System.out.printf("%-14s %12.1f %12.1f %12.1f %12.1f %12.5f %12.5f%n", candidate.name(),
+                        (double) addNanos / keys, (double) hitNanos / keys, (double) missNanos / keys,
+                        (double) batchNanos / keys,
+                        (double) falsePositives / keys, filter.estimateFalsePositiveRate());
+            }
+        }
+    }
+}
@@ -5,14 +5,12 @@ import com.bloomfilter.*;
 import java.io.File;
 
 import java.io.IOException;
-
-import java.util.BitSet;
 import java.util.Scanner;
 
 /**
  * Interactive console demo for learning Bloom filters.
  * Commands:
- * mode classic|counting|partitioned
+ * mode classic|counting|partitioned|sliced|scalable|cuckoo|window
  * add <word>
  * check <word>
  * remove <word>
@@ -58,7 +56,12 @@ public class InteractiveBloomDemo {
                         System.out.println("Usage: add <word>");
                         break;
                     }
-                    filter.add(arg);
+                    try {
+                        filter.add(arg);
+                    } catch (UnsupportedOperationException | IllegalStateException e) {
+                        System.out.println(red(e.getMessage()));
+                        break;
+                    }
                     visualize();
                     break;
 
@@ -79,13 +82,11 @@ public class InteractiveBloomDemo {
                         System.out.println("Usage: remove <word>");
                         break;
                     }
-                    if (filter instanceof CountingBloomFilter<?> cf) {
-                        @SuppressWarnings("unchecked")
-                        CountingBloomFilter<String> countFilter = (CountingBloomFilter<String>) cf;
-                        countFilter.remove(arg);
+                    if (filter instanceof CountingBloomFilter<?> || filter instanceof CuckooFilter<?>) {
+                        filter.remove(arg);
                         visualize();
                     } else {
-                        System.out.println("Removal only supported in 'counting' mode.");
+                        System.out.println("Removal only supported in 'counting' and 'cuckoo' modes.");
                     }
                     break;
 
@@ -172,11 +173,8 @@ public class InteractiveBloomDemo {
                         break;
                     }
                     try {
-                        var words = FilterIO.loadWordList(arg);
-                        System.out.println(green(String.format("Loaded %d words from %s", words.size(), arg)));
-                        for (String w : words) {
-                            filter.add(w);
-                        }
+                        var stats = FilterIO.ingestWordList(filter, arg);
+                        System.out.println(green(String.format("Loaded %d words from %s", stats.words(), arg)));
                         visualize();
                     } catch (IOException e) {
                         System.out.println(red("Error loading list: " + e.getMessage()));
@@ -227,6 +225,34 @@ public class InteractiveBloomDemo {
                     }
                     break;
 
+                case "ingestfuse":
+                    String[] fuseArgs = arg == null ? new String[0] : arg.split("\\s+");
+                    if (fuseArgs.length < 2) {
+                        System.out.println(red("Usage: ingestfuse <input.txt> <outputDir>"));
+                        break;
+                    }
+                    try {
+                        FilterIO.ingestListToFuseBinary(fuseArgs[0], fuseArgs[1]);
+                        System.out.println(green("Binary fuse filter saved to " + fuseArgs[1]));
+                    } catch (IOException e) {
+                        System.out.println(red("Error during ingestion: " + e.getMessage()));
+                    }
+                    break;
+
+                case "loadfuse":
+                    if (arg == null) {
+                        System.out.println(red("Usage: loadfuse <filename>"));
+                        break;
+                    }
+                    try {
+                        filter = FilterIO.loadFuseFilter(arg);
+                        mode = "fuse";
+                        System.out.println(green("Read-only binary fuse filter loaded; switched to fuse mode."));
+                    } catch (IOException e) {
+                        System.out.println(red("Error loading binary fuse filter: " + e.getMessage()));
+                    }
+                    break;
+
                 case "help":
                     printHelp();
                     break;
@@ -249,8 +275,12 @@ public class InteractiveBloomDemo {
             case "classic" -> filter = new ClassicBloomFilter<>(64, 3);
             case "counting" -> filter = new CountingBloomFilter<>(64, 3);
             case "partitioned" -> filter = new PartitionedBloomFilter<>(4, 32, 3);
+            case "sliced" -> filter = PartitionedBloomFilter.sliced(32, 3);
+            case "scalable" -> filter = new ScalableBloomFilter<>(8, 0.05);
+            case "cuckoo" -> filter = new CuckooFilter<>(16, 8);
+            case "window" -> filter = new SlidingWindowBloomFilter<>(64, 3, 3, 8);
             default -> {
-                System.out.println("Unknown mode. Options: classic, counting, partitioned");
+                System.out.println("Unknown mode. Options: classic, counting, partitioned, sliced, scalable, cuckoo, window");
                 return;
             }
         }
@@ -264,8 +294,9 @@ public class InteractiveBloomDemo {
             System.out.println("No info available.");
             return;
         }
-        System.out.printf("Mode: %s | Elements added: %d | Est. FPR: %.6f%n",
-                mode, af.getEstimatedCount(), af.estimateFalsePositiveRate());
+        System.out.printf("Mode: %s | Elements added: %d | Est. distinct: %.1f | Fill: %.4f | Est. FPR: %.6f%n",
+                mode, af.getEstimatedCount(), af.estimateDistinctCount(), af.getFillRatio(),
+                af.estimateFalsePositiveRate());
     }
 
     private static void printHelp() {
@@ -273,9 +304,9 @@ public class InteractiveBloomDemo {
                 Commands:
                   add <word>             – insert element
                   check <word>           – test membership
-                  remove <word>          – remove (only in counting mode)
+                  remove <word>          – remove (counting and cuckoo modes)
                   clear                  – reset filter
-                  mode <type>            – switch between classic|counting|partitioned
+                  mode <type>            – switch between classic|counting|partitioned|sliced|scalable|cuckoo|window
                   info                   – show current statistics
                   save <filename>        – save current filter to file
                   load <filename>        – load saved filter from file
@@ -283,6 +314,8 @@ public class InteractiveBloomDemo {
                   loadmeta <file>        – inspect metadata header only
                   loadlist <file>        – load a plain-text word list
                   ingestlist <txt> <bin> – convert plain list to standardized binary filter
+                  ingestfuse <txt> <dir> – convert plain list to a static binary fuse filter
+                  loadfuse <file>        – load a saved binary fuse filter (read-only)
                   crossload <file>       – repopulate this mode from a word list
                   help                   – show this list
                   exit                   – quit the demo
@@ -304,19 +337,13 @@ public class InteractiveBloomDemo {
     }
 
     private static void visualizeClassic(ClassicBloomFilter<?> f) {
-        try {
-            var bitsetField = ClassicBloomFilter.class.getDeclaredField("bitSet");
-            bitsetField.setAccessible(true);
-            BitSet bits = (BitSet) bitsetField.get(f);
-            int size = f.getBitArraySize();
-            System.out.print("Bits: ");
-            for (int i = 0; i < size; i++) {
-                System.out.print(bits.get(i) ? "█" : "·");
-            }
-            System.out.println();
-        } catch (Exception e) {
-            System.out.println("[Visualization unavailable]");
+        BitStorage bits = f.getStorage();
+        long size = f.getBitArraySize();
+        System.out.print("Bits: ");
+        for (long i = 0; i < size; i++) {
+            System.out.print(bits.get(i) ? "█" : "·");
         }
+        System.out.println();
     }
 
     private static void visualizeCounting(CountingBloomFilter<?> f) {
@@ -337,23 +364,14 @@ public class InteractiveBloomDemo {
     }
 
     private static void visualizePartitioned(PartitionedBloomFilter<?> f) {
-        try {
-            var partsField = PartitionedBloomFilter.class.getDeclaredField("partitions");
-            partsField.setAccessible(true);
-            Object[] parts = (Object[]) partsField.get(f);
-            System.out.println("Partitions:");
-            for (int i = 0; i < parts.length; i++) {
-                var bitsetField = ClassicBloomFilter.class.getDeclaredField("bitSet");
-                bitsetField.setAccessible(true);
-                BitSet bits = (BitSet) bitsetField.get(parts[i]);
-                System.out.printf("  P%d: ", i);
-                for (int j = 0; j < bits.length(); j++) {
-                    System.out.print(bits.get(j) ? "█" : "·");
-                }
-                System.out.println();
+        System.out.println("Partitions:");
+        for (int i = 0; i < f.getPartitionCount(); i++) {
+            BitStorage bits = f.getPartitionStorage(i);
+            System.out.printf("  P%d: ", i);
+            for (int j = 0; j < f.getPartitionSize(); j++) {
+                System.out.print(bits.get(j) ? "█" : "·");
             }
-        } catch (Exception e) {
-            System.out.println("[Visualization unavailable]");
+            System.out.println();
         }
     }
 }
@@ -0,0 +1,128 @@
+package com.bloomfilter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link BinaryFuseFilter}: every key must be found, the false-positive rate
+ * and space must match the 8-bit fuse filter, and ingested lists must load back read-only.
+ */
+class BinaryFuseFilterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static List<String> keys(String prefix, int n) {
+        List<String> keys = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) keys.add(prefix + i);
+        return keys;
+    }
+
+    @Test
+    @DisplayName("should find every key at about 9 bits per key and a 2^-8 false-positive rate")
+    void testMembershipSpaceAndFpr() {
+        List<String> in = keys("in-", 200_000);
+        BinaryFuseFilter<String> filter = new BinaryFuseFilter<>(in, KeyEncoders.defaultEncoder(),
+                StandardHashStrategy.XXH3);
+        for (String key : in) assertTrue(filter.mightContain(key), key);
+        assertTrue(filter.getBitsPerKey() < 9.6, "bits/key " + filter.getBitsPerKey());
+
+        int trials = 500_000;
+        int falsePositives = 0;
+        for (int i = 0; i < trials; i++) if (filter.mightContain("out-" + i)) falsePositives++;
+        double measured = (double) falsePositives / trials;
+        assertEquals(filter.estimateFalsePositiveRate(), measured, 0.001, "measured " + measured);
+    }
+
+    @Test
+    @DisplayName("duplicates, tiny and empty key sets should build")
+    void testEdgeCases() {
+        List<String> withDuplicates = new ArrayList<>(keys("d", 1000));
+        withDuplicates.addAll(keys("d", 500));
+        BinaryFuseFilter<String> filter = new BinaryFuseFilter<>(withDuplicates);
+        assertEquals(1000, filter.getEstimatedCount());
+        for (int i = 0; i < 1000; i++) assertTrue(filter.mightContain("d" + i));
+
+        BinaryFuseFilter<String> single = new BinaryFuseFilter<>(List.of("only"));
+        assertTrue(single.mightContain("only"));
+
+        BinaryFuseFilter<String> empty = new BinaryFuseFilter<>(List.of());
+        assertEquals(0, empty.estimateFalsePositiveRate());
+        assertFalse(empty.mightContain("anything"));
+    }
+
+    @Test
+    @DisplayName("should be immutable")
+    void testImmutable() {
+        BinaryFuseFilter<String> filter = new BinaryFuseFilter<>(keys("k", 10));
+        assertThrows(UnsupportedOperationException.class, () -> filter.add("x"));
+        assertThrows(UnsupportedOperationException.class, () -> filter.remove("k1"));
+        assertThrows(UnsupportedOperationException.class, filter::clear);
+    }
+
+    @Test
+    @DisplayName("verbose and fast lookups should agree")
+    void testVerboseLookup() {
+        BinaryFuseFilter<String> filter = new BinaryFuseFilter<>(keys("v", 50));
+        filter.setVerbose(true);
+        for (int i = 0; i < 50; i++) assertTrue(filter.mightContain("v" + i));
+        filter.setVerbose(false);
+        for (int i = 0; i < 200; i++) {
+            filter.setVerbose(true);
+            boolean verbose = filter.mightContain("w" + i);
+            filter.setVerbose(false);
+            assertEquals(filter.mightContain("w" + i), verbose);
+        }
+    }
+
+    @Test
+    @DisplayName("ingested lists should be saved as standardized binaries and load back read-only")
+    void testIngestAndLoad() throws IOException {
+        Path list = tempDir.resolve("blocklist.txt");
+        Files.write(list, List.of("# comment", "alpha", "beta", "", "gamma", "beta"));
+        Path out = tempDir.resolve("out");
+        BinaryFuseFilter<String> built = FilterIO.ingestListToFuseBinary(list.toString(), out.toString());
+        assertEquals(3, built.getEstimatedCount());
+
+        List<Path> files;
+        try (var stream = Files.list(out)) {
+            files = stream.toList();
+        }
+        assertEquals(1, files.size());
+        assertTrue(files.get(0).getFileName().toString().startsWith("blocklist_BinaryFuseFilter_"));
+
+        BinaryFuseFilter<String> loaded = FilterIO.loadFuseFilter(files.get(0).toString());
+        assertArrayEquals(built.toBytes(), loaded.toBytes());
+        for (String word : List.of("alpha", "beta", "gamma")) assertTrue(loaded.mightContain(word));
+        assertThrows(UnsupportedOperationException.class, () -> loaded.add("delta"));
+
+        // Same-shape filters also load through the generic path
+        BinaryFuseFilter<String> other = new BinaryFuseFilter<>(List.of("x", "y", "z"));
+        FilterIO.loadFromFile(other, files.get(0).toString());
+        assertTrue(other.mightContain("alpha"));
+    }
+
+    @Test
+    @DisplayName("the hash strategy should be restored from the file")
+    void testStrategyRestored() throws IOException {
+        BinaryFuseFilter<Long> filter = new BinaryFuseFilter<>(List.of(1L, 2L, 3L), KeyEncoders.longs(),
+                StandardHashStrategy.WYHASH);
+        String file = tempDir.resolve("longs.bin").toString();
+        FilterIO.saveToFile(filter, file);
+        BinaryFuseFilter<Long> loaded = FilterIO.loadFuseFilter(file, KeyEncoders.longs());
+        assertEquals(StandardHashStrategy.WYHASH, loaded.getHashStrategy());
+        assertTrue(loaded.mightContain(2L));
+
+        Files.write(Path.of(file), new byte[]{1, 2, 3});
+        assertThrows(IOException.class, () -> FilterIO.loadFuseFilter(file));
+    }
+}
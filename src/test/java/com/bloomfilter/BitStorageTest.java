@@ -0,0 +1,164 @@
+package com.bloomfilter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link BitStorage}: heap and off-heap storages must behave identically and
+ * filters over either must keep the existing serialized layout.
+ */
+class BitStorageTest {
+
+    @Test
+    @DisplayName("heap and off-heap storages should agree bit for bit")
+    void testHeapAndOffHeapAgree() {
+        try (BitStorage heap = BitStorage.heap(1000); BitStorage offHeap = BitStorage.offHeap(1000)) {
+            assertEquals(1000, offHeap.bitSize());
+            assertEquals(16, offHeap.wordCount());
+            Random random = new Random(7);
+            for (int i = 0; i < 300; i++) {
+                long bit = random.nextInt(1000);
+                assertEquals(heap.set(bit), offHeap.set(bit));
+            }
+            for (long bit = 0; bit < 1000; bit++) {
+                assertEquals(heap.get(bit), offHeap.get(bit));
+            }
+            assertEquals(heap.cardinality(), offHeap.cardinality());
+
+            offHeap.clear(heap.wordCount() * 64 - 64);
+            offHeap.clearAll();
+            assertEquals(0, offHeap.cardinality());
+        }
+    }
+
+    @Test
+    @DisplayName("off-heap storage should reject access after close")
+    void testClosedStorageRejectsAccess() {
+        BitStorage storage = BitStorage.offHeap(128);
+        storage.set(3);
+        storage.close();
+        assertThrows(IllegalStateException.class, () -> storage.get(3));
+        assertDoesNotThrow(storage::close);
+    }
+
+    @Test
+    @DisplayName("an off-heap filter should serialize exactly like a heap filter")
+    void testOffHeapFilterSerializesLikeHeap() {
+        ClassicBloomFilter<String> heap = new ClassicBloomFilter<>(1000, 3);
+        try (ClassicBloomFilter<String> offHeap = new ClassicBloomFilter<>(BitStorage.offHeap(1000), 3)) {
+            for (int i = 0; i < 100; i++) {
+                heap.add("item-" + i);
+                offHeap.add("item-" + i);
+            }
+            assertArrayEquals(heap.toBytes(), offHeap.toBytes());
+
+            ClassicBloomFilter<String> copy = new ClassicBloomFilter<>(BitStorage.offHeap(1000), 3);
+            copy.fromBytes(heap.toBytes());
+            for (int i = 0; i < 100; i++) {
+                assertTrue(copy.mightContain("item-" + i));
+            }
+            copy.close();
+        }
+    }
+
+    @Test
+    @DisplayName("the bit payload should match BitSet.toByteArray")
+    void testPayloadMatchesBitSetLayout() {
+        ClassicBloomFilter<String> filter = new ClassicBloomFilter<>(500, 4);
+        BitSet expected = new BitSet(500);
+        for (int i = 0; i < 40; i++) {
+            String key = "k" + i;
+            filter.add(key);
+            for (int index : HashUtils.generateIndices(HashUtils.hash128(key), 4, 500)) expected.set(index);
+        }
+        byte[] bytes = expected.toByteArray();
+        byte[] data = filter.toBytes();
+        int payloadLength = ByteBuffer.wrap(data, 16, 4).getInt();
+        assertEquals(bytes.length, payloadLength);
+        for (int i = 0; i < bytes.length; i++) {
+            assertEquals(bytes[i], data[20 + i], "byte " + i);
+        }
+    }
+
+    @Test
+    @DisplayName("saved filters from earlier releases should still load")
+    void testLoadsExistingFile() throws IOException {
+        byte[] data = Files.readAllBytes(Path.of("filters/fruit_ClassicBloomFilter_m64_k3_v20251028205146.bin"));
+        try (ClassicBloomFilter<String> filter = new ClassicBloomFilter<>(BitStorage.offHeap(64), 3)) {
+            filter.fromBytes(data);
+            assertTrue(filter.mightContain("apple"));
+        }
+    }
+
+    /** Word map standing in for a storage too large to allocate in a test. */
+    private static final class SparseBitStorage implements BitStorage {
+        private final long bitSize;
+        private final Map<Long, Long> words = new HashMap<>();
+
+        SparseBitStorage(long bitSize) {
+            this.bitSize = bitSize;
+        }
+
+        @Override
+        public long bitSize() {
+            return bitSize;
+        }
+
+        @Override
+        public long getWord(long wordIndex) {
+            return words.getOrDefault(wordIndex, 0L);
+        }
+
+        @Override
+        public void setWord(long wordIndex, long value) {
+            words.put(wordIndex, value);
+        }
+    }
+
+    @Test
+    @DisplayName("a filter should address bits beyond Integer.MAX_VALUE")
+    void testAddressesBeyondIntRange() {
+        long m = 3L << 32;
+        for (HashStrategy strategy : StandardHashStrategy.values()) {
+            ClassicBloomFilter<String> filter = new ClassicBloomFilter<>(new SparseBitStorage(m), 5,
+                    KeyEncoders.defaultEncoder(), strategy);
+            assertEquals(m, filter.getBitArraySize());
+            long maxIndex = 0;
+            for (int i = 0; i < 1000; i++) {
+                filter.add("key-" + i);
+                for (long index : filter.getHashIndices("key-" + i)) maxIndex = Math.max(maxIndex, index);
+            }
+            assertTrue(maxIndex > Integer.MAX_VALUE && maxIndex < m, strategy + " max index " + maxIndex);
+            for (int i = 0; i < 1000; i++) assertTrue(filter.mightContain("key-" + i));
+        }
+    }
+
+    @Test
+    @DisplayName("headers should use the original layout when m fits in an int and the wide one otherwise")
+    void testHeaderLayouts() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        new ClassicBloomFilter.Header(1000, 3, 7, 125).write(buffer);
+        assertEquals(ClassicBloomFilter.Header.LENGTH, buffer.position());
+        assertEquals(1000, buffer.getInt(0));
+
+        buffer.clear();
+        new ClassicBloomFilter.Header(5L << 32, 4, 1L << 40, 9).write(buffer);
+        assertEquals(ClassicBloomFilter.Header.WIDE_LENGTH, buffer.position());
+        ClassicBloomFilter.Header read = ClassicBloomFilter.Header.read(buffer.flip());
+        assertEquals(5L << 32, read.bitArraySize);
+        assertEquals(4, read.hashCount);
+        assertEquals(1L << 40, read.itemCount);
+        assertEquals(9, read.payloadLength);
+    }
+}
@@ -0,0 +1,72 @@
+package com.bloomfilter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link BlockedBloomFilter}: all probes of an element must fall in one
+ * 512-bit block, and the corrected FPR estimate must track the measured rate.
+ */
+class BlockedBloomFilterTest {
+
+    @Test
+    @DisplayName("all k bits of an element should fall inside a single block")
+    void testProbesStayInOneBlock() {
+        BlockedBloomFilter<String> filter = new BlockedBloomFilter<>(100_000, 8);
+        assertEquals(0, filter.getBitArraySize() % BlockedBloomFilter.BLOCK_BITS);
+        assertTrue(filter.getBitArraySize() >= 100_000);
+        for (int i = 0; i < 1000; i++) {
+            long[] indices = filter.getHashIndices("key-" + i);
+            long block = indices[0] / BlockedBloomFilter.BLOCK_BITS;
+            for (long index : indices) assertEquals(block, index / BlockedBloomFilter.BLOCK_BITS);
+        }
+    }
+
+    @Test
+    @DisplayName("verbose and fast paths should set the same bits")
+    void testVerboseAndFastPathsAgree() {
+        BlockedBloomFilter<String> fast = new BlockedBloomFilter<>(4096, 5);
+        BlockedBloomFilter<String> verbose = new BlockedBloomFilter<>(4096, 5);
+        verbose.setVerbose(true);
+        for (int i = 0; i < 20; i++) {
+            fast.add("e" + i);
+            verbose.add("e" + i);
+        }
+        assertArrayEquals(fast.toBytes(), verbose.toBytes());
+    }
+
+    @Test
+    @DisplayName("measured FPR should match the blocked estimate, which exceeds the classic one")
+    void testFalsePositiveRateEstimate() {
+        int n = 50_000;
+        for (HashStrategy strategy : new HashStrategy[]{StandardHashStrategy.MURMUR3_LEGACY, StandardHashStrategy.XXH3}) {
+            BlockedBloomFilter<String> filter = new BlockedBloomFilter<>(n * 10L, 7, KeyEncoders.defaultEncoder(),
+                    strategy);
+            for (int i = 0; i < n; i++) filter.add("in-" + i);
+            for (int i = 0; i < n; i++) assertTrue(filter.mightContain("in-" + i));
+
+            int trials = 200_000;
+            int falsePositives = 0;
+            for (int i = 0; i < trials; i++) if (filter.mightContain("out-" + i)) falsePositives++;
+            double measured = (double) falsePositives / trials;
+            double estimate = filter.estimateFalsePositiveRate();
+            double classic = Math.pow(1 - Math.exp(-7.0 * n / filter.getBitArraySize()), 7);
+
+            assertTrue(estimate > classic, "blocked estimate should exceed the classic formula");
+            assertEquals(estimate, measured, estimate * 0.25, strategy + ": measured " + measured);
+        }
+    }
+
+    @Test
+    @DisplayName("serialization should round trip")
+    void testRoundTrip() {
+        BlockedBloomFilter<String> filter = new BlockedBloomFilter<>(10_000, 4);
+        for (int i = 0; i < 500; i++) filter.add("x" + i);
+        BlockedBloomFilter<String> copy = new BlockedBloomFilter<>(10_000, 4);
+        copy.fromBytes(filter.toBytes());
+        for (int i = 0; i < 500; i++) assertTrue(copy.mightContain("x" + i));
+        assertEquals(500, copy.getEstimatedCount());
+    }
+}
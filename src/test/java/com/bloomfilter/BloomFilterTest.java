@@ -1,6 +1,9 @@
 package com.bloomfilter;
 
 import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -73,4 +76,48 @@ public class BloomFilterTest {
         assertTrue(copy.mightContain("gamma"));
         assertEquals(filter.getEstimatedCount(), copy.getEstimatedCount());
     }
+
+    /**
+     * Verify that the non-verbose add and query paths of every filter type
+     * allocate nothing per operation once warmed up. Allocation is measured
+     * with the per-thread allocation counter of the HotSpot thread MX bean;
+     * the best of several rounds is taken so one-off JIT bookkeeping does not
+     * count against the filter.
+     */
+    @Test
+    public void testNoAllocationPerOperation() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        String[] keys = new String[256];
+        for (int i = 0; i < keys.length; i++) keys[i] = "key-" + i + "-\u00e9\u6f22";
+
+        AbstractBloomFilter<?>[] filters = {
+                new ClassicBloomFilter<String>(4096, 5),
+                new CountingBloomFilter<String>(4096, 5),
+                new PartitionedBloomFilter<String>(4, 1024, 5)
+        };
+        for (AbstractBloomFilter<?> raw : filters) {
+            @SuppressWarnings("unchecked")
+            AbstractBloomFilter<String> filter = (AbstractBloomFilter<String>) raw;
+            exercise(filter, keys, 20_000); // warm up thread-local scratch and JIT
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < 5 && best > 0; round++) {
+                threads.getCurrentThreadAllocatedBytes();
+                long before = threads.getCurrentThreadAllocatedBytes();
+                assertEquals(100_000, exercise(filter, keys, 100_000));
+                best = Math.min(best, threads.getCurrentThreadAllocatedBytes() - before);
+            }
+            assertEquals(0, best, filter.getClass().getSimpleName() + " allocated " + best + " bytes");
+        }
+    }
+
+    private static int exercise(AbstractBloomFilter<String> filter, String[] keys, int ops) {
+        int hits = 0;
+        for (int i = 0; i < ops; i++) {
+            String key = keys[i & (keys.length - 1)];
+            filter.add(key);
+            if (filter.mightContain(key)) hits++;
+        }
+        return hits;
+    }
 }
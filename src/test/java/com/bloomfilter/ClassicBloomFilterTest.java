@@ -1,7 +1,26 @@
 package com.bloomfilter;
 
+import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link ClassicBloomFilter}: a visual walk-through of add, query and
+ * serialization, streaming serialization over channels, the fill-ratio based cardinality
+ * and false-positive estimates, and the set algebra between compatible filters.
+ */
 class ClassicBloomFilterTest {
 
     @Test
@@ -33,4 +52,178 @@ class ClassicBloomFilterTest {
         System.out.println("\n--- False-Positive Rate ---");
         System.out.printf("Estimated FPR: %.6f%n", filter.estimateFalsePositiveRate());
     }
+
+    @Test
+    @DisplayName("fill-based estimates should ignore duplicate inserts")
+    void testFillRatioEstimates() {
+        ClassicBloomFilter<String> filter = new ClassicBloomFilter<>(100_000, 5, KeyEncoders.defaultEncoder(),
+                StandardHashStrategy.MURMUR3);
+        for (int round = 0; round < 4; round++) {
+            for (int i = 0; i < 8_000; i++) filter.add("k" + i);
+        }
+        assertEquals(32_000, filter.getEstimatedCount());
+        assertEquals(filter.getStorage().cardinality(), filter.getSetBitCount());
+        assertEquals((double) filter.getSetBitCount() / 100_000, filter.getFillRatio());
+        assertEquals(8_000, filter.estimateDistinctCount(), 8_000 * 0.03);
+
+        int trials = 200_000;
+        int falsePositives = 0;
+        for (int i = 0; i < trials; i++) if (filter.mightContain("absent-" + i)) falsePositives++;
+        double measured = (double) falsePositives / trials;
+        assertEquals(filter.estimateFalsePositiveRate(), measured, measured * 0.2, "measured " + measured);
+
+        ClassicBloomFilter<String> copy = new ClassicBloomFilter<>(100_000, 5, KeyEncoders.defaultEncoder(),
+                StandardHashStrategy.MURMUR3);
+        copy.fromBytes(filter.toBytes());
+        assertEquals(filter.getSetBitCount(), copy.getSetBitCount());
+        copy.add("one more");
+        assertEquals(copy.getStorage().cardinality(), copy.getSetBitCount());
+
+        filter.clear();
+        assertEquals(0, filter.getSetBitCount());
+        assertEquals(0, filter.estimateDistinctCount());
+        assertEquals(0, filter.estimateFalsePositiveRate());
+    }
+
+    @Test
+    @DisplayName("a saturated filter should report an unbounded distinct count")
+    void testSaturatedFilter() {
+        ClassicBloomFilter<Integer> filter = new ClassicBloomFilter<>(64, 3, KeyEncoders.integers());
+        for (int i = 0; i < 10_000; i++) filter.add(i);
+        assertEquals(1.0, filter.getFillRatio());
+        assertEquals(Double.POSITIVE_INFINITY, filter.estimateDistinctCount());
+        assertEquals(1.0, filter.estimateFalsePositiveRate());
+    }
+
+    private static ClassicBloomFilter<String> filterOf(long bits, int from, int to) {
+        ClassicBloomFilter<String> filter = new ClassicBloomFilter<>(bits, 5, KeyEncoders.defaultEncoder(),
+                StandardHashStrategy.MURMUR3);
+        for (int i = from; i < to; i++) filter.add("k" + i);
+        return filter;
+    }
+
+    private static void assertSameBits(ClassicBloomFilter<?> expected, ClassicBloomFilter<?> actual) {
+        BitStorage e = expected.getStorage();
+        BitStorage a = actual.getStorage();
+        assertEquals(e.wordCount(), a.wordCount());
+        for (long w = 0; w < e.wordCount(); w++) assertEquals(e.getWord(w), a.getWord(w), "word " + w);
+    }
+
+    @Test
+    @DisplayName("union and intersection should match filters built from the combined inputs")
+    void testUnionAndIntersection() {
+        // Large enough to take the fork-join path
+        long bits = 16L << 20;
+        ClassicBloomFilter<String> a = filterOf(bits, 0, 600_000);
+        ClassicBloomFilter<String> b = filterOf(bits, 400_000, 1_000_000);
+
+        ClassicBloomFilter<String> union = a.union(b);
+        assertSameBits(filterOf(bits, 0, 1_000_000), union);
+        assertEquals(1_200_000, union.getEstimatedCount());
+        assertEquals(union.getStorage().cardinality(), union.getSetBitCount());
+
+        ClassicBloomFilter<String> intersection = a.intersect(b);
+        for (int i = 400_000; i < 600_000; i += 97) assertTrue(intersection.mightContain("k" + i));
+        assertEquals(600_000, intersection.getEstimatedCount());
+        assertEquals(intersection.getStorage().cardinality(), intersection.getSetBitCount());
+
+        // The inputs are left untouched, and the in-place variants agree with the copies
+        assertSameBits(filterOf(bits, 0, 600_000), a);
+        assertEquals(600_000, a.getEstimatedCount());
+        a.unionWith(b);
+        assertArrayEquals(union.toBytes(), a.toBytes());
+    }
+
+    @Test
+    @DisplayName("union, intersection and Jaccard estimates should track the true set sizes")
+    void testSimilarityEstimates() {
+        ClassicBloomFilter<String> a = filterOf(200_000, 0, 10_000);
+        ClassicBloomFilter<String> b = filterOf(200_000, 5_000, 15_000);
+        assertEquals(15_000, a.estimateUnionSize(b), 15_000 * 0.03);
+        assertEquals(5_000, a.estimateIntersectionSize(b), 5_000 * 0.1);
+        assertEquals(1.0 / 3, a.estimateJaccardSimilarity(b), 0.03);
+        assertEquals(1.0, a.estimateJaccardSimilarity(a), 1e-9);
+        assertEquals(0, a.estimateJaccardSimilarity(filterOf(200_000, 20_000, 30_000)), 0.03);
+        assertEquals(1.0, filterOf(1_000, 0, 0).estimateJaccardSimilarity(filterOf(1_000, 0, 0)));
+    }
+
+    @Test
+    @DisplayName("set operations should reject incompatible filters and keep subclass types")
+    void testCompatibility() {
+        ClassicBloomFilter<String> a = filterOf(10_000, 0, 100);
+        assertThrows(IllegalArgumentException.class, () -> a.unionWith(filterOf(10_048, 0, 100)));
+        assertThrows(IllegalArgumentException.class, () -> a.intersect(new ClassicBloomFilter<>(10_000, 5)));
+        assertThrows(IllegalArgumentException.class,
+                () -> a.union(new BlockedBloomFilter<>(10_240, 5, KeyEncoders.defaultEncoder(),
+                        StandardHashStrategy.MURMUR3)));
+        assertThrows(NullPointerException.class, () -> a.estimateUnionSize(null));
+
+        BlockedBloomFilter<String> blocked = new BlockedBloomFilter<>(10_240, 5);
+        blocked.add("x");
+        ClassicBloomFilter<String> copy = blocked.copy();
+        assertInstanceOf(BlockedBloomFilter.class, copy);
+        assertTrue(copy.mightContain("x"));
+        assertInstanceOf(IntBloomFilter.class, new IntBloomFilter(1_000, 3).copy());
+        assertInstanceOf(ConcurrentBloomFilter.class, new ConcurrentBloomFilter<String>(1_000, 3).copy());
+    }
+
+    @Test
+    @DisplayName("writeTo should stream toBytes through several staging chunks and readFrom should restore it")
+    void testChannelSerialization() throws IOException {
+        // 20M + 5 bits: a 2.5 MB payload over several 1 MB chunks, ending in a partial word
+        long bits = 20_000_005;
+        ClassicBloomFilter<String> filter = filterOf(bits, 0, 200_000);
+        filter.add("k-last");
+        Path file = Files.createTempFile("classic", ".bin");
+        try {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                filter.writeTo(channel);
+            }
+            assertArrayEquals(filter.toBytes(), Files.readAllBytes(file));
+
+            try (ClassicBloomFilter<String> copy = new ClassicBloomFilter<>(BitStorage.offHeap(bits), 5,
+                    KeyEncoders.defaultEncoder(), StandardHashStrategy.MURMUR3);
+                 FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                copy.readFrom(channel);
+                assertSameBits(filter, copy);
+                assertEquals(filter.getEstimatedCount(), copy.getEstimatedCount());
+                assertEquals(filter.getSetBitCount(), copy.getSetBitCount());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    @DisplayName("readFrom should reject mismatched data and accept files without a strategy trailer")
+    void testChannelReadFailures() throws IOException {
+        ClassicBloomFilter<String> source = filterOf(10_000, 0, 500);
+        byte[] data = source.toBytes();
+
+        ClassicBloomFilter<String> other = filterOf(10_048, 0, 10);
+        assertThrows(IllegalArgumentException.class, () -> other.readFrom(channelOf(data)));
+        assertEquals(10, other.getEstimatedCount());
+
+        // The strategy follows the bits, so a mismatch is only seen after they were read
+        ClassicBloomFilter<String> legacy = new ClassicBloomFilter<>(10_000, 5);
+        legacy.add("x");
+        assertThrows(IllegalArgumentException.class, () -> legacy.readFrom(channelOf(data)));
+        assertEquals(0, legacy.getSetBitCount());
+        assertFalse(legacy.mightContain("x"));
+
+        ClassicBloomFilter<String> truncated = filterOf(10_000, 0, 10);
+        assertThrows(EOFException.class, () -> truncated.readFrom(channelOf(Arrays.copyOf(data, data.length - 40))));
+        assertEquals(0, truncated.getEstimatedCount());
+
+        ClassicBloomFilter<String> old = new ClassicBloomFilter<>(10_000, 5);
+        old.add("y");
+        byte[] withoutTrailer = Arrays.copyOf(old.toBytes(), old.toBytes().length - 4);
+        ClassicBloomFilter<String> restored = new ClassicBloomFilter<>(10_000, 5);
+        restored.readFrom(channelOf(withoutTrailer));
+        assertTrue(restored.mightContain("y"));
+    }
+
+    private static ReadableByteChannel channelOf(byte[] data) {
+        return Channels.newChannel(new ByteArrayInputStream(data));
+    }
 }
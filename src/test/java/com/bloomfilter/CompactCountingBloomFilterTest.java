@@ -0,0 +1,119 @@
+package com.bloomfilter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link CompactCountingBloomFilter}: packed counters must behave like the
+ * int counters of {@link CountingBloomFilter} below 15 and handle overflow safely above it.
+ */
+class CompactCountingBloomFilterTest {
+
+    @Test
+    @DisplayName("packed counters should match CountingBloomFilter through adds and removes")
+    void testMatchesCountingFilter() {
+        CompactCountingBloomFilter<String> compact = new CompactCountingBloomFilter<>(2000, 4);
+        CountingBloomFilter<String> counting = new CountingBloomFilter<>(2000, 4);
+        for (int i = 0; i < 300; i++) {
+            compact.add("k" + i);
+            counting.add("k" + i);
+        }
+        for (int i = 0; i < 300; i += 3) {
+            compact.remove("k" + i);
+            counting.remove("k" + i);
+        }
+        for (int i = 0; i < 300; i++) {
+            assertEquals(counting.mightContain("k" + i), compact.mightContain("k" + i));
+            if (i % 3 != 0) assertTrue(compact.mightContain("k" + i));
+        }
+        for (long index : counting.getHashIndices("k1")) {
+            assertTrue(compact.getCounter(index) > 0);
+        }
+        assertEquals(counting.getEstimatedCount(), compact.getEstimatedCount());
+    }
+
+    @Test
+    @DisplayName("the overflow table should keep counts above 15 exact")
+    void testOverflowTable() {
+        CompactCountingBloomFilter<String> filter = new CompactCountingBloomFilter<>(128, 3);
+        for (int i = 0; i < 20; i++) filter.add("hot");
+        long index = filter.getHashIndices("hot")[0];
+        assertTrue(filter.getCounter(index) >= 20);
+        assertTrue(filter.getOverflowCount() > 0);
+
+        for (int i = 0; i < 20; i++) filter.remove("hot");
+        assertFalse(filter.mightContain("hot"));
+        assertEquals(0, filter.getOverflowCount());
+    }
+
+    @Test
+    @DisplayName("without the overflow table saturated counters should never be decremented")
+    void testSaturationWithoutOverflowTable() {
+        CompactCountingBloomFilter<String> filter = new CompactCountingBloomFilter<>(128, 3,
+                KeyEncoders.defaultEncoder(), StandardHashStrategy.MURMUR3_LEGACY, false);
+        for (int i = 0; i < 20; i++) filter.add("hot");
+        long index = filter.getHashIndices("hot")[0];
+        assertEquals(CompactCountingBloomFilter.MAX_NIBBLE, filter.getCounter(index));
+
+        for (int i = 0; i < 20; i++) filter.remove("hot");
+        assertTrue(filter.mightContain("hot"), "saturated counters must not drop to zero");
+    }
+
+    @Test
+    @DisplayName("serialization should round trip counters and overflow entries at an eighth of the size")
+    void testSerializationRoundTrip() {
+        CompactCountingBloomFilter<String> filter = new CompactCountingBloomFilter<>(4096, 3,
+                KeyEncoders.defaultEncoder(), StandardHashStrategy.XXH3);
+        for (int i = 0; i < 200; i++) filter.add("e" + i);
+        for (int i = 0; i < 18; i++) filter.add("hot");
+        byte[] data = filter.toBytes();
+        assertTrue(data.length < new CountingBloomFilter<String>(4096, 3).toBytes().length / 7);
+
+        CompactCountingBloomFilter<String> copy = new CompactCountingBloomFilter<>(4096, 3,
+                KeyEncoders.defaultEncoder(), StandardHashStrategy.XXH3);
+        copy.fromBytes(data);
+        assertArrayEquals(data, copy.toBytes());
+        for (int i = 0; i < 18; i++) copy.remove("hot");
+        CompactCountingBloomFilter<String> withoutHot = new CompactCountingBloomFilter<>(4096, 3,
+                KeyEncoders.defaultEncoder(), StandardHashStrategy.XXH3);
+        for (int i = 0; i < 200; i++) withoutHot.add("e" + i);
+        assertArrayEquals(withoutHot.toBytes(), copy.toBytes());
+
+        CompactCountingBloomFilter<String> mismatched = new CompactCountingBloomFilter<>(4096, 3);
+        assertThrows(IllegalArgumentException.class, () -> mismatched.fromBytes(data));
+    }
+
+    @Test
+    @DisplayName("the set bit count should match a full scan after mixed adds, removes, saturation and overflow")
+    void testSetBitCountMatchesScan() {
+        for (boolean overflowTable : new boolean[] {true, false}) {
+            CompactCountingBloomFilter<String> filter = new CompactCountingBloomFilter<>(2048, 3,
+                    KeyEncoders.defaultEncoder(), StandardHashStrategy.XXH3, overflowTable);
+            for (int i = 0; i < 300; i++) filter.add("e" + i);
+            for (int i = 0; i < 40; i++) filter.add("hot");
+            assertEquals(scan(filter), filter.getSetBitCount());
+
+            for (int i = 0; i < 300; i += 2) filter.remove("e" + i);
+            for (int i = 0; i < 40; i++) filter.remove("hot");
+            assertEquals(scan(filter), filter.getSetBitCount());
+
+            CompactCountingBloomFilter<String> copy = new CompactCountingBloomFilter<>(2048, 3,
+                    KeyEncoders.defaultEncoder(), StandardHashStrategy.XXH3, overflowTable);
+            copy.fromBytes(filter.toBytes());
+            assertEquals(filter.getSetBitCount(), copy.getSetBitCount());
+
+            filter.clear();
+            assertEquals(0, filter.getSetBitCount());
+        }
+    }
+
+    private static long scan(CompactCountingBloomFilter<?> filter) {
+        long count = 0;
+        for (long i = 0; i < filter.getBitArraySize(); i++) {
+            if (filter.getCounter(i) > 0) count++;
+        }
+        return count;
+    }
+}
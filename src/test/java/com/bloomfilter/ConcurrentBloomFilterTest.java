@@ -0,0 +1,105 @@
+package com.bloomfilter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ConcurrentBloomFilter}: concurrent writers must not lose bits or
+ * counts, and readers must never miss an element whose insertion has completed.
+ */
+class ConcurrentBloomFilterTest {
+
+    private static final int THREADS = 8;
+    private static final int PER_THREAD = 20_000;
+
+    @Test
+    @DisplayName("concurrent inserts should match a sequentially built classic filter")
+    void testConcurrentInsertsMatchSequential() throws Exception {
+        ConcurrentBloomFilter<String> filter = new ConcurrentBloomFilter<>(1 << 20, 5);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < PER_THREAD; i++) filter.add("t" + thread + "-" + i);
+                }));
+            }
+            for (Future<?> future : futures) future.get();
+        } finally {
+            pool.shutdown();
+        }
+
+        ClassicBloomFilter<String> sequential = new ClassicBloomFilter<>(1 << 20, 5);
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < PER_THREAD; i++) sequential.add("t" + t + "-" + i);
+        }
+        assertEquals((long) THREADS * PER_THREAD, filter.getEstimatedCount());
+        assertArrayEquals(sequential.toBytes(), filter.toBytes());
+        assertEquals(filter.getStorage().cardinality(), filter.getSetBitCount());
+        assertEquals(sequential.getSetBitCount(), filter.getSetBitCount());
+    }
+
+    @Test
+    @DisplayName("readers should never miss an element whose add has completed")
+    void testNoFalseNegativesWhileWriting() throws Exception {
+        ConcurrentBloomFilter<String> filter = new ConcurrentBloomFilter<>(1 << 20, 4,
+                KeyEncoders.defaultEncoder(), StandardHashStrategy.XXH3);
+        AtomicInteger[] published = new AtomicInteger[THREADS];
+        for (int t = 0; t < THREADS; t++) published[t] = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS * 2);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            List<Future<Integer>> readers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                writers.add(pool.submit(() -> {
+                    for (int i = 0; i < PER_THREAD; i++) {
+                        filter.add("w" + thread + "-" + i);
+                        published[thread].set(i + 1);
+                    }
+                }));
+                readers.add(pool.submit(() -> {
+                    int misses = 0;
+                    while (published[thread].get() < PER_THREAD) {
+                        int upTo = published[thread].get();
+                        for (int i = Math.max(0, upTo - 100); i < upTo; i++) {
+                            if (!filter.mightContain("w" + thread + "-" + i)) misses++;
+                        }
+                    }
+                    return misses;
+                }));
+            }
+            for (Future<?> writer : writers) writer.get();
+            for (Future<Integer> reader : readers) assertEquals(0, reader.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("clear and fromBytes should reset the striped count")
+    void testCountAfterClearAndLoad() {
+        ConcurrentBloomFilter<String> filter = new ConcurrentBloomFilter<>(4096, 3);
+        for (int i = 0; i < 50; i++) filter.add("x" + i);
+        byte[] data = filter.toBytes();
+        filter.clear();
+        assertEquals(0, filter.getEstimatedCount());
+        assertFalse(filter.mightContain("x1"));
+
+        filter.fromBytes(data);
+        assertEquals(50, filter.getEstimatedCount());
+        assertTrue(filter.mightContain("x1"));
+        filter.add("y");
+        assertEquals(51, filter.getEstimatedCount());
+    }
+}
@@ -0,0 +1,160 @@
+package com.bloomfilter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit and stress tests for {@link ConcurrentCountingBloomFilter}: concurrent add/remove must
+ * never lose counter updates, and resident elements must never be reported absent.
+ */
+class ConcurrentCountingBloomFilterTest {
+
+    private static final int THREADS = 8;
+    private static final int RESIDENT_PER_THREAD = 2_000;
+    private static final int CHURN_ROUNDS = 20_000;
+
+    @Test
+    @DisplayName("concurrent add/remove churn should never produce a false negative")
+    void testNoFalseNegativesUnderChurn() throws Exception {
+        // Small filter so churned elements share counters with resident ones
+        ConcurrentCountingBloomFilter<String> filter = new ConcurrentCountingBloomFilter<>(1 << 14, 4);
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < RESIDENT_PER_THREAD; i++) filter.add("resident-" + t + "-" + i);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS * 2);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            List<Future<Long>> readers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                writers.add(pool.submit(() -> {
+                    start.await();
+                    for (int r = 0; r < CHURN_ROUNDS; r++) {
+                        String transient1 = "churn-" + thread + "-" + r;
+                        String transient2 = "churn-" + thread + "-" + (r + CHURN_ROUNDS);
+                        filter.add(transient1);
+                        filter.add(transient2);
+                        filter.remove(transient1);
+                        filter.remove(transient2);
+                    }
+                    return null;
+                }));
+                readers.add(pool.submit(() -> {
+                    start.await();
+                    long misses = 0;
+                    while (writing.get()) {
+                        for (int i = 0; i < RESIDENT_PER_THREAD; i += 7) {
+                            if (!filter.mightContain("resident-" + thread + "-" + i)) misses++;
+                        }
+                    }
+                    return misses;
+                }));
+            }
+            start.countDown();
+            for (Future<?> writer : writers) writer.get();
+            writing.set(false);
+            for (Future<Long> reader : readers) assertEquals(0L, reader.get());
+        } finally {
+            pool.shutdown();
+        }
+
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < RESIDENT_PER_THREAD; i++) {
+                assertTrue(filter.mightContain("resident-" + t + "-" + i));
+            }
+        }
+        assertEquals((long) THREADS * RESIDENT_PER_THREAD, filter.getEstimatedCount());
+
+        // Every churned element was removed, so counters must equal a resident-only filter
+        CountingBloomFilter<String> expected = new CountingBloomFilter<>(1 << 14, 4);
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < RESIDENT_PER_THREAD; i++) expected.add("resident-" + t + "-" + i);
+        }
+        assertArrayEquals(expected.toBytes(), filter.toBytes());
+    }
+
+    @Test
+    @DisplayName("saturated counters should never be decremented")
+    void testSaturatedCountersAreSticky() {
+        ConcurrentCountingBloomFilter<String> filter = new ConcurrentCountingBloomFilter<>(64, 2);
+        CountingBloomFilter<String> source = new CountingBloomFilter<>(64, 2);
+        source.add("a");
+        byte[] data = source.toBytes();
+        long[] indices = source.getHashIndices("a");
+        // Saturate the first counter of "a"
+        int offset = 20 + (int) indices[0] * 4;
+        data[offset] = 0x7F;
+        data[offset + 1] = data[offset + 2] = data[offset + 3] = (byte) 0xFF;
+        filter.fromBytes(data);
+
+        filter.remove("a");
+        assertEquals(Integer.MAX_VALUE, filter.getCounter(indices[0]));
+        filter.add("a");
+        assertEquals(Integer.MAX_VALUE, filter.getCounter(indices[0]));
+        assertTrue(filter.mightContain("a"));
+    }
+
+    @Test
+    @DisplayName("files should be interchangeable with CountingBloomFilter")
+    void testInterchangeableWithCounting() {
+        CountingBloomFilter<String> counting = new CountingBloomFilter<>(256, 3);
+        for (int i = 0; i < 20; i++) counting.add("e" + i);
+        ConcurrentCountingBloomFilter<String> filter = new ConcurrentCountingBloomFilter<>(256, 3);
+        filter.fromBytes(counting.toBytes());
+        assertEquals(20, filter.getEstimatedCount());
+        assertArrayEquals(counting.toBytes(), filter.toBytes());
+
+        filter.remove("e3");
+        counting.remove("e3");
+        assertArrayEquals(counting.toBytes(), filter.toBytes());
+    }
+
+    @Test
+    @DisplayName("the set bit count should match a full scan after concurrent adds and removes")
+    void testSetBitCountMatchesScan() throws Exception {
+        ConcurrentCountingBloomFilter<String> filter = new ConcurrentCountingBloomFilter<>(4096, 3);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) filter.add("t" + thread + "-" + i);
+                    for (int i = 0; i < 500; i += 3) filter.remove("t" + thread + "-" + i);
+                }));
+            }
+            for (Future<?> future : futures) future.get();
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(scan(filter), filter.getSetBitCount());
+
+        ConcurrentCountingBloomFilter<String> copy = new ConcurrentCountingBloomFilter<>(4096, 3);
+        copy.fromBytes(filter.toBytes());
+        assertEquals(filter.getSetBitCount(), copy.getSetBitCount());
+
+        filter.clear();
+        assertEquals(0, filter.getSetBitCount());
+    }
+
+    private static long scan(ConcurrentCountingBloomFilter<?> filter) {
+        long count = 0;
+        for (long i = 0; i < filter.getBitArraySize(); i++) {
+            if (filter.getCounter(i) > 0) count++;
+        }
+        return count;
+    }
+}
@@ -1,7 +1,18 @@
 package com.bloomfilter;
 
+import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link CountingBloomFilter}: a visual walk-through of add, remove and
+ * serialization, and the count-min style frequency estimates with and without
+ * conservative update, and merging by counter addition.
+ */
 class CountingBloomFilterTest {
 
     @Test
@@ -38,4 +49,145 @@ class CountingBloomFilterTest {
         System.out.println("\n--- False-Positive Rate ---");
         System.out.printf("Estimated FPR: %.6f%n", filter.estimateFalsePositiveRate());
     }
+
+    /** Adds element {@code "e" + i} {@code i % 50 + 1} times, for 2,000 distinct elements. */
+    private static int fillSkewed(CountingBloomFilter<String> filter) {
+        int total = 0;
+        for (int i = 0; i < 2_000; i++) {
+            for (int r = 0; r <= i % 50; r++) {
+                filter.add("e" + i);
+                total++;
+            }
+        }
+        return total;
+    }
+
+    @Test
+    @DisplayName("estimates should never fall below the true count, tighter with conservative update")
+    void testEstimateCount() {
+        CountingBloomFilter<String> standard = new CountingBloomFilter<>(8_000, 4,
+                KeyEncoders.defaultEncoder(), StandardHashStrategy.MURMUR3);
+        CountingBloomFilter<String> conservative = new CountingBloomFilter<>(8_000, 4,
+                KeyEncoders.defaultEncoder(), StandardHashStrategy.MURMUR3, true);
+        assertTrue(conservative.isConservativeUpdate());
+        assertEquals(fillSkewed(standard), fillSkewed(conservative));
+
+        long standardError = 0;
+        long conservativeError = 0;
+        for (int i = 0; i < 2_000; i++) {
+            int truth = i % 50 + 1;
+            int a = standard.estimateCount("e" + i);
+            int b = conservative.estimateCount("e" + i);
+            assertTrue(a >= truth, "standard underestimates e" + i);
+            assertTrue(b >= truth, "conservative underestimates e" + i);
+            assertTrue(b <= a, "conservative exceeds standard for e" + i);
+            standardError += a - truth;
+            conservativeError += b - truth;
+        }
+        assertTrue(conservativeError < standardError,
+                "conservative error " + conservativeError + " vs standard " + standardError);
+        assertEquals(0, new CountingBloomFilter<String>(64, 3).estimateCount("missing"));
+    }
+
+    @Test
+    @DisplayName("topK should rank the heaviest candidates first")
+    void testTopK() {
+        CountingBloomFilter<String> filter = new CountingBloomFilter<>(100_000, 4,
+                KeyEncoders.defaultEncoder(), StandardHashStrategy.MURMUR3, true);
+        List<String> candidates = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            for (int r = 0; r <= i; r++) filter.add("item" + i);
+            candidates.add("item" + i);
+        }
+        candidates.add("item199");
+        candidates.add("never-added");
+
+        List<CountingBloomFilter.Frequency<String>> top = filter.topK(candidates, 3);
+        assertEquals(3, top.size());
+        assertEquals("item199", top.get(0).element());
+        assertEquals("item198", top.get(1).element());
+        assertEquals("item197", top.get(2).element());
+        assertTrue(top.get(0).count() >= 200);
+        assertTrue(filter.topK(candidates, 0).isEmpty());
+        assertTrue(filter.topK(List.of("never-added"), 5).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> filter.topK(candidates, -1));
+    }
+
+    @Test
+    @DisplayName("non-zero counters should be tracked through adds and removes")
+    void testSetBitCount() {
+        CountingBloomFilter<String> filter = new CountingBloomFilter<>(10_000, 4,
+                KeyEncoders.defaultEncoder(), StandardHashStrategy.MURMUR3);
+        for (int i = 0; i < 500; i++) {
+            filter.add("k" + i);
+            filter.add("k" + i);
+        }
+        long nonZero = 0;
+        for (long i = 0; i < filter.getBitArraySize(); i++) if (filter.getBit(i)) nonZero++;
+        assertEquals(nonZero, filter.getSetBitCount());
+        assertEquals(500, filter.estimateDistinctCount(), 25);
+
+        for (int i = 0; i < 500; i++) {
+            filter.remove("k" + i);
+            filter.remove("k" + i);
+        }
+        assertEquals(0, filter.getSetBitCount());
+        assertEquals(0, filter.getFillRatio());
+    }
+
+    @Test
+    @DisplayName("conservative update should refuse removal but keep membership")
+    void testConservativeRemoveRejected() {
+        CountingBloomFilter<String> filter = new CountingBloomFilter<>(1_000, 3,
+                KeyEncoders.defaultEncoder(), StandardHashStrategy.MURMUR3, true);
+        filter.add("a");
+        filter.add("a");
+        assertThrows(UnsupportedOperationException.class, () -> filter.remove("a"));
+        assertTrue(filter.mightContain("a"));
+        assertEquals(2, filter.estimateCount("a"));
+        assertEquals(2, filter.getEstimatedCount());
+    }
+
+    @Test
+    @DisplayName("verbose and fast paths should produce the same counters")
+    void testVerboseConservativeMatchesFast() {
+        CountingBloomFilter<String> fast = new CountingBloomFilter<>(256, 3,
+                KeyEncoders.defaultEncoder(), StandardHashStrategy.MURMUR3, true);
+        CountingBloomFilter<String> verbose = new CountingBloomFilter<>(256, 3,
+                KeyEncoders.defaultEncoder(), StandardHashStrategy.MURMUR3, true);
+        verbose.setVerbose(true);
+        for (String s : new String[]{"x", "y", "x", "z", "x"}) {
+            fast.add(s);
+            verbose.add(s);
+        }
+        assertArrayEquals(fast.toBytes(), verbose.toBytes());
+        assertEquals(3, verbose.estimateCount("x"));
+    }
+
+    @Test
+    @DisplayName("merging should add counters like ingesting both streams")
+    void testUnion() {
+        CountingBloomFilter<String> a = new CountingBloomFilter<>(5_000, 3,
+                KeyEncoders.defaultEncoder(), StandardHashStrategy.MURMUR3);
+        CountingBloomFilter<String> b = new CountingBloomFilter<>(5_000, 3,
+                KeyEncoders.defaultEncoder(), StandardHashStrategy.MURMUR3);
+        CountingBloomFilter<String> both = new CountingBloomFilter<>(5_000, 3,
+                KeyEncoders.defaultEncoder(), StandardHashStrategy.MURMUR3);
+        for (int i = 0; i < 300; i++) {
+            a.add("k" + i);
+            both.add("k" + i);
+        }
+        for (int i = 200; i < 500; i++) {
+            b.add("k" + i);
+            both.add("k" + i);
+        }
+        CountingBloomFilter<String> merged = a.union(b);
+        assertArrayEquals(both.toBytes(), merged.toBytes());
+        assertEquals(both.getSetBitCount(), merged.getSetBitCount());
+        assertTrue(merged.estimateCount("k250") >= 2);
+
+        a.unionWith(b);
+        assertArrayEquals(both.toBytes(), a.toBytes());
+        assertThrows(IllegalArgumentException.class, () -> a.unionWith(new CountingBloomFilter<>(5_000, 4)));
+    }
 }
@@ -0,0 +1,123 @@
+package com.bloomfilter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link CuckooFilter}: insert, lookup and delete must be exact for added
+ * elements up to high load, fullness must be reported without losing elements, and the
+ * table must survive a round trip through {@link FilterIO}.
+ */
+class CuckooFilterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("should find every element near full load and forget removed ones")
+    void testAddContainsRemove() {
+        for (int bits : new int[]{8, 12, 16}) {
+            CuckooFilter<String> filter = new CuckooFilter<>(10_000, bits);
+            int n = (int) (filter.getBucketCount() * CuckooFilter.BUCKET_SIZE * 0.9);
+            for (int i = 0; i < n; i++) filter.add("k" + i);
+            assertFalse(filter.isFull());
+            for (int i = 0; i < n; i++) assertTrue(filter.mightContain("k" + i), bits + " bits: k" + i);
+
+            for (int i = 0; i < n; i += 2) filter.remove("k" + i);
+            for (int i = 1; i < n; i += 2) assertTrue(filter.mightContain("k" + i));
+            int stillThere = 0;
+            for (int i = 0; i < n; i += 2) if (filter.mightContain("k" + i)) stillThere++;
+            assertTrue(stillThere < n / 2 * 0.05, bits + " bits: " + stillThere + " removed elements still match");
+            assertEquals(n - (n + 1) / 2, filter.getEstimatedCount());
+        }
+    }
+
+    @Test
+    @DisplayName("measured FPR should track the estimate")
+    void testFalsePositiveRate() {
+        CuckooFilter<String> filter = new CuckooFilter<>(20_000, 10, KeyEncoders.defaultEncoder(),
+                StandardHashStrategy.XXH3);
+        for (int i = 0; i < 20_000; i++) filter.add("in-" + i);
+        int trials = 200_000;
+        int falsePositives = 0;
+        for (int i = 0; i < trials; i++) if (filter.mightContain("out-" + i)) falsePositives++;
+        double measured = (double) falsePositives / trials;
+        double estimate = filter.estimateFalsePositiveRate();
+        assertEquals(estimate, measured, estimate * 0.25, "measured " + measured);
+    }
+
+    @Test
+    @DisplayName("a full filter should refuse inserts without losing elements and recover after removals")
+    void testFullSignalling() {
+        CuckooFilter<String> filter = new CuckooFilter<>(64, 8);
+        int added = 0;
+        while (filter.tryAdd("f" + added)) added++;
+        assertTrue(filter.isFull());
+        assertTrue(added >= filter.getBucketCount() * CuckooFilter.BUCKET_SIZE * 0.8, "added " + added);
+        for (int i = 0; i < added; i++) assertTrue(filter.mightContain("f" + i));
+        assertThrows(IllegalStateException.class, () -> filter.add("overflow"));
+        assertEquals(added, filter.getEstimatedCount());
+
+        filter.remove("f0");
+        filter.remove("f1");
+        assertFalse(filter.isFull());
+        for (int i = 2; i < added; i++) assertTrue(filter.mightContain("f" + i));
+        assertTrue(filter.tryAdd("again"));
+    }
+
+    @Test
+    @DisplayName("should use a fraction of the memory of a counting filter with a similar FPR")
+    void testMemoryAgainstCountingFilter() {
+        int n = 10_000;
+        CuckooFilter<String> cuckoo = new CuckooFilter<>(n, 12);
+        CountingBloomFilter<String> counting = new CountingBloomFilter<>(n * 10, 7);
+        for (int i = 0; i < n; i++) {
+            cuckoo.add("m" + i);
+            counting.add("m" + i);
+        }
+        assertTrue(cuckoo.estimateFalsePositiveRate() < counting.estimateFalsePositiveRate());
+        assertTrue(cuckoo.toBytes().length * 10 < counting.toBytes().length);
+    }
+
+    @Test
+    @DisplayName("verbose and fast paths should build the same table")
+    void testVerboseAndFastPathsAgree() {
+        CuckooFilter<String> fast = new CuckooFilter<>(32, 8);
+        CuckooFilter<String> verbose = new CuckooFilter<>(32, 8);
+        verbose.setVerbose(true);
+        for (int i = 0; i < 20; i++) {
+            fast.add("e" + i);
+            verbose.add("e" + i);
+        }
+        verbose.remove("e3");
+        fast.remove("e3");
+        assertArrayEquals(fast.toBytes(), verbose.toBytes());
+        assertTrue(verbose.mightContain("e4"));
+    }
+
+    @Test
+    @DisplayName("should round trip through FilterIO and reject other configurations")
+    void testFilterIORoundTrip() throws IOException {
+        CuckooFilter<String> filter = new CuckooFilter<>(1000, 12);
+        for (int i = 0; i < 900; i++) filter.add("x" + i);
+        String file = tempDir.resolve("cuckoo.bin").toString();
+        FilterIO.saveToFile(filter, file);
+
+        CuckooFilter<String> copy = new CuckooFilter<>(1000, 12);
+        FilterIO.loadFromFile(copy, file);
+        assertArrayEquals(filter.toBytes(), copy.toBytes());
+        for (int i = 0; i < 900; i++) assertTrue(copy.mightContain("x" + i));
+        copy.remove("x0");
+        assertEquals(899, copy.getEstimatedCount());
+
+        assertThrows(IOException.class, () -> FilterIO.loadFromFile(new CuckooFilter<String>(1000, 16), file));
+        assertThrows(IllegalArgumentException.class, () -> new CuckooFilter<String>(10, 3));
+        assertThrows(IllegalArgumentException.class, () -> new CuckooFilter<String>(0));
+    }
+}
@@ -2,14 +2,19 @@ package com.bloomfilter;
 
 import org.junit.jupiter.api.*;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.zip.CRC32C;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Unit tests for {@link FilterIO}.
- * Focuses on file operations, validation logic, and metadata inspection.
+ * Focuses on file operations, validation logic, metadata inspection and the versioned
+ * file format.
  */
 class FilterIOTest {
 
@@ -23,23 +28,23 @@ class FilterIOTest {
 
         // Core bit array hooks (no-op stubs)
         @Override
-        protected int[] getHashIndices(String element) {
+        protected long[] getHashIndices(String element) {
             // Deterministic stub for testing
-            return new int[]{0, 1};
+            return new long[]{0, 1};
         }
 
         @Override
-        protected void setBit(int index) {
+        protected void setBit(long index) {
             // No bit array used in dummy
         }
 
         @Override
-        protected boolean getBit(int index) {
+        protected boolean getBit(long index) {
             return true; // Always true for simplicity
         }
 
         @Override
-        protected void clearBit(int index) {
+        protected void clearBit(long index) {
             // No-op
         }
 
@@ -81,7 +86,12 @@ class FilterIOTest {
 
         assertTrue(Files.exists(out), "Output file should exist after save");
         byte[] content = Files.readAllBytes(out);
-        assertArrayEquals(new byte[]{1, 2, 3, 4}, content, "File content should match filter bytes");
+        assertEquals(FilterHeader.LENGTH + 4, content.length, "File should hold the header and the filter bytes");
+        assertArrayEquals(new byte[]{1, 2, 3, 4}, Arrays.copyOfRange(content, FilterHeader.LENGTH, content.length),
+                "Payload should match filter bytes");
+        FilterHeader header = FilterHeader.read(ByteBuffer.wrap(content));
+        assertEquals(FilterHeader.Algorithm.OTHER, header.algorithm());
+        assertEquals(4, header.payloadLength());
     }
 
     @Test
@@ -234,6 +244,51 @@ class FilterIOTest {
         assertEquals(List.of("apple", "banana", "cherry"), words);
     }
 
+    @Test
+    @DisplayName("streamed word lists should match readAllLines across chunk boundaries")
+    void testStreamWordListChunks() throws IOException {
+        Path listFile = tempDir.resolve("chunks.txt");
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 2_000; i++) {
+            text.append(i % 7 == 0 ? "# note " + i : "  wörd-" + i + "\t").append(i % 3 == 0 ? "\r\n" : "\n");
+            if (i % 50 == 0) text.append("\n   \n");
+        }
+        text.append("x".repeat(300)).append("\nlast-without-break");
+        Files.writeString(listFile, text);
+        List<String> expected = Files.readAllLines(listFile).stream()
+                .map(String::trim)
+                .filter(s -> !s.isEmpty() && !s.startsWith("#"))
+                .toList();
+
+        // Chunks far smaller than the file, and than the long line, force carries and growth
+        for (int chunk : new int[]{64, 1_000, FilterIO.INGEST_CHUNK}) {
+            List<String> words = new ArrayList<>();
+            FilterIO.IngestStats stats = FilterIO.streamWordList(listFile, chunk, words::addAll, null);
+            assertEquals(expected, words, "chunk " + chunk);
+            assertEquals(Files.size(listFile), stats.bytes());
+            assertEquals(Files.readAllLines(listFile).size(), stats.lines());
+            assertEquals(expected.size(), stats.words());
+        }
+    }
+
+    @Test
+    @DisplayName("ingestWordList should fill a filter exactly like adding each word")
+    void testIngestWordList() throws IOException {
+        Path listFile = tempDir.resolve("ingest.txt");
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) lines.add(i % 10 == 0 ? "#c" : " w" + i);
+        Files.write(listFile, lines);
+
+        ClassicBloomFilter<String> streamed = new ClassicBloomFilter<>(1 << 20, 5);
+        ClassicBloomFilter<String> sequential = new ClassicBloomFilter<>(1 << 20, 5);
+        FilterIO.IngestStats stats = FilterIO.ingestWordList(streamed, listFile.toString());
+        for (String word : FilterIO.loadWordList(listFile.toString())) sequential.add(word);
+
+        assertEquals(45_000, stats.words());
+        assertArrayEquals(sequential.toBytes(), streamed.toBytes());
+        assertThrows(IOException.class, () -> FilterIO.ingestWordList(streamed, tempDir.resolve("none").toString()));
+    }
+
     @Test
     @DisplayName("metadata should print decoded integers or throw on invalid file")
     void testMetadataValidAndInvalid() throws IOException {
@@ -260,4 +315,232 @@ class FilterIOTest {
         assertThrows(IOException.class, () -> FilterIO.metadata(missing.toString()));
     }
 
+    @Test
+    @DisplayName("mapFromFile should query a saved classic filter in place")
+    void testMapFromFile() throws IOException {
+        ClassicBloomFilter<String> original = new ClassicBloomFilter<>(4096, 5, KeyEncoders.defaultEncoder(),
+                StandardHashStrategy.XXH3);
+        for (int i = 0; i < 300; i++) original.add("word-" + i);
+        Path file = tempDir.resolve("mapped.bin");
+        FilterIO.saveToFile(original, file.toString());
+
+        try (ClassicBloomFilter<String> mapped = FilterIO.mapFromFile(file.toString())) {
+            assertEquals(StandardHashStrategy.XXH3, mapped.getHashStrategy());
+            assertEquals(300, mapped.getEstimatedCount());
+            for (int i = 0; i < 300; i++) assertTrue(mapped.mightContain("word-" + i));
+            for (int i = 0; i < 2000; i++) {
+                assertEquals(original.mightContain("other-" + i), mapped.mightContain("other-" + i));
+            }
+            assertArrayEquals(original.toBytes(), mapped.toBytes());
+            assertThrows(UnsupportedOperationException.class, () -> mapped.add("new"));
+            assertThrows(UnsupportedOperationException.class, mapped::clear);
+        }
+    }
+
+    @Test
+    @DisplayName("mapFromFile should read legacy files without a strategy trailer")
+    void testMapLegacyFile() throws IOException {
+        try (ClassicBloomFilter<String> mapped =
+                     FilterIO.mapFromFile("filters/fruit_ClassicBloomFilter_m64_k3_v20251028205146.bin")) {
+            assertEquals(StandardHashStrategy.MURMUR3_LEGACY, mapped.getHashStrategy());
+            assertTrue(mapped.mightContain("apple"));
+        }
+        Path shortFile = tempDir.resolve("short.bin");
+        Files.write(shortFile, new byte[]{0, 0, 0, 64});
+        assertThrows(IOException.class, () -> FilterIO.mapFromFile(shortFile.toString()));
+        assertThrows(IOException.class, () -> FilterIO.mapFromFile(tempDir.resolve("missing.bin").toString()));
+    }
+
+    @Test
+    @DisplayName("mapFromFile and metadata should read the wide header of filters beyond 2^31 bits")
+    void testWideHeader() throws IOException {
+        long m = 3L << 32;
+        ByteBuffer buffer = ByteBuffer.allocate(ClassicBloomFilter.Header.WIDE_LENGTH + 16 + 4);
+        new ClassicBloomFilter.Header(m, 3, 42, 16).write(buffer);
+        buffer.put(new byte[]{1, 0, 0, 0, 0, 0, 0, (byte) 0x80, 0, 0, 0, 0, 0, 0, 0, 2});
+        buffer.putInt(StandardHashStrategy.MURMUR3.id());
+        Path file = tempDir.resolve("wide.bin");
+        Files.write(file, buffer.array());
+
+        try (ClassicBloomFilter<String> mapped = FilterIO.mapFromFile(file.toString())) {
+            assertEquals(m, mapped.getBitArraySize());
+            assertEquals(42, mapped.getEstimatedCount());
+            assertEquals(StandardHashStrategy.MURMUR3, mapped.getHashStrategy());
+            BitStorage bits = mapped.getStorage();
+            assertTrue(bits.get(0));
+            assertTrue(bits.get(63));
+            assertTrue(bits.get(121));
+            assertFalse(bits.get(120));
+            assertFalse(bits.get(m - 1));
+            assertEquals(3, bits.cardinality());
+        }
+        assertDoesNotThrow(() -> FilterIO.metadata(file.toString()));
+    }
+
+    @Test
+    @DisplayName("versioned files should describe the filter in a header-only read and load back exactly")
+    void testVersionedRoundTrip() throws IOException {
+        PartitionedBloomFilter<String> original = PartitionedBloomFilter.sliced(40_000, 5,
+                KeyEncoders.defaultEncoder(), StandardHashStrategy.MURMUR3);
+        for (int i = 0; i < 5_000; i++) original.add("v" + i);
+        Path file = tempDir.resolve("versioned.bin");
+        FilterIO.saveToFile(original, file.toString());
+
+        FilterHeader header = FilterIO.readHeader(file.toString()).orElseThrow();
+        assertEquals(FilterHeader.VERSION, header.version());
+        assertEquals(FilterHeader.Algorithm.PARTITIONED_SLICED, header.algorithm());
+        assertEquals(StandardHashStrategy.MURMUR3.id(), header.hashStrategy());
+        assertEquals(original.getBitArraySize(), header.bitArraySize());
+        assertEquals(5, header.hashCount());
+        assertEquals(5_000, header.itemCount());
+        assertEquals(Files.size(file) - FilterHeader.LENGTH, header.payloadLength());
+        assertEquals(header, FilterIO.verify(file.toString()));
+        assertDoesNotThrow(() -> FilterIO.metadata(file.toString()));
+
+        PartitionedBloomFilter<String> loaded = PartitionedBloomFilter.sliced(40_000, 5,
+                KeyEncoders.defaultEncoder(), StandardHashStrategy.MURMUR3);
+        FilterIO.loadFromFile(loaded, file.toString());
+        assertArrayEquals(original.toBytes(), loaded.toBytes());
+
+        // Unversioned files have no header and no checksum
+        Path legacy = tempDir.resolve("legacy.bin");
+        Files.write(legacy, original.toBytes());
+        assertTrue(FilterIO.readHeader(legacy.toString()).isEmpty());
+        assertThrows(IOException.class, () -> FilterIO.verify(legacy.toString()));
+    }
+
+    @Test
+    @DisplayName("loading should reject other filter types and strategies, and corrupt payloads")
+    void testVersionedValidation() throws IOException {
+        ClassicBloomFilter<String> original = new ClassicBloomFilter<>(8_192, 4, KeyEncoders.defaultEncoder(),
+                StandardHashStrategy.MURMUR3);
+        for (int i = 0; i < 500; i++) original.add("c" + i);
+        Path file = tempDir.resolve("classic.bin");
+        FilterIO.saveToFile(original, file.toString());
+
+        // Same m and k, so only the header tells these apart from the classic filter
+        BlockedBloomFilter<String> blocked = new BlockedBloomFilter<>(8_192, 4, KeyEncoders.defaultEncoder(),
+                StandardHashStrategy.MURMUR3);
+        blocked.add("kept");
+        IOException wrongType = assertThrows(IOException.class, () -> FilterIO.loadFromFile(blocked, file.toString()));
+        assertTrue(wrongType.getMessage().contains("BLOCKED"));
+        assertTrue(blocked.mightContain("kept"));
+        ClassicBloomFilter<String> legacyStrategy = new ClassicBloomFilter<>(8_192, 4);
+        assertThrows(IOException.class, () -> FilterIO.loadFromFile(legacyStrategy, file.toString()));
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[FilterHeader.LENGTH + 100] ^= 1;
+        Path corrupt = tempDir.resolve("corrupt.bin");
+        Files.write(corrupt, bytes);
+        ClassicBloomFilter<String> target = new ClassicBloomFilter<>(8_192, 4, KeyEncoders.defaultEncoder(),
+                StandardHashStrategy.MURMUR3);
+        IOException mismatch = assertThrows(IOException.class, () -> FilterIO.loadFromFile(target, corrupt.toString()));
+        assertTrue(mismatch.getMessage().contains("checksum"));
+        assertEquals(0, target.getSetBitCount());
+        assertThrows(IOException.class, () -> FilterIO.verify(corrupt.toString()));
+
+        // A damaged header no longer identifies the file, which then fails as an unversioned one
+        bytes = Files.readAllBytes(file);
+        bytes[12] ^= 1;
+        Files.write(corrupt, bytes);
+        assertTrue(FilterIO.readHeader(corrupt.toString()).isEmpty());
+        assertThrows(IOException.class, () -> FilterIO.loadFromFile(target, corrupt.toString()));
+
+        Files.write(corrupt, Arrays.copyOf(Files.readAllBytes(file), (int) Files.size(file) - 10));
+        assertThrows(IOException.class, () -> FilterIO.loadFromFile(target, corrupt.toString()));
+    }
+
+    @Test
+    @DisplayName("mapFromFile and loadFuseFilter should read versioned files and reject other types")
+    void testVersionedMappedAndFuse() throws IOException {
+        Path list = tempDir.resolve("fruit.txt");
+        Files.write(list, List.of("apple", "banana", "cherry"));
+        BinaryFuseFilter<String> fuse = FilterIO.ingestListToFuseBinary(list.toString(), tempDir.toString());
+        Path fuseFile;
+        try (var files = Files.list(tempDir)) {
+            fuseFile = files.filter(p -> p.toString().endsWith(".bin")).findFirst().orElseThrow();
+        }
+        assertEquals(FilterHeader.Algorithm.BINARY_FUSE,
+                FilterIO.readHeader(fuseFile.toString()).orElseThrow().algorithm());
+        BinaryFuseFilter<String> loaded = FilterIO.loadFuseFilter(fuseFile.toString());
+        assertArrayEquals(fuse.toBytes(), loaded.toBytes());
+        assertTrue(loaded.mightContain("banana"));
+        assertThrows(IOException.class, () -> FilterIO.mapFromFile(fuseFile.toString()));
+
+        Path legacyFuse = tempDir.resolve("legacy-fuse.bin");
+        Files.write(legacyFuse, fuse.toBytes());
+        assertTrue(FilterIO.loadFuseFilter(legacyFuse.toString()).mightContain("cherry"));
+
+        Path classic = tempDir.resolve("classic.bin");
+        ClassicBloomFilter<String> filter = new ClassicBloomFilter<>(1_000, 3);
+        filter.add("x");
+        FilterIO.saveToFile(filter, classic.toString());
+        assertThrows(IOException.class, () -> FilterIO.loadFuseFilter(classic.toString()));
+    }
+
+    @Test
+    @DisplayName("an unversioned classic file whose size happens to equal the magic number should load as before")
+    void testLegacyFileStartingWithMagic() throws IOException {
+        long m = FilterHeader.MAGIC;
+        ByteBuffer buffer = ByteBuffer.allocate(ClassicBloomFilter.Header.LENGTH + 16 + 4);
+        new ClassicBloomFilter.Header(m, 3, 7, 16).write(buffer);
+        buffer.put(new byte[]{1, 0, 0, 0, 0, 0, 0, (byte) 0x80, 0, 0, 0, 0, 0, 0, 0, 2});
+        buffer.putInt(StandardHashStrategy.MURMUR3.id());
+        Path file = tempDir.resolve("magic.bin");
+        Files.write(file, buffer.array());
+        assertEquals(FilterHeader.MAGIC, ByteBuffer.wrap(Files.readAllBytes(file)).getInt());
+
+        assertTrue(FilterIO.readHeader(file.toString()).isEmpty());
+        assertThrows(IOException.class, () -> FilterIO.verify(file.toString()));
+        assertDoesNotThrow(() -> FilterIO.metadata(file.toString()));
+        try (ClassicBloomFilter<String> mapped = FilterIO.mapFromFile(file.toString())) {
+            assertEquals(m, mapped.getBitArraySize());
+            assertEquals(7, mapped.getEstimatedCount());
+            assertEquals(3, mapped.getStorage().cardinality());
+        }
+        try (ClassicBloomFilter<String> loaded = new ClassicBloomFilter<>(BitStorage.offHeap(m), 3,
+                KeyEncoders.defaultEncoder(), StandardHashStrategy.MURMUR3)) {
+            FilterIO.loadFromFile(loaded, file.toString());
+            assertEquals(7, loaded.getEstimatedCount());
+            assertTrue(loaded.getStorage().get(121));
+            assertEquals(3, loaded.getSetBitCount());
+        }
+    }
+
+    @Test
+    @DisplayName("an intact header of a newer version or unknown algorithm should be rejected, not read as unversioned")
+    void testNewerVersionRejected() throws IOException {
+        ClassicBloomFilter<String> original = new ClassicBloomFilter<>(1_000, 3, KeyEncoders.defaultEncoder(),
+                StandardHashStrategy.MURMUR3);
+        original.add("x");
+        byte[] payload = original.toBytes();
+        ByteBuffer buffer = ByteBuffer.allocate(FilterHeader.LENGTH + payload.length);
+        new FilterHeader(FilterHeader.VERSION + 1, FilterHeader.Algorithm.CLASSIC, StandardHashStrategy.MURMUR3.id(),
+                1_000, 3, 1, payload.length, 0).write(buffer);
+        buffer.put(payload);
+        Path newer = tempDir.resolve("newer.bin");
+        Files.write(newer, buffer.array());
+
+        IOException ex = assertThrows(IOException.class, () -> FilterIO.readHeader(newer.toString()));
+        assertTrue(ex.getMessage().contains("Unsupported filter format version"));
+        ClassicBloomFilter<String> target = new ClassicBloomFilter<>(1_000, 3, KeyEncoders.defaultEncoder(),
+                StandardHashStrategy.MURMUR3);
+        assertThrows(IOException.class, () -> FilterIO.loadFromFile(target, newer.toString()));
+        assertThrows(IOException.class, () -> FilterIO.mapFromFile(newer.toString()));
+        assertThrows(IOException.class, () -> FilterIO.metadata(newer.toString()));
+        assertThrows(IOException.class, () -> FilterIO.loadFuseFilter(newer.toString()));
+
+        // Same header with an algorithm id this version does not know, and a recomputed checksum
+        buffer.putShort(4, (short) FilterHeader.VERSION).putShort(6, (short) 999);
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), 0, FilterHeader.LENGTH - 4);
+        buffer.putInt(FilterHeader.LENGTH - 4, (int) crc.getValue());
+        Path unknown = tempDir.resolve("unknown.bin");
+        Files.write(unknown, buffer.array());
+        ex = assertThrows(IOException.class, () -> FilterIO.readHeader(unknown.toString()));
+        assertTrue(ex.getMessage().contains("Unknown filter algorithm id"));
+        assertThrows(IOException.class, () -> FilterIO.loadFromFile(target, unknown.toString()));
+        assertThrows(IOException.class, () -> FilterIO.mapFromFile(unknown.toString()));
+        assertThrows(IOException.class, () -> FilterIO.metadata(unknown.toString()));
+    }
 }
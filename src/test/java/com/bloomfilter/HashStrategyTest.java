@@ -0,0 +1,91 @@
+package com.bloomfilter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link HashStrategy} and {@link StandardHashStrategy}.
+ * Checks the hash functions against reference values, the index derivation, and that the
+ * strategy is recorded in serialized filters.
+ */
+class HashStrategyTest {
+
+    /** Input pattern shared by the reference vectors below. */
+    private static byte[] pattern(int len) {
+        byte[] data = new byte[len];
+        for (int i = 0; i < len; i++) data[i] = (byte) (i * 31 + 7);
+        return data;
+    }
+
+    @Test
+    @DisplayName("XXH3 and wyhash should match reference values across all length classes")
+    void testReferenceVectors() {
+        int[] lengths = {0, 2, 6, 12, 40, 100, 200, 1024};
+        long[] xxh3 = {0x2D06800538D394C2L, 0xA7E250C97710FF27L, 0x99B2E675FBA1E0B5L, 0x46AAF92C7550AFA4L,
+                0x80EF652AB3F1B4B5L, 0x8C97158042FBF926L, 0x12FDB864685F344DL, 0x23BC880EBF0D29C6L};
+        long[] wyhash = {0x0000000000000000L, 0xBED0EA090A712F92L, 0xF8E2A07BD99610ACL, 0xCEE53A398F04096BL,
+                0x7FABC822DA43D28FL, 0x7B38029D1CDFB699L, 0x03D8962FEB30B71CL, 0x5C0772C1A6BE3F18L};
+        for (int i = 0; i < lengths.length; i++) {
+            byte[] data = pattern(lengths[i]);
+            assertEquals(xxh3[i], HashUtils.xxh3_64(data, 0, data.length), "xxh3 length " + lengths[i]);
+            assertEquals(wyhash[i], HashUtils.wyhash(data, 0, data.length, 0), "wyhash length " + lengths[i]);
+        }
+    }
+
+    @Test
+    @DisplayName("multiply-shift reduction should stay in range and use the high bits")
+    void testReduce() {
+        assertEquals(0, HashUtils.reduce(0L, 10));
+        assertEquals(9, HashUtils.reduce(-1L, 10));
+        assertEquals(5, HashUtils.reduce(Long.MIN_VALUE, 10));
+    }
+
+    @Test
+    @DisplayName("enhanced double hashing should not collapse when hash2 is zero")
+    void testEnhancedIndexWithZeroSecondHash() {
+        Set<Integer> seen = new HashSet<>();
+        for (int i = 0; i < 8; i++) {
+            int idx = HashUtils.enhancedIndex(0x123456789L, 0L, i, 1 << 20);
+            assertTrue(idx >= 0 && idx < (1 << 20));
+            seen.add(idx);
+        }
+        assertTrue(seen.size() > 1);
+    }
+
+    @Test
+    @DisplayName("every strategy should give no false negatives and a sane false-positive rate")
+    void testStrategiesBehaveLikeBloomFilters() {
+        for (StandardHashStrategy strategy : StandardHashStrategy.values()) {
+            ClassicBloomFilter<String> filter =
+                    new ClassicBloomFilter<>(9586, 7, KeyEncoders.defaultEncoder(), strategy);
+            for (int i = 0; i < 1000; i++) filter.add("member-" + i);
+            for (int i = 0; i < 1000; i++) assertTrue(filter.mightContain("member-" + i), strategy.name());
+            int falsePositives = 0;
+            for (int i = 0; i < 20_000; i++) if (filter.mightContain("other-" + i)) falsePositives++;
+            assertTrue(falsePositives < 20_000 * 0.03, strategy + " FPR too high: " + falsePositives);
+        }
+    }
+
+    @Test
+    @DisplayName("serialized filters should record their strategy and reject a mismatch")
+    void testStrategyRecordedInSerializedForm() {
+        ClassicBloomFilter<String> filter =
+                new ClassicBloomFilter<>(512, 3, KeyEncoders.defaultEncoder(), StandardHashStrategy.XXH3);
+        filter.add("apple");
+        byte[] data = filter.toBytes();
+
+        ClassicBloomFilter<String> same =
+                new ClassicBloomFilter<>(512, 3, KeyEncoders.defaultEncoder(), StandardHashStrategy.XXH3);
+        same.fromBytes(data);
+        assertTrue(same.mightContain("apple"));
+
+        ClassicBloomFilter<String> legacy = new ClassicBloomFilter<>(512, 3);
+        assertThrows(IllegalArgumentException.class, () -> legacy.fromBytes(data));
+        assertSame(StandardHashStrategy.XXH3, HashStrategy.forId(StandardHashStrategy.XXH3.id()));
+    }
+}
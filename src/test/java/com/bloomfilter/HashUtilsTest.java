@@ -4,6 +4,8 @@ import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
 
+import static org.junit.jupiter.api.Assertions.*;
+
 class HashUtilsTest {
 
     @Test
@@ -16,4 +18,50 @@ class HashUtilsTest {
         int[] indices = HashUtils.generateIndices(hash, 5, 32);
         System.out.printf("Generated 5 indices (mod 32): %s%n", Arrays.toString(indices));
     }
+
+    @Test
+    void charSequenceHashMatchesStringHash() {
+        String[] inputs = {"", "apple", "a somewhat longer key spanning blocks", "Café", "日本語",
+                "emoji 😀 pair", "lone \uD800 surrogate", "trailing \uDBFF"};
+        long[] out = new long[2];
+        for (String input : inputs) {
+            HashUtils.hash128(new StringBuilder(input), out);
+            assertArrayEquals(HashUtils.hash128(input), out, "hash mismatch for " + input);
+        }
+    }
+
+    @Test
+    void indexMatchesGeneratedIndices() {
+        long[] hash = HashUtils.hash128("banana");
+        int[] indices = HashUtils.generateIndices(hash, 7, 1000);
+        for (int i = 0; i < indices.length; i++) {
+            assertEquals(indices[i], HashUtils.index(hash[0], hash[1], i, 1000));
+        }
+    }
+
+    @Test
+    void wideIndicesMatchIntIndicesAndStayInRange() {
+        long[] hash = HashUtils.hash128("cherry");
+        int[] narrow = HashUtils.generateIndices(hash, 7, 1000);
+        long[] wide = HashUtils.generateIndices(hash, 7, 1000L);
+        for (int i = 0; i < narrow.length; i++) {
+            assertEquals(narrow[i], wide[i]);
+            assertEquals(HashUtils.enhancedIndex(hash[0], hash[1], i, 1000),
+                    HashUtils.enhancedIndex(hash[0], hash[1], i, 1000L));
+        }
+
+        long m = 5L << 33;
+        boolean beyondInt = false;
+        for (int n = 0; n < 100; n++) {
+            long[] h = HashUtils.hash128("key" + n);
+            for (int i = 0; i < 5; i++) {
+                long legacy = HashUtils.index(h[0], h[1], i, m);
+                long enhanced = HashUtils.enhancedIndex(h[0], h[1], i, m);
+                assertTrue(legacy >= 0 && legacy < m);
+                assertTrue(enhanced >= 0 && enhanced < m);
+                beyondInt |= legacy > Integer.MAX_VALUE && enhanced > Integer.MAX_VALUE;
+            }
+        }
+        assertTrue(beyondInt, "indices should cover the range above Integer.MAX_VALUE");
+    }
 }
@@ -0,0 +1,77 @@
+package com.bloomfilter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link KeyEncoders}.
+ * Checks that encoders feed the expected bytes into the hash and that filters built with
+ * them keep the no-false-negative guarantee.
+ */
+class KeyEncodersTest {
+
+    private static <T> long[] hashOf(KeyEncoder<? super T> encoder, T key) {
+        KeyBuffer buffer = KeyBuffer.local().reset();
+        encoder.encode(key, buffer);
+        long[] out = new long[2];
+        HashUtils.hash128(buffer.array(), 0, buffer.size(), out);
+        return out;
+    }
+
+    @Test
+    @DisplayName("default encoder should hash strings exactly like the legacy toString path")
+    void testDefaultEncoderMatchesLegacyStrings() {
+        for (String key : new String[]{"apple", "Café", "日本語", ""}) {
+            assertArrayEquals(HashUtils.hash128(key), hashOf(KeyEncoders.defaultEncoder(), key));
+        }
+    }
+
+    @Test
+    @DisplayName("byte arrays should be hashed by content, not identity")
+    void testByteArraysHashByContent() {
+        byte[] a = {1, 2, 3, 4};
+        byte[] b = {1, 2, 3, 4};
+        assertArrayEquals(hashOf(KeyEncoders.defaultEncoder(), a), hashOf(KeyEncoders.defaultEncoder(), b));
+        assertArrayEquals(hashOf(KeyEncoders.bytes(), a), hashOf(KeyEncoders.byteBuffer(), ByteBuffer.wrap(b)));
+
+        ByteBuffer slice = ByteBuffer.wrap(new byte[]{9, 1, 2, 3, 4, 9}, 1, 4);
+        assertArrayEquals(hashOf(KeyEncoders.bytes(), a), hashOf(KeyEncoders.byteBuffer(), slice));
+        assertEquals(1, slice.position(), "encoding must not consume the buffer");
+    }
+
+    @Test
+    @DisplayName("tuple encoder should keep adjacent variable-length fields apart")
+    void testTupleIsUnambiguous() {
+        KeyEncoder<String[]> pair = KeyEncoders.tuple(
+                KeyEncoders.field(p -> p[0], KeyEncoders.charSequence()),
+                KeyEncoders.field(p -> p[1], KeyEncoders.charSequence()));
+        long[] first = hashOf(pair, new String[]{"ab", "c"});
+        long[] second = hashOf(pair, new String[]{"a", "bc"});
+        assertFalse(first[0] == second[0] && first[1] == second[1]);
+    }
+
+    @Test
+    @DisplayName("filters built with typed encoders should have no false negatives")
+    void testTypedFilters() {
+        ClassicBloomFilter<UUID> uuids = new ClassicBloomFilter<>(4096, 4, KeyEncoders.uuids());
+        CountingBloomFilter<Long> longs = new CountingBloomFilter<>(4096, 4, KeyEncoders.longs());
+        PartitionedBloomFilter<byte[]> blobs = new PartitionedBloomFilter<>(4, 1024, 4, KeyEncoders.bytes());
+        UUID[] ids = new UUID[200];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = new UUID(i * 31L, ~i);
+            uuids.add(ids[i]);
+            longs.add((long) i << 20);
+            blobs.add(new byte[]{(byte) i, (byte) (i >> 8), 7});
+        }
+        for (int i = 0; i < ids.length; i++) {
+            assertTrue(uuids.mightContain(new UUID(ids[i].getMostSignificantBits(), ids[i].getLeastSignificantBits())));
+            assertTrue(longs.mightContain((long) i << 20));
+            assertTrue(blobs.mightContain(new byte[]{(byte) i, (byte) (i >> 8), 7}));
+        }
+    }
+}
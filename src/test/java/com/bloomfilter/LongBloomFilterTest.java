@@ -0,0 +1,103 @@
+package com.bloomfilter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link LongBloomFilter}: the primitive fast path must agree with the generic
+ * byte-encoding path and produce files interchangeable with {@link ClassicBloomFilter}.
+ */
+class LongBloomFilterTest {
+
+    @Test
+    @DisplayName("primitive hash should equal MurmurHash3 of the little-endian bytes")
+    void testFastPathMatchesByteHash() {
+        long[] fast = new long[2];
+        for (long key : new long[]{0L, 1L, -1L, 42L, Long.MIN_VALUE, 0x0123456789abcdefL}) {
+            HashUtils.hash128(key, fast);
+            byte[] bytes = new byte[8];
+            for (int i = 0; i < 8; i++) bytes[i] = (byte) (key >>> (8 * i));
+            assertArrayEquals(HashUtils.hash128(bytes), fast, "mismatch for " + key);
+        }
+        for (int key : new int[]{0, 7, -1, Integer.MAX_VALUE}) {
+            HashUtils.hash128(key, fast);
+            byte[] bytes = {(byte) key, (byte) (key >>> 8), (byte) (key >>> 16), (byte) (key >>> 24)};
+            assertArrayEquals(HashUtils.hash128(bytes), fast, "mismatch for " + key);
+        }
+    }
+
+    @Test
+    @DisplayName("files should be interchangeable with a ClassicBloomFilter using the longs() encoder")
+    void testInterchangeableWithClassic() {
+        LongBloomFilter filter = new LongBloomFilter(2048, 4);
+        long[] keys = new long[300];
+        for (int i = 0; i < keys.length; i++) keys[i] = i * 0x9E3779B97F4A7C15L;
+        filter.addAll(keys);
+
+        ClassicBloomFilter<Long> generic = new ClassicBloomFilter<>(2048, 4, KeyEncoders.longs());
+        for (long key : keys) generic.add(key);
+        assertArrayEquals(generic.toBytes(), filter.toBytes());
+
+        LongBloomFilter copy = new LongBloomFilter(2048, 4);
+        copy.fromBytes(generic.toBytes());
+        boolean[] found = copy.mightContainAll(keys);
+        for (boolean b : found) assertTrue(b);
+        assertTrue(copy.mightContain(Long.valueOf(keys[5])));
+    }
+
+    @Test
+    @DisplayName("IntBloomFilter should agree with the integers() encoder")
+    void testIntFilter() {
+        IntBloomFilter filter = new IntBloomFilter(1024, 3);
+        ClassicBloomFilter<Integer> generic = new ClassicBloomFilter<>(1024, 3, KeyEncoders.integers());
+        for (int i = 0; i < 100; i++) {
+            filter.add(i * 7919);
+            generic.add(i * 7919);
+        }
+        assertArrayEquals(generic.toBytes(), filter.toBytes());
+        for (int i = 0; i < 100; i++) assertTrue(filter.mightContain(i * 7919));
+    }
+
+    @Test
+    @DisplayName("primitive batch insert and probe should match single-key calls across several batches")
+    void testPrimitiveBatches() {
+        int n = AbstractBloomFilter.ADD_BATCH * 2 + 123;
+        long[] longs = new long[n];
+        int[] ints = new int[n];
+        for (int i = 0; i < n; i++) {
+            longs[i] = i * 0x9E3779B97F4A7C15L;
+            ints[i] = i * 7919;
+        }
+        LongBloomFilter longBatch = new LongBloomFilter(1 << 20, 5, StandardHashStrategy.XXH3);
+        LongBloomFilter longSingle = new LongBloomFilter(1 << 20, 5, StandardHashStrategy.XXH3);
+        longBatch.addAll(longs);
+        for (long key : longs) longSingle.add(key);
+        assertArrayEquals(longSingle.toBytes(), longBatch.toBytes());
+        assertEquals(n, longBatch.getEstimatedCount());
+
+        IntBloomFilter intBatch = new IntBloomFilter(1 << 20, 5);
+        IntBloomFilter intSingle = new IntBloomFilter(1 << 20, 5);
+        intBatch.addAll(ints);
+        for (int key : ints) intSingle.add(key);
+        assertArrayEquals(intSingle.toBytes(), intBatch.toBytes());
+
+        // Interleave members with non-members so answers must line up with their keys
+        long[] longProbes = new long[n];
+        int[] intProbes = new int[n];
+        for (int i = 0; i < n; i++) {
+            longProbes[i] = i % 2 == 0 ? longs[i] : -i - 1L;
+            intProbes[i] = i % 2 == 0 ? ints[i] : -i - 1;
+        }
+        boolean[] longResults = longBatch.mightContainAll(longProbes);
+        boolean[] intResults = intBatch.mightContainAll(intProbes);
+        for (int i = 0; i < n; i++) {
+            assertEquals(longBatch.mightContain(longProbes[i]), longResults[i], "long at " + i);
+            assertEquals(intBatch.mightContain(intProbes[i]), intResults[i], "int at " + i);
+        }
+        assertEquals(0, longBatch.mightContainAll().length);
+        longBatch.addAll();
+        assertEquals(n, longBatch.getEstimatedCount());
+    }
+}
@@ -3,11 +3,22 @@ package com.bloomfilter;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Contract smoke test for {@link MembershipFilter}.
- * Ensures basic polymorphic expectations and default-method consistency (if any).
+ * Ensures basic polymorphic expectations and default-method consistency, and that bulk
+ * insertion through {@code addAll} gives every filter the same state as one {@code add} per
+ * element, and that channel serialization agrees with {@code toBytes}.
  */
 class MembershipFilterTest {
 
@@ -32,8 +43,144 @@ class MembershipFilterTest {
         assertTrue(filter.mightContain("apple"));
         assertEquals(1, filter.getEstimatedCount());
         assertEquals(0.0, filter.estimateFalsePositiveRate());
+        assertTrue(Double.isNaN(filter.getFillRatio()));
+        assertTrue(Double.isNaN(filter.estimateDistinctCount()));
         assertDoesNotThrow(() -> filter.fromBytes(filter.toBytes()));
         filter.clear();
         assertEquals(0, filter.getEstimatedCount());
     }
+
+    @Test
+    @DisplayName("default addAll should add every element of an iterable or stream")
+    void testDefaultAddAll() {
+        MinimalFilter filter = new MinimalFilter();
+        filter.addAll(List.of());
+        assertFalse(filter.mightContain("apple"));
+        filter.addAll(List.of("apple"));
+        assertTrue(filter.mightContain("apple"));
+        filter.clear();
+        filter.addAll(IntStream.range(0, 3).mapToObj(i -> "s" + i));
+        assertTrue(filter.mightContain("s0"));
+        assertThrows(NullPointerException.class, () -> filter.addAll((Iterable<String>) null));
+    }
+
+    private static List<Supplier<MembershipFilter<String>>> bulkCandidates() {
+        KeyEncoder<CharSequence> enc = KeyEncoders.charSequence();
+        StandardHashStrategy h = StandardHashStrategy.MURMUR3;
+        List<Supplier<MembershipFilter<String>>> factories = new ArrayList<>();
+        factories.add(() -> new ClassicBloomFilter<>(400_000, 5, enc, h));
+        factories.add(() -> new ConcurrentBloomFilter<>(400_000, 5, enc, h));
+        factories.add(() -> new BlockedBloomFilter<>(400_000, 5, enc, h));
+        factories.add(() -> new SplitBlockBloomFilter<>(400_000, enc, h));
+        factories.add(() -> new PartitionedBloomFilter<>(16, 25_000, 5, enc, h));
+        factories.add(() -> PartitionedBloomFilter.sliced(80_000, 5, enc, h));
+        factories.add(() -> new CountingBloomFilter<>(400_000, 4, enc, h, true));
+        factories.add(() -> new ConcurrentCountingBloomFilter<>(400_000, 4, enc, h));
+        factories.add(() -> new CompactCountingBloomFilter<>(400_000, 4, enc, h));
+        factories.add(() -> new ScalableBloomFilter<>(5_000, 0.01, enc, h));
+        factories.add(() -> new SlidingWindowBloomFilter<>(100_000, 4, 3, 7_000));
+        factories.add(() -> new CuckooFilter<>(60_000, 12, enc, h));
+        return factories;
+    }
+
+    @Test
+    @DisplayName("parallel addAll should leave every filter exactly as sequential add does")
+    void testAddAllMatchesSequential() {
+        // Several batches, with duplicates, so order-dependent filters are exercised
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 40_000; i++) keys.add("key-" + (i % 35_000));
+        for (Supplier<MembershipFilter<String>> factory : bulkCandidates()) {
+            try (MembershipFilter<String> sequential = factory.get();
+                 MembershipFilter<String> bulk = factory.get();
+                 MembershipFilter<String> streamed = factory.get()) {
+                String name = sequential.getClass().getSimpleName();
+                for (String key : keys) sequential.add(key);
+                bulk.addAll(keys);
+                streamed.addAll(keys.parallelStream());
+                assertArrayEquals(sequential.toBytes(), bulk.toBytes(), name);
+                assertArrayEquals(sequential.toBytes(), streamed.toBytes(), name);
+                assertEquals(sequential.getEstimatedCount(), bulk.getEstimatedCount(), name);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("addAll should stop at a null element with everything before it added, as sequential add does")
+    void testAddAllStopsAtNull() {
+        // The null falls in the second batch, after a full batch has already been inserted
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < AbstractBloomFilter.ADD_BATCH + 100; i++) keys.add("key-" + i);
+        keys.add(null);
+        keys.add("after-null");
+        for (Supplier<MembershipFilter<String>> factory : bulkCandidates()) {
+            try (MembershipFilter<String> sequential = factory.get(); MembershipFilter<String> bulk = factory.get()) {
+                String name = sequential.getClass().getSimpleName();
+                assertThrows(NullPointerException.class, () -> {
+                    for (String key : keys) sequential.add(key);
+                }, name);
+                assertThrows(NullPointerException.class, () -> bulk.addAll(keys), name);
+                assertArrayEquals(sequential.toBytes(), bulk.toBytes(), name);
+                assertEquals(AbstractBloomFilter.ADD_BATCH + 100, bulk.getEstimatedCount(), name);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("mightContainAll should answer exactly as mightContain does, in order")
+    void testMightContainAllMatchesSingleProbes() {
+        List<String> present = IntStream.range(0, 20_000).mapToObj(i -> "in-" + i).toList();
+        // Interleave members and non-members so batch results must line up with their keys
+        List<String> probes = new ArrayList<>();
+        for (int i = 0; i < 30_000; i++) probes.add(i % 3 == 0 ? "out-" + i : present.get(i % present.size()));
+        for (Supplier<MembershipFilter<String>> factory : bulkCandidates()) {
+            try (MembershipFilter<String> filter = factory.get()) {
+                String name = filter.getClass().getSimpleName();
+                filter.addAll(present);
+                boolean[] results = filter.mightContainAll(probes);
+                assertEquals(probes.size(), results.length, name);
+                for (int i = 0; i < probes.size(); i++) {
+                    assertEquals(filter.mightContain(probes.get(i)), results[i], name + " at " + i);
+                }
+                assertEquals(0, filter.mightContainAll(List.of()).length, name);
+            }
+        }
+        BinaryFuseFilter<String> fuse = new BinaryFuseFilter<>(present);
+        boolean[] results = fuse.mightContainAll(probes);
+        for (int i = 0; i < probes.size(); i++) assertEquals(fuse.mightContain(probes.get(i)), results[i]);
+    }
+
+    @Test
+    @DisplayName("writeTo and readFrom should round-trip every filter through the toBytes layout")
+    void testChannelRoundTrip() throws IOException {
+        List<String> keys = IntStream.range(0, 20_000).mapToObj(i -> "ch-" + i).toList();
+        for (Supplier<MembershipFilter<String>> factory : bulkCandidates()) {
+            try (MembershipFilter<String> filter = factory.get(); MembershipFilter<String> copy = factory.get()) {
+                String name = filter.getClass().getSimpleName();
+                filter.addAll(keys);
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                filter.writeTo(Channels.newChannel(out));
+                assertArrayEquals(filter.toBytes(), out.toByteArray(), name);
+
+                copy.readFrom(Channels.newChannel(new ByteArrayInputStream(out.toByteArray())));
+                assertArrayEquals(filter.toBytes(), copy.toBytes(), name);
+                assertEquals(filter.getEstimatedCount(), copy.getEstimatedCount(), name);
+                for (String key : keys) assertTrue(copy.mightContain(key), name);
+            }
+        }
+        assertThrows(NullPointerException.class, () -> new MinimalFilter().writeTo(null));
+        assertThrows(NullPointerException.class, () -> new MinimalFilter().readFrom(null));
+    }
+
+    @Test
+    @DisplayName("addAll should fail like add on a full or immutable filter")
+    void testAddAllFailures() {
+        CuckooFilter<String> cuckoo = new CuckooFilter<>(64, 8);
+        List<String> tooMany = IntStream.range(0, 1_000).mapToObj(i -> "f" + i).toList();
+        assertThrows(IllegalStateException.class, () -> cuckoo.addAll(tooMany));
+        assertTrue(cuckoo.isFull());
+
+        BinaryFuseFilter<String> fuse = new BinaryFuseFilter<>(List.of("a", "b"));
+        assertThrows(UnsupportedOperationException.class, () -> fuse.addAll(List.of("c")));
+        assertThrows(UnsupportedOperationException.class, () -> fuse.addAll(IntStream.range(0, 1).mapToObj(i -> "c")));
+    }
 }
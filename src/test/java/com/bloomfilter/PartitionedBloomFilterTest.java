@@ -1,9 +1,175 @@
 package com.bloomfilter;
 
+import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link PartitionedBloomFilter}: the routed layout must stay bit-for-bit
+ * compatible with existing files, the sliced layout must keep probe i in slice i, and both
+ * must hash each element only once.
+ */
 class PartitionedBloomFilterTest {
 
+    /** Delegates to MURMUR3_LEGACY and counts how many keys were hashed. */
+    private static final class CountingStrategy implements HashStrategy {
+        int calls;
+
+        @Override
+        public int id() {
+            return StandardHashStrategy.MURMUR3_LEGACY.id();
+        }
+
+        @Override
+        public void hash128(byte[] data, int offset, int length, long[] out) {
+            calls++;
+            StandardHashStrategy.MURMUR3_LEGACY.hash128(data, offset, length, out);
+        }
+    }
+
+    @Test
+    @DisplayName("routed layout should match the original per-partition classic filters byte for byte")
+    void testRoutedLayoutCompatibility() {
+        PartitionedBloomFilter<String> filter = new PartitionedBloomFilter<>(4, 32, 3);
+        @SuppressWarnings("unchecked")
+        ClassicBloomFilter<String>[] expected = new ClassicBloomFilter[4];
+        for (int i = 0; i < 4; i++) expected[i] = new ClassicBloomFilter<>(32, 3);
+        for (int i = 0; i < 10; i++) {
+            String key = "word" + i;
+            filter.add(key);
+            expected[Math.floorMod(HashUtils.hash128(key)[0], 4)].add(key);
+        }
+
+        // Original format: [p][size][k][n] then each partition's classic bytes
+        ByteBuffer buffer = ByteBuffer.wrap(filter.toBytes());
+        assertEquals(4, buffer.getInt());
+        assertEquals(32, buffer.getInt());
+        assertEquals(3, buffer.getInt());
+        assertEquals(10, buffer.getLong());
+        for (ClassicBloomFilter<String> partition : expected) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            assertArrayEquals(partition.toBytes(), bytes);
+        }
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    @DisplayName("each operation should hash the element exactly once")
+    void testSingleHashPerOperation() {
+        for (PartitionedBloomFilter.Layout layout : PartitionedBloomFilter.Layout.values()) {
+            CountingStrategy strategy = new CountingStrategy();
+            PartitionedBloomFilter<String> filter = new PartitionedBloomFilter<>(layout, 4, 256, 4,
+                    KeyEncoders.defaultEncoder(), strategy, BitStorage::heap);
+            filter.add("a");
+            assertTrue(filter.mightContain("a"));
+            assertEquals(2, strategy.calls, layout.name());
+
+            filter.setVerbose(true);
+            filter.add("b");
+            assertEquals(3, strategy.calls, layout.name() + " verbose");
+        }
+    }
+
+    @Test
+    @DisplayName("sliced layout should put probe i into slice i and find every element")
+    void testSlicedLayout() {
+        PartitionedBloomFilter<String> filter = PartitionedBloomFilter.sliced(1000, 5);
+        assertEquals(PartitionedBloomFilter.Layout.SLICED, filter.getLayout());
+        assertEquals(5, filter.getPartitionCount());
+        for (int i = 0; i < 200; i++) {
+            long[] indices = filter.getHashIndices("k" + i);
+            for (int slice = 0; slice < indices.length; slice++) {
+                assertEquals(slice, indices[slice] / 1000);
+            }
+            filter.add("k" + i);
+        }
+        for (int i = 0; i < 200; i++) assertTrue(filter.mightContain("k" + i));
+        assertThrows(IllegalArgumentException.class, () -> new PartitionedBloomFilter<String>(
+                PartitionedBloomFilter.Layout.SLICED, 4, 100, 5, KeyEncoders.defaultEncoder(),
+                StandardHashStrategy.MURMUR3, BitStorage::heap));
+    }
+
+    @Test
+    @DisplayName("sliced FPR estimate should track the measured rate")
+    void testSlicedFalsePositiveRate() {
+        int n = 20_000;
+        PartitionedBloomFilter<String> filter = PartitionedBloomFilter.sliced(n * 10 / 7, 7,
+                KeyEncoders.defaultEncoder(), StandardHashStrategy.XXH3);
+        for (int i = 0; i < n; i++) filter.add("in-" + i);
+        int trials = 200_000;
+        int falsePositives = 0;
+        for (int i = 0; i < trials; i++) if (filter.mightContain("out-" + i)) falsePositives++;
+        double measured = (double) falsePositives / trials;
+        double estimate = filter.estimateFalsePositiveRate();
+        assertEquals(estimate, measured, estimate * 0.25, "measured " + measured);
+    }
+
+    @Test
+    @DisplayName("verbose and fast paths should agree, and layouts should not load each other's data")
+    void testVerboseAndSerialization() {
+        for (PartitionedBloomFilter.Layout layout : PartitionedBloomFilter.Layout.values()) {
+            PartitionedBloomFilter<String> fast = new PartitionedBloomFilter<>(layout, 3, 128, 3,
+                    KeyEncoders.defaultEncoder(), StandardHashStrategy.MURMUR3, BitStorage::heap);
+            PartitionedBloomFilter<String> verbose = new PartitionedBloomFilter<>(layout, 3, 128, 3,
+                    KeyEncoders.defaultEncoder(), StandardHashStrategy.MURMUR3, BitStorage::heap);
+            verbose.setVerbose(true);
+            for (int i = 0; i < 15; i++) {
+                fast.add("e" + i);
+                verbose.add("e" + i);
+            }
+            assertArrayEquals(fast.toBytes(), verbose.toBytes(), layout.name());
+            assertTrue(verbose.mightContain("e7"));
+
+            PartitionedBloomFilter<String> copy = new PartitionedBloomFilter<>(layout, 3, 128, 3,
+                    KeyEncoders.defaultEncoder(), StandardHashStrategy.MURMUR3, BitStorage::heap);
+            copy.fromBytes(fast.toBytes());
+            for (int i = 0; i < 15; i++) assertTrue(copy.mightContain("e" + i));
+        }
+        byte[] routed = new PartitionedBloomFilter<String>(3, 128, 3).toBytes();
+        assertThrows(IllegalArgumentException.class, () -> PartitionedBloomFilter.<String>sliced(128, 3).fromBytes(routed));
+    }
+
+    @Test
+    @DisplayName("serialized data should record its layout and be rejected by a filter of the other layout")
+    void testLayoutRecorded() throws IOException {
+        // Same p, size and k, so only the layout tells these apart
+        PartitionedBloomFilter<String> sliced = PartitionedBloomFilter.sliced(128, 3);
+        PartitionedBloomFilter<String> routed = new PartitionedBloomFilter<>(3, 128, 3);
+        sliced.add("s");
+        routed.add("r");
+        byte[] slicedBytes = sliced.toBytes();
+        byte[] routedBytes = routed.toBytes();
+        assertEquals(PartitionedBloomFilter.SLICED_MARKER, ByteBuffer.wrap(slicedBytes).getInt());
+        assertEquals(3, ByteBuffer.wrap(routedBytes).getInt());
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> routed.fromBytes(slicedBytes));
+        assertTrue(ex.getMessage().contains("SLICED"));
+        assertThrows(IllegalArgumentException.class, () -> sliced.fromBytes(routedBytes));
+        assertThrows(IllegalArgumentException.class,
+                () -> routed.readFrom(Channels.newChannel(new ByteArrayInputStream(slicedBytes))));
+        assertThrows(IllegalArgumentException.class,
+                () -> sliced.readFrom(Channels.newChannel(new ByteArrayInputStream(routedBytes))));
+        assertTrue(routed.mightContain("r"));
+        assertTrue(sliced.mightContain("s"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        sliced.writeTo(Channels.newChannel(out));
+        assertArrayEquals(slicedBytes, out.toByteArray());
+        PartitionedBloomFilter<String> copy = PartitionedBloomFilter.sliced(128, 3);
+        copy.readFrom(Channels.newChannel(new ByteArrayInputStream(slicedBytes)));
+        assertArrayEquals(slicedBytes, copy.toBytes());
+    }
+
     @Test
     void visualPartitionedFilterDemo() {
         System.out.println("\n=== PartitionedBloomFilter Visual Demo ===");
@@ -30,4 +196,47 @@ class PartitionedBloomFilterTest {
         System.out.println("\n--- False-Positive Rate ---");
         System.out.printf("Estimated FPR: %.6f%n", filter.estimateFalsePositiveRate());
     }
+
+    @Test
+    @DisplayName("channel serialization should stream every partition and reject altered partition lengths")
+    void testChannelSerialization() throws IOException {
+        PartitionedBloomFilter<String> filter = new PartitionedBloomFilter<>(4, 3_000_000, 4);
+        for (int i = 0; i < 100_000; i++) filter.add("p" + i);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        filter.writeTo(Channels.newChannel(out));
+        byte[] data = out.toByteArray();
+        assertArrayEquals(filter.toBytes(), data);
+
+        PartitionedBloomFilter<String> copy = new PartitionedBloomFilter<>(4, 3_000_000, 4);
+        copy.readFrom(Channels.newChannel(new ByteArrayInputStream(data)));
+        assertArrayEquals(data, copy.toBytes());
+
+        // Claim one more byte for the first partition than its data holds
+        ByteBuffer.wrap(data).putInt(20, ByteBuffer.wrap(data).getInt(20) + 1);
+        assertThrows(IllegalArgumentException.class,
+                () -> copy.readFrom(Channels.newChannel(new ByteArrayInputStream(data))));
+        assertThrows(IllegalArgumentException.class, () -> new PartitionedBloomFilter<String>(5, 3_000_000, 4)
+                .readFrom(Channels.newChannel(new ByteArrayInputStream(filter.toBytes()))));
+    }
+
+    @Test
+    @DisplayName("routed batches grouped by partition should match single-element inserts and probes")
+    void testRoutedBatches() {
+        List<String> keys = IntStream.range(0, 30_000).mapToObj(i -> "r" + i).toList();
+        List<String> probes = IntStream.range(0, 20_000).mapToObj(i -> i % 2 == 0 ? "r" + i : "miss" + i).toList();
+        for (HashStrategy strategy : new HashStrategy[] {StandardHashStrategy.MURMUR3_LEGACY, StandardHashStrategy.XXH3}) {
+            PartitionedBloomFilter<String> batch = new PartitionedBloomFilter<>(7, 40_000, 4,
+                    KeyEncoders.defaultEncoder(), strategy);
+            PartitionedBloomFilter<String> single = new PartitionedBloomFilter<>(7, 40_000, 4,
+                    KeyEncoders.defaultEncoder(), strategy);
+            batch.addAll(keys);
+            for (String key : keys) single.add(key);
+            assertArrayEquals(single.toBytes(), batch.toBytes(), strategy.toString());
+
+            boolean[] results = batch.mightContainAll(probes);
+            for (int i = 0; i < probes.size(); i++) {
+                assertEquals(single.mightContain(probes.get(i)), results[i], strategy + " at " + i);
+            }
+        }
+    }
 }
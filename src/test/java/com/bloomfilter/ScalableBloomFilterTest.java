@@ -0,0 +1,143 @@
+package com.bloomfilter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ScalableBloomFilter}: the chain must grow past its initial capacity
+ * without false negatives while keeping the overall false-positive rate under the target.
+ */
+class ScalableBloomFilterTest {
+
+    @Test
+    @DisplayName("stages should grow geometrically and keep the FPR below the target")
+    void testGrowthKeepsFprBounded() {
+        ScalableBloomFilter<String> filter = new ScalableBloomFilter<>(1000, 0.01, KeyEncoders.defaultEncoder(),
+                StandardHashStrategy.XXH3);
+        assertEquals(1, filter.getStageCount());
+        int n = 100_000;
+        for (int i = 0; i < n; i++) filter.add("in-" + i);
+        for (int i = 0; i < n; i++) assertTrue(filter.mightContain("in-" + i));
+
+        assertTrue(filter.getStageCount() >= 6, "stages: " + filter.getStageCount());
+        for (int i = 1; i < filter.getStageCount(); i++) {
+            assertEquals(2 * filter.getStageCapacity(i - 1), filter.getStageCapacity(i));
+        }
+
+        int trials = 200_000;
+        int falsePositives = 0;
+        for (int i = 0; i < trials; i++) if (filter.mightContain("out-" + i)) falsePositives++;
+        double measured = (double) falsePositives / trials;
+        assertTrue(measured < 0.01, "measured " + measured);
+        assertTrue(filter.estimateFalsePositiveRate() < 0.01);
+        assertEquals(n, filter.getEstimatedCount());
+    }
+
+    @Test
+    @DisplayName("a fixed-size classic filter degrades where the scalable one does not")
+    void testComparedToOverfilledClassic() {
+        ClassicBloomFilter<String> classic = new ClassicBloomFilter<>(64, 3);
+        ScalableBloomFilter<String> scalable = new ScalableBloomFilter<>(8, 0.05);
+        for (int i = 0; i < 500; i++) {
+            classic.add("w" + i);
+            scalable.add("w" + i);
+        }
+        assertTrue(classic.estimateFalsePositiveRate() > 0.9);
+        assertTrue(scalable.estimateFalsePositiveRate() < 0.05);
+    }
+
+    @Test
+    @DisplayName("serialization should restore the whole chain")
+    void testRoundTrip() {
+        ScalableBloomFilter<String> filter = new ScalableBloomFilter<>(100, 0.02);
+        for (int i = 0; i < 2000; i++) filter.add("x" + i);
+        byte[] data = filter.toBytes();
+
+        ScalableBloomFilter<String> copy = new ScalableBloomFilter<>(100, 0.02);
+        copy.fromBytes(data);
+        assertEquals(filter.getStageCount(), copy.getStageCount());
+        assertEquals(filter.getBitArraySize(), copy.getBitArraySize());
+        assertEquals(2000, copy.getEstimatedCount());
+        for (int i = 0; i < 2000; i++) assertTrue(copy.mightContain("x" + i));
+        assertArrayEquals(data, copy.toBytes());
+
+        // Further inserts continue in the restored newest stage
+        copy.add("more");
+        assertTrue(copy.mightContain("more"));
+
+        assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter<String>(100, 0.05).fromBytes(data));
+        assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter<String>(100, 0.02,
+                KeyEncoders.defaultEncoder(), StandardHashStrategy.XXH3).fromBytes(data));
+    }
+
+    @Test
+    @DisplayName("verbose and fast paths should build the same chain, and clear should reset it")
+    void testVerboseAndClear() {
+        ScalableBloomFilter<String> fast = new ScalableBloomFilter<>(4, 0.1);
+        ScalableBloomFilter<String> verbose = new ScalableBloomFilter<>(4, 0.1);
+        verbose.setVerbose(true);
+        for (int i = 0; i < 30; i++) {
+            fast.add("e" + i);
+            verbose.add("e" + i);
+        }
+        assertArrayEquals(fast.toBytes(), verbose.toBytes());
+        assertTrue(verbose.mightContain("e0"));
+
+        fast.clear();
+        assertEquals(1, fast.getStageCount());
+        assertEquals(0, fast.getEstimatedCount());
+        assertFalse(fast.mightContain("e0"));
+    }
+
+    @Test
+    @DisplayName("invalid parameters should be rejected")
+    void testValidation() {
+        assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter<String>(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter<String>(10, 1.0));
+        assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter<String>(10, 0.01, 0, 0.8,
+                KeyEncoders.defaultEncoder(), StandardHashStrategy.MURMUR3));
+        assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter<String>(10, 0.01, 2, 1.0,
+                KeyEncoders.defaultEncoder(), StandardHashStrategy.MURMUR3));
+    }
+
+    @Test
+    @DisplayName("fromBytes should leave the filter untouched when a capacity or a stage is invalid")
+    void testFromBytesValidatesBeforeReplacing() {
+        ScalableBloomFilter<String> source = new ScalableBloomFilter<>(100, 0.02);
+        for (int i = 0; i < 1_000; i++) source.add("s" + i);
+        assertTrue(source.getStageCount() >= 3);
+        byte[] data = source.toBytes();
+
+        ScalableBloomFilter<String> target = new ScalableBloomFilter<>(100, 0.02);
+        for (int i = 0; i < 150; i++) target.add("t" + i);
+        byte[] before = target.toBytes();
+
+        // Header: initial capacity, rate, growth, ratio, count, stage count; then per stage
+        // its capacity, its length and its bytes
+        int stage0 = 8 + 8 + 4 + 8 + 8 + 4;
+        int stage1 = stage0 + 8 + 4 + ByteBuffer.wrap(data).getInt(stage0 + 8);
+        int stage2 = stage1 + 8 + 4 + ByteBuffer.wrap(data).getInt(stage1 + 8);
+
+        byte[] wrongCapacity = data.clone();
+        ByteBuffer.wrap(wrongCapacity).putLong(stage2, ByteBuffer.wrap(data).getLong(stage2) + 1);
+        assertThrows(IllegalArgumentException.class, () -> target.fromBytes(wrongCapacity));
+        assertArrayEquals(before, target.toBytes());
+
+        // The last stage's own header, after its sliced layout marker, claims another slice count
+        byte[] corruptStage = data.clone();
+        ByteBuffer.wrap(corruptStage).putInt(stage2 + 16, 99);
+        assertThrows(IllegalArgumentException.class, () -> target.fromBytes(corruptStage));
+        assertArrayEquals(before, target.toBytes());
+        assertEquals(150, target.getEstimatedCount());
+        for (int i = 0; i < 150; i++) assertTrue(target.mightContain("t" + i));
+
+        assertThrows(IllegalArgumentException.class, () -> target.fromBytes(Arrays.copyOf(data, 44)));
+        target.fromBytes(data);
+        assertArrayEquals(data, target.toBytes());
+    }
+}
@@ -0,0 +1,146 @@
+package com.bloomfilter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link SlidingWindowBloomFilter}: elements must be remembered for the whole
+ * window, forgotten once their generation expires, and rotation must never leave stale bits.
+ */
+class SlidingWindowBloomFilterTest {
+
+    @Test
+    @DisplayName("count budget should keep the last G-1 to G generations and forget older ones")
+    void testCountBudget() {
+        SlidingWindowBloomFilter<String> filter = new SlidingWindowBloomFilter<>(8192, 4, 3, 100);
+        for (int i = 0; i < 1000; i++) {
+            filter.add("e" + i);
+            // Everything from the previous two full generations must still be present
+            int oldestRemembered = Math.max(0, (i / 100 - 2) * 100);
+            for (int j = oldestRemembered; j <= i; j += 7) assertTrue(filter.mightContain("e" + j), i + "/" + j);
+        }
+        int forgotten = 0;
+        for (int i = 0; i < 600; i++) if (!filter.mightContain("e" + i)) forgotten++;
+        assertTrue(forgotten > 590, "forgotten " + forgotten);
+        assertEquals(300, filter.getEstimatedCount());
+        assertEquals(100, filter.getGenerationSize(0));
+
+        // Set bits cover the live generations only, recounted after each rotation
+        long liveBits = 0;
+        for (long i = 0; i < filter.getBitArraySize(); i++) if (filter.getBit(i)) liveBits++;
+        assertEquals(liveBits, filter.getSetBitCount());
+        assertEquals(300, filter.estimateDistinctCount(), 30);
+    }
+
+    @Test
+    @DisplayName("time budget should expire generations, including after a long pause")
+    void testTimeBudget() {
+        AtomicLong clock = new AtomicLong();
+        SlidingWindowBloomFilter<String> filter = new SlidingWindowBloomFilter<>(4096, 3, 4, 0,
+                Duration.ofMinutes(1), KeyEncoders.defaultEncoder(), StandardHashStrategy.MURMUR3, clock::get);
+        long minute = Duration.ofMinutes(1).toNanos();
+
+        filter.add("first");
+        clock.addAndGet(2 * minute);
+        filter.add("second");
+        assertTrue(filter.mightContain("first"));
+        assertEquals(1, filter.getGenerationSize(0));
+
+        clock.addAndGet(2 * minute); // "first" is now four generations old
+        assertFalse(filter.mightContain("first"));
+        assertTrue(filter.mightContain("second"));
+
+        clock.addAndGet(60 * minute);
+        assertFalse(filter.mightContain("second"));
+        assertEquals(0, filter.getEstimatedCount());
+        filter.add("third");
+        assertTrue(filter.mightContain("third"));
+    }
+
+    @Test
+    @DisplayName("rotation should hand out a fully cleared spare generation")
+    void testSpareIsClearedIncrementally() {
+        // Few items per generation relative to its size: each insert clears many words
+        SlidingWindowBloomFilter<Integer> filter = new SlidingWindowBloomFilter<>(1 << 16, 5, 2, 10,
+                Duration.ZERO, KeyEncoders.integers(), StandardHashStrategy.MURMUR3, System::nanoTime);
+        for (int i = 0; i < 10_000; i++) filter.add(i);
+        // Only the last 10 to 20 inserted values may be present
+        int present = 0;
+        for (int i = 0; i < 9_980; i++) if (filter.mightContain(i)) present++;
+        assertTrue(present < 5, "stale elements: " + present);
+        for (int i = 9_990; i < 10_000; i++) assertTrue(filter.mightContain(i));
+    }
+
+    @Test
+    @DisplayName("serialization should round trip the live generations, and verbose should match fast")
+    void testRoundTripAndVerbose() {
+        SlidingWindowBloomFilter<String> fast = new SlidingWindowBloomFilter<>(2048, 3, 3, 20);
+        SlidingWindowBloomFilter<String> verbose = new SlidingWindowBloomFilter<>(2048, 3, 3, 20);
+        verbose.setVerbose(true);
+        for (int i = 0; i < 70; i++) {
+            fast.add("x" + i);
+            verbose.add("x" + i);
+        }
+        byte[] data = fast.toBytes();
+        assertArrayEquals(data, verbose.toBytes());
+        assertTrue(verbose.mightContain("x69"));
+
+        SlidingWindowBloomFilter<String> copy = new SlidingWindowBloomFilter<>(2048, 3, 3, 20);
+        copy.fromBytes(data);
+        assertArrayEquals(data, copy.toBytes());
+        for (int i = 40; i < 70; i++) assertTrue(copy.mightContain("x" + i));
+        assertEquals(fast.getEstimatedCount(), copy.getEstimatedCount());
+
+        // The restored current generation continues filling up, then rotates
+        for (int i = 70; i < 100; i++) copy.add("x" + i);
+        assertEquals(20, copy.getGenerationSize(0));
+        assertThrows(IllegalArgumentException.class, () -> new SlidingWindowBloomFilter<String>(2048, 3, 4, 20)
+                .fromBytes(data));
+    }
+
+    @Test
+    @DisplayName("a bad generation should fail the whole load and leave the window untouched")
+    void testFromBytesValidatesBeforeReplacing() {
+        SlidingWindowBloomFilter<String> source = new SlidingWindowBloomFilter<>(2048, 3, 3, 20);
+        for (int i = 0; i < 70; i++) source.add("s" + i);
+        byte[] data = source.toBytes();
+
+        SlidingWindowBloomFilter<String> target = new SlidingWindowBloomFilter<>(2048, 3, 3, 20);
+        for (int i = 0; i < 50; i++) target.add("t" + i);
+        byte[] before = target.toBytes();
+
+        // The newest generation's own hash strategy trailer sits just before the window's
+        byte[] corrupt = data.clone();
+        ByteBuffer.wrap(corrupt).putInt(corrupt.length - 8, 999);
+        assertThrows(IllegalArgumentException.class, () -> target.fromBytes(corrupt));
+        assertArrayEquals(before, target.toBytes());
+        for (int i = 20; i < 50; i++) assertTrue(target.mightContain("t" + i));
+
+        // The window keeps rotating as if the load had never been tried
+        SlidingWindowBloomFilter<String> untouched = new SlidingWindowBloomFilter<>(2048, 3, 3, 20);
+        for (int i = 0; i < 50; i++) untouched.add("t" + i);
+        for (int i = 50; i < 90; i++) {
+            target.add("t" + i);
+            untouched.add("t" + i);
+        }
+        assertArrayEquals(untouched.toBytes(), target.toBytes());
+
+        target.fromBytes(data);
+        assertArrayEquals(data, target.toBytes());
+    }
+
+    @Test
+    @DisplayName("invalid configurations should be rejected")
+    void testValidation() {
+        assertThrows(IllegalArgumentException.class, () -> new SlidingWindowBloomFilter<String>(1024, 3, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new SlidingWindowBloomFilter<String>(1024, 3, 2, 0));
+        assertThrows(IllegalArgumentException.class, () -> new SlidingWindowBloomFilter<String>(1024, 3, 2,
+                Duration.ofSeconds(-1)));
+    }
+}
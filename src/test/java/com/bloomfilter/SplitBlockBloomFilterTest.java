@@ -0,0 +1,148 @@
+package com.bloomfilter;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link SplitBlockBloomFilter}: the SIMD and scalar kernels must set exactly
+ * the same bits, every element must hit one bit per word of a single block, and batched
+ * probes must agree with single ones.
+ */
+class SplitBlockBloomFilterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("the vector kernel should be picked up when the incubator module is present")
+    void testVectorKernelAvailable() {
+        SplitBlockBloomFilter<String> filter = new SplitBlockBloomFilter<>(1024);
+        assertTrue(filter.isVectorized(), "tests run with --add-modules jdk.incubator.vector");
+        assertFalse(ScalarSplitBlockKernel.INSTANCE.isVectorized());
+    }
+
+    @Test
+    @DisplayName("vector and scalar kernels should produce identical filters")
+    void testKernelsAgree() {
+        SplitBlockBloomFilter<String> vector = new SplitBlockBloomFilter<>(20_000, KeyEncoders.defaultEncoder(),
+                StandardHashStrategy.MURMUR3, SplitBlockKernel.best());
+        SplitBlockBloomFilter<String> scalar = new SplitBlockBloomFilter<>(20_000, KeyEncoders.defaultEncoder(),
+                StandardHashStrategy.MURMUR3, ScalarSplitBlockKernel.INSTANCE);
+        for (int i = 0; i < 2000; i++) {
+            vector.add("k" + i);
+            scalar.add("k" + i);
+        }
+        assertArrayEquals(scalar.toBytes(), vector.toBytes());
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(scalar.mightContain("q" + i), vector.mightContain("q" + i));
+        }
+        assertEquals(scalar.getSetBitCount(), vector.getSetBitCount());
+    }
+
+    @Test
+    @DisplayName("maintained set-bit count should match a popcount of the words")
+    void testSetBitCount() {
+        SplitBlockBloomFilter<String> filter = new SplitBlockBloomFilter<>(40_000, KeyEncoders.defaultEncoder(),
+                StandardHashStrategy.MURMUR3);
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 3000; i++) filter.add("k" + i);
+        }
+        SplitBlockBloomFilter<String> copy = new SplitBlockBloomFilter<>(40_000, KeyEncoders.defaultEncoder(),
+                StandardHashStrategy.MURMUR3);
+        copy.fromBytes(filter.toBytes());
+        long popcount = 0;
+        for (long i = 0; i < copy.getBitArraySize(); i++) if (copy.getBit(i)) popcount++;
+        assertEquals(popcount, filter.getSetBitCount());
+        assertEquals(popcount, copy.getSetBitCount());
+        assertEquals(3000, filter.estimateDistinctCount(), 3000 * 0.05);
+        filter.clear();
+        assertEquals(0, filter.getSetBitCount());
+    }
+
+    @Test
+    @DisplayName("each element should set one bit in each of the eight words of one block")
+    void testOneBitPerWord() {
+        SplitBlockBloomFilter<String> filter = new SplitBlockBloomFilter<>(100_000);
+        assertEquals(0, filter.getBitArraySize() % SplitBlockBloomFilter.BLOCK_BITS);
+        for (int i = 0; i < 1000; i++) {
+            long[] indices = filter.getHashIndices("key-" + i);
+            assertEquals(SplitBlockBloomFilter.HASH_COUNT, indices.length);
+            long block = indices[0] / SplitBlockBloomFilter.BLOCK_BITS;
+            for (int w = 0; w < indices.length; w++) {
+                assertEquals(block * 8 + w, indices[w] / 32);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("verbose and fast paths should set the same bits")
+    void testVerboseAndFastPathsAgree() {
+        SplitBlockBloomFilter<String> fast = new SplitBlockBloomFilter<>(4096);
+        SplitBlockBloomFilter<String> verbose = new SplitBlockBloomFilter<>(4096);
+        verbose.setVerbose(true);
+        for (int i = 0; i < 20; i++) {
+            fast.add("e" + i);
+            verbose.add("e" + i);
+        }
+        assertArrayEquals(fast.toBytes(), verbose.toBytes());
+        assertTrue(verbose.mightContain("e3"));
+    }
+
+    @Test
+    @DisplayName("no false negatives and measured FPR close to the estimate")
+    void testFalsePositiveRateEstimate() {
+        int n = 50_000;
+        SplitBlockBloomFilter<String> filter = new SplitBlockBloomFilter<>(n * 10L);
+        for (int i = 0; i < n; i++) filter.add("in-" + i);
+        for (int i = 0; i < n; i++) assertTrue(filter.mightContain("in-" + i));
+
+        int trials = 200_000;
+        int falsePositives = 0;
+        for (int i = 0; i < trials; i++) if (filter.mightContain("out-" + i)) falsePositives++;
+        double measured = (double) falsePositives / trials;
+        double estimate = filter.estimateFalsePositiveRate();
+        assertEquals(estimate, measured, estimate * 0.25, "measured " + measured);
+    }
+
+    @Test
+    @DisplayName("batched probes should match single probes")
+    void testMightContainAll() {
+        SplitBlockBloomFilter<String> filter = new SplitBlockBloomFilter<>(8192);
+        for (int i = 0; i < 500; i++) filter.add("x" + i);
+        List<String> batch = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) batch.add((i % 2 == 0 ? "x" : "y") + i);
+        boolean[] results = filter.mightContainAll(batch);
+        assertEquals(batch.size(), results.length);
+        for (int i = 0; i < batch.size(); i++) assertEquals(filter.mightContain(batch.get(i)), results[i]);
+        assertEquals(0, filter.mightContainAll(List.of()).length);
+    }
+
+    @Test
+    @DisplayName("serialization should round trip through FilterIO and reject other configurations")
+    void testRoundTrip() throws IOException {
+        SplitBlockBloomFilter<String> filter = new SplitBlockBloomFilter<>(10_000, KeyEncoders.defaultEncoder(),
+                StandardHashStrategy.XXH3);
+        for (int i = 0; i < 500; i++) filter.add("x" + i);
+        String file = tempDir.resolve("split.bf").toString();
+        FilterIO.saveToFile(filter, file);
+
+        SplitBlockBloomFilter<String> copy = new SplitBlockBloomFilter<>(10_000, KeyEncoders.defaultEncoder(),
+                StandardHashStrategy.XXH3);
+        FilterIO.loadFromFile(copy, file);
+        assertArrayEquals(filter.toBytes(), copy.toBytes());
+        for (int i = 0; i < 500; i++) assertTrue(copy.mightContain("x" + i));
+        assertEquals(500, copy.getEstimatedCount());
+
+        byte[] data = filter.toBytes();
+        assertThrows(IllegalArgumentException.class, () -> new SplitBlockBloomFilter<String>(20_000).fromBytes(data));
+        assertThrows(IllegalArgumentException.class, () -> new SplitBlockBloomFilter<String>(10_000).fromBytes(data));
+    }
+}